@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.agent;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.ownership.Capturable;
+import net.digitalid.utility.collections.list.FreezableArrayList;
+import net.digitalid.utility.collections.list.FreezableList;
+import net.digitalid.utility.configuration.Configuration;
+import net.digitalid.utility.contracts.Require;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.freezable.annotations.NonFrozen;
+import net.digitalid.utility.functional.failable.FailableUnaryFunction;
+import net.digitalid.utility.functional.iterables.FiniteIterable;
+import net.digitalid.utility.tuples.Pair;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+import net.digitalid.utility.validation.annotations.type.Utility;
+
+import net.digitalid.database.annotations.transaction.NonCommitting;
+import net.digitalid.database.exceptions.DatabaseException;
+
+import net.digitalid.core.entity.NonHostEntity;
+import net.digitalid.core.property.ObserverDispatcher;
+
+/**
+ * The agent coverage memoizes per entity which agents cover which other agents and which agents are weaker than an agent.
+ * The results that involve an agent are invalidated by observers on its {@link Agent#removed() removal}, {@link Agent#permissions() permissions} and {@link Agent#restrictions() restrictions},
+ * whereas a modification of the node hierarchy of an entity has to {@link #invalidate(NonHostEntity) invalidate} all its results.
+ */
+@Utility
+public abstract class AgentCoverage {
+    
+    /* -------------------------------------------------- Caching -------------------------------------------------- */
+    
+    /**
+     * Stores whether the coverage of agents is cached.
+     * The observers are not notified again when a modification is rolled back, which is why caching should only be enabled if agents are modified in committing methods only.
+     * If the {@link ObserverDispatcher observer dispatcher} is asynchronous, the results of an agent are only invalidated once its modification has been committed
+     * and the notification has been delivered, which is why caching should not be combined with asynchronous dispatching if stale results are not acceptable.
+     */
+    public static final @Nonnull Configuration<Boolean> CACHING = Configuration.with(Boolean.FALSE);
+    
+    /**
+     * This class stores the cached results of a single entity, which may only be accessed while holding its lock.
+     */
+    @Mutable
+    private static class Coverages {
+        
+        /**
+         * Stores the number of invalidations so that results which were computed during an invalidation are not cached.
+         */
+        private long version = 0;
+        
+        /**
+         * Caches whether the first agent covers the second agent.
+         */
+        private final @Nonnull Map<@Nonnull Pair<@Nonnull Agent, @Nonnull Agent>, @Nonnull Boolean> covers = new HashMap<>();
+        
+        /**
+         * Caches the weaker agents of agents.
+         */
+        private final @Nonnull Map<@Nonnull Agent, @Nonnull FreezableList<@Nonnull Agent>> weakerAgents = new HashMap<>();
+        
+    }
+    
+    /**
+     * Stores the cached results of each entity.
+     */
+    private static final @Nonnull Map<@Nonnull NonHostEntity, @Nonnull Coverages> cache = new ConcurrentHashMap<>();
+    
+    /**
+     * Returns the cached results of the given entity.
+     */
+    @Pure
+    private static @Nonnull Coverages getCoverages(@Nonnull NonHostEntity entity) {
+        return cache.computeIfAbsent(entity, key -> new Coverages());
+    }
+    
+    /* -------------------------------------------------- Invalidation -------------------------------------------------- */
+    
+    /**
+     * Invalidates all cached results of the given entity.
+     */
+    @Impure
+    public static void invalidate(@Nonnull NonHostEntity entity) {
+        final @Nullable Coverages coverages = cache.get(entity);
+        if (coverages != null) {
+            synchronized (coverages) {
+                coverages.version += 1;
+                coverages.covers.clear();
+                coverages.weakerAgents.clear();
+            }
+        }
+    }
+    
+    /**
+     * Invalidates the cached results that involve the given agent.
+     * The weaker agents of all agents are invalidated because the given agent might now be weaker or no longer weaker than any of them.
+     */
+    @Impure
+    public static void invalidate(@Nonnull Agent agent) {
+        final @Nullable Coverages coverages = cache.get(agent.getEntity());
+        if (coverages != null) {
+            synchronized (coverages) {
+                coverages.version += 1;
+                final @Nonnull Iterator<@Nonnull Pair<@Nonnull Agent, @Nonnull Agent>> iterator = coverages.covers.keySet().iterator();
+                while (iterator.hasNext()) {
+                    final @Nonnull Pair<@Nonnull Agent, @Nonnull Agent> pair = iterator.next();
+                    if (pair.get0().equals(agent) || pair.get1().equals(agent)) { iterator.remove(); }
+                }
+                coverages.weakerAgents.clear();
+            }
+        }
+    }
+    
+    /* -------------------------------------------------- Observation -------------------------------------------------- */
+    
+    /**
+     * Stores the agents whose properties are observed, which are referenced weakly so that they can still be garbage-collected.
+     */
+    private static final @Nonnull Set<@Nonnull Agent> observedAgents = Collections.newSetFromMap(new WeakHashMap<>());
+    
+    /**
+     * Registers the observers that invalidate the cached results of the given agent unless they are already registered.
+     */
+    @Impure
+    private static void observe(@Nonnull Agent agent) {
+        final boolean added;
+        synchronized (observedAgents) {
+            added = observedAgents.add(agent);
+        }
+        if (added) {
+            agent.removed().register((property, oldValue, newValue) -> invalidate(agent));
+            agent.permissions().register((property, key, value, added) -> invalidate(agent));
+            agent.restrictions().register((property, oldValue, newValue) -> invalidate(agent));
+        }
+    }
+    
+    /* -------------------------------------------------- Computations -------------------------------------------------- */
+    
+    /**
+     * Stores the number of coverages that have been computed instead of being served from the cache.
+     */
+    private static final @Nonnull AtomicLong computations = new AtomicLong();
+    
+    /**
+     * Returns the number of coverages that have been computed instead of being served from the cache.
+     */
+    @Pure
+    public static @NonNegative long getComputations() {
+        return computations.get();
+    }
+    
+    /**
+     * Returns whether the given agent covers the other agent without consulting the cache.
+     */
+    @Pure
+    @NonCommitting
+    private static boolean compute(@Nonnull Agent agent, @Nonnull Agent other) throws DatabaseException, RecoveryException {
+        computations.incrementAndGet();
+        if (agent.removed().get()) { return false; }
+        if (agent.equals(other)) { return true; }
+        if (agent.isOutgoingRole() && other.isClientAgent()) { return false; }
+        return agent.permissions().get().cover(other.permissions().get()) && agent.restrictions().get().cover(other.restrictions().get());
+    }
+    
+    /* -------------------------------------------------- Coverage -------------------------------------------------- */
+    
+    /**
+     * Returns whether the given agent covers the other agent, which means that the given agent is not removed and has at least the permissions and restrictions of the other agent.
+     * 
+     * @require agent.getEntity().equals(other.getEntity()) : "The agents belong to the same entity.";
+     */
+    @Pure
+    @NonCommitting
+    public static boolean covers(@Nonnull Agent agent, @Nonnull Agent other) throws DatabaseException, RecoveryException {
+        Require.that(agent.getEntity().equals(other.getEntity())).orThrow("The agents $ and $ have to belong to the same entity.", agent, other);
+        
+        if (!CACHING.get()) { return compute(agent, other); }
+        
+        final @Nonnull Coverages coverages = getCoverages(agent.getEntity());
+        final @Nonnull Pair<@Nonnull Agent, @Nonnull Agent> pair = Pair.of(agent, other);
+        final long version;
+        synchronized (coverages) {
+            final @Nullable Boolean result = coverages.covers.get(pair);
+            if (result != null) { return result; }
+            version = coverages.version;
+        }
+        observe(agent);
+        observe(other);
+        final boolean result = compute(agent, other);
+        synchronized (coverages) {
+            if (coverages.version == version) { coverages.covers.put(pair, result); }
+        }
+        return result;
+    }
+    
+    /* -------------------------------------------------- Weaker Agents -------------------------------------------------- */
+    
+    /**
+     * Returns the agents that are covered by the given agent among the agents of its entity, which are only loaded with the given function if the result is not cached.
+     */
+    @Pure
+    @NonCommitting
+    public static @Capturable @Nonnull @NonFrozen FreezableList<@Nonnull Agent> getWeakerAgents(@Nonnull Agent agent, @Nonnull FailableUnaryFunction<@Nonnull NonHostEntity, @Nonnull FiniteIterable<@Nonnull Agent>, DatabaseException> agents) throws DatabaseException, RecoveryException {
+        final @Nonnull Coverages coverages = getCoverages(agent.getEntity());
+        final long version;
+        if (CACHING.get()) {
+            synchronized (coverages) {
+                final @Nullable FreezableList<@Nonnull Agent> result = coverages.weakerAgents.get(agent);
+                if (result != null) { return FreezableArrayList.withElementsOf(result); }
+                version = coverages.version;
+            }
+        } else {
+            version = -1;
+        }
+        final @Nonnull FreezableList<@Nonnull Agent> result = FreezableArrayList.withNoElements();
+        for (final @Nonnull Agent other : agents.evaluate(agent.getEntity())) {
+            if (!other.equals(agent) && covers(agent, other)) { result.add(other); }
+        }
+        if (CACHING.get()) {
+            synchronized (coverages) {
+                if (coverages.version == version) { coverages.weakerAgents.put(agent, FreezableArrayList.withElementsOf(result)); }
+            }
+        }
+        return result;
+    }
+    
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.attribute;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.generics.Unspecifiable;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.ownership.Capturable;
+import net.digitalid.utility.collections.list.FreezableArrayList;
+import net.digitalid.utility.collections.list.FreezableList;
+import net.digitalid.utility.collections.list.ReadOnlyList;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.freezable.annotations.NonFrozen;
+import net.digitalid.utility.functional.iterables.FiniteIterable;
+import net.digitalid.utility.validation.annotations.elements.NonNullableElements;
+import net.digitalid.utility.validation.annotations.type.Utility;
+
+import net.digitalid.database.annotations.transaction.NonCommitting;
+import net.digitalid.database.conversion.SQL;
+import net.digitalid.database.conversion.WhereCondition;
+import net.digitalid.database.conversion.WhereConditionBuilder;
+import net.digitalid.database.exceptions.DatabaseException;
+import net.digitalid.database.property.value.PersistentValuePropertyEntry;
+import net.digitalid.database.property.value.WritablePersistentValueProperty;
+
+import net.digitalid.core.entity.Entity;
+import net.digitalid.core.entity.EntityConverter;
+import net.digitalid.core.expression.DecodedAttributes;
+import net.digitalid.core.expression.PassiveExpression;
+import net.digitalid.core.identification.annotations.AttributeType;
+import net.digitalid.core.identification.identity.SemanticType;
+import net.digitalid.core.property.value.WritableSynchronizedValueProperty;
+import net.digitalid.core.signature.attribute.AttributeValue;
+import net.digitalid.core.signature.credentials.CredentialsSignature;
+import net.digitalid.core.typeset.permissions.ReadOnlyNodePermissions;
+
+/**
+ * This class loads the values and visibilities of several attributes of an entity at once and determines which of them are visible.
+ * In contrast to retrieving the {@link Attribute#value() value} and the {@link Attribute#visibility() visibility} of each attribute,
+ * which queries the database once per property and attribute, the loader queries each property table at most once for all attributes
+ * of the entity and filters the rows of the requested types in memory. The selected rows are used to seed the properties that have not
+ * yet been loaded, so that the attributes are served from the property caches afterwards, and no table is queried if all are loaded.
+ * The visibilities are then evaluated in one pass with the certified attributes of the signature decoded only once.
+ */
+@Utility
+public abstract class AttributeLoader {
+    
+    /* -------------------------------------------------- Queries -------------------------------------------------- */
+    
+    /**
+     * Counts the queries of the loader so that the tests can check that each property table is queried at most once per load.
+     */
+    static final @Nonnull AtomicInteger queries = new AtomicInteger();
+    
+    /* -------------------------------------------------- Seeding -------------------------------------------------- */
+    
+    /**
+     * Seeds the given properties of attributes of the given entity that have not yet been loaded with the rows of their table.
+     * The table is queried with a single select for all attributes of the entity, and the rows of other attributes are ignored.
+     */
+    @Pure
+    @NonCommitting
+    @SuppressWarnings("unchecked")
+    private static <@Unspecifiable VALUE> void seed(@Nonnull Entity entity, @Nonnull @NonNullableElements FiniteIterable<? extends @Nonnull WritablePersistentValueProperty<Attribute, VALUE>> properties) throws DatabaseException, RecoveryException {
+        final @Nonnull FreezableList<@Nonnull WritableSynchronizedValueProperty<?, ?, Attribute, VALUE>> unloaded = FreezableArrayList.withNoElements();
+        for (final @Nonnull WritablePersistentValueProperty<Attribute, VALUE> property : properties) {
+            final @Nonnull WritableSynchronizedValueProperty<?, ?, Attribute, VALUE> synchronizedProperty = (WritableSynchronizedValueProperty<?, ?, Attribute, VALUE>) property;
+            if (!synchronizedProperty.isLoaded()) { unloaded.add(synchronizedProperty); }
+        }
+        if (unloaded.isEmpty()) { return; }
+        
+        final @Nonnull Map<@Nonnull SemanticType, @Nonnull PersistentValuePropertyEntry<Attribute, VALUE>> entries = new HashMap<>();
+        final @Nonnull WhereCondition<Entity> entityWhereCondition = WhereConditionBuilder.withConverter(EntityConverter.INSTANCE).withObject(entity).build();
+        queries.incrementAndGet();
+        for (final @Nonnull PersistentValuePropertyEntry<Attribute, VALUE> entry : SQL.selectAll(unloaded.getFirst().getTable(), null, entity.getUnit(), entityWhereCondition)) {
+            entries.put(entry.getSubject().getKey(), entry);
+        }
+        for (final @Nonnull WritableSynchronizedValueProperty<?, ?, Attribute, VALUE> property : unloaded) {
+            property.seed(entries.get(property.getSubject().getKey()));
+        }
+    }
+    
+    /* -------------------------------------------------- Loading -------------------------------------------------- */
+    
+    /**
+     * Returns the published or unpublished values and the visibilities of the attributes with the given types of the given entity in the order of the given types.
+     */
+    @Pure
+    @NonCommitting
+    public static @Capturable @Nonnull @NonFrozen FreezableList<@Nonnull LoadedAttribute> load(@Nonnull Entity entity, @Nonnull @NonNullableElements FiniteIterable<@Nonnull @AttributeType SemanticType> types, boolean published) throws DatabaseException, RecoveryException {
+        final @Nonnull FreezableList<@Nonnull Attribute> attributes = FreezableArrayList.withInitialCapacity(types.size());
+        for (final @Nonnull SemanticType type : types) { attributes.add(Attribute.of(entity, type)); }
+        
+        if (published) { seed(entity, attributes.map(Attribute::value)); }
+        else { seed(entity, attributes.map(Attribute::unpublished)); }
+        seed(entity, attributes.map(Attribute::visibility));
+        
+        final @Nonnull FreezableList<@Nonnull LoadedAttribute> loadedAttributes = FreezableArrayList.withInitialCapacity(attributes.size());
+        for (final @Nonnull Attribute attribute : attributes) {
+            final @Nullable AttributeValue value = published ? attribute.value().get() : attribute.unpublished().get();
+            loadedAttributes.add(LoadedAttributeBuilder.withType(attribute.getKey()).withValue(value).withVisibility(attribute.visibility().get()).build());
+        }
+        return loadedAttributes;
+    }
+    
+    /* -------------------------------------------------- Evaluation -------------------------------------------------- */
+    
+    /**
+     * Returns the values of the given attributes in the same order, where the values that are not visible to the issuer of the given signature are replaced with null.
+     * A value is visible if its type is contained in the given contact permissions or if its visibility matches the given signature.
+     * The attributes certified in the signature are decoded only once for all visibilities.
+     */
+    @Pure
+    @NonCommitting
+    public static @Capturable @Nonnull @NonFrozen FreezableList<@Nullable AttributeValue> getVisibleValues(@Nonnull @NonNullableElements ReadOnlyList<@Nonnull LoadedAttribute> attributes, @Nonnull CredentialsSignature<?> signature, @Nullable ReadOnlyNodePermissions contactPermissions) throws DatabaseException, RecoveryException {
+        final @Nonnull DecodedAttributes decodedAttributes = DecodedAttributes.of(signature);
+        final @Nonnull FreezableList<@Nullable AttributeValue> values = FreezableArrayList.withInitialCapacity(attributes.size());
+        for (final @Nonnull LoadedAttribute attribute : attributes) {
+            final @Nullable AttributeValue value = attribute.getValue();
+            final @Nullable PassiveExpression visibility = attribute.getVisibility();
+            if (value != null && (contactPermissions != null && contactPermissions.contains(attribute.getType()) || visibility != null && visibility.matches(signature, decodedAttributes))) { values.add(value); }
+            else { values.add(null); }
+        }
+        return values;
+    }
+    
+    /**
+     * Returns the values of the given attributes in the same order, where the values that are not public are replaced with null.
+     */
+    @Pure
+    public static @Capturable @Nonnull @NonFrozen FreezableList<@Nullable AttributeValue> getPublicValues(@Nonnull @NonNullableElements ReadOnlyList<@Nonnull LoadedAttribute> attributes) {
+        final @Nonnull FreezableList<@Nullable AttributeValue> values = FreezableArrayList.withInitialCapacity(attributes.size());
+        for (final @Nonnull LoadedAttribute attribute : attributes) {
+            final @Nullable PassiveExpression visibility = attribute.getVisibility();
+            values.add(visibility != null && visibility.isPublic() ? attribute.getValue() : null);
+        }
+        return values;
+    }
+    
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.attribute;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
+import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.rootclass.RootClass;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+import net.digitalid.core.expression.PassiveExpression;
+import net.digitalid.core.identification.annotations.AttributeType;
+import net.digitalid.core.identification.identity.SemanticType;
+import net.digitalid.core.signature.attribute.AttributeValue;
+
+/**
+ * This class stores the value and visibility of an attribute as they were loaded by the {@link AttributeLoader}.
+ */
+@Immutable
+@GenerateBuilder
+@GenerateSubclass
+public abstract class LoadedAttribute extends RootClass {
+    
+    /* -------------------------------------------------- Type -------------------------------------------------- */
+    
+    /**
+     * Returns the type of the loaded attribute.
+     */
+    @Pure
+    public abstract @Nonnull @AttributeType SemanticType getType();
+    
+    /* -------------------------------------------------- Value -------------------------------------------------- */
+    
+    /**
+     * Returns the published or unpublished value of the loaded attribute or null if the attribute has no such value.
+     */
+    @Pure
+    public abstract @Nullable AttributeValue getValue();
+    
+    /* -------------------------------------------------- Visibility -------------------------------------------------- */
+    
+    /**
+     * Returns the visibility of the loaded attribute or null if the attribute has no visibility.
+     */
+    @Pure
+    public abstract @Nullable PassiveExpression getVisibility();
+    
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.attribute;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.collections.list.FreezableArrayList;
+import net.digitalid.utility.collections.list.FreezableList;
+import net.digitalid.utility.conversion.converters.StringConverter;
+import net.digitalid.utility.exceptions.ExternalException;
+import net.digitalid.utility.time.Time;
+import net.digitalid.utility.time.TimeBuilder;
+
+import net.digitalid.database.conversion.SQL;
+import net.digitalid.database.interfaces.Database;
+import net.digitalid.database.property.value.PersistentValuePropertyEntryBuilder;
+
+import net.digitalid.core.entity.EntityConverter;
+import net.digitalid.core.expression.PassiveExpression;
+import net.digitalid.core.expression.PassiveExpressionBuilder;
+import net.digitalid.core.identification.identity.Category;
+import net.digitalid.core.identification.identity.SemanticType;
+import net.digitalid.core.identification.identity.SemanticTypeAttributesBuilder;
+import net.digitalid.core.identification.identity.SyntacticType;
+import net.digitalid.core.pack.Pack;
+import net.digitalid.core.pack.PackConverter;
+import net.digitalid.core.property.value.WritableSynchronizedValueProperty;
+import net.digitalid.core.signature.SignatureBuilder;
+import net.digitalid.core.signature.attribute.AttributeValue;
+import net.digitalid.core.signature.attribute.UncertifiedAttributeValue;
+import net.digitalid.core.testing.CoreTest;
+import net.digitalid.core.testing.fixtures.TestEntity;
+import net.digitalid.core.testing.fixtures.TestEntityBuilder;
+import net.digitalid.core.testing.fixtures.TestUnit;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+@SuppressWarnings("unchecked")
+public class AttributeLoaderTest extends CoreTest {
+    
+    /* -------------------------------------------------- Fixtures -------------------------------------------------- */
+    
+    private static final @Nonnull TestUnit UNIT = TestUnit.with("attribute", true);
+    
+    private static final @Nonnull SemanticType IDENTITY = SemanticType.map("identity.attribute@core.digitalid.net").load(SemanticTypeAttributesBuilder.withSyntacticBase(SyntacticType.BOOLEAN).build());
+    
+    private static final @Nonnull TestEntity ENTITY = TestEntityBuilder.withUnit(UNIT).withKey(0).withIdentity(IDENTITY).build();
+    
+    private static final int NUMBER_OF_TYPES = 20;
+    
+    private static final @Nonnull FreezableList<@Nonnull SemanticType> TYPES = FreezableArrayList.withInitialCapacity(NUMBER_OF_TYPES);
+    
+    static {
+        for (int i = 0; i < NUMBER_OF_TYPES; i++) {
+            TYPES.add(SemanticType.map("type" + i + ".attribute@core.digitalid.net").load(SemanticTypeAttributesBuilder.withSyntacticBase(SyntacticType.STRING).withCategories(Category.INTERNAL_NON_HOST_IDENTITIES).withCachingPeriod(Time.MONTH).build()));
+        }
+    }
+    
+    /**
+     * Returns an attribute value with the given string for the type at the given index.
+     */
+    @Pure
+    private static @Nonnull AttributeValue getValue(int index, @Nonnull String string) {
+        final @Nonnull SemanticType type = TYPES.get(index);
+        return UncertifiedAttributeValue.with(SignatureBuilder.withObjectConverter(PackConverter.INSTANCE).withObject(Pack.pack(StringConverter.INSTANCE, string, type)).withSubject(IDENTITY.getAddress()).build());
+    }
+    
+    /**
+     * Returns the value that is stored for the attribute with the type at the given index.
+     */
+    @Pure
+    private static @Nonnull AttributeValue getValue(int index) {
+        return getValue(index, "Value " + index);
+    }
+    
+    /**
+     * Stores a value for every attribute except every third one and makes every other attribute public.
+     */
+    @Impure
+    @BeforeClass
+    public static void createTables() throws ExternalException {
+        SQL.createTable(EntityConverter.INSTANCE, UNIT);
+        SQL.createTable(AttributeSubclass.MODULE.getSubjectTable(), UNIT);
+        AttributeSubclass.MODULE.accept(table -> SQL.createTable(table, UNIT));
+        SQL.insertOrAbort(EntityConverter.INSTANCE, ENTITY, UNIT);
+        for (int i = 0; i < NUMBER_OF_TYPES; i++) {
+            final @Nonnull Attribute attribute = Attribute.of(ENTITY, TYPES.get(i));
+            if (i % 3 != 0) { SQL.insertOrReplace(AttributeSubclass.VALUE_TABLE, PersistentValuePropertyEntryBuilder.<Attribute, AttributeValue>withSubject(attribute).withTime(TimeBuilder.build()).withValue(getValue(i)).build(), UNIT); }
+            final @Nonnull PassiveExpression visibility = PassiveExpressionBuilder.withEntity(ENTITY).withString(i % 2 == 0 ? "everybody" : "").build();
+            SQL.insertOrReplace(AttributeSubclass.VISIBILITY_TABLE, PersistentValuePropertyEntryBuilder.<Attribute, PassiveExpression>withSubject(attribute).withTime(TimeBuilder.build()).withValue(visibility).build(), UNIT);
+        }
+        Database.commit();
+    }
+    
+    /**
+     * Loads the values and visibilities of all attributes from their properties after having reset them.
+     */
+    @Impure
+    private static @Nonnull FreezableList<@Nonnull LoadedAttribute> loadIndividually() throws ExternalException {
+        final @Nonnull FreezableList<@Nonnull LoadedAttribute> attributes = FreezableArrayList.withInitialCapacity(NUMBER_OF_TYPES);
+        for (final @Nonnull SemanticType type : TYPES) {
+            final @Nonnull Attribute attribute = Attribute.of(ENTITY, type);
+            attribute.value().reset();
+            attribute.visibility().reset();
+            attributes.add(LoadedAttributeBuilder.withType(type).withValue(attribute.value().get()).withVisibility(attribute.visibility().get()).build());
+        }
+        return attributes;
+    }
+    
+    /* -------------------------------------------------- Tests -------------------------------------------------- */
+    
+    @Test
+    public void shouldLoadTheSameAttributesAsTheProperties() throws ExternalException {
+        assertThat(AttributeLoader.load(ENTITY, TYPES, true)).isEqualTo(loadIndividually());
+    }
+    
+    @Test
+    public void shouldLoadTheAttributesInTheOrderOfTheTypes() throws ExternalException {
+        final @Nonnull FreezableList<@Nonnull SemanticType> types = FreezableArrayList.withElements(TYPES.get(5), TYPES.get(1), TYPES.get(3));
+        final @Nonnull FreezableList<@Nonnull LoadedAttribute> attributes = AttributeLoader.load(ENTITY, types, true);
+        assertThat(attributes.map(LoadedAttribute::getType)).containsExactly(TYPES.get(5), TYPES.get(1), TYPES.get(3));
+        assertThat(attributes.get(2).getValue()).isNull();
+        assertThat(AttributeLoader.load(ENTITY, types, false).map(LoadedAttribute::getValue)).containsExactly(null, null, null);
+    }
+    
+    @Test
+    public void shouldServeLoadedAttributesFromThePropertyCaches() throws ExternalException {
+        final @Nonnull FreezableList<@Nonnull SemanticType> types = FreezableArrayList.withElements(TYPES.get(1));
+        final @Nonnull Attribute attribute = Attribute.of(ENTITY, TYPES.get(1));
+        attribute.value().reset();
+        assertThat(AttributeLoader.load(ENTITY, types, true).get(0).getValue()).isEqualTo(getValue(1));
+        
+        // Replaces the stored value without going through the property, which can only be observed after a reset.
+        SQL.insertOrReplace(AttributeSubclass.VALUE_TABLE, PersistentValuePropertyEntryBuilder.<Attribute, AttributeValue>withSubject(attribute).withTime(TimeBuilder.build()).withValue(getValue(1, "Changed")).build(), UNIT);
+        assertThat(attribute.value().get()).isEqualTo(getValue(1));
+        assertThat(AttributeLoader.load(ENTITY, types, true).get(0).getValue()).isEqualTo(getValue(1));
+        
+        attribute.value().reset();
+        assertThat(AttributeLoader.load(ENTITY, types, true).get(0).getValue()).isEqualTo(getValue(1, "Changed"));
+        
+        Database.rollback();
+        attribute.value().reset();
+    }
+    
+    @Test
+    public void shouldQueryEachPropertyTableOnlyOncePerLoad() throws ExternalException {
+        for (final @Nonnull SemanticType type : TYPES) {
+            final @Nonnull Attribute attribute = Attribute.of(ENTITY, type);
+            attribute.value().reset();
+            attribute.visibility().reset();
+        }
+        
+        final int queries = AttributeLoader.queries.get();
+        final @Nonnull FreezableList<@Nonnull LoadedAttribute> attributes = AttributeLoader.load(ENTITY, TYPES, true);
+        assertThat(AttributeLoader.queries.get() - queries).isEqualTo(2);
+        for (final @Nonnull SemanticType type : TYPES) {
+            final @Nonnull Attribute attribute = Attribute.of(ENTITY, type);
+            assertThat(((WritableSynchronizedValueProperty<?, ?, Attribute, AttributeValue>) attribute.value()).isLoaded()).isTrue();
+            assertThat(((WritableSynchronizedValueProperty<?, ?, Attribute, PassiveExpression>) attribute.visibility()).isLoaded()).isTrue();
+        }
+        
+        assertThat(AttributeLoader.load(ENTITY, TYPES, true)).isEqualTo(attributes);
+        assertThat(AttributeLoader.queries.get() - queries).isEqualTo(2);
+        assertThat(attributes).isEqualTo(loadIndividually());
+    }
+    
+    @Test
+    public void shouldOnlyReturnPublicValues() throws ExternalException {
+        final @Nonnull FreezableList<@Nullable AttributeValue> values = AttributeLoader.getPublicValues(AttributeLoader.load(ENTITY, TYPES, true));
+        for (int i = 0; i < NUMBER_OF_TYPES; i++) {
+            if (i % 3 != 0 && i % 2 == 0) { assertThat(values.get(i)).isEqualTo(getValue(i)); }
+            else { assertThat(values.get(i)).isNull(); }
+        }
+    }
+    
+}
@@ -15,13 +15,18 @@
  */
 package net.digitalid.core.audit;
 
+import net.digitalid.utility.annotations.method.Pure;
 import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
 import net.digitalid.utility.generator.annotations.generators.GenerateConverter;
 import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.validation.annotations.generation.Default;
+import net.digitalid.utility.validation.annotations.math.Positive;
 import net.digitalid.utility.validation.annotations.type.Immutable;
 
 /**
- * This class models a request audit with the time of the last audit.
+ * This class models a request audit with the time of the last audit and the size of the requested page.
+ * 
+ * @see ResponseAudit#isComplete()
  */
 @Immutable
 @GenerateBuilder
@@ -29,6 +34,23 @@ import net.digitalid.utility.validation.annotations.type.Immutable;
 @GenerateConverter
 public abstract class RequestAudit extends Audit {
     
+    /* -------------------------------------------------- Page Size -------------------------------------------------- */
+    
+    /**
+     * Returns the maximum number of actions in the trail of the response audit.
+     */
+    @Pure
+    @Default("1_000")
+    public abstract @Positive int getMaximumEntries();
+    
+    /**
+     * Returns the maximum number of bytes of the actions in the trail of the response audit.
+     * The trail contains at least one action even if this action is bigger so that the retrieval always progresses.
+     */
+    @Pure
+    @Default("1_048_576")
+    public abstract @Positive int getMaximumBytes();
+    
     // TODO: Move this logic to the synchronizer project or find another solution.
     
 //    /**
@@ -26,12 +26,15 @@ import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
 import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
 import net.digitalid.utility.time.Time;
 import net.digitalid.utility.validation.annotations.elements.NonNullableElements;
+import net.digitalid.utility.validation.annotations.generation.Default;
 import net.digitalid.utility.validation.annotations.type.Immutable;
 
 import net.digitalid.core.pack.Pack;
 
 /**
  * This class models a response audit with the trail and the times of the last and this audit.
+ * If the trail does not fit into the page that was requested, the response audit is not {@link #isComplete() complete}
+ * and the next page can be requested with this time as the last time, which makes an interrupted retrieval resumable.
  */
 @Immutable
 @GenerateBuilder
@@ -58,6 +61,16 @@ public abstract class ResponseAudit extends Audit {
     @TODO(task = "Find a way to return the signatures without having to decode them first. (The generic type was Block before.)", date = "2016-11-09", author = Author.KASPAR_ETTER)
     public abstract @Nonnull @Frozen @NonNullableElements ReadOnlyList<Pack> getTrail();
     
+    /* -------------------------------------------------- Completeness -------------------------------------------------- */
+    
+    /**
+     * Returns whether the trail contains all actions until this time.
+     * Otherwise, this time is the time of the last action in the trail and more actions can be requested with it.
+     */
+    @Pure
+    @Default("true")
+    public abstract boolean isComplete();
+    
     /* -------------------------------------------------- Execution -------------------------------------------------- */
     
     // TODO: Think about where to move the following code.
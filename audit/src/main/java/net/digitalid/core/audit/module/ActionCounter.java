@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.audit.module;
+
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
+import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.generator.annotations.generators.GenerateTableConverter;
+import net.digitalid.utility.rootclass.RootClass;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.math.Positive;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+import net.digitalid.database.annotations.constraints.PrimaryKey;
+
+/**
+ * This type models the counter from which the sequence numbers and times of the entries in the action log of a unit are taken.
+ * 
+ * @see ActionModule
+ */
+@Immutable
+@GenerateBuilder
+@GenerateSubclass
+@GenerateTableConverter
+public abstract class ActionCounter extends RootClass {
+    
+    /* -------------------------------------------------- Fields -------------------------------------------------- */
+    
+    /**
+     * Returns the key of this counter, which is always zero as there is a single counter per unit.
+     */
+    @Pure
+    @PrimaryKey
+    public abstract long getKey();
+    
+    /**
+     * Returns the sequence number of the next entry.
+     */
+    @Pure
+    public abstract @Positive long getNext();
+    
+    /**
+     * Returns the time of the last entry or zero if no entry has been logged yet.
+     */
+    @Pure
+    public abstract @NonNegative long getLastTime();
+    
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.audit.module;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
+import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.generator.annotations.generators.GenerateTableConverter;
+import net.digitalid.utility.rootclass.RootClass;
+import net.digitalid.utility.time.Time;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+import net.digitalid.database.annotations.constraints.PrimaryKey;
+
+import net.digitalid.core.identification.identity.SemanticType;
+import net.digitalid.core.pack.Pack;
+
+/**
+ * This type models an entry in the append-only action log.
+ * The primary key starts with the period and the entity so that the index of the primary key serves the range scans of an audit.
+ * 
+ * @see ActionModule
+ */
+@Immutable
+@GenerateBuilder
+@GenerateSubclass
+@GenerateTableConverter
+public abstract class ActionEntry extends RootClass {
+    
+    /* -------------------------------------------------- Fields -------------------------------------------------- */
+    
+    /**
+     * Returns the period in which the action was logged, which is the time of this entry divided by the {@link ActionModule#PERIOD period}.
+     */
+    @Pure
+    @PrimaryKey
+    public abstract long getPeriod();
+    
+    /**
+     * Returns the key of the entity on which the action was executed.
+     */
+    @Pure
+    @PrimaryKey
+    public abstract long getEntity();
+    
+    /**
+     * Returns the time at which the action was logged, which is unique and increasing within a unit.
+     */
+    @Pure
+    @PrimaryKey
+    public abstract @Nonnull Time getTime();
+    
+    /**
+     * Returns the sequence number of this entry, which is unique and increasing within a unit.
+     */
+    @Pure
+    @PrimaryKey
+    public abstract long getSequence();
+    
+    /**
+     * Returns the type of the service to which the action belongs.
+     */
+    @Pure
+    public abstract @Nonnull SemanticType getService();
+    
+    /**
+     * Returns the packed action.
+     */
+    @Pure
+    public abstract @Nonnull Pack getAction();
+    
+}
@@ -13,287 +13,420 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-// TODO: Model this logic with the new database abstraction.
+package net.digitalid.core.audit.module;
 
-//package net.digitalid.core.audit.module;
-//
-//import java.sql.PreparedStatement;
-//import java.sql.ResultSet;
-//import java.sql.SQLException;
-//import java.sql.Statement;
-//import java.sql.Types;
-//
-//import javax.annotation.Nonnull;
-//import javax.annotation.Nullable;
-//
-//import net.digitalid.utility.annotations.method.Pure;
-//import net.digitalid.utility.collections.freezable.FreezableList;
-//import net.digitalid.utility.collections.list.FreezableLinkedList;
-//import net.digitalid.utility.collections.list.ReadOnlyList;
-//import net.digitalid.utility.conversion.None;
-//import net.digitalid.utility.exceptions.external.InvalidEncodingException;
-//import net.digitalid.utility.exceptions.ExternalException;
-//import net.digitalid.utility.validation.annotations.type.Stateless;
-//
-//import net.digitalid.database.annotations.transaction.NonCommitting;
-//import net.digitalid.database.core.exceptions.DatabaseException;
-//import net.digitalid.database.core.table.Site;
-//import net.digitalid.database.interfaces.Database;
-//
-//import net.digitalid.core.audit.ResponseAudit;
-//import net.digitalid.core.conversion.Block;
-//import net.digitalid.core.conversion.wrappers.structure.ListWrapper;
-//import net.digitalid.core.conversion.wrappers.structure.TupleWrapper;
-//import net.digitalid.core.conversion.wrappers.value.EmptyWrapper;
-//import net.digitalid.core.conversion.wrappers.value.integer.Integer64Wrapper;
-//import net.digitalid.core.service.CoreService;
-//
-//import net.digitalid.service.core.auxiliary.Time;
-//import net.digitalid.service.core.concepts.agent.Agent;
-//import net.digitalid.service.core.concepts.agent.FreezableAgentPermissions;
-//import net.digitalid.service.core.concepts.agent.ReadOnlyAgentPermissions;
-//import net.digitalid.service.core.concepts.agent.Restrictions;
-//import net.digitalid.service.core.concepts.contact.Contact;
-//import net.digitalid.service.core.concepts.contact.Context;
-//import net.digitalid.service.core.dataservice.StateModule;
-//import net.digitalid.service.core.entity.Entity;
-//import net.digitalid.service.core.entity.EntityImplementation;
-//import net.digitalid.service.core.entity.NonHostAccount;
-//import net.digitalid.service.core.entity.NonHostEntity;
-//import net.digitalid.service.core.handler.Action;
-//import net.digitalid.service.core.handler.InternalAction;
-//import net.digitalid.service.core.identifier.Identifier;
-//import net.digitalid.service.core.identifier.IdentifierImplementation;
-//import net.digitalid.service.core.identity.HostIdentity;
-//import net.digitalid.service.core.identity.Identity;
-//import net.digitalid.service.core.identity.IdentityImplementation;
-//import net.digitalid.service.core.identity.InternalNonHostIdentity;
-//import net.digitalid.service.core.identity.SemanticType;
-//import net.digitalid.service.core.identity.resolution.Mapper;
-//import net.digitalid.service.core.packet.Packet;
-//import net.digitalid.service.core.site.host.Host;
-//import net.digitalid.service.core.storage.Service;
-//
-///**
-// * This class provides database access to the {@link InternalAction internal actions} of the core service.
-// * This module does not support getting, adding and deleting an entity's state as this is not desired.
-// */
-//@Stateless
-//public final class ActionModule implements StateModule {
-//    
-//    /**
-//     * Stores an instance of this module.
-//     */
-//    static final ActionModule MODULE = new ActionModule();
-//    
-//    @Pure
-//    @Override
-//    public @Nonnull Service getService() {
-//        return CoreService.SERVICE;
-//    }
-//    
-//    @Override
-//    @NonCommitting
-//    public void createTables(final @Nonnull Site site) throws DatabaseException {
-//        try (@Nonnull Statement statement = Database.createStatement()) {
-//            statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + site + "action (entity " + EntityImplementation.FORMAT + " NOT NULL, service " + Mapper.FORMAT + " NOT NULL, time " + Time.FORMAT + " NOT NULL, " + FreezableAgentPermissions.FORMAT_NULL + ", " + Restrictions.FORMAT + ", agent " + Agent.FORMAT + ", recipient " + IdentifierImplementation.FORMAT + " NOT NULL, action " + Block.FORMAT + " NOT NULL, PRIMARY KEY (entity, service, time), FOREIGN KEY (entity) " + site.getEntityReference() + ", FOREIGN KEY (service) " + Mapper.REFERENCE + Database.getConfiguration().INDEX("time") + ", " + FreezableAgentPermissions.REFERENCE + ", " + Restrictions.getForeignKeys(site) + ", FOREIGN KEY (entity, agent) " + Agent.getReference(site) + ")");
-//            Database.getConfiguration().createIndex(statement, site + "action", "time");
-//            Mapper.addReference(site + "action", "contact");
-//            if (site instanceof Host) { Mapper.addReference(site + "action", "entity", "entity", "service", "time"); }
-//            Database.addRegularPurging(site + "action", Time.TROPICAL_YEAR);
-//        }
-//    }
-//    
-//    @Override
-//    @NonCommitting
-//    public void deleteTables(@Nonnull Site site) throws DatabaseException {
-//        try (@Nonnull Statement statement = Database.createStatement()) {
-//            Database.removeRegularPurging(site + "action");
-//            if (site instanceof Host) { Mapper.removeReference(site + "action", "entity", "entity", "service", "time"); }
-//            Mapper.removeReference(site + "action", "contact");
-//            statement.executeUpdate("DROP TABLE IF EXISTS " + site + "action");
-//        }
-//    }
-//    
-//    
-//    /**
-//     * Stores the semantic type {@code entry.actions.module@core.digitalid.net}.
-//     */
-//    private static final @Nonnull SemanticType MODULE_ENTRY = SemanticType.map("entry.actions.module@core.digitalid.net").load(TupleWrapper.XDF_TYPE, InternalNonHostIdentity.IDENTIFIER, SemanticType.ATTRIBUTE_IDENTIFIER, Time.TYPE, FreezableAgentPermissions.TYPE, Restrictions.TYPE, Agent.NUMBER, HostIdentity.IDENTIFIER, Packet.SIGNATURE);
-//    
-//    /**
-//     * Stores the semantic type {@code actions.module@core.digitalid.net}.
-//     */
-//    private static final @Nonnull SemanticType MODULE_FORMAT = SemanticType.map("actions.module@core.digitalid.net").load(ListWrapper.XDF_TYPE, MODULE_ENTRY);
-//    
-//    @Pure
-//    @Override
-//    public @Nonnull SemanticType getModuleFormat() {
-//        return MODULE_FORMAT;
-//    }
-//    
-//    @Pure
-//    @Override
-//    @NonCommitting
-//    public @Nonnull Block exportModule(@Nonnull Host host) throws DatabaseException {
-//        final @Nonnull String SQL = "SELECT entity, service, time, " + Restrictions.COLUMNS + ", " + FreezableAgentPermissions.COLUMNS + ", agent, recipient, action FROM " + host + "action";
-//        try (@Nonnull Statement statement = Database.createStatement(); @Nonnull ResultSet resultSet = statement.executeQuery(SQL)) {
-//            final @Nonnull FreezableList<Block> entries = new FreezableLinkedList<>();
-//            while (resultSet.next()) {
-//                final @Nonnull NonHostAccount account = NonHostAccount.getNotNull(host, resultSet, 1);
-//                final @Nonnull Identity service = IdentityImplementation.getNotNull(resultSet, 2);
-//                final @Nonnull Time time = Time.get(resultSet, 3);
-//                final @Nonnull FreezableAgentPermissions permissions = FreezableAgentPermissions.getEmptyOrSingle(resultSet, 4);
-//                final @Nonnull Restrictions restrictions = Restrictions.get(account, resultSet, 6);
-//                @Nullable Long number = resultSet.getLong(11);
-//                if (resultSet.wasNull()) { number = null; }
-//                final @Nonnull Identifier recipient = IdentifierImplementation.get(resultSet, 12);
-//                final @Nonnull Block action = Block.getNotNull(Packet.SIGNATURE, resultSet, 13);
-//                entries.add(TupleWrapper.encode(MODULE_ENTRY, account.getIdentity().toBlockable(InternalNonHostIdentity.IDENTIFIER), service.toBlockable(SemanticType.ATTRIBUTE_IDENTIFIER), time, permissions, restrictions, (number != null ? Integer64Wrapper.encode(Agent.NUMBER, number) : null), recipient.toBlock().setType(HostIdentity.IDENTIFIER).toBlockable(), action.toBlockable()));
-//            }
-//            return ListWrapper.encode(MODULE_FORMAT, entries.freeze());
-//        }
-//    }
-//    
-//    @Override
-//    @NonCommitting
-//    public void importModule(@Nonnull Host host, @Nonnull Block block) throws ExternalException {
-//        Require.that(block.getType().isBasedOn(getModuleFormat())).orThrow("The block is based on the format of this module.");
-//        
-//        try (@Nonnull PreparedStatement preparedStatement = Database.prepareStatement("INSERT INTO " + host + "action (entity, service, time, " + Restrictions.COLUMNS + ", " + FreezableAgentPermissions.COLUMNS + ", agent, recipient, action) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
-//            final @Nonnull ReadOnlyList<Block> entries = ListWrapper.decodeNonNullableElements(block);
-//            for (final @Nonnull Block entry : entries) {
-//                final @Nonnull TupleWrapper tuple = TupleWrapper.decode(entry);
-//                final @Nonnull InternalNonHostIdentity identity = IdentityImplementation.create(tuple.getNonNullableElement(0)).castTo(InternalNonHostIdentity.class);
-//                identity.set(preparedStatement, 1);
-//                IdentityImplementation.create(tuple.getNonNullableElement(1)).castTo(SemanticType.class).set(preparedStatement, 2);
-//                Time.XDF_CONVERTER.decodeNonNullable(None.OBJECT, tuple.getNonNullableElement(2)).set(preparedStatement, 3);
-//                new FreezableAgentPermissions(tuple.getNonNullableElement(3)).checkIsSingle().setEmptyOrSingle(preparedStatement, 4);
-//                new Restrictions(NonHostAccount.get(host, identity), tuple.getNonNullableElement(4)).set(preparedStatement, 6); // The entity is wrong for services but it does not matter. (Correct would be Roles.getRole(host.getClient(), identity.castTo(InternalPerson.class)).)
-//                if (tuple.isElementNull(5)) { preparedStatement.setLong(11, Integer64Wrapper.decode(tuple.getNonNullableElement(5))); }
-//                else { preparedStatement.setNull(11, Types.BIGINT); }
-//                IdentifierImplementation.XDF_CONVERTER.decodeNonNullable(None.OBJECT, tuple.getNonNullableElement(6)).castTo(HostIdentifier.class).set(preparedStatement, 12);
-//                tuple.getNonNullableElement(7).set(preparedStatement, 13);
-//                preparedStatement.addBatch();
-//            }
-//            preparedStatement.executeBatch();
-//        }
-//    }
-//    
-//    
-//    /**
-//     * Stores the semantic type {@code actions.state@core.digitalid.net}.
-//     */
-//    private static final @Nonnull SemanticType STATE_FORMAT = SemanticType.map("actions.state@core.digitalid.net").load(EmptyWrapper.XDF_TYPE);
-//    
-//    @Pure
-//    @Override
-//    public @Nonnull SemanticType getStateFormat() {
-//        return STATE_FORMAT;
-//    }
-//    
-//    @Pure
-//    @Override
-//    @NonCommitting
-//    public @Nonnull Block getState(@Nonnull NonHostEntity entity, @Nonnull ReadOnlyAgentPermissions permissions, @Nonnull Restrictions restrictions, @Nullable Agent agent) throws DatabaseException {
-//        return EmptyWrapper.encode(STATE_FORMAT);
-//    }
-//    
-//    @Override
-//    @NonCommitting
-//    public void addState(@Nonnull NonHostEntity entity, @Nonnull Block block) throws DatabaseException, InvalidEncodingException {
-//        Require.that(block.getType().isBasedOn(getStateFormat())).orThrow("The block is based on the indicated type.");
-//    }
-//    
-//    @Override
-//    @NonCommitting
-//    public void removeState(@Nonnull NonHostEntity entity) throws DatabaseException {}
-//    
-//    
-//    /**
-//     * Returns the audit trail of the given entity for the given service from the given time.
-//     * 
-//     * @param entity the entity whose audit trail is to be returned.
-//     * @param service the service for which the audit trail is wanted.
-//     * @param lastTime the time of the last request for the audit trail.
-//     * @param permissions the permissions of the requesting agent.
-//     * @param restrictions the restrictions of the requesting agent.
-//     * @param agent the agent for which the audit trail is restricted.
-//     * 
-//     * @return the audit trail of the given entity for the given service from the given time.
-//     * 
-//     * @require agent == null || service.equals(CoreService.TYPE) : "The agent is null or the audit trail is requested for the core service.";
-//     */
-//    @Pure
-//    @NonCommitting
-//    public static @Nonnull ResponseAudit getAudit(@Nonnull NonHostEntity entity, @Nonnull Service service, @Nonnull Time lastTime, @Nonnull ReadOnlyAgentPermissions permissions, @Nonnull Restrictions restrictions, @Nullable Agent agent) throws DatabaseException {
-//        Require.that(agent == null || service.equals(CoreService.SERVICE)).orThrow("The agent is null or the audit trail is requested for the core service.");
-//        
-//        final @Nonnull Site site = entity.getSite();
-//        final @Nonnull StringBuilder SQL = new StringBuilder("(SELECT ").append(Database.getConfiguration().GREATEST()).append("(COALESCE(MAX(time), 0), ").append(Database.getConfiguration().CURRENT_TIME()).append("), NULL FROM ").append(site).append("action) UNION ");
-//        SQL.append("(SELECT time, action FROM ").append(site).append("action a WHERE entity = ").append(entity).append(" AND service = ").append(service.getType()).append(" AND time > ").append(lastTime);
-//        SQL.append(" AND (type_writing IS NULL OR NOT type_writing").append(permissions.allTypesToString()).append(" OR type_writing").append(permissions.writeTypesToString()).append(")");
-//        
-//        if (!restrictions.isClient()) { SQL.append(" AND NOT client"); }
-//        if (!restrictions.isRole()) { SQL.append(" AND NOT role"); }
-//        if (!restrictions.isWriting()) { SQL.append(" AND NOT context_writing"); }
-//        
-//        final @Nullable Context context = restrictions.getContext();
-//        final @Nullable Contact contact = restrictions.getContact();
-//        if (context == null) {
-//            SQL.append(" AND context IS NULL");
-//            if (contact == null) { SQL.append(" AND contact IS NULL"); }
-//            else { SQL.append(" AND (contact IS NULL OR contact = ").append(contact).append(")"); }
-//        } else {
-//            SQL.append(" AND (context IS NULL OR EXISTS (SELECT * FROM ").append(context.getEntity().getSite()).append("context_subcontext c WHERE c.entity = ").append(context.getEntity()).append(" AND c.context = ").append(context).append(" AND c.subcontext = a.context))");
-//            SQL.append(" AND (contact IS NULL OR EXISTS (SELECT * FROM ").append(context.getEntity().getSite()).append("context_subcontext cx, ").append(context.getEntity().getSite()).append("context_contact cc WHERE cx.entity = ").append(context.getEntity()).append(" AND cx.context = ").append(context).append(" AND cc.entity = ").append(context.getEntity()).append(" AND cc.context = cx.subcontext AND cc.contact = a.contact))");
-//        }
-//        
-//        SQL.append(" AND (agent IS NULL");
-//        if (agent != null) { SQL.append(" OR EXISTS (SELECT * FROM ").append(site).append("agent_permission_order po, ").append(site).append("agent_restrictions_ord ro WHERE po.entity = ").append(entity).append(" AND po.stronger = ").append(agent).append(" AND po.weaker = a.agent AND ro.entity = ").append(entity).append(" AND ro.stronger = ").append(agent).append(" AND ro.weaker = a.agent)"); }
-//        SQL.append(") ORDER BY time ASC)");
-//        
-//        try (@Nonnull Statement statement = Database.createStatement(); @Nonnull ResultSet resultSet = statement.executeQuery(SQL.toString())) {
-//            if (resultSet.next()) {
-//                final @Nonnull Time thisTime = Time.SQL_CONVERTER.restoreNonNullable(None.OBJECT, resultSet, 1);
-//                final @Nonnull FreezableList<Block> trail = FreezableLinkedList.get();
-//                while (resultSet.next()) {
-//                    trail.add(Block.SQL_CONVERTER.restoreNonNullable(Packet.SIGNATURE, resultSet, 2));
-//                }
-//                return new ResponseAudit(lastTime, thisTime, trail.freeze());
-//            } else { throw new SQLException("This should never happen."); }
-//        }
-//    }
-//    
-//    /**
-//     * Adds the given action to the audit trail.
-//     * 
-//     * @param action the action to be added to the audit trail.
-//     * 
-//     * @require action.hasEntity() : "The action has an entity.";
-//     * @require action.hasSignature() : "The action has a signature.";
-//     */
-//    @NonCommitting
-//    public static void audit(@Nonnull Action action) throws DatabaseException {
-//        Require.that(action.hasEntity()).orThrow("The action has an entity.");
-//        Require.that(action.hasSignature()).orThrow("The action has a signature.");
-//        
-//        final @Nonnull Entity entity = action.getEntityNotNull();
-//        final @Nonnull Site site = entity.getSite();
-//        final @Nonnull String TIME = Database.getConfiguration().GREATEST() + "(COALESCE(MAX(time), 0) + 1, " + Database.getConfiguration().CURRENT_TIME() + ")";
-//        final @Nonnull String SQL = "INSERT INTO " + site + "action (entity, service, time, " + FreezableAgentPermissions.COLUMNS + ", " + Restrictions.COLUMNS + ", agent, recipient, action) SELECT ?, ?, " + TIME + ", ?, ?, ?, ?, ?, ?, ?, ?, ?, ? FROM " + site + "action";
-//        try (@Nonnull PreparedStatement preparedStatement = Database.prepareStatement(SQL)) {
-//            entity.set(preparedStatement, 1);
-//            action.getService().set(preparedStatement, 2);
-//            action.getRequiredPermissionsToSeeAudit().setEmptyOrSingle(preparedStatement, 3);
-//            action.getRequiredRestrictionsToSeeAudit().set(preparedStatement, 5);
-//            Agent.set(action.getRequiredAgentToSeeAudit(), preparedStatement, 10);
-//            action.getRecipient().set(preparedStatement, 11);
-//            action.getSignatureNotNull().toBlock().set(preparedStatement, 12);
-//            preparedStatement.executeUpdate();
-//        }
-//    }
-//    
-//    static { CoreService.SERVICE.add(MODULE); }
-//    
-//}
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.collections.list.FreezableArrayList;
+import net.digitalid.utility.collections.list.FreezableList;
+import net.digitalid.utility.configuration.Configuration;
+import net.digitalid.utility.contracts.Require;
+import net.digitalid.utility.conversion.converters.Integer64Converter;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.immutable.ImmutableList;
+import net.digitalid.utility.initialization.annotations.Initialize;
+import net.digitalid.utility.logging.Log;
+import net.digitalid.utility.threading.NamedThreadFactory;
+import net.digitalid.utility.time.Time;
+import net.digitalid.utility.time.TimeBuilder;
+import net.digitalid.utility.tuples.Pair;
+import net.digitalid.utility.validation.annotations.math.Positive;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+import net.digitalid.utility.validation.annotations.type.Utility;
+
+import net.digitalid.database.annotations.transaction.Committing;
+import net.digitalid.database.annotations.transaction.NonCommitting;
+import net.digitalid.database.conversion.SQL;
+import net.digitalid.database.conversion.WhereCondition;
+import net.digitalid.database.conversion.WhereConditionBuilder;
+import net.digitalid.database.dialect.expression.bool.SQLBooleanExpression;
+import net.digitalid.database.dialect.expression.number.SQLLongLiteralBuilder;
+import net.digitalid.database.dialect.identifier.column.SQLColumnNameBuilder;
+import net.digitalid.database.dialect.identifier.schema.SQLSchemaNameBuilder;
+import net.digitalid.database.dialect.identifier.table.SQLExplicitlyQualifiedTableBuilder;
+import net.digitalid.database.dialect.identifier.table.SQLQualifiedTable;
+import net.digitalid.database.dialect.identifier.table.SQLTableNameBuilder;
+import net.digitalid.database.dialect.statement.select.unordered.simple.SQLSimpleSelectStatement;
+import net.digitalid.database.dialect.statement.select.unordered.simple.SQLSimpleSelectStatementBuilder;
+import net.digitalid.database.dialect.statement.select.unordered.simple.columns.SQLResultColumn;
+import net.digitalid.database.dialect.statement.select.unordered.simple.columns.SQLResultColumnBuilder;
+import net.digitalid.database.dialect.statement.select.unordered.simple.sources.SQLTableSource;
+import net.digitalid.database.dialect.statement.select.unordered.simple.sources.SQLTableSourceBuilder;
+import net.digitalid.database.exceptions.DatabaseException;
+import net.digitalid.database.interfaces.Database;
+import net.digitalid.database.interfaces.SQLDecoder;
+
+import net.digitalid.core.audit.RequestAudit;
+import net.digitalid.core.audit.ResponseAudit;
+import net.digitalid.core.audit.ResponseAuditBuilder;
+import net.digitalid.core.entity.NonHostEntity;
+import net.digitalid.core.handler.method.action.InternalAction;
+import net.digitalid.core.identification.identity.SemanticType;
+import net.digitalid.core.pack.Pack;
+import net.digitalid.core.pack.PackConverter;
+import net.digitalid.core.unit.CoreUnit;
+import net.digitalid.core.unit.UnitLock;
+
+/**
+ * The action module logs the {@link InternalAction internal actions} of a unit so that they can be returned in the trail of an audit.
+ * The log is append-only: Each action is inserted with an increasing sequence number and time and no entry is ever updated.
+ * The sequence numbers and times are taken from a {@link ActionCounter counter} in the database, which is locked until the end of
+ * the appending transaction so that they increase even if several processes append actions to the log of the same unit.
+ * The entries are partitioned into periods of the configured {@link #PERIOD length}, and the primary key of an entry starts
+ * with its period, entity and time so that the range scans of an audit are served by the index of the primary key.
+ * Instead of deleting old entries one by one, whole periods are dropped once they are older than the configured {@link #RETENTION}.
+ * The log of each unit that is used in this process is pruned in the background in the configured {@link #PRUNING_INTERVAL interval}.
+ * 
+ * @see ActionEntry
+ */
+@Utility
+public abstract class ActionModule {
+    
+    /* -------------------------------------------------- Configurations -------------------------------------------------- */
+    
+    /**
+     * Stores the length of the periods into which the action log is partitioned.
+     */
+    public static final @Nonnull Configuration<Time> PERIOD = Configuration.with(Time.MONTH);
+    
+    /**
+     * Stores how long the logged actions are retained before their period is dropped.
+     */
+    public static final @Nonnull Configuration<Time> RETENTION = Configuration.with(Time.TROPICAL_YEAR);
+    
+    /**
+     * Stores the interval in which the logs of the used units are pruned.
+     */
+    public static final @Nonnull Configuration<Time> PRUNING_INTERVAL = Configuration.with(Time.HOUR);
+    
+    /**
+     * Returns the period of the given time.
+     */
+    @Pure
+    static long getPeriod(long time) {
+        return time / PERIOD.get().getValue();
+    }
+    
+    /* -------------------------------------------------- Tables -------------------------------------------------- */
+    
+    /**
+     * Stores a dummy configuration in order to have an initialization target.
+     */
+    public static final @Nonnull Configuration<Boolean> configuration = Configuration.with(Boolean.TRUE);
+    
+    /**
+     * Adds the tables of the action log to the tables which are created on each unit.
+     */
+    @PureWithSideEffects
+    @Initialize(target = ActionModule.class)
+    public static void addTables() {
+        CoreUnit.addTable(ActionEntryConverter.INSTANCE);
+        CoreUnit.addTable(ActionPeriodConverter.INSTANCE);
+        CoreUnit.addTable(ActionCounterConverter.INSTANCE);
+    }
+    
+    /* -------------------------------------------------- Unit Logs -------------------------------------------------- */
+    
+    /**
+     * A unit log stores the state of the action log of a single unit in this process.
+     */
+    @Mutable
+    private static final class UnitLog {
+        
+        /**
+         * Stores the qualified table of the action entries of the unit.
+         */
+        private final @Nonnull SQLQualifiedTable table;
+        
+        /**
+         * Stores the counter that is inserted if the unit has no counter yet.
+         */
+        private final @Nonnull ActionCounter seed;
+        
+        /**
+         * Stores the periods that are known to be registered in the period table.
+         */
+        private final @Nonnull NavigableSet<@Nonnull Long> periods = new ConcurrentSkipListSet<>();
+        
+        private UnitLog(@Nonnull SQLQualifiedTable table, @Nonnull ActionCounter seed) {
+            this.table = table;
+            this.seed = seed;
+        }
+        
+    }
+    
+    /**
+     * Stores the logs of the units that have been used in this process.
+     */
+    private static final @Nonnull Map<@Nonnull CoreUnit, @Nonnull UnitLog> logs = new ConcurrentHashMap<>();
+    
+    /**
+     * Stores the condition that selects the single counter of a unit.
+     */
+    private static final @Nonnull WhereCondition<Long> COUNTER = WhereConditionBuilder.withConverter(Integer64Converter.INSTANCE).withObject(0L).withPrefix("key").build();
+    
+    /**
+     * Returns the log of the given unit and loads its registered periods if this has not yet been done in this process.
+     * If the unit has no counter yet, the counter is seeded from the newest period that contains entries so that the
+     * sequence number and the time are continued for logs that were written before the counter was introduced.
+     * The first use of a unit also schedules the regular pruning of its log.
+     */
+    @NonCommitting
+    @PureWithSideEffects
+    private static @Nonnull UnitLog getLog(@Nonnull CoreUnit unit) throws DatabaseException, RecoveryException {
+        @Nullable UnitLog log = logs.get(unit);
+        if (log == null) {
+            synchronized (logs) {
+                log = logs.get(unit);
+                if (log == null) {
+                    final @Nonnull SQLQualifiedTable table = SQLExplicitlyQualifiedTableBuilder.withTable(SQLTableNameBuilder.withString(ActionEntryConverter.INSTANCE.getTypeName()).build()).withSchema(SQLSchemaNameBuilder.withString(unit.getName()).build()).build();
+                    final @Nonnull FreezableList<ActionPeriod> registered = SQL.selectAll(ActionPeriodConverter.INSTANCE, null, unit);
+                    long maximumSequence = 0;
+                    long maximumTime = 0;
+                    if (!registered.isEmpty() && SQL.selectFirst(ActionCounterConverter.INSTANCE, null, unit, COUNTER) == null) {
+                        long oldest = Long.MAX_VALUE;
+                        for (final @Nonnull ActionPeriod period : registered) { oldest = Math.min(oldest, period.getPeriod()); }
+                        for (long period = Math.max(getPeriod(TimeBuilder.build().getValue()), oldest); period >= oldest && maximumSequence == 0; period--) {
+                            final @Nonnull SQLDecoder decoder = select(unit, table, ImmutableList.withElements(getColumn("sequence"), getColumn("time_value")), getCondition("period", period));
+                            while (decoder.moveToNextRow()) {
+                                maximumSequence = Math.max(maximumSequence, decoder.decodeInteger64());
+                                maximumTime = Math.max(maximumTime, decoder.decodeInteger64());
+                            }
+                        }
+                    }
+                    log = new UnitLog(table, ActionCounterBuilder.withKey(0).withNext(maximumSequence + 1).withLastTime(maximumTime).build());
+                    for (final @Nonnull ActionPeriod period : registered) { log.periods.add(period.getPeriod()); }
+                    logs.put(unit, log);
+                    final long interval = PRUNING_INTERVAL.get().getValue();
+                    pruner.scheduleWithFixedDelay(() -> pruneRegularly(unit), interval, interval, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+        return log;
+    }
+    
+    /**
+     * Returns the time of the last committed entry in the log of the given unit or zero if no entry has been logged yet.
+     */
+    @Pure
+    @NonCommitting
+    private static long getLastTime(@Nonnull CoreUnit unit) throws DatabaseException, RecoveryException {
+        final @Nullable ActionCounter counter = SQL.selectFirst(ActionCounterConverter.INSTANCE, null, unit, COUNTER);
+        return counter == null ? 0 : counter.getLastTime();
+    }
+    
+    /* -------------------------------------------------- Dialect -------------------------------------------------- */
+    
+    @Pure
+    private static @Nonnull SQLResultColumn getColumn(@Nonnull String name) {
+        return SQLResultColumnBuilder.withExpression(SQLColumnNameBuilder.withString(name).build()).build();
+    }
+    
+    @Pure
+    private static @Nonnull SQLBooleanExpression getCondition(@Nonnull String column, long value) {
+        return SQLColumnNameBuilder.withString(column).build().equal(SQLLongLiteralBuilder.withValue(value).build());
+    }
+    
+    /**
+     * Selects the given columns of the entries in the given table of the given unit that satisfy the given where clause.
+     */
+    @Pure
+    @NonCommitting
+    private static @Nonnull SQLDecoder select(@Nonnull CoreUnit unit, @Nonnull SQLQualifiedTable table, @Nonnull ImmutableList<@Nonnull SQLResultColumn> columns, @Nonnull SQLBooleanExpression whereClause) throws DatabaseException {
+        final @Nonnull ImmutableList<@Nonnull SQLTableSource> sources = ImmutableList.withElements(SQLTableSourceBuilder.withSource(table).build());
+        final @Nonnull SQLSimpleSelectStatement selectStatement = SQLSimpleSelectStatementBuilder.withColumns(columns).withSources(sources).withWhereClause(whereClause).build();
+        return Database.instance.get().getEncoder(selectStatement, unit).execute();
+    }
+    
+    /* -------------------------------------------------- Appending -------------------------------------------------- */
+    
+    /**
+     * Appends the given pack of an action of the given service on the given entity to the log of its unit and returns the sequence number of the new entry.
+     * Appending an action locks, reads and replaces the counter of the unit and inserts the entry, and the first action of a period in this process also registers the period.
+     * As the counter stays locked until the end of the current transaction, the entries of concurrent transactions are numbered in the order in which they are committed.
+     */
+    @Impure
+    @NonCommitting
+    public static long append(@Nonnull NonHostEntity entity, @Nonnull SemanticType service, @Nonnull Pack action) throws DatabaseException, RecoveryException {
+        final @Nonnull CoreUnit unit = entity.getUnit();
+        final @Nonnull UnitLog log = getLog(unit);
+        SQL.insertOrIgnore(ActionCounterConverter.INSTANCE, log.seed, unit);
+        UnitLock.lock(ActionCounterConverter.INSTANCE, unit, "key", 0);
+        final @Nonnull ActionCounter counter = SQL.selectOne(ActionCounterConverter.INSTANCE, null, unit, COUNTER);
+        final long sequence = counter.getNext();
+        final long time = Math.max(TimeBuilder.build().getValue(), counter.getLastTime() + 1);
+        SQL.insertOrReplace(ActionCounterConverter.INSTANCE, ActionCounterBuilder.withKey(0).withNext(sequence + 1).withLastTime(time).build(), unit);
+        final long period = getPeriod(time);
+        if (!log.periods.contains(period)) {
+            SQL.insertOrIgnore(ActionPeriodConverter.INSTANCE, ActionPeriodBuilder.withPeriod(period).build(), unit);
+            log.periods.add(period);
+        }
+        SQL.insertOrAbort(ActionEntryConverter.INSTANCE, ActionEntryBuilder.withPeriod(period).withEntity(entity.getKey()).withTime(TimeBuilder.buildWithValue(time)).withSequence(sequence).withService(service).withAction(action).build(), unit);
+        return sequence;
+    }
+    
+    /**
+     * Appends the given action to the log of its unit and returns the sequence number of the new entry.
+     */
+    @Impure
+    @NonCommitting
+    public static long append(@Nonnull InternalAction action) throws DatabaseException, RecoveryException {
+        return append(action.getEntity(), action.getService().getType(), action.pack());
+    }
+    
+    /* -------------------------------------------------- Auditing -------------------------------------------------- */
+    
+    /**
+     * Returns the audit with all actions of the given service on the given entity that were logged after the given last time.
+     */
+    @Pure
+    @NonCommitting
+    public static @Nonnull ResponseAudit getAudit(@Nonnull NonHostEntity entity, @Nonnull SemanticType service, @Nonnull Time lastTime) throws DatabaseException, RecoveryException {
+        return getAudit(entity, service, lastTime, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Returns the audit with the page of actions of the given service on the given entity that is requested by the given request audit.
+     */
+    @Pure
+    @NonCommitting
+    public static @Nonnull ResponseAudit getAudit(@Nonnull NonHostEntity entity, @Nonnull SemanticType service, @Nonnull RequestAudit requestAudit) throws DatabaseException, RecoveryException {
+        return getAudit(entity, service, requestAudit.getLastTime(), requestAudit.getMaximumEntries(), requestAudit.getMaximumBytes());
+    }
+    
+    /**
+     * Returns the audit with the actions of the given service on the given entity that were logged after the given last time.
+     * Each period since the last time is scanned with a single query on the prefix of the primary key. If the trail would
+     * exceed the given number of entries or bytes, the audit is cut after the last action that fits and is not complete.
+     * In order to load only the actions that fit into the page, the times of a period are selected first if the number of entries is bounded.
+     * <p>
+     * The time of a complete audit is the time of the last committed entry and never the current time. As the times are taken from
+     * the locked counter, they are unique and increase in the order in which the entries are committed, so an action that is still
+     * being appended while the audit is read gets a later time than the returned audit and is included in the next audit.
+     * For this reason, the time of the last committed entry is read before the entries, and the times act as sequence numbers.
+     */
+    @Pure
+    @NonCommitting
+    public static @Nonnull ResponseAudit getAudit(@Nonnull NonHostEntity entity, @Nonnull SemanticType service, @Nonnull Time lastTime, @Positive int maximumEntries, @Positive int maximumBytes) throws DatabaseException, RecoveryException {
+        Require.that(maximumEntries > 0 && maximumBytes > 0).orThrow("The maximum number of entries $ and bytes $ have to be positive.", maximumEntries, maximumBytes);
+        
+        final @Nonnull CoreUnit unit = entity.getUnit();
+        final @Nonnull UnitLog log = getLog(unit);
+        final long committedTime = getLastTime(unit);
+        final long currentTime = Math.max(TimeBuilder.build().getValue(), committedTime);
+        final @Nonnull ImmutableList<@Nonnull SQLResultColumn> columns = ImmutableList.withElements(getColumn("time_value"), getColumn("action_type_key"), getColumn("action_bytes"));
+        final @Nonnull FreezableList<Pair<@Nonnull Long, @Nonnull Pack>> entries = FreezableArrayList.withNoElements();
+        final @Nullable Long oldest = log.periods.isEmpty() ? null : log.periods.first();
+        boolean complete = true;
+        if (oldest != null) {
+            for (long period = Math.max(getPeriod(lastTime.getValue()), oldest); period <= getPeriod(currentTime); period++) {
+                if (entries.size() >= maximumEntries) { complete = false; break; }
+                @Nonnull SQLBooleanExpression whereClause = getCondition("period", period);
+                whereClause = whereClause.and(getCondition("entity", entity.getKey()));
+                whereClause = whereClause.and(SQLColumnNameBuilder.withString("time_value").build().greater(SQLLongLiteralBuilder.withValue(lastTime.getValue()).build()));
+                whereClause = whereClause.and(getCondition("service_key", service.getKey())); // TODO: Implement it in such a way that the representation of the semantic type can change.
+                
+                if (maximumEntries < Integer.MAX_VALUE) {
+                    final @Nonnull FreezableList<@Nonnull Long> times = FreezableArrayList.withNoElements();
+                    final @Nonnull SQLDecoder decoder = select(unit, log.table, ImmutableList.withElements(getColumn("time_value")), whereClause);
+                    while (decoder.moveToNextRow()) { times.add(decoder.decodeInteger64()); }
+                    final int remaining = maximumEntries - entries.size();
+                    if (times.size() > remaining) {
+                        times.sort(Comparator.naturalOrder());
+                        whereClause = whereClause.and(SQLLongLiteralBuilder.withValue(times.get(remaining - 1)).build().greaterOrEqual(SQLColumnNameBuilder.withString("time_value").build()));
+                        complete = false;
+                    }
+                }
+                
+                final @Nonnull SQLDecoder decoder = select(unit, log.table, columns, whereClause);
+                while (decoder.moveToNextRow()) {
+                    final long time = decoder.decodeInteger64();
+                    entries.add(Pair.of(time, PackConverter.INSTANCE.recover(decoder, null)));
+                }
+                if (!complete) { break; }
+            }
+        }
+        entries.sort(Comparator.comparingLong(Pair::get0));
+        
+        long thisTime = lastTime.getValue();
+        long bytes = 0;
+        final @Nonnull FreezableList<Pack> trail = FreezableArrayList.withInitialCapacity(entries.size());
+        for (final @Nonnull Pair<@Nonnull Long, @Nonnull Pack> entry : entries) {
+            bytes += entry.get1().getSize();
+            if (!trail.isEmpty() && bytes > maximumBytes) { complete = false; break; }
+            thisTime = Math.max(thisTime, entry.get0());
+            trail.add(entry.get1());
+        }
+        if (complete) { thisTime = Math.max(thisTime, committedTime); }
+        return ResponseAuditBuilder.withLastTime(lastTime).withThisTime(TimeBuilder.buildWithValue(thisTime)).withTrail(trail.freeze()).withComplete(complete).build();
+    }
+    
+    /* -------------------------------------------------- Pruning -------------------------------------------------- */
+    
+    /**
+     * Drops the periods of the log of the given unit that ended before the configured {@link #RETENTION retention}.
+     * Each period is dropped with a single deletion on the prefix of the primary key. All periods from the oldest
+     * registered one are dropped (even if one of them was not registered) and the first retained period is registered
+     * so that the range of periods to drop is known after a restart as well.
+     * 
+     * @return the number of dropped periods.
+     */
+    @Impure
+    @NonCommitting
+    public static int prune(@Nonnull CoreUnit unit) throws DatabaseException, RecoveryException {
+        final @Nonnull UnitLog log = getLog(unit);
+        if (log.periods.isEmpty()) { return 0; }
+        final long retained = getPeriod(TimeBuilder.build().getValue() - RETENTION.get().getValue());
+        int dropped = 0;
+        for (long period = log.periods.first(); period < retained; period++) {
+            SQL.delete(ActionEntryConverter.INSTANCE, unit, WhereConditionBuilder.withConverter(Integer64Converter.INSTANCE).withObject(period).withPrefix("period").build());
+            SQL.delete(ActionPeriodConverter.INSTANCE, unit, WhereConditionBuilder.withConverter(Integer64Converter.INSTANCE).withObject(period).withPrefix("period").build());
+            log.periods.remove(period);
+            dropped++;
+        }
+        if (dropped > 0) {
+            SQL.insertOrIgnore(ActionPeriodConverter.INSTANCE, ActionPeriodBuilder.withPeriod(retained).build(), unit);
+            log.periods.add(retained);
+            Log.verbose("Dropped $ periods of the action log of $.", dropped, unit);
+        }
+        return dropped;
+    }
+    
+    /**
+     * Stores the executor that prunes the logs of the used units regularly.
+     */
+    private static final @Nonnull ScheduledExecutorService pruner = Executors.newSingleThreadScheduledExecutor(NamedThreadFactory.with("Pruner"));
+    
+    /**
+     * Prunes the log of the given unit in a separate transaction and logs a failure instead of propagating it so that the pruning is not cancelled.
+     */
+    @Committing
+    @PureWithSideEffects
+    private static void pruneRegularly(@Nonnull CoreUnit unit) {
+        try {
+            prune(unit);
+            Database.commit();
+        } catch (@Nonnull DatabaseException | RecoveryException exception) {
+            try {
+                Database.rollback();
+            } catch (@Nonnull DatabaseException rollbackException) {
+                Log.warning("Could not roll back the transaction.", rollbackException);
+            }
+            Log.error("Could not prune the action log of the unit $.", exception, unit);
+        }
+    }
+    
+}
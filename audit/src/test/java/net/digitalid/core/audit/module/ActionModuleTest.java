@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.audit.module;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.conversion.converters.StringConverter;
+import net.digitalid.utility.exceptions.ExternalException;
+import net.digitalid.utility.logging.Log;
+import net.digitalid.utility.time.Time;
+
+import net.digitalid.database.exceptions.DatabaseException;
+import net.digitalid.database.interfaces.Database;
+
+import net.digitalid.core.audit.ResponseAudit;
+import net.digitalid.core.identification.identity.SemanticType;
+import net.digitalid.core.identification.identity.SemanticTypeAttributesBuilder;
+import net.digitalid.core.identification.identity.SyntacticType;
+import net.digitalid.core.pack.Pack;
+import net.digitalid.core.testing.CoreTest;
+import net.digitalid.core.testing.fixtures.TestEntity;
+import net.digitalid.core.testing.fixtures.TestEntityBuilder;
+import net.digitalid.core.testing.fixtures.TestUnit;
+
+import org.junit.Test;
+
+public class ActionModuleTest extends CoreTest {
+    
+    /* -------------------------------------------------- Fixtures -------------------------------------------------- */
+    
+    private static final @Nonnull TestUnit UNIT = TestUnit.with("actions", true);
+    
+    private static final @Nonnull SemanticType TYPE = SemanticType.map("actions@core.digitalid.net").load(SemanticTypeAttributesBuilder.withSyntacticBase(SyntacticType.BOOLEAN).build());
+    
+    private static final @Nonnull SemanticType SERVICE = SemanticType.map("service.actions@core.digitalid.net").load(SemanticTypeAttributesBuilder.withSyntacticBase(SyntacticType.BOOLEAN).build());
+    
+    private static final @Nonnull SemanticType OTHER_SERVICE = SemanticType.map("other.service.actions@core.digitalid.net").load(SemanticTypeAttributesBuilder.withSyntacticBase(SyntacticType.BOOLEAN).build());
+    
+    private static final @Nonnull TestEntity ENTITY = TestEntityBuilder.withUnit(UNIT).withKey(1).withIdentity(TYPE).build();
+    
+    private static final @Nonnull TestEntity OTHER_ENTITY = TestEntityBuilder.withUnit(UNIT).withKey(2).withIdentity(TYPE).build();
+    
+    @Pure
+    private static @Nonnull Pack pack(@Nonnull String string) {
+        return Pack.pack(StringConverter.INSTANCE, string);
+    }
+    
+    /* -------------------------------------------------- Tests -------------------------------------------------- */
+    
+    @Test
+    public void shouldAppendWithIncreasingSequenceNumbers() throws ExternalException {
+        final long first = ActionModule.append(ENTITY, SERVICE, pack("first"));
+        final long second = ActionModule.append(OTHER_ENTITY, SERVICE, pack("second"));
+        final long third = ActionModule.append(ENTITY, OTHER_SERVICE, pack("third"));
+        Database.commit();
+        
+        assertThat(second).isGreaterThan(first);
+        assertThat(third).isGreaterThan(second);
+    }
+    
+    @Test
+    public void shouldAssignDistinctSequenceNumbersToConcurrentAppends() throws ExternalException, InterruptedException {
+        final @Nonnull TestUnit unit = TestUnit.with("actionsconcurrent", true);
+        final @Nonnull TestEntity entity = TestEntityBuilder.withUnit(unit).withKey(1).withIdentity(TYPE).build();
+        final int threads = 4;
+        final int appends = 25;
+        final @Nonnull Set<@Nonnull Long> sequences = ConcurrentHashMap.newKeySet();
+        final @Nonnull AtomicInteger failures = new AtomicInteger();
+        final @Nonnull ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int thread = 0; thread < threads; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < appends; i++) {
+                    try {
+                        sequences.add(ActionModule.append(entity, SERVICE, pack("concurrent")));
+                        Database.commit();
+                    } catch (@Nonnull ExternalException exception) {
+                        Log.warning("The concurrent append failed.", exception);
+                        failures.incrementAndGet();
+                        try {
+                            Database.rollback();
+                        } catch (@Nonnull DatabaseException rollbackException) {
+                            Log.warning("Could not roll back the transaction.", rollbackException);
+                        }
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+        
+        assertThat(failures.get()).isZero();
+        assertThat(sequences).hasSize(threads * appends);
+        assertThat(ActionModule.getAudit(entity, SERVICE, Time.MIN).getTrail()).hasSize(threads * appends);
+    }
+    
+    @Test
+    public void shouldReturnTheActionsSinceTheLastTimeInOrder() throws ExternalException {
+        final @Nonnull Time lastTime = ActionModule.getAudit(ENTITY, SERVICE, Time.MIN).getThisTime();
+        ActionModule.append(ENTITY, SERVICE, pack("first"));
+        ActionModule.append(OTHER_ENTITY, SERVICE, pack("other entity"));
+        ActionModule.append(ENTITY, OTHER_SERVICE, pack("other service"));
+        ActionModule.append(ENTITY, SERVICE, pack("second"));
+        Database.commit();
+        
+        final @Nonnull ResponseAudit audit = ActionModule.getAudit(ENTITY, SERVICE, lastTime);
+        assertThat(audit.getLastTime()).isEqualTo(lastTime);
+        assertThat(audit.getThisTime().isGreaterThan(lastTime)).isTrue();
+        assertThat(audit.getTrail()).extracting(pack -> pack.unpack(StringConverter.INSTANCE, null)).containsExactly("first", "second");
+        
+        assertThat(ActionModule.getAudit(ENTITY, SERVICE, audit.getThisTime()).getTrail()).isEmpty();
+    }
+    
+    @Test
+    public void shouldOnlyReturnCommittedActions() throws ExternalException {
+        final @Nonnull Time lastTime = ActionModule.getAudit(ENTITY, SERVICE, Time.MIN).getThisTime();
+        ActionModule.append(ENTITY, SERVICE, pack("rolled back"));
+        Database.rollback();
+        ActionModule.append(ENTITY, SERVICE, pack("committed"));
+        Database.commit();
+        
+        assertThat(ActionModule.getAudit(ENTITY, SERVICE, lastTime).getTrail()).extracting(pack -> pack.unpack(StringConverter.INSTANCE, null)).containsExactly("committed");
+    }
+    
+    @Test
+    public void shouldNotSkipAnActionThatIsCommittedAfterTheAudit() throws ExternalException, InterruptedException, ExecutionException {
+        final @Nonnull Time lastTime = ActionModule.getAudit(ENTITY, SERVICE, Time.MIN).getThisTime();
+        Database.commit();
+        
+        final @Nonnull CountDownLatch appended = new CountDownLatch(1);
+        final @Nonnull CountDownLatch audited = new CountDownLatch(1);
+        final @Nonnull ExecutorService executor = Executors.newSingleThreadExecutor();
+        final @Nonnull Future<?> appender = executor.submit(() -> {
+            ActionModule.append(ENTITY, SERVICE, pack("late"));
+            appended.countDown();
+            audited.await();
+            Database.commit();
+            return null;
+        });
+        assertThat(appended.await(1, TimeUnit.MINUTES)).isTrue();
+        
+        final @Nonnull ResponseAudit audit = ActionModule.getAudit(ENTITY, SERVICE, lastTime);
+        Database.commit();
+        audited.countDown();
+        appender.get();
+        executor.shutdown();
+        
+        assertThat(audit.getTrail()).isEmpty();
+        assertThat(ActionModule.getAudit(ENTITY, SERVICE, audit.getThisTime()).getTrail()).extracting(pack -> pack.unpack(StringConverter.INSTANCE, null)).containsExactly("late");
+    }
+    
+    @Test
+    public void shouldRetainRecentPeriodsWhenPruning() throws ExternalException {
+        final @Nonnull Time lastTime = ActionModule.getAudit(ENTITY, SERVICE, Time.MIN).getThisTime();
+        ActionModule.append(ENTITY, SERVICE, pack("retained"));
+        Database.commit();
+        
+        ActionModule.prune(UNIT);
+        Database.commit();
+        
+        assertThat(ActionModule.getAudit(ENTITY, SERVICE, lastTime).getTrail()).hasSize(1);
+    }
+    
+}
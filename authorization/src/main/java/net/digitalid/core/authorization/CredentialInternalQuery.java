@@ -27,13 +27,11 @@ import net.digitalid.utility.exceptions.ExternalException;
 import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
 import net.digitalid.utility.generator.annotations.generators.GenerateConverter;
 import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
-import net.digitalid.utility.storage.interfaces.Unit;
 import net.digitalid.utility.time.Time;
 import net.digitalid.utility.validation.annotations.generation.Derive;
 import net.digitalid.utility.validation.annotations.type.Immutable;
 
 import net.digitalid.database.annotations.transaction.NonCommitting;
-import net.digitalid.database.conversion.SQL;
 import net.digitalid.database.exceptions.DatabaseException;
 
 import net.digitalid.core.agent.Agent;
@@ -45,7 +43,6 @@ import net.digitalid.core.asymmetrickey.PublicKeyRetriever;
 import net.digitalid.core.conversion.XDF;
 import net.digitalid.core.credential.HostCredential;
 import net.digitalid.core.credential.HostCredentialBuilder;
-import net.digitalid.core.credential.HostCredentialConverter;
 import net.digitalid.core.credential.utility.ExposedExponent;
 import net.digitalid.core.credential.utility.ExposedExponentBuilder;
 import net.digitalid.core.credential.utility.HashedOrSaltedAgentPermissions;
@@ -261,7 +258,7 @@ abstract class CredentialInternalQuery extends InternalQuery implements CoreMeth
         
                 final @Nonnull Element c = f.multiply(publicKey.getAi().pow(i)).multiply(publicKey.getAv().pow(v)).multiply(publicKey.getAo().pow(hostCredential.getO()).inverse()).pow(e.inverse(group)).inverse();
     
-                SQL.insert(HostCredentialConverter.INSTANCE, hostCredential, Unit.DEFAULT, null);
+                HostCredentialStore.issue(getEntity().getUnit(), IssuedCredentialBuilder.withPeriod(HostCredentialStore.getPeriod(issuance)).withExposedValue(hostCredential.getO().getValue()).withRole(getEntity().getKey()).withIssuance(issuance).withI(i).withE(e).withRestrictions(restrictions).build());
         
 //                final @Nonnull ClientCredential clientCredential = ClientCredentialBuilder.withExposedExponent(exposedExponent).withC(c).withE(e).withB(ExponentBuilder.withValue(BigInteger.ZERO).build()).withU(ExponentBuilder.withValue(BigInteger.ZERO).build()).withV(v).withI(i).build();
                 return CredentialReplyBuilder.withEntity(getEntity()).withPublicKey(publicKey).withIssuance(issuance).withC(c).withE(e).withI(i).withRestrictions(restrictions).build();
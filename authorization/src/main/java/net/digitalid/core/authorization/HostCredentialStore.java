@@ -0,0 +1,286 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.authorization;
+
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.collections.list.FreezableList;
+import net.digitalid.utility.configuration.Configuration;
+import net.digitalid.utility.conversion.converters.Integer64Converter;
+import net.digitalid.utility.conversion.converters.IntegerConverter;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.initialization.annotations.Initialize;
+import net.digitalid.utility.logging.Log;
+import net.digitalid.utility.time.Time;
+import net.digitalid.utility.time.TimeBuilder;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+import net.digitalid.utility.validation.annotations.type.Utility;
+
+import net.digitalid.database.annotations.transaction.NonCommitting;
+import net.digitalid.database.conversion.SQL;
+import net.digitalid.database.conversion.WhereCondition;
+import net.digitalid.database.conversion.WhereConditionBuilder;
+import net.digitalid.database.exceptions.DatabaseException;
+import net.digitalid.database.interfaces.Database;
+
+import net.digitalid.core.credential.Credential;
+import net.digitalid.core.credential.utility.ExposedExponent;
+import net.digitalid.core.unit.CoreUnit;
+
+/**
+ * The host credential store records the {@link Credential credentials} that were issued by a host so that the credentials
+ * of a credentials signature can be looked up by their exposed value in order to answer audits, revocations and restrictions lookups.
+ * The store is append-mostly: Each issued credential is inserted once, and the entries are partitioned into periods of the configured
+ * {@link #PERIOD length} so that expired credentials are deleted a whole period at a time instead of one by one.
+ * The most recently issued credentials, which are the ones that are used the most, are additionally kept in memory.
+ * 
+ * @see IssuedCredential
+ */
+@Utility
+public abstract class HostCredentialStore {
+    
+    /* -------------------------------------------------- Configurations -------------------------------------------------- */
+    
+    /**
+     * Stores the length of the periods into which the issued credentials are partitioned.
+     */
+    public static final @Nonnull Configuration<Time> PERIOD = Configuration.with(Time.WEEK);
+    
+    /**
+     * Stores how long the issued credentials are retained, which has to be at least as long as credentials are {@link Credential#isValid() valid}.
+     */
+    public static final @Nonnull Configuration<Time> RETENTION = Configuration.with(Time.TROPICAL_YEAR);
+    
+    /**
+     * Stores the number of recently issued credentials that are kept in memory per unit.
+     */
+    public static final @Nonnull Configuration<Integer> CAPACITY = Configuration.with(100_000);
+    
+    /**
+     * Returns the period of the given time.
+     */
+    @Pure
+    static long getPeriod(@Nonnull Time time) {
+        return time.getValue() / PERIOD.get().getValue();
+    }
+    
+    /* -------------------------------------------------- Unit Stores -------------------------------------------------- */
+    
+    /**
+     * A unit store stores the state of the issued credentials of a single unit in this process.
+     */
+    @Mutable
+    private static final class UnitStore {
+        
+        /**
+         * Stores the periods that are known to be registered in the period table.
+         */
+        private final @Nonnull NavigableSet<@Nonnull Long> periods = new ConcurrentSkipListSet<>();
+        
+        /**
+         * Maps the exposed values of the recently issued or looked up credentials to their entries.
+         */
+        private final @Nonnull Map<@Nonnull BigInteger, @Nonnull IssuedCredential> recent = new ConcurrentHashMap<>();
+        
+        /**
+         * Stores the exposed values of the recent credentials in the order in which they were cached.
+         */
+        private final @Nonnull Queue<@Nonnull BigInteger> order = new ConcurrentLinkedQueue<>();
+        
+        /**
+         * Stores the number of entries in the queue.
+         */
+        private final @Nonnull AtomicInteger size = new AtomicInteger();
+        
+        /**
+         * Caches the given entry and evicts the oldest entries if the capacity is exceeded.
+         */
+        @Impure
+        private void cache(@Nonnull IssuedCredential entry) {
+            if (recent.putIfAbsent(entry.getExposedValue(), entry) == null) {
+                order.add(entry.getExposedValue());
+                while (size.incrementAndGet() > CAPACITY.get()) {
+                    final @Nullable BigInteger oldest = order.poll();
+                    if (oldest == null) { size.decrementAndGet(); break; }
+                    recent.remove(oldest);
+                    size.addAndGet(-2);
+                }
+            }
+        }
+        
+        /**
+         * Evicts the cached entries that were issued in periods before the given period.
+         * An entry is only removed from the cache if it could be removed from the queue so that the size stays consistent with the queue.
+         */
+        @Impure
+        private void evict(long retained) {
+            for (final @Nonnull BigInteger value : order) {
+                final @Nullable IssuedCredential entry = recent.get(value);
+                if (entry != null && entry.getPeriod() < retained && order.remove(value)) {
+                    recent.remove(value);
+                    size.decrementAndGet();
+                }
+            }
+        }
+        
+    }
+    
+    /**
+     * Stores the stores of the units that have been used in this process.
+     */
+    private static final @Nonnull Map<@Nonnull CoreUnit, @Nonnull UnitStore> stores = new ConcurrentHashMap<>();
+    
+    /**
+     * Stores a dummy configuration in order to have an initialization target.
+     */
+    public static final @Nonnull Configuration<Boolean> configuration = Configuration.with(Boolean.TRUE);
+    
+    /**
+     * Adds the tables of the issued credentials and their periods to the tables which are created on each unit.
+     */
+    @PureWithSideEffects
+    @Initialize(target = HostCredentialStore.class)
+    public static void addTables() {
+        CoreUnit.addTable(IssuedCredentialConverter.INSTANCE);
+        CoreUnit.addTable(IssuedCredentialPeriodConverter.INSTANCE);
+    }
+    
+    /**
+     * Returns the store of the given unit and loads its registered periods if this has not yet been done in this process.
+     */
+    @NonCommitting
+    @PureWithSideEffects
+    private static @Nonnull UnitStore getStore(@Nonnull CoreUnit unit) throws DatabaseException, RecoveryException {
+        @Nullable UnitStore store = stores.get(unit);
+        if (store == null) {
+            synchronized (stores) {
+                store = stores.get(unit);
+                if (store == null) {
+                    store = new UnitStore();
+                    final @Nonnull FreezableList<IssuedCredentialPeriod> registered = SQL.selectAll(IssuedCredentialPeriodConverter.INSTANCE, null, unit);
+                    for (final @Nonnull IssuedCredentialPeriod period : registered) { store.periods.add(period.getPeriod()); }
+                    stores.put(unit, store);
+                }
+            }
+        }
+        return store;
+    }
+    
+    /**
+     * Removes all issued credentials of the given unit from memory, which is necessary when its tables are dropped or replaced.
+     */
+    @Impure
+    public static void reset(@Nonnull CoreUnit unit) {
+        stores.remove(unit);
+    }
+    
+    /* -------------------------------------------------- Issuance -------------------------------------------------- */
+    
+    /**
+     * Records the given issued credential in the store of the given unit.
+     * The entry and its period are cached in memory only after the current transaction has been committed successfully.
+     */
+    @Impure
+    @NonCommitting
+    public static void issue(@Nonnull CoreUnit unit, @Nonnull IssuedCredential entry) throws DatabaseException, RecoveryException {
+        final @Nonnull UnitStore store = getStore(unit);
+        if (!store.periods.contains(entry.getPeriod())) {
+            SQL.insertOrIgnore(IssuedCredentialPeriodConverter.INSTANCE, IssuedCredentialPeriodBuilder.withPeriod(entry.getPeriod()).build(), unit);
+        }
+        SQL.insertOrAbort(IssuedCredentialConverter.INSTANCE, entry, unit);
+        Database.instance.get().runAfterCommit(() -> {
+            store.periods.add(entry.getPeriod());
+            store.cache(entry);
+        });
+    }
+    
+    /* -------------------------------------------------- Lookup -------------------------------------------------- */
+    
+    /**
+     * Returns the credential with the given exposed value that was issued at the given time by the given unit or null if no such credential was issued.
+     */
+    @Pure
+    @NonCommitting
+    public static @Nullable IssuedCredential lookup(@Nonnull CoreUnit unit, @Nonnull Time issuance, @Nonnull BigInteger exposedValue) throws DatabaseException, RecoveryException {
+        final @Nonnull UnitStore store = getStore(unit);
+        @Nullable IssuedCredential entry = store.recent.get(exposedValue);
+        if (entry == null) {
+            final @Nonnull WhereCondition<Long> periodCondition = WhereConditionBuilder.withConverter(Integer64Converter.INSTANCE).withObject(getPeriod(issuance)).withPrefix("period").build();
+            final @Nonnull WhereCondition<BigInteger> valueCondition = WhereConditionBuilder.withConverter(IntegerConverter.INSTANCE).withObject(exposedValue).withPrefix("exposedvalue").build();
+            entry = SQL.selectFirst(IssuedCredentialConverter.INSTANCE, null, unit, periodCondition, valueCondition);
+            if (entry != null) { store.cache(entry); }
+        }
+        return entry;
+    }
+    
+    /**
+     * Returns the credential with the given exposed exponent that was issued by the given unit or null if no such credential was issued.
+     */
+    @Pure
+    @NonCommitting
+    public static @Nullable IssuedCredential lookup(@Nonnull CoreUnit unit, @Nonnull ExposedExponent exposedExponent) throws DatabaseException, RecoveryException {
+        return lookup(unit, exposedExponent.getIssuance(), exposedExponent.getHash());
+    }
+    
+    /* -------------------------------------------------- Expiry -------------------------------------------------- */
+    
+    /**
+     * Deletes the credentials of the given unit that were issued in periods which ended before the configured {@link #RETENTION retention}.
+     * Each period is deleted with a single deletion on the prefix of the primary key, and the first retained period is registered
+     * so that the range of periods to delete is known after a restart as well.
+     * The deleted periods and credentials are removed from memory only after the current transaction has been committed successfully.
+     * 
+     * @return the number of deleted periods.
+     */
+    @Impure
+    @NonCommitting
+    public static @NonNegative int expire(@Nonnull CoreUnit unit) throws DatabaseException, RecoveryException {
+        final @Nonnull UnitStore store = getStore(unit);
+        if (store.periods.isEmpty()) { return 0; }
+        final long retained = getPeriod(TimeBuilder.buildWithValue(TimeBuilder.build().getValue() - RETENTION.get().getValue()));
+        int deleted = 0;
+        for (long period = store.periods.first(); period < retained; period++) {
+            SQL.delete(IssuedCredentialConverter.INSTANCE, unit, WhereConditionBuilder.withConverter(Integer64Converter.INSTANCE).withObject(period).withPrefix("period").build());
+            SQL.delete(IssuedCredentialPeriodConverter.INSTANCE, unit, WhereConditionBuilder.withConverter(Integer64Converter.INSTANCE).withObject(period).withPrefix("period").build());
+            deleted++;
+        }
+        if (deleted > 0) {
+            SQL.insertOrIgnore(IssuedCredentialPeriodConverter.INSTANCE, IssuedCredentialPeriodBuilder.withPeriod(retained).build(), unit);
+            Database.instance.get().runAfterCommit(() -> {
+                store.periods.headSet(retained).clear();
+                store.periods.add(retained);
+                store.evict(retained);
+            });
+            Log.verbose("Deleted $ periods of the issued credentials of $.", deleted, unit);
+        }
+        return deleted;
+    }
+    
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.authorization;
+
+import java.math.BigInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
+import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.generator.annotations.generators.GenerateTableConverter;
+import net.digitalid.utility.rootclass.RootClass;
+import net.digitalid.utility.time.Time;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+import net.digitalid.database.annotations.constraints.PrimaryKey;
+
+import net.digitalid.core.group.Exponent;
+import net.digitalid.core.restrictions.Restrictions;
+
+/**
+ * This type models an entry in the table of the credentials that were issued by a host.
+ * The primary key starts with the period of the issuance and the exposed value so that the lookup of a credential
+ * during the verification of a credentials signature and the expiry of whole periods are served by its index.
+ * 
+ * @see HostCredentialStore
+ */
+@Immutable
+@GenerateBuilder
+@GenerateSubclass
+@GenerateTableConverter
+public abstract class IssuedCredential extends RootClass {
+    
+    /* -------------------------------------------------- Key -------------------------------------------------- */
+    
+    /**
+     * Returns the period in which the credential was issued.
+     */
+    @Pure
+    @PrimaryKey
+    public abstract long getPeriod();
+    
+    /**
+     * Returns the exposed value of the credential, which is the hash of its exposed exponent.
+     */
+    @Pure
+    @PrimaryKey
+    public abstract @Nonnull BigInteger getExposedValue();
+    
+    /**
+     * Returns the key of the role to which the credential was issued.
+     */
+    @Pure
+    @PrimaryKey
+    public abstract long getRole();
+    
+    /**
+     * Returns the time at which the credential was issued.
+     */
+    @Pure
+    @PrimaryKey
+    public abstract @Nonnull Time getIssuance();
+    
+    /* -------------------------------------------------- Credential -------------------------------------------------- */
+    
+    /**
+     * Returns the serial number of the credential.
+     */
+    @Pure
+    public abstract @Nonnull Exponent getI();
+    
+    /**
+     * Returns the certifying exponent of the credential.
+     */
+    @Pure
+    public abstract @Nonnull Exponent getE();
+    
+    /**
+     * Returns the restrictions for which the credential was issued.
+     */
+    @Pure
+    public abstract @Nullable Restrictions getRestrictions();
+    
+}
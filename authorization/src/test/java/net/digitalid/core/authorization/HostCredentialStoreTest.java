@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.authorization;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.conversion.converters.IntegerConverter;
+import net.digitalid.utility.exceptions.ExternalException;
+import net.digitalid.utility.time.Time;
+import net.digitalid.utility.time.TimeBuilder;
+
+import net.digitalid.database.conversion.SQL;
+import net.digitalid.database.conversion.WhereConditionBuilder;
+import net.digitalid.database.interfaces.Database;
+
+import net.digitalid.core.group.ExponentBuilder;
+import net.digitalid.core.testing.CoreTest;
+import net.digitalid.core.testing.fixtures.TestUnit;
+
+import org.junit.Test;
+
+public class HostCredentialStoreTest extends CoreTest {
+    
+    /* -------------------------------------------------- Fixtures -------------------------------------------------- */
+    
+    private static final @Nonnull TestUnit UNIT = TestUnit.with("credentials", true);
+    
+    private static final @Nonnull Random random = new Random(0);
+    
+    /**
+     * Returns a new issued credential with a random exposed value for the given issuance.
+     */
+    @Pure
+    private static @Nonnull IssuedCredential entry(@Nonnull Time issuance) {
+        return IssuedCredentialBuilder.withPeriod(HostCredentialStore.getPeriod(issuance)).withExposedValue(new BigInteger(256, random)).withRole(1).withIssuance(issuance).withI(ExponentBuilder.withValue(new BigInteger(256, random)).build()).withE(ExponentBuilder.withValue(BigInteger.valueOf(65_537)).build()).build();
+    }
+    
+    @Pure
+    private static @Nonnull Time now() {
+        return TimeBuilder.build().roundDown(Time.HALF_HOUR);
+    }
+    
+    /**
+     * Deletes the given entry directly from the database so that it can only be found in memory.
+     */
+    @Impure
+    private static void delete(@Nonnull IssuedCredential entry) throws ExternalException {
+        SQL.delete(IssuedCredentialConverter.INSTANCE, UNIT, WhereConditionBuilder.withConverter(IntegerConverter.INSTANCE).withObject(entry.getExposedValue()).withPrefix("exposedvalue").build());
+    }
+    
+    /* -------------------------------------------------- Tests -------------------------------------------------- */
+    
+    @Test
+    public void shouldLookUpIssuedCredentials() throws ExternalException {
+        final @Nonnull IssuedCredential entry = entry(now());
+        HostCredentialStore.issue(UNIT, entry);
+        Database.commit();
+        
+        assertThat(HostCredentialStore.lookup(UNIT, entry.getIssuance(), entry.getExposedValue())).isEqualTo(entry);
+        HostCredentialStore.reset(UNIT);
+        assertThat(HostCredentialStore.lookup(UNIT, entry.getIssuance(), entry.getExposedValue())).isEqualTo(entry);
+        assertThat(HostCredentialStore.lookup(UNIT, entry.getIssuance(), entry.getExposedValue().add(BigInteger.ONE))).isNull();
+    }
+    
+    @Test
+    public void shouldNotFindRolledBackCredentials() throws ExternalException {
+        final @Nonnull IssuedCredential entry = entry(now());
+        HostCredentialStore.issue(UNIT, entry);
+        Database.rollback();
+        
+        assertThat(HostCredentialStore.lookup(UNIT, entry.getIssuance(), entry.getExposedValue())).isNull();
+    }
+    
+    @Test
+    public void shouldCacheIssuedCredentialsOnlyAfterTheCommit() throws ExternalException {
+        final @Nonnull IssuedCredential entry = entry(now());
+        HostCredentialStore.issue(UNIT, entry);
+        delete(entry);
+        assertThat(HostCredentialStore.lookup(UNIT, entry.getIssuance(), entry.getExposedValue())).isNull();
+        Database.rollback();
+        
+        HostCredentialStore.issue(UNIT, entry);
+        Database.commit();
+        delete(entry);
+        Database.commit();
+        assertThat(HostCredentialStore.lookup(UNIT, entry.getIssuance(), entry.getExposedValue())).isEqualTo(entry);
+        HostCredentialStore.reset(UNIT);
+        assertThat(HostCredentialStore.lookup(UNIT, entry.getIssuance(), entry.getExposedValue())).isNull();
+    }
+    
+    @Test
+    public void shouldExpireWholePeriods() throws ExternalException {
+        final @Nonnull IssuedCredential expired = entry(TimeBuilder.buildWithValue(now().getValue() - HostCredentialStore.RETENTION.get().getValue() - 2 * HostCredentialStore.PERIOD.get().getValue()));
+        final @Nonnull IssuedCredential retained = entry(now());
+        HostCredentialStore.issue(UNIT, expired);
+        HostCredentialStore.issue(UNIT, retained);
+        Database.commit();
+        
+        assertThat(HostCredentialStore.expire(UNIT)).isPositive();
+        Database.commit();
+        
+        assertThat(HostCredentialStore.lookup(UNIT, expired.getIssuance(), expired.getExposedValue())).isNull();
+        assertThat(HostCredentialStore.lookup(UNIT, retained.getIssuance(), retained.getExposedValue())).isEqualTo(retained);
+    }
+    
+    @Test
+    public void shouldEvictExpiredCredentialsOnlyAfterTheCommit() throws ExternalException {
+        final @Nonnull IssuedCredential expired = entry(TimeBuilder.buildWithValue(now().getValue() - HostCredentialStore.RETENTION.get().getValue() - 3 * HostCredentialStore.PERIOD.get().getValue()));
+        HostCredentialStore.issue(UNIT, expired);
+        Database.commit();
+        delete(expired);
+        Database.commit();
+        
+        assertThat(HostCredentialStore.expire(UNIT)).isPositive();
+        Database.rollback();
+        assertThat(HostCredentialStore.lookup(UNIT, expired.getIssuance(), expired.getExposedValue())).isEqualTo(expired);
+        
+        assertThat(HostCredentialStore.expire(UNIT)).isPositive();
+        Database.commit();
+        assertThat(HostCredentialStore.lookup(UNIT, expired.getIssuance(), expired.getExposedValue())).isNull();
+        assertThat(HostCredentialStore.expire(UNIT)).isZero();
+    }
+    
+}
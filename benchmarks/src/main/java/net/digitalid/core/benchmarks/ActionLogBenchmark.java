@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.conversion.converters.StringConverter;
+import net.digitalid.utility.exceptions.ExternalException;
+import net.digitalid.utility.time.Time;
+import net.digitalid.utility.time.TimeBuilder;
+
+import net.digitalid.database.interfaces.Database;
+
+import net.digitalid.core.audit.module.ActionModule;
+import net.digitalid.core.identification.identity.SemanticType;
+import net.digitalid.core.identification.identity.SemanticTypeAttributesBuilder;
+import net.digitalid.core.identification.identity.SyntacticType;
+import net.digitalid.core.pack.Pack;
+import net.digitalid.core.testing.fixtures.TestEntity;
+import net.digitalid.core.testing.fixtures.TestEntityBuilder;
+import net.digitalid.core.testing.fixtures.TestUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the {@link ActionModule action log} after one million actions have been appended to it during the setup.
+ * The audit benchmark returns the trail of the given depth, and the append benchmark appends and commits a thousand actions of another entity.
+ */
+@Fork(1)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ActionLogBenchmark {
+    
+    /* -------------------------------------------------- Fixtures -------------------------------------------------- */
+    
+    private static final int ACTIONS = 1_000_000;
+    
+    private static final int GROUP = 1_000;
+    
+    @Param({"10", "1000", "100000"})
+    public int depth;
+    
+    private @Nonnull SemanticType service;
+    
+    private @Nonnull TestEntity entity;
+    
+    private @Nonnull TestEntity otherEntity;
+    
+    private @Nonnull Pack pack;
+    
+    private @Nonnull Time lastTime;
+    
+    @Impure
+    @Setup
+    public void setUp() throws ExternalException {
+        BenchmarkFixtures.initialize(ParameterSizes.TEST);
+        final @Nonnull TestUnit unit = TestUnit.with("actions", true);
+        final @Nonnull SemanticType type = SemanticType.map("actions.benchmark@core.digitalid.net").load(SemanticTypeAttributesBuilder.withSyntacticBase(SyntacticType.BOOLEAN).build());
+        service = SemanticType.map("service.actions.benchmark@core.digitalid.net").load(SemanticTypeAttributesBuilder.withSyntacticBase(SyntacticType.BOOLEAN).build());
+        entity = TestEntityBuilder.withUnit(unit).withKey(1).withIdentity(type).build();
+        otherEntity = TestEntityBuilder.withUnit(unit).withKey(2).withIdentity(type).build();
+        pack = Pack.pack(StringConverter.INSTANCE, "Hello World!");
+        
+        for (int i = 1; i <= ACTIONS; i++) {
+            if (i == ACTIONS - depth + 1) { lastTime = ActionModule.getAudit(entity, service, TimeBuilder.build()).getThisTime(); }
+            ActionModule.append(entity, service, pack);
+            if (i % GROUP == 0) { Database.commit(); }
+        }
+        Database.commit();
+    }
+    
+    /* -------------------------------------------------- Benchmarks -------------------------------------------------- */
+    
+    @Benchmark
+    @PureWithSideEffects
+    public int audit() throws ExternalException {
+        return ActionModule.getAudit(entity, service, lastTime).getTrail().size();
+    }
+    
+    @Impure
+    @Benchmark
+    @OperationsPerInvocation(GROUP)
+    public long append() throws ExternalException {
+        long sequence = 0;
+        for (int i = 0; i < GROUP; i++) { sequence = ActionModule.append(otherEntity, service, pack); }
+        Database.commit();
+        return sequence;
+    }
+    
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.exceptions.ExternalException;
+
+import net.digitalid.database.conversion.SQL;
+import net.digitalid.database.interfaces.Database;
+
+import net.digitalid.core.agent.Agent;
+import net.digitalid.core.agent.AgentCoverage;
+import net.digitalid.core.clientagent.ClientAgent;
+import net.digitalid.core.clientagent.ClientAgentSubclass;
+import net.digitalid.core.entity.NonHostEntity;
+import net.digitalid.core.identification.identity.SemanticType;
+import net.digitalid.core.identification.identity.SemanticTypeAttributesBuilder;
+import net.digitalid.core.identification.identity.SyntacticType;
+import net.digitalid.core.permissions.FreezableAgentPermissions;
+import net.digitalid.core.permissions.ReadOnlyAgentPermissions;
+import net.digitalid.core.property.map.WritableSynchronizedMapProperty;
+import net.digitalid.core.property.value.WritableSynchronizedValueProperty;
+import net.digitalid.core.testing.fixtures.TestEntity;
+import net.digitalid.core.testing.fixtures.TestEntityBuilder;
+import net.digitalid.core.testing.fixtures.TestUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the repeated check whether a client agent covers another client agent with and without the {@link AgentCoverage agent coverage} cache.
+ */
+@Fork(1)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@SuppressWarnings("unchecked")
+public class AgentCoverageBenchmark {
+    
+    /* -------------------------------------------------- Fixtures -------------------------------------------------- */
+    
+    @Param({"false", "true"})
+    public boolean caching;
+    
+    private @Nonnull ClientAgent strong;
+    
+    private @Nonnull ClientAgent weak;
+    
+    /**
+     * Returns a client agent of the given entity with the given key that is not removed and has the given permission.
+     */
+    @Impure
+    private static @Nonnull ClientAgent agent(@Nonnull NonHostEntity entity, long key, @Nonnull SemanticType type, boolean writing) throws ExternalException {
+        final @Nonnull ClientAgent agent = ClientAgent.of(entity, key);
+        ((WritableSynchronizedValueProperty<NonHostEntity, Long, Agent, Boolean>) agent.removed()).setWithoutSynchronization(false);
+        ((WritableSynchronizedMapProperty<NonHostEntity, Long, Agent, SemanticType, Boolean, ReadOnlyAgentPermissions, FreezableAgentPermissions>) agent.permissions()).addWithoutSynchronization(type, writing);
+        return agent;
+    }
+    
+    @Impure
+    @Setup
+    public void setUp() throws ExternalException {
+        BenchmarkFixtures.initialize(ParameterSizes.TEST);
+        final @Nonnull TestUnit unit = TestUnit.with("coverage", false);
+        final @Nonnull SemanticType type = SemanticType.map("coverage.benchmark@core.digitalid.net").load(SemanticTypeAttributesBuilder.withSyntacticBase(SyntacticType.BOOLEAN).build());
+        final @Nonnull TestEntity entity = TestEntityBuilder.withUnit(unit).withKey(0).withIdentity(type).build();
+        TestEntity.createTable(unit, entity);
+        SQL.createTable(ClientAgentSubclass.SUPER_MODULE.getSubjectTable(), unit);
+        SQL.createTable(ClientAgentSubclass.MODULE.getSubjectTable(), unit);
+        ClientAgentSubclass.MODULE.accept(table -> SQL.createTable(table, unit));
+        strong = agent(entity, 2L, type, true);
+        weak = agent(entity, 4L, type, false);
+        Database.commit();
+        AgentCoverage.CACHING.set(caching);
+    }
+    
+    @Impure
+    @TearDown
+    public void tearDown() {
+        AgentCoverage.CACHING.set(false);
+    }
+    
+    /* -------------------------------------------------- Benchmarks -------------------------------------------------- */
+    
+    @Benchmark
+    @PureWithSideEffects
+    public boolean covers() throws ExternalException {
+        return strong.covers(weak);
+    }
+    
+}
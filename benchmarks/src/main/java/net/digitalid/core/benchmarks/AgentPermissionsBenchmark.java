@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.time.Time;
+
+import net.digitalid.core.identification.identity.Category;
+import net.digitalid.core.identification.identity.SemanticType;
+import net.digitalid.core.identification.identity.SemanticTypeAttributesBuilder;
+import net.digitalid.core.identification.identity.SyntacticType;
+import net.digitalid.core.permissions.FreezableAgentPermissions;
+import net.digitalid.core.permissions.ReadOnlyAgentPermissions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the coverage check of {@link FreezableAgentPermissions agent permissions} with the given number of types,
+ * which is answered with maps on non-frozen permissions and with bitsets on frozen permissions.
+ */
+@Fork(1)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AgentPermissionsBenchmark {
+    
+    /* -------------------------------------------------- Fixtures -------------------------------------------------- */
+    
+    private static final int NUMBER_OF_TYPES = 100;
+    
+    @Param({"1", "10", "50"})
+    public int types;
+    
+    private @Nonnull FreezableAgentPermissions agent;
+    
+    private @Nonnull FreezableAgentPermissions required;
+    
+    private @Nonnull ReadOnlyAgentPermissions frozenAgent;
+    
+    private @Nonnull ReadOnlyAgentPermissions frozenRequired;
+    
+    /**
+     * Returns random agent permissions with about the given number of the given types.
+     */
+    @Pure
+    private static @Nonnull FreezableAgentPermissions getRandomPermissions(@Nonnull Random random, @Nonnull SemanticType[] semanticTypes, int numberOfTypes) {
+        final @Nonnull FreezableAgentPermissions permissions = FreezableAgentPermissions.withNoPermissions();
+        for (int i = 0; i < numberOfTypes; i++) { permissions.put(semanticTypes[random.nextInt(semanticTypes.length)], random.nextBoolean()); }
+        return permissions;
+    }
+    
+    @Impure
+    @Setup
+    public void setUp() {
+        BenchmarkFixtures.initialize(ParameterSizes.TEST);
+        final @Nonnull SemanticType[] semanticTypes = new SemanticType[NUMBER_OF_TYPES];
+        for (int i = 0; i < NUMBER_OF_TYPES; i++) {
+            semanticTypes[i] = SemanticType.map("type" + i + ".permissions.benchmark@core.digitalid.net").load(SemanticTypeAttributesBuilder.withSyntacticBase(SyntacticType.BOOLEAN).withCategories(Category.INTERNAL_IDENTITIES).withCachingPeriod(Time.TROPICAL_YEAR).build());
+        }
+        final @Nonnull Random random = new Random(0);
+        agent = getRandomPermissions(random, semanticTypes, types);
+        required = FreezableAgentPermissions.withPermissionsOf(agent);
+        required.restrictTo(getRandomPermissions(random, semanticTypes, types));
+        frozenAgent = agent.clone().freeze();
+        frozenRequired = required.clone().freeze();
+    }
+    
+    /* -------------------------------------------------- Benchmarks -------------------------------------------------- */
+    
+    @Pure
+    @Benchmark
+    public boolean coverWithMaps() {
+        return agent.cover(required);
+    }
+    
+    @Pure
+    @Benchmark
+    public boolean coverWithBitsets() {
+        return frozenAgent.cover(frozenRequired);
+    }
+    
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.collections.list.FreezableArrayList;
+import net.digitalid.utility.collections.list.FreezableList;
+import net.digitalid.utility.collections.list.ReadOnlyList;
+import net.digitalid.utility.exceptions.ExternalException;
+
+import net.digitalid.core.benchmarks.handlers.EchoQuery;
+import net.digitalid.core.benchmarks.handlers.EchoQueryBuilder;
+import net.digitalid.core.benchmarks.handlers.EchoReply;
+import net.digitalid.core.benchmarks.handlers.EchoReplyConverter;
+import net.digitalid.core.handler.method.Method;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks sending the given number of similar methods to the {@link LoopbackServer loopback server} in separate requests and in a single batch.
+ * The time of an invocation has to be divided by the size in order to get the time per method.
+ */
+@Fork(1)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BatchBenchmark {
+    
+    /* -------------------------------------------------- Fixtures -------------------------------------------------- */
+    
+    @Param({"1", "10", "100"})
+    public int size;
+    
+    private @Nonnull ReadOnlyList<EchoQuery> queries;
+    
+    @Impure
+    @Setup
+    public void setUp() throws Exception {
+        LoopbackServer.start();
+        final @Nonnull FreezableList<EchoQuery> queries = FreezableArrayList.withInitialCapacity(size);
+        for (int i = 0; i < size; i++) { queries.add(EchoQueryBuilder.withMessage("Message " + i).withProvidedSubject(LoopbackServer.HOST).build()); }
+        this.queries = queries.freeze();
+    }
+    
+    /* -------------------------------------------------- Benchmarks -------------------------------------------------- */
+    
+    @Benchmark
+    @PureWithSideEffects
+    public int separateRequests() throws ExternalException {
+        int length = 0;
+        for (final @Nonnull EchoQuery query : queries) { length += query.send(EchoReplyConverter.INSTANCE).getMessage().length(); }
+        return length;
+    }
+    
+    @Benchmark
+    @PureWithSideEffects
+    public int singleBatch() throws ExternalException {
+        int length = 0;
+        for (final @Nonnull EchoReply reply : Method.sendBatch(queries, EchoReplyConverter.INSTANCE)) { length += reply.getMessage().length(); }
+        return length;
+    }
+    
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.benchmarks;
+
+import java.sql.SQLException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.configuration.Configuration;
+import net.digitalid.utility.initialization.annotations.Initialize;
+import net.digitalid.utility.storage.interfaces.Unit;
+import net.digitalid.utility.validation.annotations.type.Utility;
+
+import net.digitalid.database.annotations.transaction.Committing;
+import net.digitalid.database.interfaces.Database;
+import net.digitalid.database.jdbc.JDBCDatabaseBuilder;
+
+import net.digitalid.core.asymmetrickey.KeyPair;
+import net.digitalid.core.asymmetrickey.PrivateKeyRetriever;
+import net.digitalid.core.asymmetrickey.PublicKeyRetriever;
+import net.digitalid.core.testing.providers.TestPrivateKeyRetrieverBuilder;
+import net.digitalid.core.testing.providers.TestPublicKeyRetrieverBuilder;
+
+import org.h2.Driver;
+
+/**
+ * The benchmark fixtures initialize the library once per virtual machine with the requested {@link ParameterSizes parameter sizes}.
+ * The identifiers are resolved with the test providers and the keys are retrieved from a key pair that is generated once per sizes,
+ * which keeps the fixtures of the benchmarks stable across their iterations.
+ */
+@Utility
+public abstract class BenchmarkFixtures {
+    
+    /* -------------------------------------------------- Initialization -------------------------------------------------- */
+    
+    /**
+     * Initializes the database in memory because persistence is not necessary.
+     */
+    @PureWithSideEffects
+    @Initialize(target = Database.class)
+    public static void initializeDatabase() throws SQLException {
+        if (!Database.instance.isSet()) {
+            final @Nonnull String URL = "jdbc:h2:mem:benchmarks;DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS " + Unit.DEFAULT.getName() + ";MODE=MySQL;";
+            Database.instance.set(JDBCDatabaseBuilder.withDriver(new Driver()).withURL(URL).withUser("sa").withPassword("sa").build());
+        }
+    }
+    
+    /* -------------------------------------------------- Key Pair -------------------------------------------------- */
+    
+    private static boolean initialized = false;
+    
+    private static @Nullable ParameterSizes sizes = null;
+    
+    private static @Nullable KeyPair keyPair = null;
+    
+    /**
+     * Initializes the library with the given sizes if this has not yet been done and returns the key pair of the hosts.
+     */
+    @Impure
+    @Committing
+    public static synchronized @Nonnull KeyPair initialize(@Nonnull ParameterSizes sizes) {
+        if (!initialized) {
+            Configuration.initializeAllConfigurations();
+            Database.commit();
+            initialized = true;
+        }
+        if (keyPair == null || sizes != BenchmarkFixtures.sizes) {
+            sizes.apply();
+            keyPair = KeyPair.withRandomValues();
+            PublicKeyRetriever.configuration.set(TestPublicKeyRetrieverBuilder.withKeyPair(keyPair).build());
+            PrivateKeyRetriever.configuration.set(TestPrivateKeyRetrieverBuilder.withKeyPair(keyPair).build());
+            BenchmarkFixtures.sizes = sizes;
+        }
+        return keyPair;
+    }
+    
+}
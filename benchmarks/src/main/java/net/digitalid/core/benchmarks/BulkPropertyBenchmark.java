@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.collections.list.FreezableArrayList;
+import net.digitalid.utility.collections.list.FreezableList;
+import net.digitalid.utility.collections.set.FreezableSet;
+import net.digitalid.utility.collections.set.ReadOnlySet;
+import net.digitalid.utility.exceptions.ExternalException;
+
+import net.digitalid.database.conversion.SQL;
+import net.digitalid.database.interfaces.Database;
+
+import net.digitalid.core.entity.NonHostEntity;
+import net.digitalid.core.identification.identity.SemanticType;
+import net.digitalid.core.identification.identity.SemanticTypeAttributesBuilder;
+import net.digitalid.core.identification.identity.SyntacticType;
+import net.digitalid.core.property.set.WritableSynchronizedSetProperty;
+import net.digitalid.core.subject.utility.None;
+import net.digitalid.core.testing.fixtures.TestEntity;
+import net.digitalid.core.testing.fixtures.TestEntityBuilder;
+import net.digitalid.core.testing.fixtures.TestUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks adding and then removing the given number of values to and from a synchronized set property either one by one or in bulk.
+ * Each invocation commits the additions and the removals in a transaction of their own.
+ */
+@Fork(1)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@SuppressWarnings("unchecked")
+public class BulkPropertyBenchmark {
+    
+    /* -------------------------------------------------- Fixtures -------------------------------------------------- */
+    
+    @Param({"10", "100", "1000"})
+    public int entries;
+    
+    private @Nonnull WritableSynchronizedSetProperty<NonHostEntity, None, PropertyBenchmarkSubject, String, ReadOnlySet<String>, FreezableSet<String>> values;
+    
+    private @Nonnull FreezableList<@Nonnull String> strings;
+    
+    @Impure
+    @Setup
+    public void setUp() throws ExternalException {
+        BenchmarkFixtures.initialize(ParameterSizes.TEST);
+        final @Nonnull TestUnit unit = TestUnit.with("bulkproperties", false);
+        final @Nonnull SemanticType type = SemanticType.map("bulk.properties.benchmark@core.digitalid.net").load(SemanticTypeAttributesBuilder.withSyntacticBase(SyntacticType.BOOLEAN).build());
+        final @Nonnull TestEntity entity = TestEntityBuilder.withUnit(unit).withKey(0).withIdentity(type).build();
+        TestEntity.createTable(unit, entity);
+        SQL.createTable(PropertyBenchmarkSubjectSubclass.MODULE.getSubjectTable(), unit);
+        PropertyBenchmarkSubjectSubclass.MODULE.accept(table -> SQL.createTable(table, unit));
+        
+        values = (WritableSynchronizedSetProperty<NonHostEntity, None, PropertyBenchmarkSubject, String, ReadOnlySet<String>, FreezableSet<String>>) PropertyBenchmarkSubject.of(entity).values();
+        strings = FreezableArrayList.withInitialCapacity(entries);
+        for (int i = 0; i < entries; i++) { strings.add("value" + i); }
+        Database.commit();
+    }
+    
+    /* -------------------------------------------------- Benchmarks -------------------------------------------------- */
+    
+    @Impure
+    @Benchmark
+    public void single() throws ExternalException {
+        for (final @Nonnull String string : strings) { values.addWithoutSynchronization(string); }
+        Database.commit();
+        for (final @Nonnull String string : strings) { values.removeWithoutSynchronization(string); }
+        Database.commit();
+    }
+    
+    @Impure
+    @Benchmark
+    public void bulk() throws ExternalException {
+        values.addAllWithoutSynchronization(strings);
+        Database.commit();
+        values.removeAllWithoutSynchronization(strings);
+        Database.commit();
+    }
+    
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.collections.set.FreezableSet;
+import net.digitalid.utility.exceptions.ExternalException;
+
+import net.digitalid.database.conversion.SQL;
+import net.digitalid.database.interfaces.Database;
+
+import net.digitalid.core.identification.identity.SemanticType;
+import net.digitalid.core.identification.identity.SemanticTypeAttributesBuilder;
+import net.digitalid.core.identification.identity.SyntacticType;
+import net.digitalid.core.node.context.Context;
+import net.digitalid.core.node.context.ContextHierarchy;
+import net.digitalid.core.node.context.ContextSubclass;
+import net.digitalid.core.testing.fixtures.TestEntity;
+import net.digitalid.core.testing.fixtures.TestEntityBuilder;
+import net.digitalid.core.testing.fixtures.TestUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the supernode check and the enumeration of all subcontexts in a {@link ContextHierarchy context hierarchy} with a branching factor of ten.
+ * The hierarchy is built once per trial and queried with and without the cached descendants.
+ */
+@Fork(1)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ContextHierarchyBenchmark {
+    
+    /* -------------------------------------------------- Fixtures -------------------------------------------------- */
+    
+    @Param({"1000", "10000"})
+    public int contexts;
+    
+    @Param({"false", "true"})
+    public boolean caching;
+    
+    private @Nonnull TestEntity entity;
+    
+    private @Nonnull Context root;
+    
+    private @Nonnull Context leaf;
+    
+    @Impure
+    @Setup
+    public void setUp() throws ExternalException {
+        BenchmarkFixtures.initialize(ParameterSizes.TEST);
+        final @Nonnull TestUnit unit = TestUnit.with("hierarchy", false);
+        final @Nonnull SemanticType type = SemanticType.map("hierarchy.benchmark@core.digitalid.net").load(SemanticTypeAttributesBuilder.withSyntacticBase(SyntacticType.BOOLEAN).build());
+        entity = TestEntityBuilder.withUnit(unit).withKey(0).withIdentity(type).build();
+        TestEntity.createTable(unit, entity);
+        SQL.createTable(ContextSubclass.SUPER_MODULE.getSubjectTable(), unit);
+        SQL.createTable(ContextSubclass.MODULE.getSubjectTable(), unit);
+        ContextSubclass.MODULE.accept(table -> SQL.createTable(table, unit));
+        
+        for (int i = 1; i < contexts; i++) { Context.of(entity, 2L * ((i - 1) / 10)).addSubcontext(Context.of(entity, 2L * i)); }
+        root = Context.of(entity);
+        leaf = Context.of(entity, 2L * (contexts - 1));
+        Database.commit();
+        ContextHierarchy.CACHING.set(caching);
+    }
+    
+    @Impure
+    @TearDown
+    public void tearDown() {
+        ContextHierarchy.CACHING.set(false);
+        ContextHierarchy.invalidate(entity);
+    }
+    
+    /* -------------------------------------------------- Benchmarks -------------------------------------------------- */
+    
+    @Benchmark
+    @PureWithSideEffects
+    public boolean isSupernodeOf() throws ExternalException {
+        return root.isSupernodeOf(leaf);
+    }
+    
+    @Benchmark
+    @PureWithSideEffects
+    public @Nonnull FreezableSet<@Nonnull Long> getDescendants() throws ExternalException {
+        return ContextHierarchy.getDescendants(root);
+    }
+    
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import javax.annotation.Nonnull;
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+
+import net.digitalid.core.conversion.decoders.MemoryDecoder;
+import net.digitalid.core.conversion.encoders.MemoryEncoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the decoding of large packs whose content is compressed and encrypted like in the XDF decoder test.
+ */
+@Fork(1)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DecodingBenchmark {
+    
+    /* -------------------------------------------------- Fixtures -------------------------------------------------- */
+    
+    @Param({"65536", "1048576", "16777216"})
+    public int length;
+    
+    private static final @Nonnull SecretKeySpec KEY = new SecretKeySpec(new byte[16], "AES");
+    
+    private static final @Nonnull IvParameterSpec INITIALIZATION_VECTOR = new IvParameterSpec(new byte[16]);
+    
+    private @Nonnull byte[] bytes;
+    
+    @Pure
+    private static @Nonnull Cipher getCipher(int mode) throws Exception {
+        final @Nonnull Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        cipher.init(mode, KEY, INITIALIZATION_VECTOR);
+        return cipher;
+    }
+    
+    @Impure
+    @Setup
+    public void setUp() throws Exception {
+        final @Nonnull Random random = new SecureRandom();
+        final @Nonnull byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) { content[i] = (byte) random.nextInt(8); }
+        
+        final @Nonnull ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (@Nonnull MemoryEncoder encoder = MemoryEncoder.of(outputStream)) {
+            encoder.startEncrypting(getCipher(Cipher.ENCRYPT_MODE));
+            encoder.startCompressing(new Deflater(Deflater.DEFAULT_COMPRESSION));
+            encoder.encodeBinary(content);
+            encoder.stopCompressing();
+            encoder.stopEncrypting();
+        }
+        this.bytes = outputStream.toByteArray();
+    }
+    
+    /* -------------------------------------------------- Benchmarks -------------------------------------------------- */
+    
+    @Pure
+    @Benchmark
+    public @Nonnull byte[] decryptAndDecompress() throws Exception {
+        try (@Nonnull MemoryDecoder decoder = MemoryDecoder.of(new ByteArrayInputStream(bytes))) {
+            decoder.startDecrypting(getCipher(Cipher.DECRYPT_MODE));
+            decoder.startDecompressing(new Inflater());
+            final @Nonnull byte[] content = decoder.decodeBinary();
+            decoder.stopDecompressing();
+            decoder.stopDecrypting();
+            return content;
+        }
+    }
+    
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.benchmarks;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+
+import net.digitalid.core.asymmetrickey.KeyPair;
+import net.digitalid.core.group.Element;
+import net.digitalid.core.group.Exponent;
+import net.digitalid.core.group.ExponentBuilder;
+import net.digitalid.core.group.Group;
+import net.digitalid.core.parameters.Parameters;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the exponentiation and multiplication of {@link Element elements} in the composite group of the host keys.
+ */
+@Fork(1)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GroupBenchmark {
+    
+    /* -------------------------------------------------- Fixtures -------------------------------------------------- */
+    
+    @Param({"TEST", "PRODUCTION"})
+    public @Nonnull ParameterSizes sizes;
+    
+    private @Nonnull Element base;
+    
+    private @Nonnull Element factor;
+    
+    private @Nonnull Exponent randomExponent;
+    
+    private @Nonnull Exponent publicExponent;
+    
+    @Impure
+    @Setup
+    public void setUp() {
+        final @Nonnull KeyPair keyPair = BenchmarkFixtures.initialize(sizes);
+        final @Nonnull Group group = keyPair.getPublicKey().getCompositeGroup();
+        this.base = group.getRandomElement();
+        this.factor = group.getRandomElement();
+        this.randomExponent = ExponentBuilder.withValue(new BigInteger(Parameters.RANDOM_EXPONENT.get(), new SecureRandom())).build();
+        this.publicExponent = keyPair.getPublicKey().getE();
+    }
+    
+    /* -------------------------------------------------- Benchmarks -------------------------------------------------- */
+    
+    @Pure
+    @Benchmark
+    public @Nonnull Element powWithRandomExponent() {
+        return base.pow(randomExponent);
+    }
+    
+    @Pure
+    @Benchmark
+    public @Nonnull Element powWithPublicExponent() {
+        return base.pow(publicExponent);
+    }
+    
+    @Pure
+    @Benchmark
+    public @Nonnull Element multiply() {
+        return base.multiply(factor);
+    }
+    
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.benchmarks;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.exceptions.ExternalException;
+import net.digitalid.utility.time.Time;
+import net.digitalid.utility.time.TimeBuilder;
+
+import net.digitalid.database.interfaces.Database;
+
+import net.digitalid.core.authorization.HostCredentialStore;
+import net.digitalid.core.authorization.IssuedCredential;
+import net.digitalid.core.authorization.IssuedCredentialBuilder;
+import net.digitalid.core.group.ExponentBuilder;
+import net.digitalid.core.testing.fixtures.TestUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the issuance, the lookup and the expiry of credentials in the {@link HostCredentialStore host credential store}.
+ * The store is filled once per trial with credentials that are spread over fifty periods, half of which have expired.
+ * The lookups are measured with and without the in-memory cache of recently issued credentials.
+ */
+@Fork(1)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HostCredentialStoreBenchmark {
+    
+    /* -------------------------------------------------- Fixtures -------------------------------------------------- */
+    
+    private static final int PERIODS = 50;
+    
+    @Param({"100000", "1000000"})
+    public int credentials;
+    
+    @Param({"false", "true"})
+    public boolean caching;
+    
+    private final @Nonnull Random random = new Random(0);
+    
+    private @Nonnull TestUnit unit;
+    
+    private final @Nonnull IssuedCredential[] samples = new IssuedCredential[1_000];
+    
+    private int index = 0;
+    
+    /**
+     * Returns a new issued credential with a random exposed value for the given issuance.
+     */
+    @Impure
+    private @Nonnull IssuedCredential entry(@Nonnull Time issuance) {
+        return IssuedCredentialBuilder.withPeriod(issuance.getValue() / HostCredentialStore.PERIOD.get().getValue()).withExposedValue(new BigInteger(256, random)).withRole(1).withIssuance(issuance).withI(ExponentBuilder.withValue(new BigInteger(256, random)).build()).withE(ExponentBuilder.withValue(BigInteger.valueOf(65_537)).build()).build();
+    }
+    
+    @Impure
+    @Setup
+    public void setUp() throws ExternalException {
+        BenchmarkFixtures.initialize(ParameterSizes.TEST);
+        unit = TestUnit.with("credentialstore", true);
+        HostCredentialStore.CAPACITY.set(caching ? credentials : 0);
+        final long period = HostCredentialStore.PERIOD.get().getValue();
+        final long base = TimeBuilder.build().getValue() - HostCredentialStore.RETENTION.get().getValue() - PERIODS / 2 * period;
+        for (int i = 0; i < credentials; i++) {
+            final @Nonnull IssuedCredential entry = entry(TimeBuilder.buildWithValue(base + (long) i * PERIODS / credentials * period).roundDown(Time.HALF_HOUR));
+            if (i % (credentials / samples.length) == 0) { samples[i / (credentials / samples.length)] = entry; }
+            HostCredentialStore.issue(unit, entry);
+            if (i % 1_000 == 999) { Database.commit(); }
+        }
+        Database.commit();
+    }
+    
+    @Impure
+    @TearDown
+    public void tearDown() {
+        HostCredentialStore.CAPACITY.set(100_000);
+        HostCredentialStore.reset(unit);
+    }
+    
+    /* -------------------------------------------------- Benchmarks -------------------------------------------------- */
+    
+    @Benchmark
+    @PureWithSideEffects
+    public void issue() throws ExternalException {
+        HostCredentialStore.issue(unit, entry(TimeBuilder.build().roundDown(Time.HALF_HOUR)));
+        Database.commit();
+    }
+    
+    @Benchmark
+    @PureWithSideEffects
+    public @Nullable IssuedCredential lookup() throws ExternalException {
+        final @Nonnull IssuedCredential sample = samples[index++ % samples.length];
+        return HostCredentialStore.lookup(unit, sample.getIssuance(), sample.getExposedValue());
+    }
+    
+    @Benchmark
+    @PureWithSideEffects
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int expire() throws ExternalException {
+        final int expired = HostCredentialStore.expire(unit);
+        Database.commit();
+        return expired;
+    }
+    
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+
+import net.digitalid.core.asymmetrickey.KeyPair;
+import net.digitalid.core.asymmetrickey.PrivateKey;
+import net.digitalid.core.asymmetrickey.PublicKey;
+import net.digitalid.core.group.Element;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the operations on the {@link KeyPair key pairs} of hosts, including their generation.
+ */
+@Fork(1)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class KeyBenchmark {
+    
+    /* -------------------------------------------------- Fixtures -------------------------------------------------- */
+    
+    @Param({"TEST", "PRODUCTION"})
+    public @Nonnull ParameterSizes sizes;
+    
+    private @Nonnull PublicKey publicKey;
+    
+    private @Nonnull PrivateKey privateKey;
+    
+    private @Nonnull Element ciphertext;
+    
+    @Impure
+    @Setup
+    public void setUp() {
+        final @Nonnull KeyPair keyPair = BenchmarkFixtures.initialize(sizes);
+        this.publicKey = keyPair.getPublicKey();
+        this.privateKey = keyPair.getPrivateKey();
+        this.ciphertext = publicKey.getCompositeGroup().getRandomElement().pow(publicKey.getE());
+    }
+    
+    /* -------------------------------------------------- Benchmarks -------------------------------------------------- */
+    
+    /**
+     * Decrypts with the Chinese remainder theorem.
+     */
+    @Pure
+    @Benchmark
+    public @Nonnull Element powD() {
+        return privateKey.powD(ciphertext);
+    }
+    
+    /**
+     * Decrypts without the Chinese remainder theorem as the baseline of {@link #powD()}.
+     */
+    @Pure
+    @Benchmark
+    public @Nonnull Element powDWithoutChineseRemainderTheorem() {
+        return ciphertext.pow(privateKey.getD());
+    }
+    
+    @Pure
+    @Benchmark
+    public boolean verifySubgroupProof() {
+        return publicKey.verifySubgroupProof();
+    }
+    
+    /**
+     * Generates a new key pair, which takes too long at production sizes to be measured repeatedly within a fixed time.
+     */
+    @Pure
+    @Benchmark
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 10)
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public @Nonnull KeyPair withRandomValues() {
+        return KeyPair.withRandomValues();
+    }
+    
+}
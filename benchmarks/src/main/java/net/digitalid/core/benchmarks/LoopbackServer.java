@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.benchmarks;
+
+import java.io.IOException;
+import java.net.InetAddress;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.exceptions.ExternalException;
+import net.digitalid.utility.initialization.annotations.Initialize;
+import net.digitalid.utility.validation.annotations.type.Utility;
+
+import net.digitalid.database.annotations.transaction.Committing;
+import net.digitalid.database.interfaces.Database;
+
+import net.digitalid.core.benchmarks.handlers.EchoQueryConverter;
+import net.digitalid.core.handler.method.MethodIndex;
+import net.digitalid.core.host.HostBuilder;
+import net.digitalid.core.identification.identifier.HostIdentifier;
+import net.digitalid.core.packet.Request;
+import net.digitalid.core.server.Server;
+
+/**
+ * The loopback server runs the server in the process of the benchmarks and lets the requests to its host be sent over the loopback interface.
+ */
+@Utility
+public abstract class LoopbackServer {
+    
+    /* -------------------------------------------------- Initialization -------------------------------------------------- */
+    
+    /**
+     * Sends the requests over the loopback interface.
+     */
+    @PureWithSideEffects
+    @Initialize(target = Request.class)
+    public static void initializeRequest() {
+        Request.ADDRESS.set(identifier -> InetAddress.getLoopbackAddress());
+    }
+    
+    /**
+     * Registers the echo query, which the benchmarks send to the host.
+     */
+    @PureWithSideEffects
+    @Initialize(target = MethodIndex.class)
+    public static void initializeMethodIndex() {
+        MethodIndex.add(EchoQueryConverter.INSTANCE);
+    }
+    
+    /* -------------------------------------------------- Server -------------------------------------------------- */
+    
+    /**
+     * Stores the identifier of the host that runs on the loopback server.
+     */
+    public static final @Nonnull HostIdentifier HOST = HostIdentifier.with("benchmark.digitalid.net");
+    
+    private static boolean started = false;
+    
+    /**
+     * Starts the server with the {@link #HOST host} if this has not yet been done.
+     * The server keeps running until the forked virtual machine of the benchmark exits.
+     */
+    @Impure
+    @Committing
+    public static synchronized void start() throws ExternalException, IOException {
+        if (!started) {
+            BenchmarkFixtures.initialize(ParameterSizes.TEST);
+            Server.start();
+            HostBuilder.withIdentifier(HOST).build();
+            Database.commit();
+            started = true;
+        }
+    }
+    
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.benchmarks;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.errors.SupportErrorBuilder;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+import net.digitalid.core.parameters.Parameters;
+
+/**
+ * This class enumerates the sizes of the cryptographic {@link Parameters parameters} over which the benchmarks are parameterized.
+ */
+@Immutable
+public enum ParameterSizes {
+    
+    /**
+     * The sizes with which the unit tests are run, which correspond to the ones of {@code CoreTest}.
+     */
+    TEST(520, 128, 256, 256, 384, 384, 512, 512, 128, 128, "MD5"),
+    
+    /**
+     * The sizes with which the library is run in production, which correspond to the defaults of the {@link Parameters parameters}.
+     */
+    PRODUCTION(1_024, 256, 512, 512, 768, 768, 1_024, 1_024, 192, 256, "SHA-256");
+    
+    /* -------------------------------------------------- Sizes -------------------------------------------------- */
+    
+    private final int factor;
+    
+    private final int exponent;
+    
+    private final int randomExponent;
+    
+    private final int credentialExponent;
+    
+    private final int randomCredentialExponent;
+    
+    private final int blindingExponent;
+    
+    private final int randomBlindingExponent;
+    
+    private final int verifiableEncryption;
+    
+    private final int symmetricKey;
+    
+    private final int hashSize;
+    
+    private final @Nonnull String hashFunction;
+    
+    private ParameterSizes(int factor, int exponent, int randomExponent, int credentialExponent, int randomCredentialExponent, int blindingExponent, int randomBlindingExponent, int verifiableEncryption, int symmetricKey, int hashSize, @Nonnull String hashFunction) {
+        this.factor = factor;
+        this.exponent = exponent;
+        this.randomExponent = randomExponent;
+        this.credentialExponent = credentialExponent;
+        this.randomCredentialExponent = randomCredentialExponent;
+        this.blindingExponent = blindingExponent;
+        this.randomBlindingExponent = randomBlindingExponent;
+        this.verifiableEncryption = verifiableEncryption;
+        this.symmetricKey = symmetricKey;
+        this.hashSize = hashSize;
+        this.hashFunction = hashFunction;
+    }
+    
+    /* -------------------------------------------------- Application -------------------------------------------------- */
+    
+    /**
+     * Sets the cryptographic parameters to these sizes.
+     */
+    @Impure
+    public void apply() {
+        Parameters.FACTOR.set(factor);
+        Parameters.EXPONENT.set(exponent);
+        Parameters.RANDOM_EXPONENT.set(randomExponent);
+        Parameters.CREDENTIAL_EXPONENT.set(credentialExponent);
+        Parameters.RANDOM_CREDENTIAL_EXPONENT.set(randomCredentialExponent);
+        Parameters.BLINDING_EXPONENT.set(blindingExponent);
+        Parameters.RANDOM_BLINDING_EXPONENT.set(randomBlindingExponent);
+        Parameters.VERIFIABLE_ENCRYPTION.set(verifiableEncryption);
+        Parameters.SYMMETRIC_KEY.set(symmetricKey);
+        Parameters.HASH_SIZE.set(hashSize);
+        Parameters.HASH_FUNCTION.set(() -> {
+            try {
+                return MessageDigest.getInstance(hashFunction);
+            } catch (@Nonnull NoSuchAlgorithmException exception) {
+                throw SupportErrorBuilder.withMessage("The hashing algorithm '" + hashFunction + "' is not supported on this platform.").withCause(exception).build();
+            }
+        });
+    }
+    
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.benchmarks;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.conversion.converters.StringConverter;
+import net.digitalid.utility.exceptions.ExternalException;
+import net.digitalid.utility.time.Time;
+import net.digitalid.utility.time.TimeBuilder;
+
+import net.digitalid.core.asymmetrickey.KeyPair;
+import net.digitalid.core.asymmetrickey.PrivateKey;
+import net.digitalid.core.asymmetrickey.PublicKey;
+import net.digitalid.core.commitment.SecretCommitment;
+import net.digitalid.core.commitment.SecretCommitmentBuilder;
+import net.digitalid.core.conversion.XDF;
+import net.digitalid.core.credential.ClientCredential;
+import net.digitalid.core.credential.ClientCredentialBuilder;
+import net.digitalid.core.credential.utility.ExposedExponent;
+import net.digitalid.core.credential.utility.ExposedExponentBuilder;
+import net.digitalid.core.credential.utility.HashedOrSaltedAgentPermissions;
+import net.digitalid.core.group.Element;
+import net.digitalid.core.group.Exponent;
+import net.digitalid.core.group.ExponentBuilder;
+import net.digitalid.core.group.GroupWithKnownOrder;
+import net.digitalid.core.identification.identifier.HostIdentifier;
+import net.digitalid.core.identification.identifier.InternalIdentifier;
+import net.digitalid.core.identification.identifier.InternalNonHostIdentifier;
+import net.digitalid.core.identification.identity.HostIdentity;
+import net.digitalid.core.identification.identity.InternalPerson;
+import net.digitalid.core.parameters.Parameters;
+import net.digitalid.core.permissions.ReadOnlyAgentPermissions;
+import net.digitalid.core.restrictions.Restrictions;
+import net.digitalid.core.restrictions.RestrictionsConverter;
+import net.digitalid.core.signature.client.ClientSignature;
+import net.digitalid.core.signature.client.ClientSignatureCreator;
+import net.digitalid.core.signature.credentials.CredentialsSignature;
+import net.digitalid.core.signature.credentials.CredentialsSignatureCreator;
+import net.digitalid.core.signature.host.HostSignature;
+import net.digitalid.core.signature.host.HostSignatureCreator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the creation and verification of host, client and credentials signatures.
+ * The fixtures are set up like in the corresponding signature creator tests, and the verifications use signatures that were created during the setup.
+ */
+@Fork(1)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SignatureBenchmark {
+    
+    /* -------------------------------------------------- Fixtures -------------------------------------------------- */
+    
+    @Param({"TEST", "PRODUCTION"})
+    public @Nonnull ParameterSizes sizes;
+    
+    private static final @Nonnull String MESSAGE = "This is an authentic message.";
+    
+    private @Nonnull InternalNonHostIdentifier subject;
+    
+    private @Nonnull InternalIdentifier signer;
+    
+    private @Nonnull PublicKey publicKey;
+    
+    private @Nonnull SecretCommitment secretCommitment;
+    
+    private @Nonnull ClientCredential clientCredential;
+    
+    private @Nonnull HostSignature<String> hostSignature;
+    
+    private @Nonnull ClientSignature<String> clientSignature;
+    
+    private @Nonnull CredentialsSignature<String> credentialsSignature;
+    
+    @Impure
+    @Setup
+    public void setUp() throws ExternalException {
+        final @Nonnull KeyPair keyPair = BenchmarkFixtures.initialize(sizes);
+        this.subject = InternalNonHostIdentifier.with("bob@digitalid.net");
+        this.signer = InternalIdentifier.with("alice@digitalid.net");
+        
+        final @Nonnull Time time = TimeBuilder.build();
+        final @Nonnull HostIdentity hostIdentity = HostIdentifier.with("digitalid.net").resolve();
+        this.publicKey = keyPair.getPublicKey();
+        final @Nonnull PrivateKey privateKey = keyPair.getPrivateKey();
+        final @Nonnull GroupWithKnownOrder group = privateKey.getCompositeGroup();
+        
+        final @Nonnull Exponent secret = ExponentBuilder.withValue(new BigInteger(Parameters.EXPONENT.get(), new SecureRandom())).build();
+        this.secretCommitment = SecretCommitmentBuilder.withHost(hostIdentity).withTime(time).withPublicKey(publicKey).withSecret(secret).build();
+        
+        // The credential is issued like in the credential internal query.
+        final @Nonnull ExposedExponent exposedExponent = ExposedExponentBuilder.withIssuer(subject.resolve().castTo(InternalPerson.class)).withIssuance(time.roundDown(Time.HALF_HOUR)).withHashedOrSaltedPermissions(HashedOrSaltedAgentPermissions.with(ReadOnlyAgentPermissions.GENERAL_READ, true)).withRole(null).withAttributeContent(null).build();
+        final @Nonnull Element f = group.getElement(secretCommitment.getValue());
+        final @Nonnull Exponent i = ExponentBuilder.withValue(new BigInteger(Parameters.HASH_SIZE.get(), new SecureRandom())).build();
+        final @Nonnull Restrictions restrictions = Restrictions.CAN_ASSUME_ROLES;
+        final @Nonnull Exponent v = ExponentBuilder.withValue(new BigInteger(XDF.hash(RestrictionsConverter.INSTANCE, restrictions))).build();
+        final @Nonnull Exponent e = ExponentBuilder.withValue(BigInteger.probablePrime(Parameters.CREDENTIAL_EXPONENT.get(), new SecureRandom())).build();
+        final @Nonnull Element c = f.multiply(publicKey.getAi().pow(i)).multiply(publicKey.getAv().pow(v)).multiply(publicKey.getAo().pow(exposedExponent.getHash()).inverse()).pow(e.inverse(group)).inverse();
+        this.clientCredential = ClientCredentialBuilder.withExposedExponent(exposedExponent).withC(c).withE(e).withU(secret).withV(v).withI(i).withRestrictions(restrictions).build();
+        
+        this.hostSignature = signHost();
+        this.clientSignature = signClient();
+        this.credentialsSignature = signCredentials();
+    }
+    
+    /* -------------------------------------------------- Host Signatures -------------------------------------------------- */
+    
+    @Impure
+    @Benchmark
+    public @Nonnull HostSignature<String> signHost() throws ExternalException {
+        return HostSignatureCreator.sign(MESSAGE, StringConverter.INSTANCE).about(subject).as(signer);
+    }
+    
+    @Pure
+    @Benchmark
+    public @Nonnull HostSignature<String> verifyHost() throws ExternalException {
+        hostSignature.verifySignature(publicKey);
+        return hostSignature;
+    }
+    
+    /* -------------------------------------------------- Client Signatures -------------------------------------------------- */
+    
+    @Impure
+    @Benchmark
+    public @Nonnull ClientSignature<String> signClient() throws ExternalException {
+        return ClientSignatureCreator.sign(MESSAGE, StringConverter.INSTANCE).about(subject).with(secretCommitment);
+    }
+    
+    @Pure
+    @Benchmark
+    public @Nonnull ClientSignature<String> verifyClient() throws ExternalException {
+        clientSignature.verifySignature();
+        return clientSignature;
+    }
+    
+    /* -------------------------------------------------- Credentials Signatures -------------------------------------------------- */
+    
+    @Impure
+    @Benchmark
+    public @Nonnull CredentialsSignature<String> signCredentials() throws ExternalException {
+        return CredentialsSignatureCreator.sign(MESSAGE, StringConverter.INSTANCE).about(subject).with(clientCredential.getRandomizedCredential());
+    }
+    
+    @Pure
+    @Benchmark
+    public @Nonnull CredentialsSignature<String> verifyCredentials() throws ExternalException {
+        credentialsSignature.verifySignature();
+        return credentialsSignature;
+    }
+    
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.exceptions.ExternalException;
+
+import net.digitalid.core.benchmarks.handlers.EchoQuery;
+import net.digitalid.core.benchmarks.handlers.EchoQueryBuilder;
+import net.digitalid.core.benchmarks.handlers.EchoReplyConverter;
+import net.digitalid.core.server.Pipeline;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the throughput of the {@link LoopbackServer loopback server} with concurrent clients when the requests are handled by a single worker each and when the {@link Pipeline pipeline} is staged.
+ * A request that is rejected with a busy notice fails the benchmark instead of being counted as handled.
+ */
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class StagedExecutionBenchmark {
+    
+    /* -------------------------------------------------- Fixtures -------------------------------------------------- */
+    
+    @Param({"false", "true"})
+    public boolean staged;
+    
+    private @Nonnull EchoQuery query;
+    
+    @Impure
+    @Setup
+    public void setUp() throws Exception {
+        LoopbackServer.start();
+        Pipeline.STAGED.set(staged);
+        this.query = EchoQueryBuilder.withMessage("Message").withProvidedSubject(LoopbackServer.HOST).build();
+    }
+    
+    @Impure
+    @TearDown
+    public void tearDown() {
+        Pipeline.STAGED.set(false);
+    }
+    
+    /* -------------------------------------------------- Benchmarks -------------------------------------------------- */
+    
+    @Benchmark
+    @PureWithSideEffects
+    public int sendRequest() throws ExternalException {
+        return query.send(EchoReplyConverter.INSTANCE).getMessage().length();
+    }
+    
+}
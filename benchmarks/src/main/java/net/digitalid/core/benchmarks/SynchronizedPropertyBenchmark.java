@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.collections.set.FreezableSet;
+import net.digitalid.utility.collections.set.ReadOnlySet;
+import net.digitalid.utility.exceptions.ExternalException;
+import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.generator.annotations.generators.GenerateTableConverter;
+import net.digitalid.utility.validation.annotations.generation.Recover;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+import net.digitalid.database.annotations.transaction.NonCommitting;
+import net.digitalid.database.conversion.SQL;
+import net.digitalid.database.exceptions.DatabaseException;
+import net.digitalid.database.interfaces.Database;
+import net.digitalid.database.property.set.WritablePersistentSetProperty;
+
+import net.digitalid.core.entity.NonHostEntity;
+import net.digitalid.core.identification.identity.SemanticType;
+import net.digitalid.core.identification.identity.SemanticTypeAttributesBuilder;
+import net.digitalid.core.identification.identity.SyntacticType;
+import net.digitalid.core.property.ObserverDispatcher;
+import net.digitalid.core.property.RequiredAuthorization;
+import net.digitalid.core.property.RequiredAuthorizationBuilder;
+import net.digitalid.core.property.set.WritableSynchronizedSetProperty;
+import net.digitalid.core.restrictions.Restrictions;
+import net.digitalid.core.subject.CoreServiceCoreSubject;
+import net.digitalid.core.subject.annotations.GenerateSynchronizedProperty;
+import net.digitalid.core.subject.utility.None;
+import net.digitalid.core.testing.fixtures.TestEntity;
+import net.digitalid.core.testing.fixtures.TestEntityBuilder;
+import net.digitalid.core.testing.fixtures.TestUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@Immutable
+@GenerateSubclass
+@GenerateTableConverter
+abstract class PropertyBenchmarkSubject extends CoreServiceCoreSubject<NonHostEntity, None> {
+    
+    @Pure
+    @Override
+    public abstract @Nonnull None getKey();
+    
+    @Pure
+    @Recover
+    @NonCommitting
+    static @Nonnull PropertyBenchmarkSubject of(@Nonnull NonHostEntity entity) throws DatabaseException {
+        return PropertyBenchmarkSubjectSubclass.MODULE.getSubjectIndex().get(entity, None.INSTANCE);
+    }
+    
+    static final @Nonnull RequiredAuthorization<NonHostEntity, None, PropertyBenchmarkSubject, String> VALUES = RequiredAuthorizationBuilder.<NonHostEntity, None, PropertyBenchmarkSubject, String>withRequiredRestrictionsToExecuteMethod((concept, value) -> Restrictions.ONLY_FOR_CLIENTS).build();
+    
+    @Pure
+    @GenerateSynchronizedProperty
+    public abstract @Nonnull WritablePersistentSetProperty<PropertyBenchmarkSubject, String, ReadOnlySet<String>, FreezableSet<String>> values();
+    
+}
+
+/**
+ * Benchmarks a synchronized set property with a hundred values, whose snapshot is read by four threads while another thread continuously adds and removes a value.
+ * The writer notifies the given number of observers, which consume some CPU time either on the committing thread or on the {@link ObserverDispatcher observer executor}.
+ */
+@Fork(1)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@SuppressWarnings("unchecked")
+public class SynchronizedPropertyBenchmark {
+    
+    /* -------------------------------------------------- Fixtures -------------------------------------------------- */
+    
+    private static final int VALUES = 100;
+    
+    /**
+     * Stores the amount of CPU time that each notification of an observer consumes.
+     */
+    private static final long TOKENS = 10_000;
+    
+    @Param({"0", "4"})
+    public int observers;
+    
+    @Param({"false", "true"})
+    public boolean asynchronous;
+    
+    private @Nonnull WritableSynchronizedSetProperty<NonHostEntity, None, PropertyBenchmarkSubject, String, ReadOnlySet<String>, FreezableSet<String>> values;
+    
+    @Impure
+    @Setup
+    public void setUp() throws ExternalException {
+        BenchmarkFixtures.initialize(ParameterSizes.TEST);
+        ObserverDispatcher.ASYNCHRONOUS.set(asynchronous);
+        final @Nonnull TestUnit unit = TestUnit.with("properties", false);
+        final @Nonnull SemanticType type = SemanticType.map("properties.benchmark@core.digitalid.net").load(SemanticTypeAttributesBuilder.withSyntacticBase(SyntacticType.BOOLEAN).build());
+        final @Nonnull TestEntity entity = TestEntityBuilder.withUnit(unit).withKey(0).withIdentity(type).build();
+        TestEntity.createTable(unit, entity);
+        SQL.createTable(PropertyBenchmarkSubjectSubclass.MODULE.getSubjectTable(), unit);
+        PropertyBenchmarkSubjectSubclass.MODULE.accept(table -> SQL.createTable(table, unit));
+        
+        values = (WritableSynchronizedSetProperty<NonHostEntity, None, PropertyBenchmarkSubject, String, ReadOnlySet<String>, FreezableSet<String>>) PropertyBenchmarkSubject.of(entity).values();
+        for (int i = 0; i < VALUES; i++) { values.addWithoutSynchronization("value" + i); }
+        for (int i = 0; i < observers; i++) { values.register((property, value, added) -> Blackhole.consumeCPU(TOKENS)); }
+        Database.commit();
+    }
+    
+    /**
+     * Waits for the queued notifications so that they do not accumulate across the iterations.
+     */
+    @Impure
+    @TearDown(Level.Iteration)
+    public void awaitNotifications() throws InterruptedException {
+        ObserverDispatcher.awaitCompletion(60_000);
+    }
+    
+    /* -------------------------------------------------- Benchmarks -------------------------------------------------- */
+    
+    @Benchmark
+    @GroupThreads(4)
+    @PureWithSideEffects
+    @Group("readWhileWriting")
+    public boolean read() throws ExternalException {
+        return values.get().contains("toggled");
+    }
+    
+    @Impure
+    @Benchmark
+    @GroupThreads(1)
+    @Group("readWhileWriting")
+    public void write() throws ExternalException {
+        values.addWithoutSynchronization("toggled");
+        values.removeWithoutSynchronization("toggled");
+        Database.commit();
+    }
+    
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.benchmarks.handlers;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
+import net.digitalid.utility.generator.annotations.generators.GenerateConverter;
+import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+import net.digitalid.database.annotations.transaction.NonCommitting;
+import net.digitalid.database.exceptions.DatabaseException;
+
+import net.digitalid.core.entity.Entity;
+import net.digitalid.core.exceptions.request.RequestException;
+import net.digitalid.core.handler.annotations.Matching;
+import net.digitalid.core.handler.annotations.MethodHasBeenReceived;
+import net.digitalid.core.handler.method.CoreMethod;
+import net.digitalid.core.handler.method.query.ExternalQuery;
+import net.digitalid.core.unit.annotations.OnHostRecipient;
+
+/**
+ * An echo query is answered by the host with its message and thus measures the overhead of a request.
+ */
+@Immutable
+@GenerateBuilder
+@GenerateSubclass
+@GenerateConverter
+public abstract class EchoQuery extends ExternalQuery<Entity> implements CoreMethod<Entity> {
+    
+    /* -------------------------------------------------- Fields -------------------------------------------------- */
+    
+    /**
+     * Returns the message that is sent.
+     */
+    @Pure
+    public abstract @Nonnull String getMessage();
+    
+    /* -------------------------------------------------- Execution -------------------------------------------------- */
+    
+    @Override
+    @NonCommitting
+    @OnHostRecipient
+    @PureWithSideEffects
+    @MethodHasBeenReceived
+    public @Nonnull @Matching EchoReply executeOnHost() throws RequestException, DatabaseException {
+        return EchoReplyBuilder.withEntity(getEntity()).withMessage(getMessage()).build();
+    }
+    
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.expression;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.exceptions.ExternalException;
+
+import net.digitalid.database.conversion.SQL;
+import net.digitalid.database.interfaces.Database;
+
+import net.digitalid.core.benchmarks.BenchmarkFixtures;
+import net.digitalid.core.benchmarks.ParameterSizes;
+import net.digitalid.core.identification.identity.SemanticType;
+import net.digitalid.core.identification.identity.SemanticTypeAttributesBuilder;
+import net.digitalid.core.identification.identity.SyntacticType;
+import net.digitalid.core.node.context.ContextSubclass;
+import net.digitalid.core.testing.fixtures.TestEntity;
+import net.digitalid.core.testing.fixtures.TestEntityBuilder;
+import net.digitalid.core.testing.fixtures.TestUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the {@link ExpressionParser parsing} of an expression with the given number of contexts with and without the cache.
+ * The benchmark is in the package of the parser because the parsing is not public.
+ */
+@Fork(1)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ExpressionBenchmark {
+    
+    /* -------------------------------------------------- Fixtures -------------------------------------------------- */
+    
+    @Param({"10", "100", "1000"})
+    public int contexts;
+    
+    private @Nonnull TestEntity entity;
+    
+    private @Nonnull String string;
+    
+    @Impure
+    @Setup
+    public void setUp() throws ExternalException {
+        BenchmarkFixtures.initialize(ParameterSizes.TEST);
+        final @Nonnull TestUnit unit = TestUnit.with("expressions", false);
+        final @Nonnull SemanticType type = SemanticType.map("expressions.benchmark@core.digitalid.net").load(SemanticTypeAttributesBuilder.withSyntacticBase(SyntacticType.BOOLEAN).build());
+        entity = TestEntityBuilder.withUnit(unit).withKey(0).withIdentity(type).build();
+        TestEntity.createTable(unit, entity);
+        SQL.createTable(ContextSubclass.SUPER_MODULE.getSubjectTable(), unit);
+        SQL.createTable(ContextSubclass.MODULE.getSubjectTable(), unit);
+        ContextSubclass.MODULE.accept(table -> SQL.createTable(table, unit));
+        
+        final @Nonnull StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < contexts; i++) {
+            if (i > 0) { builder.append(i % 3 == 0 ? " + " : i % 3 == 1 ? " * " : " - "); }
+            if (i % 4 == 0) { builder.append("("); }
+            builder.append(2 * i);
+            if (i % 4 == 3) { builder.append(")"); }
+        }
+        if (contexts % 4 != 0) { builder.append(")"); }
+        string = builder.toString();
+        ExpressionParser.parse(entity, string); // Creates the contexts and fills the cache.
+        Database.commit();
+    }
+    
+    /* -------------------------------------------------- Benchmarks -------------------------------------------------- */
+    
+    @Benchmark
+    @PureWithSideEffects
+    public @Nonnull Expression parse() throws ExternalException {
+        return ExpressionParser.parseWithoutCache(entity, string);
+    }
+    
+    @Benchmark
+    @PureWithSideEffects
+    public @Nonnull Expression parseCached() throws ExternalException {
+        return ExpressionParser.parse(entity, string);
+    }
+    
+}
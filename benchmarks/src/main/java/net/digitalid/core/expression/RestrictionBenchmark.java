@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.expression;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.conversion.converters.Integer64Converter;
+import net.digitalid.utility.conversion.converters.StringConverter;
+
+import net.digitalid.core.benchmarks.BenchmarkFixtures;
+import net.digitalid.core.benchmarks.ParameterSizes;
+import net.digitalid.core.expression.operators.RestrictionOperator;
+import net.digitalid.core.identification.identity.SemanticType;
+import net.digitalid.core.identification.identity.SemanticTypeAttributesBuilder;
+import net.digitalid.core.identification.identity.SyntacticType;
+import net.digitalid.core.pack.Pack;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the evaluation of the given number of {@link RestrictionExpression restrictions} against a name and an age.
+ * The attribute contents are either decoded separately for each restriction or once for all restrictions with {@link DecodedAttributes}.
+ * The benchmark is in the package of the expressions because the matching is not public.
+ */
+@Fork(1)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RestrictionBenchmark {
+    
+    /* -------------------------------------------------- Fixtures -------------------------------------------------- */
+    
+    @Param({"1000", "10000"})
+    public int number;
+    
+    private @Nonnull SemanticType name;
+    
+    private @Nonnull Pack nameContent;
+    
+    private @Nonnull Pack ageContent;
+    
+    private @Nonnull RestrictionExpression[] restrictions;
+    
+    @Impure
+    @Setup
+    public void setUp() {
+        BenchmarkFixtures.initialize(ParameterSizes.TEST);
+        name = SemanticType.map("name.restriction.benchmark@core.digitalid.net").load(SemanticTypeAttributesBuilder.withSyntacticBase(SyntacticType.STRING).build());
+        final @Nonnull SemanticType age = SemanticType.map("age.restriction.benchmark@core.digitalid.net").load(SemanticTypeAttributesBuilder.withSyntacticBase(SyntacticType.INTEGER64).build());
+        nameContent = Pack.pack(StringConverter.INSTANCE, "Alice Example", name);
+        ageContent = Pack.pack(Integer64Converter.INSTANCE, 42L, age);
+        
+        final @Nonnull RestrictionOperator[] operators = RestrictionOperator.values();
+        restrictions = new RestrictionExpression[number];
+        for (int i = 0; i < number; i++) {
+            final @Nonnull RestrictionOperator operator = operators[i % operators.length];
+            if (i % 2 == 0) { restrictions[i] = new RestrictionExpressionSubclass(name, operator, "\"alice" + (i % 10) + "\""); }
+            else { restrictions[i] = new RestrictionExpressionSubclass(age, operator.ordinal() < 6 ? operator : RestrictionOperator.EQUAL, Integer.toString(i % 100)); }
+        }
+    }
+    
+    /* -------------------------------------------------- Benchmarks -------------------------------------------------- */
+    
+    @Benchmark
+    @PureWithSideEffects
+    public int decodeSeparately() {
+        int matches = 0;
+        for (final @Nonnull RestrictionExpression restriction : restrictions) {
+            if (restriction.matches(restriction.getType().equals(name) ? nameContent : ageContent)) { matches++; }
+        }
+        return matches;
+    }
+    
+    @Benchmark
+    @PureWithSideEffects
+    public int decodeOnce() {
+        final @Nonnull DecodedAttributes attributes = DecodedAttributes.of(nameContent, ageContent);
+        int matches = 0;
+        for (final @Nonnull RestrictionExpression restriction : restrictions) {
+            if (restriction.matches(attributes)) { matches++; }
+        }
+        return matches;
+    }
+    
+}
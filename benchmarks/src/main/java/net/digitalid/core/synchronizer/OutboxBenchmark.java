@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.synchronizer;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.conversion.converters.StringConverter;
+import net.digitalid.utility.exceptions.ExternalException;
+
+import net.digitalid.database.interfaces.Database;
+
+import net.digitalid.core.benchmarks.BenchmarkFixtures;
+import net.digitalid.core.benchmarks.ParameterSizes;
+import net.digitalid.core.identification.identity.SemanticType;
+import net.digitalid.core.identification.identity.SemanticTypeAttributesBuilder;
+import net.digitalid.core.identification.identity.SyntacticType;
+import net.digitalid.core.pack.Pack;
+import net.digitalid.core.testing.fixtures.TestEntity;
+import net.digitalid.core.testing.fixtures.TestEntityBuilder;
+import net.digitalid.core.testing.fixtures.TestUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks appending the given number of actions to the {@link Outbox outbox}, which are group-committed with a single commit.
+ * The time of an invocation has to be divided by the group in order to get the time per action.
+ * The benchmark is in the package of the outbox because the appending of packs is not public.
+ */
+@Fork(1)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OutboxBenchmark {
+    
+    /* -------------------------------------------------- Fixtures -------------------------------------------------- */
+    
+    @Param({"1", "10", "100"})
+    public int group;
+    
+    private @Nonnull TestUnit unit;
+    
+    private @Nonnull TestEntity entity;
+    
+    private @Nonnull Pack pack;
+    
+    @Impure
+    @Setup
+    public void setUp() throws ExternalException {
+        BenchmarkFixtures.initialize(ParameterSizes.TEST);
+        unit = TestUnit.with("outbox", false);
+        final @Nonnull SemanticType type = SemanticType.map("outbox.benchmark@core.digitalid.net").load(SemanticTypeAttributesBuilder.withSyntacticBase(SyntacticType.BOOLEAN).build());
+        entity = TestEntityBuilder.withUnit(unit).withKey(1).withIdentity(type).build();
+        pack = Pack.pack(StringConverter.INSTANCE, "Hello World!");
+    }
+    
+    /**
+     * Removes the appended entries so that each iteration starts with an empty outbox.
+     */
+    @Impure
+    @TearDown
+    public void tearDown() throws ExternalException {
+        for (final @Nonnull OutboxEntry entry : Outbox.load(unit)) { Outbox.remove(unit, entry.getSequence()); }
+        Database.commit();
+    }
+    
+    /* -------------------------------------------------- Benchmarks -------------------------------------------------- */
+    
+    @Impure
+    @Benchmark
+    public long appendGroup() throws ExternalException {
+        long sequence = 0;
+        for (int i = 0; i < group; i++) { sequence = Outbox.append(entity, pack); }
+        Database.commit();
+        return sequence;
+    }
+    
+}
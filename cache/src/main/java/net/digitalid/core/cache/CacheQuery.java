@@ -96,7 +96,7 @@ public abstract class CacheQuery<@Unspecifiable TYPE> extends RootClass {
      * Returns the derived type of the attribute content which is to be returned.
      */
     @Pure
-    @Derive("type != null ? type : SemanticType.mapWithoutPersistingResult(converter)")
+    @Derive("type != null ? type : SemanticType.map(converter)")
     public abstract @Nonnull @AttributeType SemanticType getDerivedType();
     
     /* -------------------------------------------------- Validation -------------------------------------------------- */
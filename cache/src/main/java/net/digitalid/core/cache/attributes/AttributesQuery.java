@@ -36,14 +36,14 @@ import net.digitalid.utility.validation.annotations.type.Immutable;
 import net.digitalid.database.annotations.transaction.NonCommitting;
 import net.digitalid.database.exceptions.DatabaseException;
 
-import net.digitalid.core.attribute.Attribute;
+import net.digitalid.core.attribute.AttributeLoader;
+import net.digitalid.core.attribute.LoadedAttribute;
 import net.digitalid.core.compression.Compression;
 import net.digitalid.core.encryption.Encryption;
 import net.digitalid.core.encryption.EncryptionBuilder;
 import net.digitalid.core.entity.Entity;
 import net.digitalid.core.entity.NonHostEntity;
 import net.digitalid.core.exceptions.request.RequestException;
-import net.digitalid.core.expression.PassiveExpression;
 import net.digitalid.core.handler.annotations.Matching;
 import net.digitalid.core.handler.annotations.MethodHasBeenReceived;
 import net.digitalid.core.handler.method.CoreMethod;
@@ -113,11 +113,11 @@ public abstract class AttributesQuery extends ExternalQuery<Entity> implements C
     @PureWithSideEffects
     @MethodHasBeenReceived
     public @Nonnull @Matching AttributesReply executeOnHost() throws RequestException, DatabaseException, RecoveryException {
-        final @Nonnull FreezableList<AttributeValue> attributeValues = FreezableArrayList.withInitialCapacity(getAttributeTypes().size());
-        
         @SuppressWarnings("null") final @Nonnull Entity entity = getEntity();
         @SuppressWarnings("null") final @Nonnull Signature<?> signature = getSignature();
         @SuppressWarnings("null") final boolean isInternalPerson = entity.getIdentity() instanceof InternalPerson;
+        final @Nonnull FreezableList<@Nonnull LoadedAttribute> attributes = AttributeLoader.load(entity, getAttributeTypes(), isPublished());
+        final @Nonnull FreezableList<AttributeValue> attributeValues;
         if (signature instanceof CredentialsSignature<?> && isInternalPerson) {
             final @Nonnull CredentialsSignature<?> credentialsSignature = (CredentialsSignature<?>) signature;
             
@@ -130,30 +130,12 @@ public abstract class AttributesQuery extends ExternalQuery<Entity> implements C
                 contactPermissions = null;
             }
             
-            for (final @Nonnull SemanticType attributeType : getAttributeTypes()) {
-                final @Nonnull Attribute attribute = Attribute.of(entity, attributeType);
-                final @Nullable AttributeValue attributeValue = isPublished() ? attribute.value().get() : attribute.unpublished().get();
-                if (attributeValue != null) {
-                    if (contactPermissions != null && contactPermissions.contains(attributeType)) { attributeValues.add(attributeValue); }
-                    else {
-                        final @Nullable PassiveExpression attributeVisibility = attribute.visibility().get();
-                        if (attributeVisibility != null && attributeVisibility.matches(credentialsSignature)) { attributeValues.add(attributeValue); }
-                        else { attributeValues.add(null); }
-                    }
-                } else { attributeValues.add(null); }
-            }
+            attributeValues = AttributeLoader.getVisibleValues(attributes, credentialsSignature, contactPermissions);
+        } else if (isInternalPerson) {
+            attributeValues = AttributeLoader.getPublicValues(attributes);
         } else {
-            for (final @Nonnull SemanticType attributeType : getAttributeTypes()) {
-                final @Nonnull Attribute attribute = Attribute.of(entity, attributeType);
-                final @Nullable AttributeValue attributeValue = isPublished() ? attribute.value().get() : attribute.unpublished().get();
-                if (attributeValue != null) {
-                    if (isInternalPerson) {
-                        final @Nullable PassiveExpression attributeVisibility = attribute.visibility().get();
-                        if (attributeVisibility != null && attributeVisibility.isPublic()) { attributeValues.add(attributeValue); }
-                        else { attributeValues.add(null); }
-                    } else { attributeValues.add(attributeValue); }
-                } else { attributeValues.add(null); }
-            }
+            attributeValues = FreezableArrayList.withInitialCapacity(attributes.size());
+            for (final @Nonnull LoadedAttribute attribute : attributes) { attributeValues.add(attribute.getValue()); }
         }
         
         return AttributesReplyBuilder.withEntity(entity).withAttributeValues(attributeValues/* TODO: .freeze() */).build();
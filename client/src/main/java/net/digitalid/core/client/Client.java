@@ -68,6 +68,7 @@ import net.digitalid.core.identification.identifier.InternalNonHostIdentifier;
 import net.digitalid.core.identification.identity.HostIdentity;
 import net.digitalid.core.parameters.Parameters;
 import net.digitalid.core.permissions.ReadOnlyAgentPermissions;
+import net.digitalid.core.synchronizer.Outbox;
 import net.digitalid.core.unit.CoreUnit;
 
 /**
@@ -160,6 +161,8 @@ public abstract class Client extends CoreUnit {
         
         clients.put(getIdentifier(), this);
         protectedSecret.set(ClientSecretLoader.load(getIdentifier()));
+        
+        Outbox.flush(this);
     }
     
     /* -------------------------------------------------- CoreUnit -------------------------------------------------- */
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.client;
+
+import java.math.BigInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
+import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.generator.annotations.generators.GenerateTableConverter;
+import net.digitalid.utility.rootclass.RootClass;
+import net.digitalid.utility.time.Time;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+import net.digitalid.database.annotations.constraints.PrimaryKey;
+
+import net.digitalid.core.credential.utility.ExposedExponent;
+import net.digitalid.core.group.Exponent;
+import net.digitalid.core.restrictions.Restrictions;
+
+/**
+ * This type models an entry in the table of client credentials, which stores the credentials of a role for a set of permissions.
+ * The primary key allows to look up the credentials of a role by the hash of the permissions and the issuance time.
+ * 
+ * @see CredentialsIndex
+ */
+@Immutable
+@GenerateBuilder
+@GenerateSubclass
+@GenerateTableConverter
+public abstract class CredentialEntry extends RootClass {
+    
+    /* -------------------------------------------------- Key -------------------------------------------------- */
+    
+    /**
+     * Returns the key of the role for which the credential was issued.
+     */
+    @Pure
+    @PrimaryKey
+    public abstract long getRole();
+    
+    /**
+     * Returns the hash of the permissions for which the credential was issued.
+     */
+    @Pure
+    @PrimaryKey
+    public abstract @Nonnull BigInteger getPermissions();
+    
+    /**
+     * Returns whether the credential is role-based instead of identity-based.
+     */
+    @Pure
+    @PrimaryKey
+    public abstract boolean isRoleBased();
+    
+    /**
+     * Returns the time at which the credential was issued.
+     */
+    @Pure
+    @PrimaryKey
+    public abstract @Nonnull Time getIssuance();
+    
+    /* -------------------------------------------------- Credential -------------------------------------------------- */
+    
+    /**
+     * Returns the exposed exponent of the credential.
+     */
+    @Pure
+    public abstract @Nonnull ExposedExponent getExposedExponent();
+    
+    /**
+     * Returns the value of the certifying base of the credential.
+     */
+    @Pure
+    public abstract @Nonnull BigInteger getC();
+    
+    /**
+     * Returns the certifying exponent of the credential.
+     */
+    @Pure
+    public abstract @Nonnull Exponent getE();
+    
+    /**
+     * Returns the blinding exponent of the credential.
+     */
+    @Pure
+    public abstract @Nonnull Exponent getB();
+    
+    /**
+     * Returns the client's secret of the credential.
+     */
+    @Pure
+    public abstract @Nonnull Exponent getU();
+    
+    /**
+     * Returns the hash of the restrictions of the credential.
+     */
+    @Pure
+    public abstract @Nonnull Exponent getV();
+    
+    /**
+     * Returns the serial number of the credential.
+     */
+    @Pure
+    public abstract @Nonnull Exponent getI();
+    
+    /**
+     * Returns the restrictions of the credential.
+     */
+    @Pure
+    public abstract @Nullable Restrictions getRestrictions();
+    
+}
@@ -13,125 +13,391 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-// TODO
-
 package net.digitalid.core.client;
-//
-//import java.math.BigInteger;
-//import java.security.SecureRandom;
-//
-//import javax.annotation.Nonnull;
-//import javax.annotation.Nullable;
-//
-//import net.digitalid.utility.freezable.annotations.Frozen;
-//import net.digitalid.utility.exceptions.ExternalException;
-//import net.digitalid.utility.validation.annotations.size.NonEmpty;
-//
-//import net.digitalid.database.annotations.transaction.NonCommitting;
-//
-//import net.digitalid.core.credential.ClientCredential;
-//import net.digitalid.core.credential.annotations.Active;
-//import net.digitalid.core.credential.utility.SaltedAgentPermissions;
-//import net.digitalid.core.entity.annotations.OfInternalPerson;
-//
-///**
-// * Description.
-// */
-public class CredentialsIndex {
-//    
-//    /* -------------------------------------------------- Credentials Index -------------------------------------------------- */
-//    
-//    // TODO: The following code was moved from the ClientCredentials class.
-//    
-//    /**
-//     * Caches the role-based client credentials given their role and permissions.
-//     */
-//    private static final @Nonnull ConcurrentMap<NonNativeRole, ConcurrentMap<ReadOnlyAgentPermissions, ClientCredential>> roleBasedCredentials = new ConcurrentHashMap<>();
-//    
-//    /**
-//     * Returns a role-based credential for the given role and permissions.
-//     * 
-//     * @param role the role for which the credential is to be returned.
-//     * @param permissions the permissions which are to be contained.
-//     * 
-//     * @return a role-based credential for the given role and permissions.
-//     */
-//    @NonCommitting
-//    public static @Nonnull @Active ClientCredential getRoleBased(@Nonnull @OfInternalPerson NonNativeRole role, @Nonnull @Frozen @NonEmpty ReadOnlyAgentPermissions permissions) throws ExternalException {
-//        @Nullable ConcurrentMap<ReadOnlyAgentPermissions, ClientCredential> map = roleBasedCredentials.get(role);
-//        if (map == null) { map = roleBasedCredentials.putIfAbsentElseReturnPresent(role, new ConcurrentHashMap<ReadOnlyAgentPermissions, ClientCredential>()); }
-//        @Nullable ClientCredential credential = map.get(permissions);
-//        
-//        if (credential == null || !credential.isActive()) {
-//            final @Nonnull SaltedAgentPermissions randomizedPermissions = new SaltedAgentPermissions(permissions);
-//            final @Nonnull BigInteger value = new BigInteger(Parameters.BLINDING_EXPONENT, new SecureRandom());
-//            final @Nonnull CredentialReply reply = new CredentialInternalQuery(role, randomizedPermissions, value).sendNotNull();
-//            credential = map.putIfAbsentElseReturnPresent(permissions, reply.getInternalCredential(randomizedPermissions, role.getRelation(), value, role.getClient().getSecret()));
-//        }
-//        
-//        return credential;
-//    }
-//    
-//    
-//    /**
-//     * Caches the identity-based client credentials given their role and permissions.
-//     */
-//    private static final @Nonnull ConcurrentMap<Role, ConcurrentMap<ReadOnlyAgentPermissions, ClientCredential>> identityBasedCredentials = new ConcurrentHashMap<>();
-//    
-//    /**
-//     * Returns an identity-based credential for the given role and permissions.
-//     * 
-//     * @param role the role for which the credential is to be returned.
-//     * @param permissions the permissions which are to be contained.
-//     * 
-//     * @return an identity-based credential for the given role and permissions.
-//     */
-//    @NonCommitting
-//    public static @Nonnull @Active ClientCredential getIdentityBased(@Nonnull @OfInternalPerson Role role, @Nonnull @Frozen @NonEmpty ReadOnlyAgentPermissions permissions) throws ExternalException {
-//        @Nullable ConcurrentMap<ReadOnlyAgentPermissions, ClientCredential> map = identityBasedCredentials.get(role);
-//        if (map == null) { map = identityBasedCredentials.putIfAbsentElseReturnPresent(role, new ConcurrentHashMap<ReadOnlyAgentPermissions, ClientCredential>()); }
-//        @Nullable ClientCredential credential = map.get(permissions);
-//        
-//        if (credential == null || !credential.isActive()) {
-//            final @Nonnull SaltedAgentPermissions randomizedPermissions = new SaltedAgentPermissions(permissions);
-//            final @Nonnull CredentialReply reply = new CredentialInternalQuery(role, randomizedPermissions).sendNotNull();
-//            credential = map.putIfAbsentElseReturnPresent(permissions, reply.getInternalCredential(randomizedPermissions, null, BigInteger.ZERO, role.getClient().getSecret()));
-//        }
-//        
-//        return credential;
-//    }
-//    
-//    
-//    /**
-//     * Caches the attribute-based client credentials given their role, value and permissions.
-//     */
-//    private static final @Nonnull ConcurrentMap<Role, ConcurrentMap<ReadOnlyPair<CertifiedAttributeValue, ReadOnlyAgentPermissions>, ClientCredential>> attributeBasedCredentials = new ConcurrentHashMap<>();
-//    
-//    /**
-//     * Returns an attribute-based credential for the given role, value and permissions.
-//     * 
-//     * @param role the role for which the credential is to be returned.
-//     * @param value the certified attribute value which is to be shortened.
-//     * @param permissions the permissions which are to be contained.
-//     * 
-//     * @return an attribute-based credential for the given role, value and permissions.
-//     */
-//    @NonCommitting
-//    public static @Nonnull @Active ClientCredential getAttributeBased(@Nonnull @OfInternalPerson Role role, @Nonnull CertifiedAttributeValue value, @Nonnull @Frozen @NonEmpty ReadOnlyAgentPermissions permissions) throws ExternalException {
-//        // TODO: Shortening with CredentialExternalQuery.
-//        throw new UnsupportedOperationException("Credentials for attribute-based access control are not yet supported!");
-//    }
-//    
-//    
-//    /**
-//     * Removes the credentials of the given role.
-//     * 
-//     * @param role the role whose credentials are to be removed.
-//     */
-//    public static void remove(@Nonnull Role role) {
-//        roleBasedCredentials.remove(role);
-//        identityBasedCredentials.remove(role);
-//        attributeBasedCredentials.remove(role);
-//    }
-//    
+
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.configuration.Configuration;
+import net.digitalid.utility.conversion.converters.Integer64Converter;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.exceptions.ExternalException;
+import net.digitalid.utility.exceptions.UncheckedExceptionBuilder;
+import net.digitalid.utility.freezable.annotations.Frozen;
+import net.digitalid.utility.initialization.annotations.Initialize;
+import net.digitalid.utility.logging.Log;
+import net.digitalid.utility.string.Strings;
+import net.digitalid.utility.threading.NamedThreadFactory;
+import net.digitalid.utility.time.Time;
+import net.digitalid.utility.time.TimeBuilder;
+import net.digitalid.utility.tuples.Pair;
+import net.digitalid.utility.validation.annotations.size.NonEmpty;
+import net.digitalid.utility.validation.annotations.type.Functional;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+import net.digitalid.utility.validation.annotations.type.Utility;
+
+import net.digitalid.database.annotations.transaction.Committing;
+import net.digitalid.database.annotations.transaction.NonCommitting;
+import net.digitalid.database.conversion.SQL;
+import net.digitalid.database.conversion.WhereConditionBuilder;
+import net.digitalid.database.exceptions.DatabaseException;
+import net.digitalid.database.interfaces.Database;
+
+import net.digitalid.core.client.role.Role;
+import net.digitalid.core.conversion.XDF;
+import net.digitalid.core.credential.ClientCredential;
+import net.digitalid.core.credential.ClientCredentialBuilder;
+import net.digitalid.core.credential.annotations.Active;
+import net.digitalid.core.exceptions.request.RequestErrorCode;
+import net.digitalid.core.exceptions.request.RequestExceptionBuilder;
+import net.digitalid.core.permissions.ReadOnlyAgentPermissions;
+import net.digitalid.core.permissions.ReadOnlyAgentPermissionsConverter;
+import net.digitalid.core.unit.CoreUnit;
+
+/**
+ * The credentials index stores the identity- and role-based credentials of the roles on this client.
+ * The credentials are persisted per role and set of permissions so that they survive a restart of the client and
+ * are shared among all queries that need a credential for the same role and permissions, even if they run concurrently.
+ * A credential is requested only if no active credential is available and renewed in the background shortly before it becomes inactive.
+ * The credentials of roles that have not been used for a while are evicted from memory.
+ */
+@Utility
+public abstract class CredentialsIndex {
+    
+    /* -------------------------------------------------- Configurations -------------------------------------------------- */
+    
+    /**
+     * Stores the number of milliseconds before a credential becomes inactive at which it is renewed in the background.
+     */
+    public static final @Nonnull Configuration<Long> RENEWAL = Configuration.with(5 * Time.MINUTE.getValue());
+    
+    /**
+     * Stores the number of milliseconds after which the credentials of an unused role are evicted from memory.
+     */
+    public static final @Nonnull Configuration<Long> INACTIVITY = Configuration.with(Time.HOUR.getValue());
+    
+    /* -------------------------------------------------- Requester -------------------------------------------------- */
+    
+    /**
+     * A requester obtains a new credential from the host of a role.
+     */
+    @Functional
+    public static interface Requester {
+        
+        /**
+         * Requests a new credential for the given role and permissions from the host of the role.
+         */
+        @Pure
+        @NonCommitting
+        public @Nonnull @Active ClientCredential request(@Nonnull Role role, @Nonnull @Frozen @NonEmpty ReadOnlyAgentPermissions permissions, boolean roleBased) throws ExternalException;
+        
+    }
+    
+    /**
+     * Stores the requester of new credentials, which can be replaced by the package that implements the credential request of clients.
+     * (As long as the client cannot complete the credential request, the default requester rejects all requests with an authorization error.)
+     */
+    public static final @Nonnull Configuration<Requester> requester = Configuration.with((role, permissions, roleBased) -> {
+        throw RequestExceptionBuilder.withCode(RequestErrorCode.AUTHORIZATION).withMessage(Strings.format("No credential can be requested for the role $ because this client cannot request credentials.", role)).build();
+    });
+    
+    /**
+     * Stores the number of credentials that have been requested from a host.
+     */
+    private static final @Nonnull AtomicLong requests = new AtomicLong();
+    
+    /**
+     * Returns the number of credentials that have been requested from a host since the start of this process.
+     */
+    @Pure
+    public static long getRequests() {
+        return requests.get();
+    }
+    
+    /* -------------------------------------------------- Slots -------------------------------------------------- */
+    
+    /**
+     * A slot holds the credential of a role for a set of permissions and the pending request for a new one.
+     */
+    @Mutable
+    private static final class Slot {
+        
+        /**
+         * Stores the current credential or null if no credential has been obtained yet.
+         */
+        private volatile @Nullable ClientCredential credential;
+        
+        /**
+         * Stores the time in milliseconds at which the credential was last used.
+         */
+        private volatile long lastUse = System.currentTimeMillis();
+        
+        /**
+         * Stores the pending request for a new credential, which is shared by all callers.
+         * (This field is guarded by the slot itself.)
+         */
+        private @Nullable CompletableFuture<@Nonnull ClientCredential> request;
+        
+        private Slot(@Nullable ClientCredential credential) {
+            this.credential = credential;
+        }
+        
+    }
+    
+    /**
+     * Maps the roles to the slots of their credentials, which are identified by the permissions and whether they are role-based.
+     * (The slots of a role are guarded by their map so that no slot is added to the slots of a role while they are evicted.)
+     */
+    private static final @Nonnull Map<@Nonnull Role, @Nonnull Map<@Nonnull Pair<@Nonnull ReadOnlyAgentPermissions, @Nonnull Boolean>, @Nonnull Slot>> slots = new ConcurrentHashMap<>();
+    
+    /**
+     * Returns the slots of the given role after having loaded its persisted credentials with a single read.
+     */
+    @NonCommitting
+    @PureWithSideEffects
+    private static @Nonnull Map<@Nonnull Pair<@Nonnull ReadOnlyAgentPermissions, @Nonnull Boolean>, @Nonnull Slot> getSlots(@Nonnull Role role) throws DatabaseException, RecoveryException {
+        @Nullable Map<@Nonnull Pair<@Nonnull ReadOnlyAgentPermissions, @Nonnull Boolean>, @Nonnull Slot> map = slots.get(role);
+        if (map == null) {
+            synchronized (slots) {
+                map = slots.get(role);
+                if (map == null) {
+                    map = new ConcurrentHashMap<>();
+                    for (final @Nonnull CredentialEntry entry : load(role)) {
+                        final @Nonnull ClientCredential credential = restore(entry);
+                        if (credential.isActive()) { map.put(Pair.of(credential.getExposedExponent().getHashedOrSaltedPermissions().getSaltedPermissions().getPermissions(), entry.isRoleBased()), new Slot(credential)); }
+                    }
+                    slots.put(role, map);
+                }
+            }
+        }
+        return map;
+    }
+    
+    /* -------------------------------------------------- Persistence -------------------------------------------------- */
+    
+    /**
+     * Stores a dummy configuration in order to have an initialization target.
+     */
+    public static final @Nonnull Configuration<Boolean> configuration = Configuration.with(Boolean.TRUE);
+    
+    /**
+     * Adds the credentials table to the tables which are created on each unit.
+     */
+    @PureWithSideEffects
+    @Initialize(target = CredentialsIndex.class)
+    public static void addTable() {
+        CoreUnit.addTable(CredentialEntryConverter.INSTANCE);
+    }
+    
+    /**
+     * Returns the persisted credentials of the given role.
+     */
+    @Pure
+    @NonCommitting
+    private static @Nonnull Iterable<@Nonnull CredentialEntry> load(@Nonnull Role role) throws DatabaseException, RecoveryException {
+        return SQL.selectAll(CredentialEntryConverter.INSTANCE, null, role.getUnit(), WhereConditionBuilder.withConverter(Integer64Converter.INSTANCE).withObject(role.getKey()).withPrefix("role").build());
+    }
+    
+    /**
+     * Returns the client credential that is stored in the given entry.
+     */
+    @Pure
+    private static @Nonnull ClientCredential restore(@Nonnull CredentialEntry entry) {
+        return ClientCredentialBuilder.withExposedExponent(entry.getExposedExponent()).withC(entry.getExposedExponent().getPublicKey().getCompositeGroup().getElement(entry.getC())).withE(entry.getE()).withU(entry.getU()).withV(entry.getV()).withI(entry.getI()).withRestrictions(entry.getRestrictions()).withB(entry.getB()).build();
+    }
+    
+    /**
+     * Returns the hash of the given permissions, which identifies them in the credentials table.
+     */
+    @Pure
+    private static @Nonnull BigInteger hash(@Nonnull @Frozen ReadOnlyAgentPermissions permissions) {
+        return new BigInteger(1, XDF.hash(ReadOnlyAgentPermissionsConverter.INSTANCE, permissions));
+    }
+    
+    /**
+     * Stores the executor that requests and persists new credentials.
+     */
+    private static final @Nonnull ExecutorService executor = Executors.newCachedThreadPool(NamedThreadFactory.with("Credentials"));
+    
+    /**
+     * Requests a new credential for the given role and permissions and replaces the persisted credential with it in a separate transaction.
+     */
+    @Committing
+    @PureWithSideEffects
+    private static @Nonnull ClientCredential request(@Nonnull Role role, @Nonnull @Frozen @NonEmpty ReadOnlyAgentPermissions permissions, boolean roleBased) throws ExternalException {
+        try {
+            requests.incrementAndGet();
+            final @Nonnull ClientCredential credential = requester.get().request(role, permissions, roleBased);
+            final @Nonnull CredentialEntry entry = CredentialEntryBuilder.withRole(role.getKey()).withPermissions(hash(permissions)).withRoleBased(roleBased).withIssuance(credential.getExposedExponent().getIssuance()).withExposedExponent(credential.getExposedExponent()).withC(credential.getC().getValue()).withE(credential.getE()).withB(credential.getB()).withU(credential.getU()).withV(credential.getV()).withI(credential.getI()).withRestrictions(credential.getRestrictions()).build();
+            SQL.insertOrReplace(CredentialEntryConverter.INSTANCE, entry, role.getUnit());
+            Database.commit();
+            Log.debugging("Obtained a new credential for the role $.", role);
+            return credential;
+        } catch (@Nonnull ExternalException | RuntimeException exception) {
+            Database.rollback();
+            throw exception;
+        }
+    }
+    
+    /**
+     * Returns the pending request of the given slot or starts a new one if there is none.
+     */
+    @Impure
+    private static @Nonnull CompletableFuture<@Nonnull ClientCredential> getRequest(@Nonnull Slot slot, @Nonnull Role role, @Nonnull @Frozen @NonEmpty ReadOnlyAgentPermissions permissions, boolean roleBased) {
+        synchronized (slot) {
+            if (slot.request == null) {
+                final @Nonnull CompletableFuture<@Nonnull ClientCredential> future = new CompletableFuture<>();
+                slot.request = future;
+                executor.execute(() -> {
+                    try {
+                        final @Nonnull ClientCredential credential = request(role, permissions, roleBased);
+                        slot.credential = credential;
+                        future.complete(credential);
+                    } catch (@Nonnull ExternalException | RuntimeException exception) {
+                        Log.warning("Could not obtain a credential for the role $.", exception, role);
+                        future.completeExceptionally(exception);
+                    } finally {
+                        synchronized (slot) { slot.request = null; }
+                    }
+                });
+            }
+            return slot.request;
+        }
+    }
+    
+    /* -------------------------------------------------- Retrieval -------------------------------------------------- */
+    
+    /**
+     * Returns whether the given credential should be renewed because it becomes inactive within the {@link #RENEWAL configured period}.
+     */
+    @Pure
+    private static boolean isExpiring(@Nonnull ClientCredential credential) {
+        return !credential.isActive(TimeBuilder.buildWithValue(System.currentTimeMillis() + RENEWAL.get()));
+    }
+    
+    /**
+     * Returns the slot of the given role for the given permissions and marks it as used at the given time.
+     */
+    @NonCommitting
+    @PureWithSideEffects
+    private static @Nonnull Slot getSlot(@Nonnull Role role, @Nonnull @Frozen @NonEmpty ReadOnlyAgentPermissions permissions, boolean roleBased, long time) throws DatabaseException, RecoveryException {
+        while (true) {
+            final @Nonnull Map<@Nonnull Pair<@Nonnull ReadOnlyAgentPermissions, @Nonnull Boolean>, @Nonnull Slot> map = getSlots(role);
+            synchronized (map) {
+                // The slots of the role might have been evicted since they were retrieved, in which case they are loaded again.
+                if (slots.get(role) == map) {
+                    final @Nonnull Slot slot = map.computeIfAbsent(Pair.of(permissions, roleBased), key -> new Slot(null));
+                    slot.lastUse = time;
+                    return slot;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Returns an active credential for the given role and permissions, which is only requested from the host if no active credential is available.
+     */
+    @NonCommitting
+    @PureWithSideEffects
+    private static @Nonnull @Active ClientCredential get(@Nonnull Role role, @Nonnull @Frozen @NonEmpty ReadOnlyAgentPermissions permissions, boolean roleBased) throws ExternalException {
+        final long now = System.currentTimeMillis();
+        final long last = lastEviction.get();
+        if (now - last > Time.MINUTE.getValue() && lastEviction.compareAndSet(last, now)) { evict(); }
+        
+        final @Nonnull Slot slot = getSlot(role, permissions, roleBased, now);
+        final @Nullable ClientCredential credential = slot.credential;
+        if (credential != null && credential.isActive()) {
+            if (isExpiring(credential)) { getRequest(slot, role, permissions, roleBased); }
+            return credential;
+        }
+        try {
+            return getRequest(slot, role, permissions, roleBased).get();
+        } catch (@Nonnull ExecutionException exception) {
+            final @Nonnull Throwable cause = exception.getCause();
+            if (cause instanceof ExternalException) { throw (ExternalException) cause; }
+            if (cause instanceof RuntimeException) { throw (RuntimeException) cause; }
+            throw UncheckedExceptionBuilder.withCause(exception).build();
+        } catch (@Nonnull InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw UncheckedExceptionBuilder.withCause(exception).build();
+        }
+    }
+    
+    /**
+     * Returns an active identity-based credential for the given role and permissions.
+     */
+    @NonCommitting
+    @PureWithSideEffects
+    public static @Nonnull @Active ClientCredential getIdentityBased(@Nonnull Role role, @Nonnull @Frozen @NonEmpty ReadOnlyAgentPermissions permissions) throws ExternalException {
+        return get(role, permissions, false);
+    }
+    
+    /**
+     * Returns an active role-based credential for the given role and permissions.
+     */
+    @NonCommitting
+    @PureWithSideEffects
+    public static @Nonnull @Active ClientCredential getRoleBased(@Nonnull Role role, @Nonnull @Frozen @NonEmpty ReadOnlyAgentPermissions permissions) throws ExternalException {
+        return get(role, permissions, true);
+    }
+    
+    /* -------------------------------------------------- Eviction -------------------------------------------------- */
+    
+    /**
+     * Stores the time in milliseconds of the last eviction, which is triggered by the retrieval of credentials at most once a minute.
+     */
+    private static final @Nonnull AtomicLong lastEviction = new AtomicLong(System.currentTimeMillis());
+    
+    /**
+     * Returns whether none of the given slots has been used since the given cutoff or has a pending request.
+     * (The given slots have to be guarded by the caller.)
+     */
+    @Pure
+    private static boolean isUnused(@Nonnull Map<@Nonnull Pair<@Nonnull ReadOnlyAgentPermissions, @Nonnull Boolean>, @Nonnull Slot> map, long cutoff) {
+        for (final @Nonnull Slot slot : map.values()) {
+            synchronized (slot) {
+                if (slot.request != null || slot.lastUse >= cutoff) { return false; }
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Evicts the credentials of the roles whose credentials have not been used within the {@link #INACTIVITY configured period} from memory
+     * and returns the number of evicted credentials. (The persisted credentials are loaded again when their role is used.)
+     */
+    @Impure
+    public static int evict() {
+        final long cutoff = System.currentTimeMillis() - INACTIVITY.get();
+        int evicted = 0;
+        for (final @Nonnull Map.Entry<@Nonnull Role, @Nonnull Map<@Nonnull Pair<@Nonnull ReadOnlyAgentPermissions, @Nonnull Boolean>, @Nonnull Slot>> entry : slots.entrySet()) {
+            final @Nonnull Map<@Nonnull Pair<@Nonnull ReadOnlyAgentPermissions, @Nonnull Boolean>, @Nonnull Slot> map = entry.getValue();
+            synchronized (map) {
+                if (isUnused(map, cutoff) && slots.remove(entry.getKey(), map)) { evicted += map.size(); }
+            }
+        }
+        if (evicted > 0) { Log.debugging("Evicted $ unused credentials.", evicted); }
+        return evicted;
+    }
+    
+    /**
+     * Removes all credentials of the given role from memory, which is necessary when the role is removed.
+     */
+    @Impure
+    public static void remove(@Nonnull Role role) {
+        slots.remove(role);
+    }
+    
 }
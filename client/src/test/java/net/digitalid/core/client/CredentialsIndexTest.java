@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.client;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.exceptions.ExternalException;
+import net.digitalid.utility.time.Time;
+import net.digitalid.utility.time.TimeBuilder;
+
+import net.digitalid.core.asymmetrickey.PrivateKeyRetriever;
+import net.digitalid.core.asymmetrickey.PublicKey;
+import net.digitalid.core.asymmetrickey.PublicKeyRetriever;
+import net.digitalid.core.client.role.Role;
+import net.digitalid.core.client.role.RoleArgumentsBuilder;
+import net.digitalid.core.client.role.RoleModule;
+import net.digitalid.core.commitment.SecretCommitmentBuilder;
+import net.digitalid.core.conversion.XDF;
+import net.digitalid.core.credential.ClientCredential;
+import net.digitalid.core.credential.ClientCredentialBuilder;
+import net.digitalid.core.credential.utility.ExposedExponent;
+import net.digitalid.core.credential.utility.ExposedExponentBuilder;
+import net.digitalid.core.credential.utility.HashedOrSaltedAgentPermissions;
+import net.digitalid.core.group.Exponent;
+import net.digitalid.core.group.ExponentBuilder;
+import net.digitalid.core.group.GroupWithKnownOrder;
+import net.digitalid.core.identification.identifier.HostIdentifier;
+import net.digitalid.core.identification.identifier.InternalNonHostIdentifier;
+import net.digitalid.core.identification.identity.HostIdentity;
+import net.digitalid.core.identification.identity.InternalPerson;
+import net.digitalid.core.parameters.Parameters;
+import net.digitalid.core.permissions.ReadOnlyAgentPermissions;
+import net.digitalid.core.restrictions.Restrictions;
+import net.digitalid.core.restrictions.RestrictionsConverter;
+import net.digitalid.core.testing.CoreTest;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class CredentialsIndexTest extends CoreTest {
+    
+    private static final @Nonnull Client client = ClientBuilder.withIdentifier("net.digitalid.credentials").withDisplayName("Credentials Client").withPreferredPermissions(ReadOnlyAgentPermissions.GENERAL_WRITE).build();
+    
+    @BeforeClass
+    public static void createTables() throws ExternalException {
+        RoleModule.createTable();
+    }
+    
+    /**
+     * Returns the role of the person with the given number on the test client.
+     */
+    private static @Nonnull Role role(int number) throws ExternalException {
+        return RoleModule.map(RoleArgumentsBuilder.withClient(client).withIssuer(InternalNonHostIdentifier.with("credentials" + number + "@test.digitalid.net").resolve()).withAgentKey(0).build());
+    }
+    
+    /**
+     * Returns a new credential of the given role for the given permissions, which is issued the given number of milliseconds ago.
+     */
+    private static @Nonnull ClientCredential credential(@Nonnull Role role, @Nonnull ReadOnlyAgentPermissions permissions, long age) throws ExternalException {
+        final @Nonnull Time time = TimeBuilder.buildWithValue(System.currentTimeMillis() - age);
+        final @Nonnull HostIdentity hostIdentity = HostIdentifier.with("test.digitalid.net").resolve();
+        final @Nonnull PublicKey publicKey = PublicKeyRetriever.retrieve(hostIdentity, time);
+        final @Nonnull GroupWithKnownOrder group = PrivateKeyRetriever.retrieve(hostIdentity.getAddress(), time).getCompositeGroup();
+        
+        final @Nonnull ExposedExponent exposedExponent = ExposedExponentBuilder.withIssuer(role.getIssuer().castTo(InternalPerson.class)).withIssuance(time).withHashedOrSaltedPermissions(HashedOrSaltedAgentPermissions.with(permissions, true)).withRole(null).withAttributeContent(null).build();
+        final @Nonnull Exponent secret = ExponentBuilder.withValue(new BigInteger(Parameters.EXPONENT.get(), new SecureRandom())).build();
+        final @Nonnull BigInteger commitment = SecretCommitmentBuilder.withHost(hostIdentity).withTime(time).withPublicKey(publicKey).withSecret(secret).build().getValue();
+        final @Nonnull Exponent i = ExponentBuilder.withValue(BigInteger.ZERO).build();
+        final @Nonnull Restrictions restrictions = Restrictions.CAN_ASSUME_ROLES;
+        final @Nonnull Exponent v = ExponentBuilder.withValue(new BigInteger(XDF.hash(RestrictionsConverter.INSTANCE, restrictions))).build();
+        final @Nonnull Exponent e = ExponentBuilder.withValue(BigInteger.probablePrime(Parameters.CREDENTIAL_EXPONENT.get(), new SecureRandom())).build();
+        return ClientCredentialBuilder.withExposedExponent(exposedExponent).withC(group.getElement(commitment).multiply(publicKey.getAi().pow(i)).multiply(publicKey.getAv().pow(v)).multiply(publicKey.getAo().pow(exposedExponent.getHash()).inverse()).pow(e.inverse(group)).inverse()).withE(e).withU(secret).withV(v).withI(i).withRestrictions(restrictions).build();
+    }
+    
+    @Test
+    public void shouldStoreRequestedCredentials() throws Exception {
+        final @Nonnull Role role = role(1);
+        CredentialsIndex.requester.set((requestingRole, permissions, roleBased) -> credential(requestingRole, permissions, 0));
+        final long requests = CredentialsIndex.getRequests();
+        final @Nonnull ClientCredential credential = CredentialsIndex.getIdentityBased(role, ReadOnlyAgentPermissions.GENERAL_READ);
+        assertThat(CredentialsIndex.getIdentityBased(role, ReadOnlyAgentPermissions.GENERAL_READ)).isSameAs(credential);
+        assertThat(CredentialsIndex.getRoleBased(role, ReadOnlyAgentPermissions.GENERAL_READ)).isNotSameAs(credential);
+        assertThat(CredentialsIndex.getRequests()).isEqualTo(requests + 2);
+    }
+    
+    @Test
+    public void shouldReloadPersistedCredentials() throws Exception {
+        final @Nonnull Role role = role(2);
+        CredentialsIndex.requester.set((requestingRole, permissions, roleBased) -> credential(requestingRole, permissions, 0));
+        final @Nonnull ClientCredential credential = CredentialsIndex.getIdentityBased(role, ReadOnlyAgentPermissions.GENERAL_READ);
+        final long requests = CredentialsIndex.getRequests();
+        CredentialsIndex.remove(role);
+        final @Nonnull ClientCredential reloadedCredential = CredentialsIndex.getIdentityBased(role, ReadOnlyAgentPermissions.GENERAL_READ);
+        assertThat(reloadedCredential.getC()).isEqualTo(credential.getC());
+        assertThat(reloadedCredential.getU()).isEqualTo(credential.getU());
+        assertThat(CredentialsIndex.getRequests()).isEqualTo(requests);
+    }
+    
+    @Test
+    public void shouldEvictUnusedCredentials() throws Exception {
+        final @Nonnull Role role = role(3);
+        CredentialsIndex.requester.set((requestingRole, permissions, roleBased) -> credential(requestingRole, permissions, 0));
+        final @Nonnull ClientCredential credential = CredentialsIndex.getIdentityBased(role, ReadOnlyAgentPermissions.GENERAL_READ);
+        final long requests = CredentialsIndex.getRequests();
+        final long inactivity = CredentialsIndex.INACTIVITY.get();
+        CredentialsIndex.INACTIVITY.set(0L);
+        try {
+            Thread.sleep(10);
+            assertThat(CredentialsIndex.evict()).isGreaterThanOrEqualTo(1);
+        } finally {
+            CredentialsIndex.INACTIVITY.set(inactivity);
+        }
+        final @Nonnull ClientCredential reloadedCredential = CredentialsIndex.getIdentityBased(role, ReadOnlyAgentPermissions.GENERAL_READ);
+        assertThat(reloadedCredential).isNotSameAs(credential);
+        assertThat(reloadedCredential.getC()).isEqualTo(credential.getC());
+        assertThat(CredentialsIndex.getRequests()).isEqualTo(requests);
+    }
+    
+    @Test
+    public void shouldRenewExpiringCredentialsInTheBackground() throws Exception {
+        final @Nonnull Role role = role(4);
+        CredentialsIndex.requester.set((requestingRole, permissions, roleBased) -> credential(requestingRole, permissions, Time.HOUR.getValue() - Time.MINUTE.getValue()));
+        final long requests = CredentialsIndex.getRequests();
+        final @Nonnull ClientCredential credential = CredentialsIndex.getIdentityBased(role, ReadOnlyAgentPermissions.GENERAL_READ);
+        CredentialsIndex.requester.set((requestingRole, permissions, roleBased) -> credential(requestingRole, permissions, 0));
+        assertThat(CredentialsIndex.getIdentityBased(role, ReadOnlyAgentPermissions.GENERAL_READ)).isSameAs(credential);
+        @Nonnull ClientCredential renewedCredential = credential;
+        for (int i = 0; i < 500 && renewedCredential == credential; i++) {
+            Thread.sleep(10);
+            renewedCredential = CredentialsIndex.getIdentityBased(role, ReadOnlyAgentPermissions.GENERAL_READ);
+        }
+        assertThat(renewedCredential).isNotSameAs(credential);
+        assertThat(CredentialsIndex.getRequests()).isEqualTo(requests + 2);
+        assertThat(renewedCredential.isActive(TimeBuilder.buildWithValue(System.currentTimeMillis() + CredentialsIndex.RENEWAL.get()))).isTrue();
+    }
+    
+    @Test
+    public void shouldRequestANewCredentialOnceTheCurrentOneIsInactive() throws Exception {
+        final @Nonnull Role role = role(5);
+        final long renewal = CredentialsIndex.RENEWAL.get();
+        CredentialsIndex.RENEWAL.set(0L);
+        try {
+            CredentialsIndex.requester.set((requestingRole, permissions, roleBased) -> credential(requestingRole, permissions, Time.HOUR.getValue() - 100));
+            final long requests = CredentialsIndex.getRequests();
+            final @Nonnull ClientCredential credential = CredentialsIndex.getIdentityBased(role, ReadOnlyAgentPermissions.GENERAL_READ);
+            Thread.sleep(200);
+            assertThat(credential.isActive()).isFalse();
+            CredentialsIndex.requester.set((requestingRole, permissions, roleBased) -> credential(requestingRole, permissions, 0));
+            final @Nonnull ClientCredential newCredential = CredentialsIndex.getIdentityBased(role, ReadOnlyAgentPermissions.GENERAL_READ);
+            assertThat(newCredential.isActive()).isTrue();
+            assertThat(CredentialsIndex.getRequests()).isEqualTo(requests + 2);
+            
+            CredentialsIndex.remove(role);
+            assertThat(CredentialsIndex.getIdentityBased(role, ReadOnlyAgentPermissions.GENERAL_READ).getC()).isEqualTo(newCredential.getC());
+            assertThat(CredentialsIndex.getRequests()).isEqualTo(requests + 2);
+        } finally {
+            CredentialsIndex.RENEWAL.set(renewal);
+        }
+    }
+    
+}
@@ -23,9 +23,9 @@ import net.digitalid.utility.annotations.ownership.Capturable;
 import net.digitalid.utility.collaboration.annotations.TODO;
 import net.digitalid.utility.collaboration.enumerations.Author;
 import net.digitalid.utility.collaboration.enumerations.Priority;
-import net.digitalid.utility.collections.list.FreezableLinkedList;
 import net.digitalid.utility.collections.list.FreezableList;
 import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.exceptions.UncheckedExceptionBuilder;
 import net.digitalid.utility.freezable.annotations.NonFrozen;
 import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
 import net.digitalid.utility.generator.annotations.generators.GenerateTableConverter;
@@ -38,12 +38,15 @@ import net.digitalid.utility.validation.annotations.type.Immutable;
 
 import net.digitalid.database.annotations.transaction.NonCommitting;
 import net.digitalid.database.conversion.SQL;
+import net.digitalid.database.conversion.WhereConditionBuilder;
 import net.digitalid.database.exceptions.DatabaseException;
 import net.digitalid.database.property.value.WritablePersistentValueProperty;
 
 import net.digitalid.core.agent.Agent;
+import net.digitalid.core.agent.AgentCoverage;
 import net.digitalid.core.agent.AgentFactory;
 import net.digitalid.core.commitment.Commitment;
+import net.digitalid.core.entity.EntityConverter;
 import net.digitalid.core.entity.NonHostEntity;
 import net.digitalid.core.identification.identity.Identity;
 import net.digitalid.core.identification.identity.SemanticType;
@@ -151,9 +154,12 @@ public abstract class ClientAgent extends Agent {
     @Pure
     @Override
     @NonCommitting
-    @TODO(task = "Implement the agent hierarchy.", date = "2017-08-18", author = Author.KASPAR_ETTER)
     public @Capturable @Nonnull @NonFrozen FreezableList<@Nonnull Agent> getWeakerAgents() throws DatabaseException {
-        return FreezableLinkedList.withNoElements();
+        try {
+            return AgentCoverage.getWeakerAgents(this, entity -> SQL.selectAll(ClientAgentSubclass.SUPER_MODULE.getSubjectTable(), null, getUnit(), WhereConditionBuilder.withConverter(EntityConverter.INSTANCE).withObject(entity).build()));
+        } catch (@Nonnull RecoveryException exception) {
+            throw UncheckedExceptionBuilder.withCause(exception).build();
+        }
     }
     
     @Pure
@@ -169,9 +175,8 @@ public abstract class ClientAgent extends Agent {
     @Pure
     @Override
     @NonCommitting
-    @TODO(task = "Check that the given agent belongs to the same entity.", date = "2017-08-18", author = Author.KASPAR_ETTER)
     public boolean covers(@Nonnull /* @Matching */ Agent agent) throws DatabaseException, RecoveryException {
-        return !removed().get();// TODO: && AgentModule.isStronger(this, agent);
+        return AgentCoverage.covers(this, agent);
     }
     
     /* -------------------------------------------------- Subtypes -------------------------------------------------- */
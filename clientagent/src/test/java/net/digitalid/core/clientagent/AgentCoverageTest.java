@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.clientagent;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.exceptions.ExternalException;
+
+import net.digitalid.database.conversion.SQL;
+import net.digitalid.database.interfaces.Database;
+
+import net.digitalid.core.agent.Agent;
+import net.digitalid.core.agent.AgentCoverage;
+import net.digitalid.core.entity.NonHostEntity;
+import net.digitalid.core.identification.identity.SemanticType;
+import net.digitalid.core.identification.identity.SemanticTypeAttributesBuilder;
+import net.digitalid.core.identification.identity.SyntacticType;
+import net.digitalid.core.permissions.FreezableAgentPermissions;
+import net.digitalid.core.permissions.ReadOnlyAgentPermissions;
+import net.digitalid.core.property.map.WritableSynchronizedMapProperty;
+import net.digitalid.core.property.value.WritableSynchronizedValueProperty;
+import net.digitalid.core.restrictions.Restrictions;
+import net.digitalid.core.testing.CoreTest;
+import net.digitalid.core.testing.fixtures.TestEntity;
+import net.digitalid.core.testing.fixtures.TestEntityBuilder;
+import net.digitalid.core.testing.fixtures.TestUnit;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+@SuppressWarnings("unchecked")
+public class AgentCoverageTest extends CoreTest {
+    
+    /* -------------------------------------------------- Fixtures -------------------------------------------------- */
+    
+    private static final @Nonnull TestUnit UNIT = TestUnit.with("coverage", false);
+    
+    private static final @Nonnull SemanticType NAME = SemanticType.map("name.coverage@core.digitalid.net").load(SemanticTypeAttributesBuilder.withSyntacticBase(SyntacticType.BOOLEAN).build());
+    
+    private static final @Nonnull SemanticType EMAIL = SemanticType.map("email.coverage@core.digitalid.net").load(SemanticTypeAttributesBuilder.withSyntacticBase(SyntacticType.BOOLEAN).build());
+    
+    private static final @Nonnull TestEntity ENTITY = TestEntityBuilder.withUnit(UNIT).withKey(0).withIdentity(NAME).build();
+    
+    @Impure
+    @BeforeClass
+    public static void createTables() throws ExternalException {
+        AgentCoverage.CACHING.set(true);
+        TestEntity.createTable(UNIT, ENTITY);
+        SQL.createTable(ClientAgentSubclass.SUPER_MODULE.getSubjectTable(), UNIT);
+        SQL.createTable(ClientAgentSubclass.MODULE.getSubjectTable(), UNIT);
+        ClientAgentSubclass.MODULE.accept(table -> SQL.createTable(table, UNIT));
+        Database.commit();
+    }
+    
+    @Impure
+    @AfterClass
+    public static void resetCaching() {
+        AgentCoverage.CACHING.set(false);
+    }
+    
+    @Pure
+    private static @Nonnull WritableSynchronizedValueProperty<NonHostEntity, Long, Agent, Boolean> removed(@Nonnull Agent agent) {
+        return (WritableSynchronizedValueProperty<NonHostEntity, Long, Agent, Boolean>) agent.removed();
+    }
+    
+    @Pure
+    private static @Nonnull WritableSynchronizedMapProperty<NonHostEntity, Long, Agent, SemanticType, Boolean, ReadOnlyAgentPermissions, FreezableAgentPermissions> permissions(@Nonnull Agent agent) {
+        return (WritableSynchronizedMapProperty<NonHostEntity, Long, Agent, SemanticType, Boolean, ReadOnlyAgentPermissions, FreezableAgentPermissions>) agent.permissions();
+    }
+    
+    @Pure
+    private static @Nonnull WritableSynchronizedValueProperty<NonHostEntity, Long, Agent, Restrictions> restrictions(@Nonnull Agent agent) {
+        return (WritableSynchronizedValueProperty<NonHostEntity, Long, Agent, Restrictions>) agent.restrictions();
+    }
+    
+    /**
+     * Returns a client agent with the given number that is not removed and has the given permission.
+     */
+    @Impure
+    private static @Nonnull ClientAgent agent(int number, boolean writing) throws ExternalException {
+        final @Nonnull ClientAgent agent = ClientAgent.of(ENTITY, 2L * number);
+        removed(agent).setWithoutSynchronization(false);
+        permissions(agent).addWithoutSynchronization(NAME, writing);
+        Database.commit();
+        return agent;
+    }
+    
+    /* -------------------------------------------------- Tests -------------------------------------------------- */
+    
+    @Test
+    public void shouldComputeRepeatedChecksOnlyOnce() throws ExternalException {
+        final @Nonnull ClientAgent strong = agent(1, true);
+        final @Nonnull ClientAgent weak = agent(2, false);
+        
+        final long computations = AgentCoverage.getComputations();
+        for (int i = 0; i < 100; i++) {
+            assertThat(strong.covers(weak)).isTrue();
+            assertThat(weak.covers(strong)).isFalse();
+        }
+        assertThat(AgentCoverage.getComputations() - computations).isEqualTo(2);
+    }
+    
+    @Test
+    public void shouldInvalidateOnPermissionsRestrictionsAndRemoval() throws ExternalException {
+        final @Nonnull ClientAgent strong = agent(3, true);
+        final @Nonnull ClientAgent weak = agent(4, false);
+        final @Nonnull ClientAgent other = agent(5, false);
+        assertThat(strong.covers(weak)).isTrue();
+        assertThat(strong.covers(other)).isTrue();
+        
+        permissions(weak).addWithoutSynchronization(EMAIL, false);
+        Database.commit();
+        final long computations = AgentCoverage.getComputations();
+        assertThat(strong.covers(weak)).isFalse();
+        assertThat(strong.covers(other)).isTrue();
+        assertThat(AgentCoverage.getComputations() - computations).isEqualTo(1);
+        
+        permissions(weak).removeWithoutSynchronization(EMAIL);
+        Database.commit();
+        assertThat(strong.covers(weak)).isTrue();
+        
+        removed(strong).setWithoutSynchronization(true);
+        Database.commit();
+        assertThat(strong.covers(weak)).isFalse();
+        assertThat(strong.covers(other)).isFalse();
+    }
+    
+    @Test
+    public void shouldCacheWeakerAgents() throws ExternalException {
+        final @Nonnull ClientAgent strong = agent(6, true);
+        final @Nonnull ClientAgent weak = agent(7, false);
+        assertThat(strong.getWeakerAgents()).contains(weak);
+        
+        final long computations = AgentCoverage.getComputations();
+        assertThat(strong.getWeakerAgents()).contains(weak);
+        assertThat(AgentCoverage.getComputations()).isEqualTo(computations);
+        
+        permissions(weak).addWithoutSynchronization(EMAIL, false);
+        Database.commit();
+        assertThat(strong.getWeakerAgents()).doesNotContain(weak);
+    }
+    
+    /* -------------------------------------------------- Behavior Change -------------------------------------------------- */
+    
+    // Client agents used to cover every agent as long as they were not removed, which is no longer the case for the following checks.
+    
+    @Test
+    public void shouldNotCoverAgentsWithMorePermissions() throws ExternalException {
+        final @Nonnull ClientAgent reading = agent(8, false);
+        final @Nonnull ClientAgent writing = agent(9, true);
+        final @Nonnull ClientAgent broader = agent(10, false);
+        permissions(broader).addWithoutSynchronization(EMAIL, false);
+        Database.commit();
+        
+        assertThat(reading.covers(writing)).isFalse();
+        assertThat(reading.covers(broader)).isFalse();
+        assertThat(broader.covers(reading)).isTrue();
+    }
+    
+    @Test
+    public void shouldNotCoverAgentsWithMoreRestrictions() throws ExternalException {
+        final @Nonnull ClientAgent restricted = agent(11, true);
+        final @Nonnull ClientAgent unrestricted = agent(12, true);
+        restrictions(unrestricted).setWithoutSynchronization(Restrictions.CAN_ASSUME_ROLES);
+        Database.commit();
+        
+        assertThat(restricted.covers(unrestricted)).isFalse();
+        assertThat(unrestricted.covers(restricted)).isTrue();
+    }
+    
+}
@@ -23,7 +23,6 @@ import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.util.Map;
 import java.util.zip.Inflater;
-import java.util.zip.InflaterInputStream;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -58,7 +57,10 @@ import net.digitalid.utility.validation.annotations.type.Mutable;
 
 import net.digitalid.core.conversion.encoders.XDFEncoder;
 import net.digitalid.core.conversion.exceptions.StreamException;
-import net.digitalid.core.conversion.streams.input.CustomCipherInputStream;
+import net.digitalid.core.conversion.streams.input.DecryptingInputStream;
+import net.digitalid.core.conversion.streams.input.DecryptingInputStreamBuilder;
+import net.digitalid.core.conversion.streams.input.InflatingInputStream;
+import net.digitalid.core.conversion.streams.input.InflatingInputStreamBuilder;
 import net.digitalid.core.conversion.streams.input.WrappedInputStream;
 import net.digitalid.core.conversion.streams.input.WrappedInputStreamBuilder;
 
@@ -352,14 +354,14 @@ public abstract class XDFDecoder<@Unspecifiable EXCEPTION extends StreamExceptio
     @Pure
     @Override
     public boolean isDecompressing() {
-        return inputStream.wrapsInstanceOf(InflaterInputStream.class);
+        return inputStream.wrapsInstanceOf(InflatingInputStream.class);
     }
     
     @Impure
     @Override
     @Ensures(condition = "isDecompressing()", message = "The decoder has to be decompressing.")
     public void startDecompressing(@Nonnull Inflater inflater) throws EXCEPTION {
-        this.inputStream = WrappedInputStreamBuilder.withWrappedStream(new InflaterInputStream(inputStream, inflater, 16)).withPreviousStream(inputStream).build();
+        this.inputStream = WrappedInputStreamBuilder.withWrappedStream(InflatingInputStreamBuilder.withInputStream(inputStream).withInflater(inflater).build()).withPreviousStream(inputStream).build();
         decodeInteger08(); // Reads the initial byte but we are not interested in the result (see the startCompressing method in the XDFencoder).
     }
     
@@ -367,9 +369,11 @@ public abstract class XDFDecoder<@Unspecifiable EXCEPTION extends StreamExceptio
     @Override
     @Requires(condition = "isDecompressing()", message = "The decoder has to be decompressing.")
     public void stopDecompressing() throws EXCEPTION {
-        this.inputStream = inputStream.getPreviousStream(InflaterInputStream.class);
-        skip(5); // Skips over the 4 or 5 unread bytes that are still left in the input stream for unknown reasons.
-        final byte padding = decodeInteger08(); // Reads the number of bytes that are still left in the padding.
+        final @Nonnull InflatingInputStream inflatingInputStream = inputStream.getWrappedStream(InflatingInputStream.class);
+        this.inputStream = inputStream.getPreviousStream(InflatingInputStream.class);
+        // The inflater consumes the 4 or 5 bytes that are left of the compressed data and the bytes that were read beyond its end are pushed back.
+        try { inputStream.unread(inflatingInputStream.finish()); } catch (@Nonnull IOException exception) { throw createException(exception); }
+        final byte padding = decodeInteger08(); // Reads the number of bytes that are still left in the padding (see the stopCompressing method in the XDFEncoder).
         if (padding >= 0) { skip(padding); } else { throw createException(new IOException("The compression padding contained a negative number.")); }
     }
     
@@ -378,21 +382,21 @@ public abstract class XDFDecoder<@Unspecifiable EXCEPTION extends StreamExceptio
     @Pure
     @Override
     public boolean isDecrypting() {
-        return inputStream.wrapsInstanceOf(CustomCipherInputStream.class);
+        return inputStream.wrapsInstanceOf(DecryptingInputStream.class);
     }
     
     @Impure
     @Override
     @Ensures(condition = "isDecrypting()", message = "The decoder has to be decrypting.")
     public void startDecrypting(@Nonnull Cipher cipher) {
-        this.inputStream = WrappedInputStreamBuilder.withWrappedStream(new CustomCipherInputStream(inputStream, cipher)).withPreviousStream(inputStream).build();
+        this.inputStream = WrappedInputStreamBuilder.withWrappedStream(DecryptingInputStreamBuilder.withInputStream(inputStream).withCipher(cipher).build()).withPreviousStream(inputStream).build();
     }
     
     @Impure
     @Override
     @Requires(condition = "isDecrypting()", message = "The decoder has to be decrypting.")
     public void stopDecrypting() throws EXCEPTION {
-        this.inputStream = inputStream.getPreviousStream(CustomCipherInputStream.class);
+        this.inputStream = inputStream.getPreviousStream(DecryptingInputStream.class);
     }
     
     /* -------------------------------------------------- Closing -------------------------------------------------- */
@@ -347,6 +347,7 @@ public abstract class XDFEncoder<@Unspecifiable EXCEPTION extends StreamExceptio
         // In order to be able to read the input with a buffer size of 16 bytes, we add a padding that encodes how many bytes have to be skipped so that the input stream is aligned again.
         // For handling the worst case when the 16 bytes buffer is filled for just 1 more byte compressed input with only 4 (instead of 5) unread bytes, we need to add a total of 17 bytes.
         // (11 bytes are wasted to fill up the buffer (whose content is not recovered) and then we still have to skip 5 bytes (in case the buffer was perfectly aligned) and read 1 byte.)
+        // The current decoder pushes back the bytes that it read beyond the compressed data and thus only reads the first byte of the padding, which is kept for compatibility.
         for (byte i = 16; i >= 0; i--) {
             encodeInteger08(i);
         }
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.conversion.streams.input;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.ShortBufferException;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
+import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * This input stream decrypts the bytes of the wrapped stream with the given cipher until the end of the wrapped stream is reached.
+ * In contrast to the {@link javax.crypto.CipherInputStream}, the bytes are read in large chunks and decrypted into a reusable buffer,
+ * partial reads of the wrapped stream are handled correctly and a failure of the final decryption is reported instead of being ignored.
+ */
+@Mutable
+@GenerateBuilder
+@GenerateSubclass
+public class DecryptingInputStream extends FilterInputStream {
+    
+    /* -------------------------------------------------- Buffer Size -------------------------------------------------- */
+    
+    /**
+     * Stores the number of bytes that are read at most from the wrapped stream at once.
+     */
+    public static final int BUFFER_SIZE = 8_192;
+    
+    /* -------------------------------------------------- Cipher -------------------------------------------------- */
+    
+    private final @Nonnull Cipher cipher;
+    
+    /* -------------------------------------------------- Buffers -------------------------------------------------- */
+    
+    /**
+     * Stores the bytes that have been read from the wrapped stream.
+     */
+    private final @Nonnull byte[] inputBuffer = new byte[BUFFER_SIZE];
+    
+    /**
+     * Stores the bytes that have been decrypted but not yet been read.
+     */
+    private @Nonnull byte[] outputBuffer;
+    
+    /**
+     * Stores the position of the next byte to be read in the output buffer.
+     */
+    private int outputStart = 0;
+    
+    /**
+     * Stores the position after the last decrypted byte in the output buffer.
+     */
+    private int outputEnd = 0;
+    
+    /**
+     * Stores whether the end of the wrapped stream has been reached and the cipher has been finalized.
+     */
+    private boolean finalized = false;
+    
+    /**
+     * Stores a buffer of a single byte for the {@link #read()} method.
+     */
+    private final @Nonnull byte[] singleByte = new byte[1];
+    
+    /* -------------------------------------------------- Constructor -------------------------------------------------- */
+    
+    DecryptingInputStream(@Nonnull InputStream inputStream, @Nonnull Cipher cipher) {
+        super(inputStream);
+        
+        this.cipher = cipher;
+        this.outputBuffer = new byte[cipher.getOutputSize(BUFFER_SIZE)];
+    }
+    
+    /* -------------------------------------------------- Filling -------------------------------------------------- */
+    
+    /**
+     * Makes sure that the output buffer can hold at least the given number of bytes.
+     */
+    @Impure
+    private void ensureCapacity(@NonNegative int size) {
+        if (outputBuffer.length < size) { outputBuffer = new byte[size]; }
+    }
+    
+    /**
+     * Decrypts more bytes from the wrapped stream into the output buffer until at least one byte is available.
+     * 
+     * @return the number of available bytes or -1 if the end of the wrapped stream has been reached.
+     */
+    @Impure
+    private int fill() throws IOException {
+        while (outputStart >= outputEnd) {
+            if (finalized) { return -1; }
+            final int read = in.read(inputBuffer, 0, inputBuffer.length);
+            try {
+                if (read < 0) {
+                    finalized = true;
+                    ensureCapacity(cipher.getOutputSize(0));
+                    outputEnd = cipher.doFinal(outputBuffer, 0);
+                } else {
+                    ensureCapacity(cipher.getOutputSize(read));
+                    outputEnd = cipher.update(inputBuffer, 0, read, outputBuffer, 0);
+                }
+            } catch (@Nonnull ShortBufferException | IllegalBlockSizeException | BadPaddingException exception) {
+                throw new IOException("Could not decrypt the wrapped input stream.", exception);
+            }
+            outputStart = 0;
+        }
+        return outputEnd - outputStart;
+    }
+    
+    /* -------------------------------------------------- Reading -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public int read() throws IOException {
+        return read(singleByte, 0, 1) < 0 ? -1 : singleByte[0] & 0xFF;
+    }
+    
+    @Impure
+    @Override
+    public int read(@Nullable byte[] bytes, int offset, int length) throws IOException {
+        if (length <= 0) { return 0; }
+        final int available = fill();
+        if (available < 0) { return -1; }
+        final int number = Math.min(available, length);
+        if (bytes != null) { System.arraycopy(outputBuffer, outputStart, bytes, offset, number); }
+        outputStart += number;
+        return number;
+    }
+    
+    @Impure
+    @Override
+    public long skip(long number) throws IOException {
+        final int available = outputEnd - outputStart;
+        final int skipped = (int) Math.max(0, Math.min(available, number));
+        outputStart += skipped;
+        return skipped;
+    }
+    
+    @Pure
+    @Override
+    public int available() {
+        return outputEnd - outputStart;
+    }
+    
+    @Pure
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+    
+    /* -------------------------------------------------- Closing -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public void close() throws IOException {
+        in.close();
+        if (!finalized) {
+            finalized = true;
+            try {
+                // The remaining bytes are discarded in order to reset the cipher.
+                ensureCapacity(cipher.getOutputSize(0));
+                cipher.doFinal(outputBuffer, 0);
+            } catch (@Nonnull ShortBufferException | IllegalBlockSizeException | BadPaddingException exception) {
+                // The remaining bytes are not of interest anymore.
+            }
+        }
+        outputStart = 0;
+        outputEnd = 0;
+    }
+    
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.conversion.streams.input;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
+import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * This input stream decompresses the bytes of the wrapped stream with the given inflater.
+ * In contrast to the {@link java.util.zip.InflaterInputStream}, the compressed bytes are read in large chunks and
+ * the bytes which were read beyond the end of the compressed data can be retrieved with {@link #finish()}.
+ */
+@Mutable
+@GenerateBuilder
+@GenerateSubclass
+public class InflatingInputStream extends FilterInputStream {
+    
+    /* -------------------------------------------------- Buffer Size -------------------------------------------------- */
+    
+    /**
+     * Stores the number of bytes that are read at most from the wrapped stream at once.
+     */
+    public static final int BUFFER_SIZE = 8_192;
+    
+    /* -------------------------------------------------- Inflater -------------------------------------------------- */
+    
+    private final @Nonnull Inflater inflater;
+    
+    /* -------------------------------------------------- Buffers -------------------------------------------------- */
+    
+    /**
+     * Stores the bytes that have been read from the wrapped stream.
+     */
+    private final @Nonnull byte[] inputBuffer = new byte[BUFFER_SIZE];
+    
+    /**
+     * Stores the number of bytes that have been passed to the inflater with the last input.
+     */
+    private int inputLength = 0;
+    
+    /**
+     * Stores a buffer of a single byte for the {@link #read()} method.
+     */
+    private final @Nonnull byte[] singleByte = new byte[1];
+    
+    /* -------------------------------------------------- Constructor -------------------------------------------------- */
+    
+    InflatingInputStream(@Nonnull InputStream inputStream, @Nonnull Inflater inflater) {
+        super(inputStream);
+        
+        this.inflater = inflater;
+    }
+    
+    /* -------------------------------------------------- Filling -------------------------------------------------- */
+    
+    /**
+     * Passes the next chunk of compressed bytes from the wrapped stream to the inflater.
+     * 
+     * @throws EOFException if the wrapped stream ends before the compressed data.
+     */
+    @Impure
+    private void fill() throws IOException {
+        final int read = in.read(inputBuffer, 0, inputBuffer.length);
+        if (read < 0) { throw new EOFException("The wrapped input stream ended before the end of the compressed data."); }
+        inflater.setInput(inputBuffer, 0, read);
+        inputLength = read;
+    }
+    
+    /* -------------------------------------------------- Reading -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public int read() throws IOException {
+        return read(singleByte, 0, 1) < 0 ? -1 : singleByte[0] & 0xFF;
+    }
+    
+    @Impure
+    @Override
+    public int read(@Nonnull byte[] bytes, int offset, int length) throws IOException {
+        if (length <= 0) { return 0; }
+        try {
+            int number;
+            while ((number = inflater.inflate(bytes, offset, length)) == 0) {
+                if (inflater.finished()) { return -1; }
+                if (inflater.needsDictionary()) { throw new IOException("The compressed data requires a preset dictionary."); }
+                if (inflater.needsInput()) { fill(); }
+            }
+            return number;
+        } catch (@Nonnull DataFormatException exception) {
+            throw new IOException("The compressed data has an invalid format.", exception);
+        }
+    }
+    
+    @Impure
+    @Override
+    public long skip(long number) throws IOException {
+        final @Nonnull byte[] bytes = new byte[(int) Math.min(number, BUFFER_SIZE)];
+        long skipped = 0;
+        while (skipped < number) {
+            final int read = read(bytes, 0, (int) Math.min(number - skipped, bytes.length));
+            if (read < 0) { break; }
+            skipped += read;
+        }
+        return skipped;
+    }
+    
+    @Pure
+    @Override
+    public int available() {
+        return inflater.finished() ? 0 : 1;
+    }
+    
+    @Pure
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+    
+    /* -------------------------------------------------- Finishing -------------------------------------------------- */
+    
+    /**
+     * Consumes the remainder of the compressed data (such as the checksum at its end) and returns the bytes
+     * that were read from the wrapped stream beyond the end of the compressed data so that they can be unread.
+     * 
+     * @throws IOException if the compressed data contains decompressed bytes that have not been read yet.
+     */
+    @Impure
+    public @Nonnull byte[] finish() throws IOException {
+        if (read() >= 0) { throw new IOException("The compressed data contains bytes that have not been read."); }
+        final int remaining = inflater.getRemaining();
+        return Arrays.copyOfRange(inputBuffer, inputLength - remaining, inputLength);
+    }
+    
+    /* -------------------------------------------------- Closing -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+    
+}
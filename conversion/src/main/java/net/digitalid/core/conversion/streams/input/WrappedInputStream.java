@@ -15,14 +15,20 @@
  */
 package net.digitalid.core.conversion.streams.input;
 
+import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import net.digitalid.utility.annotations.generics.Unspecifiable;
+import net.digitalid.utility.annotations.method.Impure;
 import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Unmodified;
 import net.digitalid.utility.contracts.Require;
 import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
 import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
@@ -75,19 +81,56 @@ public class WrappedInputStream extends DataInputStream {
     
     /**
      * Returns the previous stream.
+     * The bytes that were pushed back onto this stream and have not yet been read again are carried over to the previous stream so that they are not lost.
      * 
      * @require hasPreviousStream() : "This stream contains a previous stream.";
      * @require wrapsInstanceOf(type) : "This stream wraps an instance of the given type.";
      */
-    @Pure
+    @Impure
     @SuppressWarnings("null")
     public @Nonnull WrappedInputStream getPreviousStream(@Nonnull Class<? extends InputStream> type) {
         Require.that(hasPreviousStream()).orThrow("The previous stream may not be null.");
         Require.that(wrapsInstanceOf(type)).orThrow("The wrapped stream $ has to be of the type $.", wrappedStream, type);
         
+        previousStream.unread(takePushedBackBytes());
         return previousStream;
     }
     
+    /* -------------------------------------------------- Unreading -------------------------------------------------- */
+    
+    /**
+     * Stores the bytes that were pushed back and have not yet been read again or null if there are none.
+     */
+    private @Nullable ByteArrayInputStream pushedBackBytes = null;
+    
+    /**
+     * Removes the bytes that were pushed back and have not yet been read again from this stream and returns them.
+     */
+    @Impure
+    private @Nonnull byte[] takePushedBackBytes() {
+        if (pushedBackBytes == null) { return new byte[0]; }
+        final @Nonnull byte[] bytes = new byte[pushedBackBytes.available()];
+        pushedBackBytes.read(bytes, 0, bytes.length);
+        this.pushedBackBytes = null;
+        this.in = wrappedStream;
+        return bytes;
+    }
+    
+    /**
+     * Pushes the given bytes back so that they are read again before the remaining bytes of the wrapped stream.
+     * (The bytes are not passed through the wrapped stream again, which means that they are not hashed twice.)
+     */
+    @Impure
+    public void unread(@NonCaptured @Unmodified @Nonnull byte[] bytes) {
+        final @Nonnull byte[] remainingBytes = takePushedBackBytes();
+        if (bytes.length + remainingBytes.length > 0) {
+            final @Nonnull byte[] allBytes = Arrays.copyOf(bytes, bytes.length + remainingBytes.length);
+            System.arraycopy(remainingBytes, 0, allBytes, bytes.length, remainingBytes.length);
+            this.pushedBackBytes = new ByteArrayInputStream(allBytes);
+            this.in = new SequenceInputStream(pushedBackBytes, wrappedStream);
+        }
+    }
+    
     /* -------------------------------------------------- Constructor -------------------------------------------------- */
     
     WrappedInputStream(@Nonnull InputStream wrappedStream, @Nullable WrappedInputStream previousStream) {
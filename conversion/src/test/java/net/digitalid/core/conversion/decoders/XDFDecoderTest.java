@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.conversion.decoders;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import javax.annotation.Nonnull;
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.testing.UtilityTest;
+
+import net.digitalid.core.conversion.encoders.MemoryEncoder;
+import net.digitalid.core.conversion.exceptions.MemoryException;
+
+import org.junit.Test;
+
+public class XDFDecoderTest extends UtilityTest {
+    
+    /* -------------------------------------------------- Fixtures -------------------------------------------------- */
+    
+    /**
+     * This input stream returns at most a single byte on each read in order to exercise partial reads.
+     */
+    private static class SingleByteInputStream extends FilterInputStream {
+        
+        SingleByteInputStream(@Nonnull InputStream inputStream) {
+            super(inputStream);
+        }
+        
+        @Impure
+        @Override
+        public int read(@Nonnull byte[] bytes, int offset, int length) throws IOException {
+            return super.read(bytes, offset, Math.min(length, 1));
+        }
+        
+    }
+    
+    private static final @Nonnull SecretKeySpec KEY = new SecretKeySpec(new byte[16], "AES");
+    
+    private static final @Nonnull IvParameterSpec INITIALIZATION_VECTOR = new IvParameterSpec(new byte[16]);
+    
+    @Pure
+    private static @Nonnull Cipher getCipher(int mode) throws Exception {
+        final @Nonnull Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        cipher.init(mode, KEY, INITIALIZATION_VECTOR);
+        return cipher;
+    }
+    
+    /**
+     * Returns compressible content of the given length.
+     */
+    @Pure
+    private static @Nonnull byte[] getContent(int length, @Nonnull Random random) {
+        final @Nonnull byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) { content[i] = (byte) random.nextInt(8); }
+        return content;
+    }
+    
+    /**
+     * Encodes the given content in a compressed section between a prefix and a suffix, all of which are optionally encrypted.
+     */
+    @Pure
+    private static @Nonnull byte[] encode(@Nonnull byte[] content, boolean encrypting) throws Exception {
+        final @Nonnull ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (@Nonnull MemoryEncoder encoder = MemoryEncoder.of(outputStream)) {
+            encoder.encodeString("prefix");
+            if (encrypting) { encoder.startEncrypting(getCipher(Cipher.ENCRYPT_MODE)); }
+            encoder.encodeInteger32(content.length);
+            encoder.startCompressing(new Deflater(Deflater.DEFAULT_COMPRESSION));
+            encoder.encodeBinary(content);
+            encoder.stopCompressing();
+            encoder.encodeString("suffix");
+            if (encrypting) { encoder.stopEncrypting(); }
+        }
+        return outputStream.toByteArray();
+    }
+    
+    /**
+     * Decodes the content that was encoded with {@link #encode(byte[], boolean)} from the given input stream.
+     */
+    @Pure
+    private static @Nonnull byte[] decode(@Nonnull InputStream inputStream, boolean decrypting) throws Exception {
+        try (@Nonnull MemoryDecoder decoder = MemoryDecoder.of(inputStream)) {
+            assertThat(decoder.decodeString()).isEqualTo("prefix");
+            if (decrypting) { decoder.startDecrypting(getCipher(Cipher.DECRYPT_MODE)); }
+            final int length = decoder.decodeInteger32();
+            decoder.startDecompressing(new Inflater());
+            final @Nonnull byte[] content = decoder.decodeBinary();
+            decoder.stopDecompressing();
+            assertThat(content.length).isEqualTo(length);
+            assertThat(decoder.decodeString()).isEqualTo("suffix");
+            if (decrypting) { decoder.stopDecrypting(); }
+            return content;
+        }
+    }
+    
+    /* -------------------------------------------------- Tests -------------------------------------------------- */
+    
+    @Test
+    public void shouldDecodeWithFullReads() throws Exception {
+        final @Nonnull Random random = new SecureRandom();
+        for (int length : new int[] {0, 1, 15, 16, 17, 1_000, 100_000}) {
+            for (boolean encrypting : new boolean[] {false, true}) {
+                final @Nonnull byte[] content = getContent(length, random);
+                assertThat(decode(new ByteArrayInputStream(encode(content, encrypting)), encrypting)).isEqualTo(content);
+            }
+        }
+    }
+    
+    @Test
+    public void shouldDecodeWithSingleByteReads() throws Exception {
+        final @Nonnull Random random = new SecureRandom();
+        for (int length = 0; length < 200; length++) {
+            for (boolean encrypting : new boolean[] {false, true}) {
+                final @Nonnull byte[] content = getContent(length, random);
+                assertThat(decode(new SingleByteInputStream(new ByteArrayInputStream(encode(content, encrypting))), encrypting)).isEqualTo(content);
+            }
+        }
+        final @Nonnull byte[] content = getContent(100_000, random);
+        assertThat(decode(new SingleByteInputStream(new ByteArrayInputStream(encode(content, true))), true)).isEqualTo(content);
+    }
+    
+    @Test
+    public void shouldKeepPushedBackBytesWhenStoppingToHash() throws Exception {
+        final @Nonnull byte[] content = getContent(1_000, new SecureRandom());
+        final @Nonnull ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (@Nonnull MemoryEncoder encoder = MemoryEncoder.of(outputStream)) {
+            encoder.startHashing(MessageDigest.getInstance("SHA-256"));
+            encoder.startCompressing(new Deflater(Deflater.DEFAULT_COMPRESSION));
+            encoder.encodeBinary(content);
+            encoder.stopCompressing();
+            encoder.stopHashing();
+            encoder.encodeString("suffix");
+        }
+        try (@Nonnull MemoryDecoder decoder = MemoryDecoder.of(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            decoder.startHashing(MessageDigest.getInstance("SHA-256"));
+            decoder.startDecompressing(new Inflater());
+            assertThat(decoder.decodeBinary()).isEqualTo(content);
+            decoder.stopDecompressing();
+            decoder.stopHashing();
+            // The inflater read the suffix beyond the compressed data, which has to be carried over from the hashing stream.
+            assertThat(decoder.decodeString()).isEqualTo("suffix");
+        }
+    }
+    
+    @Test(expected = MemoryException.class)
+    public void shouldFailOnTruncatedInput() throws Exception {
+        final @Nonnull byte[] bytes = encode(getContent(1_000, new SecureRandom()), true);
+        decode(new ByteArrayInputStream(bytes, 0, bytes.length - 1), true);
+    }
+    
+}
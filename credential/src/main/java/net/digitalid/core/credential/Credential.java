@@ -28,6 +28,7 @@ import net.digitalid.utility.contracts.Validate;
 import net.digitalid.utility.freezable.annotations.Frozen;
 import net.digitalid.utility.rootclass.RootClass;
 import net.digitalid.utility.time.Time;
+import net.digitalid.utility.time.TimeBuilder;
 import net.digitalid.utility.validation.annotations.generation.Derive;
 import net.digitalid.utility.validation.annotations.type.Immutable;
 
@@ -93,12 +94,20 @@ public abstract class Credential extends RootClass {
         return getExposedExponent().getIssuance().isGreaterThan(Time.TROPICAL_YEAR.ago());
     }
     
+    /**
+     * Returns whether this credential is still active at the given time.
+     */
+    @Pure
+    public boolean isActive(@Nonnull Time time) {
+        return getExposedExponent().getIssuance().add(Time.HOUR).isGreaterThan(time);
+    }
+    
     /**
      * Returns whether this credential is still active.
      */
     @Pure
     public boolean isActive() {
-        return getExposedExponent().getIssuance().isGreaterThan(Time.HOUR.ago());
+        return isActive(TimeBuilder.build());
     }
     
     /* -------------------------------------------------- Authentication Mode -------------------------------------------------- */
@@ -125,7 +125,12 @@ public enum RequestErrorCode {
     /**
      * The error code for an insufficient authorization.
      */
-    AUTHORIZATION(17);
+    AUTHORIZATION(17),
+    
+    /**
+     * The error code for an overloaded host, which did not execute the request.
+     */
+    BUSY(18);
     
     /* -------------------------------------------------- Value -------------------------------------------------- */
     
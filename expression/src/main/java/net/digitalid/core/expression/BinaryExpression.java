@@ -33,7 +33,6 @@ import net.digitalid.database.exceptions.DatabaseException;
 
 import net.digitalid.core.expression.operators.BinaryOperator;
 import net.digitalid.core.node.contact.Contact;
-import net.digitalid.core.pack.Pack;
 import net.digitalid.core.signature.credentials.CredentialsSignature;
 
 /**
@@ -109,13 +108,13 @@ abstract class BinaryExpression extends Expression {
     
     @Pure
     @Override
-    boolean matches(@Nonnull Pack attributeContent) {
+    boolean matches(@Nonnull DecodedAttributes attributes) {
         Require.that(isImpersonal()).orThrow("This expression has to be impersonal but was $.", this);
         
         switch (getOperator()) {
-            case ADDITION: return getLeftChild().matches(attributeContent) || getRightChild().matches(attributeContent);
-            case SUBTRACTION: return getLeftChild().matches(attributeContent) && !getRightChild().matches(attributeContent);
-            case MULTIPLICATION: return getLeftChild().matches(attributeContent) && getRightChild().matches(attributeContent);
+            case ADDITION: return getLeftChild().matches(attributes) || getRightChild().matches(attributes);
+            case SUBTRACTION: return getLeftChild().matches(attributes) && !getRightChild().matches(attributes);
+            case MULTIPLICATION: return getLeftChild().matches(attributes) && getRightChild().matches(attributes);
             default: return false;
         }
     }
@@ -123,11 +122,11 @@ abstract class BinaryExpression extends Expression {
     @Pure
     @Override
     @NonCommitting
-    boolean matches(@Nonnull CredentialsSignature<?> signature) throws DatabaseException, RecoveryException {
+    boolean matches(@Nonnull CredentialsSignature<?> signature, @Nonnull DecodedAttributes attributes) throws DatabaseException, RecoveryException {
         switch (getOperator()) {
-            case ADDITION: return getLeftChild().matches(signature) || getRightChild().matches(signature);
-            case SUBTRACTION: return getLeftChild().matches(signature) && !getRightChild().matches(signature);
-            case MULTIPLICATION: return getLeftChild().matches(signature) && getRightChild().matches(signature);
+            case ADDITION: return getLeftChild().matches(signature, attributes) || getRightChild().matches(signature, attributes);
+            case SUBTRACTION: return getLeftChild().matches(signature, attributes) && !getRightChild().matches(signature, attributes);
+            case MULTIPLICATION: return getLeftChild().matches(signature, attributes) && getRightChild().matches(signature, attributes);
             default: return false;
         }
     }
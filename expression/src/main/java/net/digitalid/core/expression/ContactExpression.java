@@ -32,7 +32,6 @@ import net.digitalid.utility.validation.annotations.type.Immutable;
 
 import net.digitalid.core.expression.operators.BinaryOperator;
 import net.digitalid.core.node.contact.Contact;
-import net.digitalid.core.pack.Pack;
 import net.digitalid.core.signature.credentials.CredentialsSignature;
 
 /**
@@ -82,7 +81,7 @@ abstract class ContactExpression extends Expression {
     
     @Pure
     @Override
-    boolean matches(@Nonnull Pack attributeContent) {
+    boolean matches(@Nonnull DecodedAttributes attributes) {
         Require.that(isImpersonal()).orThrow("This expression has to be impersonal but was $.", this);
         
         return false;
@@ -91,7 +90,7 @@ abstract class ContactExpression extends Expression {
     @Pure
     @Override
     @TODO(task = "Implement the check.", date = "2016-12-02", author = Author.KASPAR_ETTER, priority = Priority.HIGH)
-    boolean matches(@Nonnull CredentialsSignature<?> signature) {
+    boolean matches(@Nonnull CredentialsSignature<?> signature, @Nonnull DecodedAttributes attributes) {
         return true;
 //        return signature.isIdentityBased() && !signature.isRoleBased() && signature.getIssuer().equals(contact.getPerson());
     }
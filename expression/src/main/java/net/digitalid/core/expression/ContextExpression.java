@@ -36,7 +36,6 @@ import net.digitalid.database.exceptions.DatabaseException;
 import net.digitalid.core.expression.operators.BinaryOperator;
 import net.digitalid.core.node.contact.Contact;
 import net.digitalid.core.node.context.Context;
-import net.digitalid.core.pack.Pack;
 import net.digitalid.core.signature.credentials.CredentialsSignature;
 
 /**
@@ -87,7 +86,7 @@ abstract class ContextExpression extends Expression {
     
     @Pure
     @Override
-    boolean matches(@Nonnull Pack attributeContent) {
+    boolean matches(@Nonnull DecodedAttributes attributes) {
         Require.that(isImpersonal()).orThrow("This expression has to be impersonal but was $.", this);
         
         return false;
@@ -97,7 +96,7 @@ abstract class ContextExpression extends Expression {
     @Override
     @NonCommitting
     @TODO(task = "Implement the check.", date = "2016-12-02", author = Author.KASPAR_ETTER, priority = Priority.HIGH)
-    boolean matches(@Nonnull CredentialsSignature<?> signature) throws DatabaseException, RecoveryException {
+    boolean matches(@Nonnull CredentialsSignature<?> signature, @Nonnull DecodedAttributes attributes) throws DatabaseException, RecoveryException {
         return true;
 //        return signature.isIdentityBased() && !signature.isRoleBased() && context.contains(Contact.get(getEntity(), signature.getIssuer()));
     }
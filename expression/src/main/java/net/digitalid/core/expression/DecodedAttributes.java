@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.expression;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.collections.list.ReadOnlyList;
+import net.digitalid.utility.conversion.converters.Integer32Converter;
+import net.digitalid.utility.conversion.converters.Integer64Converter;
+import net.digitalid.utility.conversion.converters.IntegerConverter;
+import net.digitalid.utility.conversion.converters.StringConverter;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.validation.annotations.elements.NonNullableElements;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+import net.digitalid.core.identification.identity.SemanticType;
+import net.digitalid.core.identification.identity.SyntacticType;
+import net.digitalid.core.pack.Pack;
+import net.digitalid.core.signature.attribute.CertifiedAttributeValue;
+import net.digitalid.core.signature.credentials.CredentialsSignature;
+
+/**
+ * Decoded attributes store the attribute contents against which restriction expressions are evaluated.
+ * Each content is decoded lazily and at most once, which is why an instance should be reused for a batch
+ * of evaluations, such as the visibilities of several attributes that are matched against the same signature.
+ * Instances are not thread-safe and should not be shared between threads.
+ */
+@Mutable
+public final class DecodedAttributes {
+    
+    /* -------------------------------------------------- Decoded Value -------------------------------------------------- */
+    
+    /**
+     * A decoded value decodes an attribute content on demand and remembers the result.
+     */
+    @Mutable
+    static final class DecodedValue {
+        
+        private final @Nonnull Pack content;
+        
+        private DecodedValue(@Nonnull Pack content) {
+            this.content = content;
+        }
+        
+        private boolean stringDecoded = false;
+        
+        private @Nullable String string = null;
+        
+        /**
+         * Returns the content as a lowercase string or null if the content cannot be decoded as a string.
+         */
+        @Impure
+        @Nullable String getNormalizedString() {
+            if (!stringDecoded) {
+                try {
+                    final @Nullable String string = content.unpack(StringConverter.INSTANCE, null);
+                    this.string = string != null ? string.toLowerCase() : "";
+                } catch (@Nonnull RecoveryException exception) {
+                    this.string = null;
+                }
+                this.stringDecoded = true;
+            }
+            return string;
+        }
+        
+        private boolean numberDecoded = false;
+        
+        private @Nullable Long number = null;
+        
+        /**
+         * Returns the content as a number or null if the content cannot be decoded as a number within the range of a long.
+         */
+        @Impure
+        @Nullable Long getNumber() {
+            if (!numberDecoded) {
+                final @Nonnull SemanticType type = content.getType();
+                try {
+                    if (type.isBasedOn(SyntacticType.INTEGER64)) {
+                        this.number = content.unpack(Integer64Converter.INSTANCE, null);
+                    } else if (type.isBasedOn(SyntacticType.INTEGER32)) {
+                        this.number = (long) content.unpack(Integer32Converter.INSTANCE, null);
+                    } else if (type.isBasedOn(SyntacticType.INTEGER)) {
+                        final @Nonnull BigInteger integer = content.unpack(IntegerConverter.INSTANCE, null);
+                        this.number = integer.bitLength() < Long.SIZE ? integer.longValue() : null;
+                    } else {
+                        final @Nullable String string = getNormalizedString();
+                        this.number = string != null ? Long.parseLong(string.trim()) : null;
+                    }
+                } catch (@Nonnull RecoveryException | NumberFormatException exception) {
+                    this.number = null;
+                }
+                this.numberDecoded = true;
+            }
+            return number;
+        }
+        
+    }
+    
+    /* -------------------------------------------------- Values -------------------------------------------------- */
+    
+    private final @Nonnull Map<@Nonnull SemanticType, @Nonnull DecodedValue> values = new HashMap<>();
+    
+    /**
+     * Returns the decoded value of the given attribute type or null if no such attribute is available.
+     */
+    @Pure
+    @Nullable DecodedValue get(@Nonnull SemanticType type) {
+        return values.get(type);
+    }
+    
+    /**
+     * Adds the given attribute content unless an attribute of the same type has already been added.
+     */
+    @Impure
+    private void add(@Nonnull Pack content) {
+        values.putIfAbsent(content.getType(), new DecodedValue(content));
+    }
+    
+    /* -------------------------------------------------- Constructor -------------------------------------------------- */
+    
+    private DecodedAttributes() {}
+    
+    /* -------------------------------------------------- Recovery -------------------------------------------------- */
+    
+    /**
+     * Returns the decoded attributes that consist of the given attribute contents.
+     */
+    @Pure
+    public static @Nonnull DecodedAttributes of(@Nonnull @NonNullableElements Pack... attributeContents) {
+        final @Nonnull DecodedAttributes attributes = new DecodedAttributes();
+        for (final @Nonnull Pack attributeContent : attributeContents) { attributes.add(attributeContent); }
+        return attributes;
+    }
+    
+    /**
+     * Returns the decoded attributes that consist of the certified attributes of the given signature.
+     * Only the certificates that were still valid at the time of the signature are taken into account.
+     * The certificates themselves are verified as part of the signature verification.
+     */
+    @Pure
+    public static @Nonnull DecodedAttributes of(@Nonnull CredentialsSignature<?> signature) {
+        final @Nonnull DecodedAttributes attributes = new DecodedAttributes();
+        final @Nullable ReadOnlyList<@Nonnull CertifiedAttributeValue> certificates = signature.getCertificates();
+        if (certificates != null) {
+            for (final @Nonnull CertifiedAttributeValue certificate : certificates) {
+                if (certificate.isValid(signature.getTime())) { attributes.add(certificate.getContent()); }
+            }
+        }
+        return attributes;
+    }
+    
+}
@@ -29,7 +29,6 @@ import net.digitalid.utility.validation.annotations.type.Immutable;
 
 import net.digitalid.core.expression.operators.BinaryOperator;
 import net.digitalid.core.node.contact.Contact;
-import net.digitalid.core.pack.Pack;
 import net.digitalid.core.signature.credentials.CredentialsSignature;
 
 /**
@@ -71,7 +70,7 @@ abstract class EverybodyExpression extends Expression {
     
     @Pure
     @Override
-    boolean matches(@Nonnull Pack attributeContent) {
+    boolean matches(@Nonnull DecodedAttributes attributes) {
         Require.that(isImpersonal()).orThrow("This expression has to be impersonal but was $.", this);
         
         return false;
@@ -79,7 +78,7 @@ abstract class EverybodyExpression extends Expression {
     
     @Pure
     @Override
-    boolean matches(@Nonnull CredentialsSignature<?> signature) {
+    boolean matches(@Nonnull CredentialsSignature<?> signature, @Nonnull DecodedAttributes attributes) {
         return true;
     }
     
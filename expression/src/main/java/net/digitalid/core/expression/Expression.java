@@ -78,20 +78,39 @@ abstract class Expression extends RootClass {
     @NonCommitting
     abstract @Capturable @Nonnull @NonFrozen FreezableSet<@Nonnull Contact> getContacts() throws DatabaseException, RecoveryException;
     
+    /**
+     * Returns whether this expression matches the given decoded attributes.
+     * 
+     * @require isImpersonal() : "This expression is impersonal.";
+     */
+    @Pure
+    abstract boolean matches(@Nonnull DecodedAttributes attributes);
+    
     /**
      * Returns whether this expression matches the given attribute content.
      * 
      * @require isImpersonal() : "This expression is impersonal.";
      */
     @Pure
-    abstract boolean matches(@Nonnull Pack attributeContent);
+    final boolean matches(@Nonnull Pack attributeContent) {
+        return matches(DecodedAttributes.of(attributeContent));
+    }
+    
+    /**
+     * Returns whether this expression matches the given signature, whose certified attributes have been decoded into the given attributes.
+     */
+    @Pure
+    @NonCommitting
+    abstract boolean matches(@Nonnull CredentialsSignature<?> signature, @Nonnull DecodedAttributes attributes) throws DatabaseException, RecoveryException;
     
     /**
      * Returns whether this expression matches the given signature.
      */
     @Pure
     @NonCommitting
-    abstract boolean matches(@Nonnull CredentialsSignature<?> signature) throws DatabaseException, RecoveryException;
+    final boolean matches(@Nonnull CredentialsSignature<?> signature) throws DatabaseException, RecoveryException {
+        return matches(signature, DecodedAttributes.of(signature));
+    }
     
     /* -------------------------------------------------- String -------------------------------------------------- */
     
@@ -15,14 +15,28 @@
  */
 package net.digitalid.core.expression;
 
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
+import net.digitalid.utility.annotations.method.Impure;
 import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.collections.set.FreezableLinkedHashSetBuilder;
+import net.digitalid.utility.collections.set.FreezableSet;
+import net.digitalid.utility.collections.set.ReadOnlySet;
+import net.digitalid.utility.configuration.Configuration;
 import net.digitalid.utility.contracts.Require;
-import net.digitalid.utility.conversion.exceptions.RecoveryException;
 import net.digitalid.utility.conversion.exceptions.RecoveryExceptionBuilder;
 import net.digitalid.utility.exceptions.ExternalException;
-import net.digitalid.utility.functional.iterables.FiniteIterable;
+import net.digitalid.utility.tuples.Pair;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+import net.digitalid.utility.validation.annotations.type.Mutable;
 import net.digitalid.utility.validation.annotations.type.Utility;
 
 import net.digitalid.database.annotations.transaction.NonCommitting;
@@ -36,12 +50,13 @@ import net.digitalid.core.identification.identity.Person;
 import net.digitalid.core.identification.identity.SemanticType;
 import net.digitalid.core.node.contact.Contact;
 import net.digitalid.core.node.context.Context;
+import net.digitalid.core.node.context.ContextHierarchy;
 
 /**
- * This class parses expressions.
+ * This class parses expressions in a single pass and caches the parsed expressions per entity and string.
  */
 @Utility
-abstract class ExpressionParser {
+public abstract class ExpressionParser {
     
     /* -------------------------------------------------- Quotes -------------------------------------------------- */
     
@@ -74,100 +89,310 @@ abstract class ExpressionParser {
         return identifier.contains("-") ? "\"" + identifier + "\"" : identifier;
     }
     
-    /* -------------------------------------------------- Index -------------------------------------------------- */
-    
     /**
-     * Returns the last index of one of the given characters in the given string considering quotation marks and parentheses.
+     * Returns whether the given string is a non-empty sequence of digits.
      */
     @Pure
-    private static int lastIndexOf(@Nonnull String string, @Nonnull FiniteIterable<@Nonnull BinaryOperator> characters) throws RecoveryException {
-        int parenthesesCounter = 0;
-        boolean quotation = false;
-        
+    static boolean isNumber(@Nonnull String string) {
         final int length = string.length();
-        for (int i = length - 1; i >= 0; i--) {
+        if (length == 0) { return false; }
+        for (int i = 0; i < length; i++) {
             final char c = string.charAt(i);
+            if (c < '0' || c > '9') { return false; }
+        }
+        return true;
+    }
+    
+    /* -------------------------------------------------- Operators -------------------------------------------------- */
+    
+    private static final @Nonnull BinaryOperator[] OPERATORS = BinaryOperator.values();
+    
+    /**
+     * Stores the highest order of the binary operators, which bind the strongest.
+     */
+    private static final int MAXIMUM_ORDER;
+    
+    static {
+        int maximumOrder = 0;
+        for (final @Nonnull BinaryOperator operator : OPERATORS) { maximumOrder = Math.max(maximumOrder, operator.getOrder()); }
+        MAXIMUM_ORDER = maximumOrder;
+    }
+    
+    /**
+     * Returns the binary operator with the given symbol or null if there is no such operator.
+     */
+    @Pure
+    private static @Nullable BinaryOperator getOperator(int symbol) {
+        for (final @Nonnull BinaryOperator operator : OPERATORS) {
+            if (operator.getSymbol() == symbol) { return operator; }
+        }
+        return null;
+    }
+    
+    /* -------------------------------------------------- Cursor -------------------------------------------------- */
+    
+    /**
+     * A cursor parses an expression string from left to right without copying or rescanning it.
+     * Operators with a higher order bind stronger and operators of the same order associate to the left.
+     */
+    @Mutable
+    private static final class Cursor {
+        
+        /**
+         * Indicates that the end of the string has been reached.
+         */
+        private static final int END = -1;
+        
+        private final @Nonnull NonHostEntity entity;
+        
+        private final @Nonnull String string;
+        
+        private int position = 0;
+        
+        /**
+         * Stores the contexts that are referenced by the parsed expression.
+         */
+        private final @Nonnull FreezableSet<@Nonnull Context> contexts = FreezableLinkedHashSetBuilder.build();
+        
+        private Cursor(@Nonnull NonHostEntity entity, @Nonnull String string) {
+            this.entity = entity;
+            this.string = string;
+        }
+        
+        /**
+         * Skips whitespace and returns the next character without consuming it or {@link #END} if there is none.
+         */
+        @Impure
+        private int peek() {
+            while (position < string.length() && Character.isWhitespace(string.charAt(position))) { position++; }
+            return position < string.length() ? string.charAt(position) : END;
+        }
+        
+        /**
+         * Parses a sequence of expressions that are combined with binary operators of at least the given order.
+         */
+        @Impure
+        @NonCommitting
+        private @Nonnull Expression parseBinary(int order) throws ExternalException {
+            if (order > MAXIMUM_ORDER) { return parsePrimary(); }
             
-            // Check if the char is in a quotation.
-            if (quotation) {
-                if (c == '\"') { quotation = false; }
-                continue;
-            } else if (c == '\"') {
-                quotation = true;
-                continue;
+            @Nonnull Expression expression = parseBinary(order + 1);
+            @Nullable BinaryOperator operator;
+            while ((operator = getOperator(peek())) != null && operator.getOrder() == order) {
+                position++;
+                expression = new BinaryExpressionSubclass(expression, parseBinary(order + 1), operator);
             }
-            
-            // Check for parentheses.
-            if (c == ')') {
-                parenthesesCounter++;
-                continue;
-            } else if (c == '(') {
-                if (parenthesesCounter == 0) { throw RecoveryExceptionBuilder.withMessage("There is an opening parenthesis too much: " + string).build(); }
-                parenthesesCounter--;
-                continue;
+            return expression;
+        }
+        
+        /**
+         * Parses a parenthesized expression, an atom or the empty expression if an operand is missing.
+         */
+        @Impure
+        @NonCommitting
+        private @Nonnull Expression parsePrimary() throws ExternalException {
+            final int next = peek();
+            if (next == '(') {
+                position++;
+                final @Nonnull Expression expression = parseBinary(0);
+                if (peek() != ')') { throw RecoveryExceptionBuilder.withMessage("There is a closing parenthesis missing: " + string).build(); }
+                position++;
+                return expression;
             }
+            if (next == END || next == ')' || getOperator(next) != null) { return new EmptyExpressionSubclass(); }
             
-            if (parenthesesCounter == 0 && characters.map(BinaryOperator::getSymbol).contains(c)) { return i; } // TODO: Do something smarter than mapping and auto-boxing.
+            final int start = position;
+            boolean quotation = false;
+            while (position < string.length()) {
+                final char c = string.charAt(position);
+                if (c == '\"') { quotation = !quotation; }
+                else if (!quotation && (c == '(' || c == ')' || getOperator(c) != null)) { break; }
+                position++;
+            }
+            if (quotation) { throw RecoveryExceptionBuilder.withMessage("The quotation marks do not match: " + string).build(); }
+            return parseAtom(string.substring(start, position).trim());
         }
         
-        if (parenthesesCounter > 0) { throw RecoveryExceptionBuilder.withMessage("There is an opening parenthesis missing: " + string).build(); }
-        if (quotation) { throw RecoveryExceptionBuilder.withMessage("The quotation marks do not match: " + string).build(); }
+        /**
+         * Parses the given atom, which is either a context, a contact, a restriction or everybody.
+         */
+        @Pure
+        @NonCommitting
+        private @Nonnull Expression parseAtom(@Nonnull String atom) throws ExternalException {
+            for (final @Nonnull RestrictionOperator operator : RestrictionOperator.values()) {
+                final int index = atom.indexOf(operator.getSymbol());
+                if (index != -1) {
+                    @Nonnull String identifier = atom.substring(0, index).trim();
+                    if (isQuoted(identifier)) { identifier = removeQuotes(identifier); }
+                    if (!Identifier.isValid(identifier)) { throw RecoveryExceptionBuilder.withMessage("The identifier is invalid: " + identifier).build(); }
+                    final @Nonnull SemanticType type = Identifier.with(identifier).resolve().castTo(SemanticType.class); // TODO: .checkIsAttributeType();
+                    final @Nonnull String value = atom.substring(index + operator.getSymbol().length()).trim();
+                    if (isQuoted(value) || isNumber(value)) { return new RestrictionExpressionSubclass(type, operator, value); }
+                    else { throw RecoveryExceptionBuilder.withMessage("The substring is not a valid restriction: " + value).build(); }
+                }
+            }
+            
+            if (atom.equals("everybody")) { return new EverybodyExpressionSubclass(); }
+            
+            if (isNumber(atom)) {
+                final @Nonnull Context context = Context.of(entity, Long.parseLong(atom));
+                contexts.add(context);
+                return new ContextExpressionSubclass(context);
+            }
+            
+            final @Nonnull String identifier = isQuoted(atom) ? removeQuotes(atom) : atom;
+            if (Identifier.isValid(identifier)) {
+                final @Nonnull Identity identity = Identifier.with(identifier).resolve();
+                if (identity instanceof Person) { return new ContactExpressionSubclass(Contact.of(entity, (Person) identity)); }
+                if (identity instanceof SemanticType) { return new RestrictionExpressionSubclass(((SemanticType) identity)/* TODO: .checkIsAttributeType() */, null, null); }
+                throw RecoveryExceptionBuilder.withMessage("The identity has to be either a person or a semantic type: " + identifier).build();
+            }
+            
+            throw RecoveryExceptionBuilder.withMessage("The following string could not be parsed as an expression: " + atom).build();
+        }
         
-        return -1;
     }
     
-    /* -------------------------------------------------- Parsing -------------------------------------------------- */
+    /* -------------------------------------------------- Compilation -------------------------------------------------- */
     
     /**
-     * Parses the given string for the given entity.
+     * A compiled expression stores a parsed expression together with the contexts that it references.
      */
-    @Pure
-    @NonCommitting
-    @SuppressWarnings("AssignmentToMethodParameter")
-    static @Nonnull Expression parse(@Nonnull NonHostEntity entity, @Nonnull String string) throws ExternalException {
-        string = string.trim();
+    @Immutable
+    private static final class CompiledExpression {
+        
+        private final @Nonnull Expression expression;
         
-        if (string.isEmpty()) { return new EmptyExpressionSubclass(); }
+        private final @Nonnull ReadOnlySet<@Nonnull Context> contexts;
         
-        int index = lastIndexOf(string, BinaryOperator.getOperators(0));
-        if (index == -1) { index = lastIndexOf(string, BinaryOperator.getOperators(1)); }
-        if (index != -1) {
-            final @Nonnull Expression leftChild = parse(entity, string.substring(0, index));
-            final @Nonnull Expression rightChild = parse(entity, string.substring(index + 1, string.length()));
-            final @Nonnull BinaryOperator operator = BinaryOperator.of(string.charAt(index));
-            return new BinaryExpressionSubclass(leftChild, rightChild, operator);
+        private CompiledExpression(@Nonnull Expression expression, @Nonnull ReadOnlySet<@Nonnull Context> contexts) {
+            this.expression = expression;
+            this.contexts = contexts;
         }
         
-        if (string.charAt(0) == '(' && string.charAt(string.length() - 1) == ')') { return parse(entity, string.substring(1, string.length() - 1)); }
+    }
+    
+    /**
+     * Parses the given string for the given entity without consulting the cache.
+     */
+    @Pure
+    @NonCommitting
+    private static @Nonnull CompiledExpression compile(@Nonnull NonHostEntity entity, @Nonnull String string) throws ExternalException {
+        final @Nonnull Cursor cursor = new Cursor(entity, string);
+        final @Nonnull Expression expression = cursor.parseBinary(0);
+        if (cursor.peek() == ')') { throw RecoveryExceptionBuilder.withMessage("There is an opening parenthesis missing: " + string).build(); }
+        if (cursor.peek() != Cursor.END) { throw RecoveryExceptionBuilder.withMessage("The following string could not be parsed as an expression: " + string).build(); }
+        return new CompiledExpression(expression, cursor.contexts.freeze());
+    }
+    
+    /* -------------------------------------------------- Cache -------------------------------------------------- */
+    
+    /**
+     * Stores the maximum number of parsed expressions that are cached.
+     */
+    public static final @Nonnull Configuration<Integer> CACHE_SIZE = Configuration.with(1_000);
+    
+    /**
+     * Caches the parsed expressions of each entity and string in the order of their last access.
+     */
+    private static final @Nonnull Map<@Nonnull Pair<@Nonnull NonHostEntity, @Nonnull String>, @Nonnull CompiledExpression> cache = new LinkedHashMap<Pair<NonHostEntity, String>, CompiledExpression>(16, 0.75f, true) {
         
-        // The string is now either a context, a contact or a restriction.
+        @Pure
+        @Override
+        protected boolean removeEldestEntry(@Nonnull Map.Entry<Pair<NonHostEntity, String>, CompiledExpression> eldest) {
+            return size() > CACHE_SIZE.get();
+        }
         
-        for (final @Nonnull RestrictionOperator operator : RestrictionOperator.values()) {
-            index = string.indexOf(operator.getSymbol());
-            if (index != -1) {
-                @Nonnull String identifier = string.substring(0, index).trim();
-                if (isQuoted(identifier)) { identifier = removeQuotes(identifier); }
-                if (!Identifier.isValid(identifier)) { throw RecoveryExceptionBuilder.withMessage("The identifier is invalid: " + identifier).build(); }
-                final @Nonnull SemanticType type = Identifier.with(identifier).resolve().castTo(SemanticType.class); // TODO: .checkIsAttributeType();
-                final @Nonnull String substring = string.substring(index + operator.getSymbol().length(), string.length()).trim();
-                if (isQuoted(substring) || substring.matches("\\d+")) { return new RestrictionExpressionSubclass(type, operator, substring); }
-                else { throw RecoveryExceptionBuilder.withMessage("The substring is not a valid restriction: " + substring).build(); }
+    };
+    
+    /**
+     * Removes the parsed expressions of the given entity from the cache.
+     */
+    @Impure
+    public static void invalidate(@Nonnull NonHostEntity entity) {
+        synchronized (cache) {
+            final @Nonnull Iterator<@Nonnull Pair<@Nonnull NonHostEntity, @Nonnull String>> iterator = cache.keySet().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().get0().equals(entity)) { iterator.remove(); }
             }
         }
-        
-        if (string.equals("everybody")) { return new EverybodyExpressionSubclass(); }
-        
-        if (string.matches("\\d+")) { return new ContextExpressionSubclass(Context.of(entity, Long.parseLong(string))); }
-        
-        final @Nonnull String identifier = isQuoted(string) ? removeQuotes(string) : string;
-        if (Identifier.isValid(string)) {
-            final @Nonnull Identity identity = Identifier.with(identifier).resolve();
-            if (identity instanceof Person) { return new ContactExpressionSubclass(Contact.of(entity, (Person) identity)); }
-            if (identity instanceof SemanticType) { return new RestrictionExpressionSubclass(((SemanticType) identity)/* TODO: .checkIsAttributeType() */, null, null); }
-            throw RecoveryExceptionBuilder.withMessage("The identity has to be either a person or a semantic type: " + identifier).build();
+    }
+    
+    /**
+     * Removes the parsed expressions that reference the given context from the cache.
+     * This method is called whenever a context is deleted or renamed.
+     */
+    @Impure
+    public static void invalidate(@Nonnull Context context) {
+        synchronized (cache) {
+            final @Nonnull Iterator<@Nonnull CompiledExpression> iterator = cache.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().contexts.contains(context)) { iterator.remove(); }
+            }
         }
-        
-        throw RecoveryExceptionBuilder.withMessage("The following string could not be parsed as an expression: " + string).build();
+    }
+    
+    /**
+     * Stores the contexts whose name is observed, which are referenced weakly so that they can still be garbage-collected.
+     */
+    private static final @Nonnull Set<@Nonnull Context> observedContexts = Collections.newSetFromMap(new WeakHashMap<>());
+    
+    static {
+        ContextHierarchy.register(ExpressionParser::invalidate);
+    }
+    
+    /**
+     * Observes the name of the given contexts so that the parsed expressions which reference them are invalidated when they are renamed.
+     */
+    @Impure
+    private static void observe(@Nonnull ReadOnlySet<@Nonnull Context> contexts) {
+        for (final @Nonnull Context context : contexts) {
+            final boolean added;
+            synchronized (observedContexts) {
+                added = observedContexts.add(context);
+            }
+            if (added) { context.name().register((property, oldValue, newValue) -> invalidate(context)); }
+        }
+    }
+    
+    /**
+     * Removes all parsed expressions from the cache.
+     */
+    @Impure
+    public static void invalidateAll() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+    
+    /* -------------------------------------------------- Parsing -------------------------------------------------- */
+    
+    /**
+     * Parses the given string for the given entity or returns the cached expression if the same string has been parsed for the given entity before.
+     */
+    @Pure
+    @NonCommitting
+    static @Nonnull Expression parse(@Nonnull NonHostEntity entity, @Nonnull String string) throws ExternalException {
+        final @Nonnull Pair<@Nonnull NonHostEntity, @Nonnull String> key = Pair.of(entity, string);
+        synchronized (cache) {
+            final @Nullable CompiledExpression compiledExpression = cache.get(key);
+            if (compiledExpression != null) { return compiledExpression.expression; }
+        }
+        final @Nonnull CompiledExpression compiledExpression = compile(entity, string);
+        observe(compiledExpression.contexts);
+        synchronized (cache) {
+            cache.put(key, compiledExpression);
+        }
+        return compiledExpression.expression;
+    }
+    
+    /**
+     * Parses the given string for the given entity without consulting or filling the cache.
+     */
+    @Pure
+    @NonCommitting
+    static @Nonnull Expression parseWithoutCache(@Nonnull NonHostEntity entity, @Nonnull String string) throws ExternalException {
+        return compile(entity, string).expression;
     }
     
 }
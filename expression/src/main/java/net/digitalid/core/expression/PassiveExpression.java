@@ -58,4 +58,14 @@ public abstract class PassiveExpression extends AbstractExpression {
         return getExpression().matches(signature);
     }
     
+    /**
+     * Returns whether this passive expression matches the given signature, whose certified attributes have been decoded into the given attributes.
+     * The decoded attributes should be reused when several expressions are matched against the same signature.
+     */
+    @Pure
+    @NonCommitting
+    public boolean matches(@Nonnull CredentialsSignature<?> signature, @Nonnull DecodedAttributes attributes) throws DatabaseException, RecoveryException {
+        return getExpression().matches(signature, attributes);
+    }
+    
 }
@@ -21,17 +21,13 @@ import javax.annotation.Nullable;
 import net.digitalid.utility.annotations.method.CallSuper;
 import net.digitalid.utility.annotations.method.Pure;
 import net.digitalid.utility.annotations.ownership.Capturable;
-import net.digitalid.utility.collaboration.annotations.TODO;
-import net.digitalid.utility.collaboration.enumerations.Author;
-import net.digitalid.utility.collaboration.enumerations.Priority;
 import net.digitalid.utility.collections.set.FreezableLinkedHashSetBuilder;
 import net.digitalid.utility.collections.set.FreezableSet;
 import net.digitalid.utility.contracts.Require;
 import net.digitalid.utility.contracts.Validate;
-import net.digitalid.utility.conversion.converters.StringConverter;
-import net.digitalid.utility.exceptions.ExternalException;
 import net.digitalid.utility.freezable.annotations.NonFrozen;
 import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.validation.annotations.generation.Derive;
 import net.digitalid.utility.validation.annotations.type.Immutable;
 import net.digitalid.utility.validation.annotations.value.Valid;
 
@@ -40,7 +36,6 @@ import net.digitalid.core.expression.operators.RestrictionOperator;
 import net.digitalid.core.identification.annotations.AttributeType;
 import net.digitalid.core.identification.identity.SemanticType;
 import net.digitalid.core.node.contact.Contact;
-import net.digitalid.core.pack.Pack;
 import net.digitalid.core.signature.credentials.CredentialsSignature;
 
 /**
@@ -59,7 +54,7 @@ abstract class RestrictionExpression extends Expression {
      */
     @Pure
     boolean isValid(@Nonnull String string) {
-        return ExpressionParser.isQuoted(string) || string.matches("\\d+");
+        return ExpressionParser.isQuoted(string) || ExpressionParser.isNumber(string);
     }
     
     /* -------------------------------------------------- Fields -------------------------------------------------- */
@@ -82,6 +77,43 @@ abstract class RestrictionExpression extends Expression {
     @Pure
     abstract @Nullable @Valid String getString();
     
+    /* -------------------------------------------------- Predicate -------------------------------------------------- */
+    
+    /**
+     * Returns the given quoted string without quotes in lowercase or null if the given string is not quoted.
+     */
+    @Pure
+    static @Nullable String normalize(@Nullable String string) {
+        return string != null && ExpressionParser.isQuoted(string) ? ExpressionParser.removeQuotes(string).toLowerCase() : null;
+    }
+    
+    /**
+     * Returns the number denoted by the given string or null if the given string does not denote a number within the range of a long.
+     */
+    @Pure
+    static @Nullable Long parseNumber(@Nullable String string) {
+        if (string == null || !ExpressionParser.isNumber(string)) { return null; }
+        try {
+            return Long.parseLong(string);
+        } catch (@Nonnull NumberFormatException exception) {
+            return null;
+        }
+    }
+    
+    /**
+     * Returns the string of this restriction without quotes in lowercase or null if this restriction does not compare strings.
+     */
+    @Pure
+    @Derive("normalize(string)")
+    abstract @Nullable String getNormalizedString();
+    
+    /**
+     * Returns the number of this restriction or null if this restriction does not compare numbers.
+     */
+    @Pure
+    @Derive("parseNumber(string)")
+    abstract @Nullable Long getNumber();
+    
     /* -------------------------------------------------- Validation -------------------------------------------------- */
     
     @Pure
@@ -124,71 +156,58 @@ abstract class RestrictionExpression extends Expression {
     
     @Pure
     @Override
-    boolean matches(@Nonnull Pack attributeContent) {
+    boolean matches(@Nonnull DecodedAttributes attributes) {
         Require.that(isImpersonal()).orThrow("This expression is impersonal.");
         
-        if (!attributeContent.getType().equals(getType())) { return false; }
+        final @Nullable DecodedAttributes.DecodedValue value = attributes.get(getType());
+        if (value == null) { return false; }
         
         final @Nullable RestrictionOperator operator = getOperator();
-        final @Nullable String string = getString();
-        
-        if (operator == null || string == null) { return true; }
+        if (operator == null) { return true; }
         
-        if (ExpressionParser.isQuoted(string)) {
-            final @Nonnull String substring = ExpressionParser.removeQuotes(string).toLowerCase();
-            final @Nonnull String attribute;
-            try {
-                final @Nullable String content = attributeContent.unpack(StringConverter.INSTANCE, null);
-                attribute = content != null ? content.toLowerCase() : "";
-            } catch (@Nonnull ExternalException exception) {
-                throw new RuntimeException(exception); // TODO
-            }
+        final @Nullable String normalizedString = getNormalizedString();
+        if (normalizedString != null) {
+            final @Nullable String attribute = value.getNormalizedString();
+            if (attribute == null) { return false; }
             switch (operator) {
-                case EQUAL: return attribute.equals(substring);
-                case UNEQUAL: return !attribute.equals(substring);
-                case LESS: return attribute.compareTo(substring) < 0;
-                case GREATER: return attribute.compareTo(substring) > 0;
-                case LESS_OR_EQUAL: return attribute.compareTo(substring) <= 0;
-                case GREATER_OR_EQUAL: return attribute.compareTo(substring) >= 0;
-                case PREFIX: return attribute.startsWith(substring);
-                case NOT_PREFIX: return !attribute.startsWith(substring);
-                case INFIX: return attribute.contains(substring);
-                case NOT_INFIX: return !attribute.contains(substring);
-                case POSTFIX: return attribute.endsWith(substring);
-                case NOT_POSTFIX: return !attribute.endsWith(substring);
+                case EQUAL: return attribute.equals(normalizedString);
+                case UNEQUAL: return !attribute.equals(normalizedString);
+                case LESS: return attribute.compareTo(normalizedString) < 0;
+                case GREATER: return attribute.compareTo(normalizedString) > 0;
+                case LESS_OR_EQUAL: return attribute.compareTo(normalizedString) <= 0;
+                case GREATER_OR_EQUAL: return attribute.compareTo(normalizedString) >= 0;
+                case PREFIX: return attribute.startsWith(normalizedString);
+                case NOT_PREFIX: return !attribute.startsWith(normalizedString);
+                case INFIX: return attribute.contains(normalizedString);
+                case NOT_INFIX: return !attribute.contains(normalizedString);
+                case POSTFIX: return attribute.endsWith(normalizedString);
+                case NOT_POSTFIX: return !attribute.endsWith(normalizedString);
+                default: return false;
             }
-        } else {
-            // TODO: Use a NumberConverter to retrieve the value from the attribute content:
-//            final int length = attributeContent.getLength();
-//            if (length > 8) { return false; }
-            long attribute = 0;
-//            for (int i = 0; i < length; i++) {
-//                attribute = (attribute << 8) | (attributeContent.getByte(i) & 0xFF);
-//            }
-            try {
-                final long number = Long.parseLong(string);
-                switch (operator) {
-                    case EQUAL: return attribute == number;
-                    case UNEQUAL: return attribute != number;
-                    case LESS: return attribute < number;
-                    case GREATER: return attribute > number;
-                    case LESS_OR_EQUAL: return attribute <= number;
-                    case GREATER_OR_EQUAL: return attribute >= number;
-                }
-            } catch (@Nonnull NumberFormatException exception) {}
         }
         
-        return false;
+        final @Nullable Long number = getNumber();
+        if (number == null) { return false; }
+        final @Nullable Long attribute = value.getNumber();
+        if (attribute == null) { return false; }
+        switch (operator) {
+            case EQUAL: return attribute.longValue() == number.longValue();
+            case UNEQUAL: return attribute.longValue() != number.longValue();
+            case LESS: return attribute < number;
+            case GREATER: return attribute > number;
+            case LESS_OR_EQUAL: return attribute <= number;
+            case GREATER_OR_EQUAL: return attribute >= number;
+            default: return false;
+        }
     }
     
+    /**
+     * Returns whether the given signature contains a certified attribute of the restricted type that matches this restriction.
+     */
     @Pure
     @Override
-    @TODO(task = "Implement the check.", date = "2016-12-02", author = Author.KASPAR_ETTER, priority = Priority.HIGH)
-    boolean matches(@Nonnull CredentialsSignature<?> signature) {
-        return true;
-//        final @Nullable Block attributeContent = signature.getAttributeContent(type);
-//        if (attributeContent == null) { return false; }
-//        return matches(attributeContent);
+    boolean matches(@Nonnull CredentialsSignature<?> signature, @Nonnull DecodedAttributes attributes) {
+        return matches(attributes);
     }
     
     /* -------------------------------------------------- String -------------------------------------------------- */
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.expression;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.exceptions.ExternalException;
+
+import net.digitalid.database.conversion.SQL;
+import net.digitalid.database.interfaces.Database;
+
+import net.digitalid.core.entity.NonHostEntity;
+import net.digitalid.core.identification.identity.SemanticType;
+import net.digitalid.core.identification.identity.SemanticTypeAttributesBuilder;
+import net.digitalid.core.identification.identity.SyntacticType;
+import net.digitalid.core.node.context.Context;
+import net.digitalid.core.node.context.ContextHierarchy;
+import net.digitalid.core.node.context.ContextSubclass;
+import net.digitalid.core.property.value.WritableSynchronizedValueProperty;
+import net.digitalid.core.testing.CoreTest;
+import net.digitalid.core.testing.fixtures.TestEntity;
+import net.digitalid.core.testing.fixtures.TestEntityBuilder;
+import net.digitalid.core.testing.fixtures.TestUnit;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+@SuppressWarnings("unchecked")
+public class ExpressionParserTest extends CoreTest {
+    
+    /* -------------------------------------------------- Fixtures -------------------------------------------------- */
+    
+    private static final @Nonnull TestUnit UNIT = TestUnit.with("expression", false);
+    
+    private static final @Nonnull SemanticType TYPE = SemanticType.map("expression@core.digitalid.net").load(SemanticTypeAttributesBuilder.withSyntacticBase(SyntacticType.BOOLEAN).build());
+    
+    private static final @Nonnull TestEntity ENTITY = TestEntityBuilder.withUnit(UNIT).withKey(0).withIdentity(TYPE).build();
+    
+    @Impure
+    @BeforeClass
+    public static void createTables() throws ExternalException {
+        TestEntity.createTable(UNIT, ENTITY);
+        SQL.createTable(ContextSubclass.SUPER_MODULE.getSubjectTable(), UNIT);
+        SQL.createTable(ContextSubclass.MODULE.getSubjectTable(), UNIT);
+        ContextSubclass.MODULE.accept(table -> SQL.createTable(table, UNIT));
+        Database.commit();
+    }
+    
+    /**
+     * Returns an expression with the given number of contexts that are combined with all binary operators.
+     */
+    @Pure
+    private static @Nonnull String getLongExpression(int contexts) {
+        final @Nonnull StringBuilder string = new StringBuilder();
+        for (int i = 0; i < contexts; i++) {
+            if (i > 0) { string.append(i % 3 == 0 ? " + " : i % 3 == 1 ? " * " : " - "); }
+            if (i % 4 == 0) { string.append("("); }
+            string.append(2 * i);
+            if (i % 4 == 3) { string.append(")"); }
+        }
+        if (contexts % 4 != 0) { string.append(")"); }
+        return string.toString();
+    }
+    
+    /* -------------------------------------------------- Tests -------------------------------------------------- */
+    
+    @Test
+    public void shouldRespectPrecedenceAndAssociativity() throws ExternalException {
+        assertThat(ExpressionParser.parse(ENTITY, "2 + 4 * 6").toString()).isEqualTo("2+4*6");
+        assertThat(ExpressionParser.parse(ENTITY, "(2 + 4) * 6").toString()).isEqualTo("(2+4)*6");
+        assertThat(ExpressionParser.parse(ENTITY, "2 - 4 - 6").toString()).isEqualTo("2-4-6");
+        assertThat(ExpressionParser.parse(ENTITY, "2 - (4 - 6)").toString()).isEqualTo("2-(4-6)");
+        assertThat(ExpressionParser.parse(ENTITY, " ( everybody)")).isInstanceOf(EverybodyExpression.class);
+        assertThat(ExpressionParser.parse(ENTITY, "")).isInstanceOf(EmptyExpression.class);
+        assertThat(ExpressionParser.parse(ENTITY, "everybody - ").isPublic()).isTrue();
+    }
+    
+    @Test
+    public void shouldCacheParsedExpressions() throws ExternalException {
+        final @Nonnull String string = getLongExpression(10);
+        final @Nonnull Expression expression = ExpressionParser.parse(ENTITY, string);
+        assertThat(ExpressionParser.parse(ENTITY, string)).isSameAs(expression);
+        assertThat(ExpressionParser.parseWithoutCache(ENTITY, string)).isEqualTo(expression);
+        
+        ExpressionParser.invalidate(ENTITY);
+        assertThat(ExpressionParser.parse(ENTITY, string)).isNotSameAs(expression);
+    }
+    
+    @Test
+    public void shouldInvalidateExpressionsOfDeletedContexts() throws ExternalException {
+        final @Nonnull Expression expression = ExpressionParser.parse(ENTITY, "2 + 4");
+        final @Nonnull Expression otherExpression = ExpressionParser.parse(ENTITY, "6");
+        ContextHierarchy.add(Context.of(ENTITY), Context.of(ENTITY, 2));
+        ContextHierarchy.delete(Context.of(ENTITY, 2));
+        Database.commit();
+        
+        assertThat(ExpressionParser.parse(ENTITY, "2 + 4")).isNotSameAs(expression);
+        assertThat(ExpressionParser.parse(ENTITY, "6")).isSameAs(otherExpression);
+    }
+    
+    @Test
+    public void shouldInvalidateExpressionsOfRenamedContexts() throws ExternalException {
+        final @Nonnull Expression expression = ExpressionParser.parse(ENTITY, "8 * 10");
+        ((WritableSynchronizedValueProperty<NonHostEntity, Long, Context, String>) Context.of(ENTITY, 8).name()).setWithoutSynchronization("Renamed Context");
+        Database.commit();
+        
+        assertThat(ExpressionParser.parse(ENTITY, "8 * 10")).isNotSameAs(expression);
+    }
+    
+    @Test(expected = RecoveryException.class)
+    public void shouldRejectMissingClosingParenthesis() throws ExternalException {
+        ExpressionParser.parse(ENTITY, "(2 + 4");
+    }
+    
+    @Test(expected = RecoveryException.class)
+    public void shouldRejectMissingOpeningParenthesis() throws ExternalException {
+        ExpressionParser.parse(ENTITY, "2 + 4)");
+    }
+    
+    @Test(expected = RecoveryException.class)
+    public void shouldRejectUnmatchedQuotationMarks() throws ExternalException {
+        ExpressionParser.parse(ENTITY, "\"person@test.digitalid.net");
+    }
+    
+}
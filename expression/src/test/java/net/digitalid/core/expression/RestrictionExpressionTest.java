@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.expression;
+
+import java.math.BigInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.collections.list.FreezableArrayList;
+import net.digitalid.utility.conversion.converters.Integer64Converter;
+import net.digitalid.utility.conversion.converters.StringConverter;
+import net.digitalid.utility.exceptions.ExternalException;
+import net.digitalid.utility.time.Time;
+import net.digitalid.utility.time.TimeBuilder;
+
+import net.digitalid.core.expression.operators.RestrictionOperator;
+import net.digitalid.core.group.ElementBuilder;
+import net.digitalid.core.group.ExponentBuilder;
+import net.digitalid.core.group.GroupWithUnknownOrderBuilder;
+import net.digitalid.core.identification.identifier.InternalIdentifier;
+import net.digitalid.core.identification.identity.Category;
+import net.digitalid.core.identification.identity.SemanticType;
+import net.digitalid.core.identification.identity.SemanticTypeAttributesBuilder;
+import net.digitalid.core.identification.identity.SyntacticType;
+import net.digitalid.core.pack.Pack;
+import net.digitalid.core.pack.PackConverter;
+import net.digitalid.core.signature.attribute.CertifiedAttributeValue;
+import net.digitalid.core.signature.credentials.CredentialsSignature;
+import net.digitalid.core.signature.credentials.CredentialsSignatureBuilder;
+import net.digitalid.core.signature.credentials.PublicClientCredential;
+import net.digitalid.core.signature.host.HostSignatureBuilder;
+import net.digitalid.core.testing.CoreTest;
+
+import org.junit.Test;
+
+public class RestrictionExpressionTest extends CoreTest {
+    
+    /* -------------------------------------------------- Fixtures -------------------------------------------------- */
+    
+    private static final @Nonnull SemanticType NAME = SemanticType.map("name.restriction@core.digitalid.net").load(SemanticTypeAttributesBuilder.withSyntacticBase(SyntacticType.STRING).withCategories(Category.INTERNAL_NON_HOST_IDENTITIES).withCachingPeriod(Time.MONTH).build());
+    
+    private static final @Nonnull SemanticType AGE = SemanticType.map("age.restriction@core.digitalid.net").load(SemanticTypeAttributesBuilder.withSyntacticBase(SyntacticType.INTEGER64).withCategories(Category.INTERNAL_NON_HOST_IDENTITIES).withCachingPeriod(Time.MONTH).build());
+    
+    private static final @Nonnull SemanticType CITY = SemanticType.map("city.restriction@core.digitalid.net").load(SemanticTypeAttributesBuilder.withSyntacticBase(SyntacticType.STRING).build());
+    
+    private static final @Nonnull Pack NAME_CONTENT = Pack.pack(StringConverter.INSTANCE, "Alice Example", NAME);
+    
+    private static final @Nonnull Pack AGE_CONTENT = Pack.pack(Integer64Converter.INSTANCE, 42L, AGE);
+    
+    private static final @Nonnull InternalIdentifier SUBJECT = InternalIdentifier.with("alice@test.digitalid.net");
+    
+    private static final @Nonnull InternalIdentifier ISSUER = InternalIdentifier.with("issuer@test.digitalid.net");
+    
+    @Pure
+    private static @Nonnull RestrictionExpression restriction(@Nonnull SemanticType type, @Nullable RestrictionOperator operator, @Nullable String string) {
+        return new RestrictionExpressionSubclass(type, operator, string);
+    }
+    
+    /**
+     * Returns a certificate of the given attribute content that was issued at the given time.
+     * The signature value is irrelevant because the matching of restrictions does not verify the certificates.
+     */
+    @Pure
+    private static @Nonnull CertifiedAttributeValue certificate(@Nonnull Pack content, @Nonnull Time time) {
+        return CertifiedAttributeValue.with(HostSignatureBuilder.withObjectConverter(PackConverter.INSTANCE).withObject(content).withSubject(SUBJECT).withSigner(ISSUER).withSignatureValue(BigInteger.ONE).withTime(time).build());
+    }
+    
+    /**
+     * Returns a credentials signature with the given certificates, whose proofs are irrelevant for the matching of restrictions.
+     */
+    @Pure
+    private static @Nonnull CredentialsSignature<String> signature(@Nonnull Time time, @Nonnull CertifiedAttributeValue... certificates) {
+        return CredentialsSignatureBuilder.withObjectConverter(StringConverter.INSTANCE).withObject("message").withSubject(SUBJECT).withT(ExponentBuilder.withValue(BigInteger.ONE).build()).withSU(ExponentBuilder.withValue(BigInteger.valueOf(2)).build()).withCredentials(FreezableArrayList.<PublicClientCredential>withNoElements()).withCertificates(FreezableArrayList.withElements(certificates)).withSV(ExponentBuilder.withValue(BigInteger.valueOf(3)).build()).withFPrime(ElementBuilder.withGroup(GroupWithUnknownOrderBuilder.withModulus(BigInteger.valueOf(1)).build()).withValue(BigInteger.ONE).build()).withSBPrime(ExponentBuilder.withValue(BigInteger.valueOf(5)).build()).withTime(time).build();
+    }
+    
+    /* -------------------------------------------------- Tests -------------------------------------------------- */
+    
+    @Test
+    public void shouldCompareStringsCaseInsensitively() {
+        final @Nonnull DecodedAttributes attributes = DecodedAttributes.of(NAME_CONTENT, AGE_CONTENT);
+        assertThat(restriction(NAME, RestrictionOperator.EQUAL, "\"alice EXAMPLE\"").matches(attributes)).isTrue();
+        assertThat(restriction(NAME, RestrictionOperator.UNEQUAL, "\"alice\"").matches(attributes)).isTrue();
+        assertThat(restriction(NAME, RestrictionOperator.PREFIX, "\"ALICE\"").matches(attributes)).isTrue();
+        assertThat(restriction(NAME, RestrictionOperator.NOT_PREFIX, "\"bob\"").matches(attributes)).isTrue();
+        assertThat(restriction(NAME, RestrictionOperator.INFIX, "\"ce ex\"").matches(attributes)).isTrue();
+        assertThat(restriction(NAME, RestrictionOperator.POSTFIX, "\"ample\"").matches(attributes)).isTrue();
+        assertThat(restriction(NAME, RestrictionOperator.NOT_POSTFIX, "\"ample\"").matches(attributes)).isFalse();
+        assertThat(restriction(NAME, RestrictionOperator.LESS, "\"bob\"").matches(attributes)).isTrue();
+        assertThat(restriction(NAME, RestrictionOperator.GREATER_OR_EQUAL, "\"bob\"").matches(attributes)).isFalse();
+    }
+    
+    @Test
+    public void shouldCompareNumbersNumerically() {
+        final @Nonnull DecodedAttributes attributes = DecodedAttributes.of(NAME_CONTENT, AGE_CONTENT);
+        assertThat(restriction(AGE, RestrictionOperator.EQUAL, "42").matches(attributes)).isTrue();
+        assertThat(restriction(AGE, RestrictionOperator.UNEQUAL, "42").matches(attributes)).isFalse();
+        assertThat(restriction(AGE, RestrictionOperator.GREATER, "9").matches(attributes)).isTrue();
+        assertThat(restriction(AGE, RestrictionOperator.LESS, "100").matches(attributes)).isTrue();
+        assertThat(restriction(AGE, RestrictionOperator.LESS_OR_EQUAL, "41").matches(attributes)).isFalse();
+        assertThat(restriction(AGE, RestrictionOperator.GREATER_OR_EQUAL, "42").matches(attributes)).isTrue();
+        assertThat(restriction(AGE, RestrictionOperator.EQUAL, "99999999999999999999").matches(attributes)).isFalse();
+    }
+    
+    @Test
+    public void shouldRequireTheRestrictedAttribute() {
+        final @Nonnull DecodedAttributes attributes = DecodedAttributes.of(NAME_CONTENT, AGE_CONTENT);
+        assertThat(restriction(NAME, null, null).matches(attributes)).isTrue();
+        assertThat(restriction(CITY, null, null).matches(attributes)).isFalse();
+        assertThat(restriction(CITY, RestrictionOperator.UNEQUAL, "\"zurich\"").matches(attributes)).isFalse();
+        assertThat(restriction(NAME, RestrictionOperator.EQUAL, "\"alice example\"").matches(AGE_CONTENT)).isFalse();
+        assertThat(restriction(NAME, RestrictionOperator.EQUAL, "\"alice example\"").matches(NAME_CONTENT)).isTrue();
+    }
+    
+    @Test
+    public void shouldMatchTheCertifiedAttributesOfCredentialsSignatures() throws ExternalException {
+        final @Nonnull Time now = TimeBuilder.build();
+        final @Nonnull CredentialsSignature<String> signature = signature(now, certificate(NAME_CONTENT, now), certificate(AGE_CONTENT, now.subtract(Time.TROPICAL_YEAR)));
+        
+        assertThat(restriction(NAME, RestrictionOperator.EQUAL, "\"alice example\"").matches(signature)).isTrue();
+        assertThat(restriction(NAME, RestrictionOperator.EQUAL, "\"bob\"").matches(signature)).isFalse();
+        assertThat(restriction(NAME, null, null).matches(signature)).isTrue();
+        assertThat(restriction(AGE, null, null).matches(signature)).isFalse(); // The certificate of the age had already expired at the time of the signature.
+        assertThat(restriction(AGE, RestrictionOperator.EQUAL, "42").matches(signature)).isFalse();
+        assertThat(restriction(CITY, null, null).matches(signature)).isFalse();
+        assertThat(restriction(NAME, null, null).matches(signature(now))).isFalse();
+    }
+    
+}
@@ -27,6 +27,10 @@ import net.digitalid.utility.annotations.method.PureWithSideEffects;
 import net.digitalid.utility.collaboration.annotations.TODO;
 import net.digitalid.utility.collaboration.enumerations.Author;
 import net.digitalid.utility.collaboration.enumerations.Priority;
+import net.digitalid.utility.collections.list.FreezableArrayList;
+import net.digitalid.utility.collections.list.FreezableList;
+import net.digitalid.utility.collections.list.ReadOnlyList;
+import net.digitalid.utility.contracts.Require;
 import net.digitalid.utility.contracts.Validate;
 import net.digitalid.utility.conversion.exceptions.RecoveryException;
 import net.digitalid.utility.conversion.interfaces.Converter;
@@ -34,11 +38,13 @@ import net.digitalid.utility.exceptions.ExternalException;
 import net.digitalid.utility.freezable.annotations.Frozen;
 import net.digitalid.utility.logging.Log;
 import net.digitalid.utility.tuples.Pair;
+import net.digitalid.utility.validation.annotations.elements.NonNullableElements;
 import net.digitalid.utility.validation.annotations.generation.Default;
 import net.digitalid.utility.validation.annotations.generation.Derive;
 import net.digitalid.utility.validation.annotations.generation.NonRepresentative;
 import net.digitalid.utility.validation.annotations.generation.OrderOfAssignment;
 import net.digitalid.utility.validation.annotations.generation.Provided;
+import net.digitalid.utility.validation.annotations.size.NonEmpty;
 import net.digitalid.utility.validation.annotations.type.Immutable;
 
 import net.digitalid.database.annotations.transaction.NonCommitting;
@@ -63,6 +69,8 @@ import net.digitalid.core.handler.reply.instances.RequestExceptionReplyConverter
 import net.digitalid.core.identification.identifier.HostIdentifier;
 import net.digitalid.core.pack.Pack;
 import net.digitalid.core.pack.PackConverter;
+import net.digitalid.core.packet.BatchBuilder;
+import net.digitalid.core.packet.BatchConverter;
 import net.digitalid.core.packet.Request;
 import net.digitalid.core.packet.RequestBuilder;
 import net.digitalid.core.packet.Response;
@@ -222,6 +230,72 @@ public interface Method<@Unspecifiable ENTITY extends Entity> extends Handler<EN
         return reply;
     }
     
+    /**
+     * Sends the given methods in a single request and returns the response.
+     * The methods are compressed, signed and encrypted together and the host executes them within the same transaction,
+     * which means that either all of them succeed or the first request exception is thrown for the whole batch.
+     * If there are several methods, the response contains a {@link net.digitalid.core.packet.Batch batch} with their replies in the same order.
+     * The host rejects batches with more than {@link net.digitalid.core.packet.Batch#MAXIMUM_SIZE} methods and batches of methods that are executed for the recipient.
+     * 
+     * @require areSimilar(methods) : "The methods are similar to each other.";
+     */
+    @NonCommitting
+    @PureWithSideEffects
+    public static @Nonnull Response sendBatch(@Nonnull @NonNullableElements @NonEmpty ReadOnlyList<? extends Method<?>> methods) throws ExternalException {
+        Require.that(areSimilar(methods)).orThrow("The methods $ have to be similar to each other.", methods);
+        
+        final @Nonnull Method<?> reference = methods.get(0);
+        if (methods.size() == 1) { return reference.send(); }
+        
+        Log.debugging("Sending a batch of $ methods of the type $ to $.", methods.size(), reference.getClass().getSimpleName(), reference.getSubject());
+        
+        final @Nonnull FreezableList<Pack> packs = FreezableArrayList.withInitialCapacity(methods.size());
+        for (final @Nonnull Method<?> method : methods) { packs.add(method.pack()); }
+        final @Nonnull Compression<Pack> compression = CompressionBuilder.withObject(BatchBuilder.withPacks(packs).build().pack()).build();
+        
+        final @Nonnull Request request = RequestBuilder.withEncryption(reference.getEncryption(compression)).build();
+        final @Nonnull Response response = request.send();
+        
+        final @Nonnull Pack pack = response.getEncryption().getObject().getObject().getObject();
+        if (pack.getType().equals(RequestExceptionReply.TYPE)) {
+            final @Nonnull Pair<@Nullable Entity, @Nonnull HostSignature<Compression<Pack>>> provided = Pair.of(reference.getEntity(), (HostSignature<Compression<Pack>>) response.getEncryption().getObject());
+            throw pack.unpack(RequestExceptionReplyConverter.INSTANCE, provided).getRequestException();
+        }
+        
+        return response;
+    }
+    
+    /**
+     * Sends the given methods in a single request and returns their replies that are recovered with the given converter.
+     * 
+     * @require areSimilar(methods) : "The methods are similar to each other.";
+     * 
+     * @ensure return.size() == methods.size() : "There is a reply for each method in the same order.";
+     * 
+     * @see #sendBatch(net.digitalid.utility.collections.list.ReadOnlyList)
+     */
+    @NonCommitting
+    @PureWithSideEffects
+    public static <@Unspecifiable ENTITY extends Entity, @Unspecifiable REPLY extends Reply<ENTITY>> @Nonnull @Frozen ReadOnlyList<REPLY> sendBatch(@Nonnull @NonNullableElements @NonEmpty ReadOnlyList<? extends Method<ENTITY>> methods, @Nonnull Converter<REPLY, @Nonnull Pair<@Nullable ENTITY, @Nonnull HostSignature<Compression<Pack>>>> converter) throws ExternalException {
+        final @Nonnull Method<ENTITY> reference = methods.get(0);
+        if (methods.size() == 1) { return FreezableArrayList.withElement(reference.send(converter)).freeze(); }
+        
+        final @Nonnull Response response = sendBatch(methods);
+        final @Nonnull HostSignature<Compression<Pack>> signature = (HostSignature<Compression<Pack>>) response.getEncryption().getObject();
+        final @Nonnull Pack pack = signature.getObject().getObject();
+        final @Nonnull ReadOnlyList<Pack> replyPacks = pack.unpack(BatchConverter.INSTANCE, null).getPacks();
+        if (replyPacks.size() != methods.size()) { throw DeclarationExceptionBuilder.withMessage("The received batch contains " + replyPacks.size() + " replies for " + methods.size() + " methods.").withIdentity(reference.getSubject().resolve()).build(); }
+        
+        final @Nonnull Pair<@Nullable ENTITY, @Nonnull HostSignature<Compression<Pack>>> provided = Pair.of(reference.getEntity(), signature);
+        final @Nonnull FreezableList<REPLY> replies = FreezableArrayList.withInitialCapacity(methods.size());
+        for (int i = 0; i < methods.size(); i++) {
+            final @Nonnull REPLY reply = replyPacks.get(i).unpack(converter, provided);
+            if (!reply.matches(methods.get(i))) { throw DeclarationExceptionBuilder.withMessage("The received reply does not match the sent method.").withIdentity(reference.getSubject().resolve()).build(); }
+            replies.add(reply);
+        }
+        return replies.freeze();
+    }
+    
 //    /**
 //     * Sends the block encoded by this method to the stored recipient.
 //     * This method can be overridden to support, for example, one-time credentials.
@@ -441,6 +515,19 @@ public interface Method<@Unspecifiable ENTITY extends Entity> extends Handler<EN
                 && this.getService().equals(other.getService());
     }
     
+    /**
+     * Returns whether the given methods are {@link #isSimilarTo(net.digitalid.core.handler.method.Method) similar} to each other (in both directions).
+     */
+    @Pure
+    public static boolean areSimilar(@Nonnull @NonNullableElements @NonEmpty ReadOnlyList<? extends Method<?>> methods) {
+        final @Nonnull Method<?> reference = methods.get(0);
+        for (int i = 1; i < methods.size(); i++) {
+            final @Nonnull Method<?> method = methods.get(i);
+            if (!method.isSimilarTo(reference) || !reference.isSimilarTo(method)) { return false; }
+        }
+        return true;
+    }
+    
     /* -------------------------------------------------- Validation -------------------------------------------------- */
     
     @Pure
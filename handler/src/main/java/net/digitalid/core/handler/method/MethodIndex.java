@@ -92,10 +92,27 @@ public abstract class MethodIndex {
      */
     @Pure
     public static @Nonnull Method<?> get(@Nonnull Signature<Compression<Pack>> signature, @Nonnull Entity entity) throws RequestException, RecoveryException {
-        final @Nonnull Pack pack = signature.getObject().getObject();
+        return get(signature, signature.getObject().getObject(), entity);
+    }
+    
+    /**
+     * Returns the method that handles the given pack of a {@link net.digitalid.core.packet.Batch batch} with the given signature for the given entity.
+     */
+    @Pure
+    public static @Nonnull Method<?> get(@Nonnull Signature<Compression<Pack>> signature, @Nonnull Pack pack, @Nonnull Entity entity) throws RequestException, RecoveryException {
         final @Nullable Converter<? extends Method<?>, @Nonnull Pair<@Nullable Signature<Compression<Pack>>, @Nonnull Entity>> converter = converters.get(pack.getType());
         if (converter == null) { throw RequestExceptionBuilder.withCode(RequestErrorCode.METHOD).withMessage(Strings.format("No method could be found for the type $.", pack.getType())).build(); }
         return pack.unpack(converter, Pair.of(signature, entity));
     }
     
+    /**
+     * Returns the method that handles the given unsigned pack for the given entity, which is used to recover methods that were stored locally.
+     */
+    @Pure
+    public static @Nonnull Method<?> get(@Nonnull Pack pack, @Nonnull Entity entity) throws RequestException, RecoveryException {
+        final @Nullable Converter<? extends Method<?>, @Nonnull Pair<@Nullable Signature<Compression<Pack>>, @Nonnull Entity>> converter = converters.get(pack.getType());
+        if (converter == null) { throw RequestExceptionBuilder.withCode(RequestErrorCode.METHOD).withMessage(Strings.format("No method could be found for the type $.", pack.getType())).build(); }
+        return pack.unpack(converter, Pair.of(null, entity));
+    }
+    
 }
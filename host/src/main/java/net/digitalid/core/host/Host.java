@@ -23,6 +23,7 @@ import net.digitalid.utility.annotations.method.Impure;
 import net.digitalid.utility.annotations.method.Pure;
 import net.digitalid.utility.annotations.method.PureWithSideEffects;
 import net.digitalid.utility.collections.collection.ReadOnlyCollection;
+import net.digitalid.utility.collections.list.FreezableArrayList;
 import net.digitalid.utility.collections.map.FreezableLinkedHashMapBuilder;
 import net.digitalid.utility.collections.map.FreezableMap;
 import net.digitalid.utility.conversion.exceptions.ConversionException;
@@ -64,6 +65,7 @@ import net.digitalid.core.keychain.PublicKeyChain;
 import net.digitalid.core.pack.Pack;
 import net.digitalid.core.pack.PackConverter;
 import net.digitalid.core.property.value.WritableSynchronizedValueProperty;
+import net.digitalid.core.pusher.Pusher;
 import net.digitalid.core.service.Service;
 import net.digitalid.core.signature.Signature;
 import net.digitalid.core.signature.SignatureBuilder;
@@ -162,6 +164,7 @@ public abstract class Host extends CoreUnit {
     
     /**
      * Maps the identifiers of the hosts that are running on this server to their instances.
+     * The map is only accessed while holding its lock because the hosts are loaded concurrently.
      */
     private static final @Nonnull FreezableMap<@Nonnull HostIdentifier, @Nonnull Host> hosts = FreezableLinkedHashMapBuilder.build();
     
@@ -170,7 +173,9 @@ public abstract class Host extends CoreUnit {
      */
     @Pure
     public static boolean exists(@Nonnull HostIdentifier identifier) {
-        return hosts.containsKey(identifier);
+        synchronized (hosts) {
+            return hosts.containsKey(identifier);
+        }
     }
     
     /**
@@ -178,7 +183,9 @@ public abstract class Host extends CoreUnit {
      */
     @Pure
     public static @Nonnull ReadOnlyCollection<@Nonnull Host> getAll() {
-        return hosts.values();
+        synchronized (hosts) {
+            return FreezableArrayList.withElementsOf(hosts.values()).freeze();
+        }
     }
     
     /**
@@ -188,7 +195,10 @@ public abstract class Host extends CoreUnit {
      */
     @Pure
     public static @Nonnull Host of(@Nonnull HostIdentifier identifier) throws RequestException {
-        final @Nullable Host host = hosts.get(identifier);
+        final @Nullable Host host;
+        synchronized (hosts) {
+            host = hosts.get(identifier);
+        }
         if (host == null) { throw RequestExceptionBuilder.withCode(RequestErrorCode.RECIPIENT).withMessage("The host '" + identifier.getString() + "' does not exist on this server.").build(); }
         return host;
     }
@@ -225,7 +235,9 @@ public abstract class Host extends CoreUnit {
         protectedPrivateKeyChain.set(PrivateKeyChainLoader.load(getIdentifier()));
         protectedPublicKeyChain.set(PublicKeyChainLoader.load(getIdentifier()));
         
-        hosts.put(getIdentifier(), this);
+        synchronized (hosts) {
+            hosts.put(getIdentifier(), this);
+        }
         
         final @Nonnull Attribute attribute = Attribute.of(getAccount(), PublicKeyChain.TYPE);
         if (attribute.value().get() == null) {
@@ -240,6 +252,8 @@ public abstract class Host extends CoreUnit {
             }
             ((WritableSynchronizedValueProperty<Entity, SemanticType, Attribute, AttributeValue>) attribute.value()).setWithoutSynchronization(value);
         }
+        
+        Pusher.resume(this);
     }
     
     /* -------------------------------------------------- CoreUnit -------------------------------------------------- */
@@ -20,12 +20,15 @@ import javax.annotation.Nullable;
 
 import net.digitalid.utility.annotations.method.Pure;
 import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.annotations.ownership.Capturable;
 import net.digitalid.utility.annotations.ownership.NonCaptured;
 import net.digitalid.utility.annotations.parameter.Modified;
+import net.digitalid.utility.collections.list.FreezableList;
 import net.digitalid.utility.configuration.Configuration;
 import net.digitalid.utility.conversion.exceptions.RecoveryException;
 import net.digitalid.utility.exceptions.CaseExceptionBuilder;
 import net.digitalid.utility.exceptions.ExternalException;
+import net.digitalid.utility.freezable.annotations.NonFrozen;
 import net.digitalid.utility.validation.annotations.method.Ensures;
 import net.digitalid.utility.validation.annotations.type.Stateless;
 
@@ -64,6 +67,15 @@ public abstract class IdentifierResolver {
     @PureWithSideEffects
     public abstract @Nullable Identity load(@Nonnull Identifier identifier) throws DatabaseException, RecoveryException;
     
+    /* -------------------------------------------------- Bulk Loading -------------------------------------------------- */
+    
+    /**
+     * Loads and returns all identities of the given category that are persisted with a single read.
+     */
+    @NonCommitting
+    @PureWithSideEffects
+    public abstract @Capturable @Nonnull @NonFrozen FreezableList<@Nonnull Identity> loadAll(@Nonnull Category category) throws DatabaseException, RecoveryException;
+    
     /* -------------------------------------------------- Identifier Mapping -------------------------------------------------- */
     
     /**
@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.identification.identity;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.configuration.Configuration;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.conversion.recovery.Check;
+import net.digitalid.utility.exceptions.UncheckedExceptionBuilder;
+import net.digitalid.utility.logging.Log;
+import net.digitalid.utility.threading.NamedThreadFactory;
+import net.digitalid.utility.threading.Threading;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.type.Utility;
+
+import net.digitalid.database.annotations.transaction.Committing;
+import net.digitalid.database.annotations.transaction.NonCommitting;
+import net.digitalid.database.exceptions.DatabaseException;
+import net.digitalid.database.interfaces.Database;
+
+import net.digitalid.core.identification.identifier.InternalNonHostIdentifier;
+
+/**
+ * The type registry maps the identifiers of semantic types to their identities on any thread.
+ * Types which are not yet persisted are mapped by a dedicated thread in its own transaction, which is committed
+ * immediately so that each type is persisted exactly once and the mapped types can be shared among all threads.
+ * (On the main thread, types are still mapped in the current transaction because the initialization might not have committed the tables yet.)
+ * As the dedicated thread might wait for locks that are held by the transaction of the calling thread, the calling thread waits only for a limited time
+ * before it maps the type in its own transaction instead.
+ * All semantic types which have already been persisted are loaded in a single read when the registry is used for the first time.
+ */
+@Utility
+public abstract class TypeRegistry {
+    
+    /* -------------------------------------------------- Configuration -------------------------------------------------- */
+    
+    /**
+     * Stores the time in milliseconds that a thread other than the main thread waits at most for a new semantic type to be persisted by the dedicated thread.
+     * If the dedicated thread does not respond in time, the semantic type is mapped in the current transaction of the waiting thread.
+     */
+    public static final @Nonnull Configuration<Integer> TIMEOUT = Configuration.with(1000);
+    
+    /* -------------------------------------------------- Types -------------------------------------------------- */
+    
+    /**
+     * Maps the identifiers of semantic types to the types that have been persisted.
+     */
+    private static final @Nonnull Map<@Nonnull InternalNonHostIdentifier, @Nonnull SemanticType> types = new ConcurrentHashMap<>();
+    
+    /**
+     * Returns the number of semantic types that are currently registered.
+     */
+    @Pure
+    public static @NonNegative int size() {
+        return types.size();
+    }
+    
+    /* -------------------------------------------------- Snapshot -------------------------------------------------- */
+    
+    /**
+     * Stores whether the persisted semantic types have already been loaded.
+     */
+    private static volatile boolean loaded = false;
+    
+    /**
+     * Loads all persisted semantic types with a single read if this has not already been done.
+     */
+    @NonCommitting
+    @PureWithSideEffects
+    private static void load() throws DatabaseException, RecoveryException {
+        if (loaded) { return; }
+        synchronized (types) {
+            if (loaded) { return; }
+            for (final @Nonnull Identity identity : IdentifierResolver.configuration.get().loadAll(Category.SEMANTIC_TYPE)) {
+                if (identity instanceof SemanticType) { types.putIfAbsent(((SemanticType) identity).getAddress(), (SemanticType) identity); }
+            }
+            loaded = true;
+            Log.debugging("Loaded $ persisted semantic types.", types.size());
+        }
+    }
+    
+    /**
+     * Clears the registered types so that they are loaded again from the database on the next mapping.
+     * This method should only be called if the identifier resolver or its database is replaced.
+     */
+    @Impure
+    public static void reset() {
+        synchronized (types) {
+            types.clear();
+            loaded = false;
+        }
+    }
+    
+    /* -------------------------------------------------- Mapping -------------------------------------------------- */
+    
+    /**
+     * Stores the number of semantic types that have been mapped to new keys.
+     */
+    private static final @Nonnull AtomicLong mappings = new AtomicLong();
+    
+    /**
+     * Returns the number of semantic types that have been mapped to new keys since the start of this process.
+     */
+    @Pure
+    public static long getMappings() {
+        return mappings.get();
+    }
+    
+    /**
+     * Loads or maps the semantic type with the given identifier in the current transaction.
+     * No lock is held while accessing the database because the dedicated thread might wait for locks that are held by the transactions of other threads.
+     * If two transactions map the same identifier concurrently, the unique identifiers of the identifier resolver reject the mapping of the later one.
+     */
+    @NonCommitting
+    @PureWithSideEffects
+    private static @Nonnull SemanticType resolve(@Nonnull InternalNonHostIdentifier identifier) throws DatabaseException, RecoveryException {
+        final @Nonnull IdentifierResolver identifierResolver = IdentifierResolver.configuration.get();
+        @Nullable Identity identity = identifierResolver.load(identifier);
+        if (identity == null) {
+            identity = identifierResolver.map(Category.SEMANTIC_TYPE, identifier);
+            mappings.incrementAndGet();
+            Log.verbose("Mapped the semantic type $.", identifier);
+        }
+        Check.that(identity instanceof SemanticType).orThrow("The mapped or loaded identity $ has to be a semantic type but was $.", identity.getAddress().getString(), identity.getClass().getSimpleName());
+        return (SemanticType) identity;
+    }
+    
+    /**
+     * Loads or maps the semantic type with the given identifier in the current transaction and registers it after the transaction has been committed.
+     */
+    @NonCommitting
+    @PureWithSideEffects
+    private static @Nonnull SemanticType resolveInCurrentTransaction(@Nonnull InternalNonHostIdentifier identifier) throws DatabaseException, RecoveryException {
+        load();
+        final @Nullable SemanticType loadedType = types.get(identifier);
+        if (loadedType != null) { return loadedType; }
+        final @Nonnull SemanticType type = resolve(identifier);
+        Database.instance.get().runAfterCommit(() -> types.putIfAbsent(identifier, type));
+        return type;
+    }
+    
+    /**
+     * Stores the executor that maps and persists new semantic types for all threads other than the main thread.
+     */
+    private static final @Nonnull ExecutorService executor = Executors.newSingleThreadExecutor(NamedThreadFactory.with("TypeRegistry"));
+    
+    /**
+     * Maps the semantic type with the given identifier in a separate transaction, which is committed before the type is registered.
+     */
+    @Committing
+    @PureWithSideEffects
+    private static @Nonnull SemanticType persist(@Nonnull InternalNonHostIdentifier identifier) throws DatabaseException, RecoveryException {
+        try {
+            load();
+            @Nullable SemanticType type = types.get(identifier);
+            if (type == null) {
+                type = resolve(identifier);
+                Database.commit();
+                types.put(identifier, type);
+            }
+            return type;
+        } catch (@Nonnull DatabaseException | RecoveryException | RuntimeException exception) {
+            Database.rollback();
+            throw exception;
+        }
+    }
+    
+    /**
+     * Returns the semantic type with the given identifier, which is mapped to a new key if it has not yet been persisted.
+     * <p>
+     * This method can be called on any thread. A new type is persisted exactly once and independently of the transaction of the caller,
+     * except on the main thread and if the dedicated thread does not respond within the {@link #TIMEOUT},
+     * in which cases the type is registered only after the current transaction has been committed successfully.
+     * 
+     * @throws UncheckedException instead of {@link DatabaseException} and {@link RecoveryException}.
+     */
+    @Pure
+    @NonCommitting
+    public static @Nonnull SemanticType map(@Nonnull InternalNonHostIdentifier identifier) {
+        final @Nullable SemanticType registeredType = types.get(identifier);
+        if (registeredType != null) { return registeredType; }
+        
+        try {
+            if (Threading.isMainThread()) {
+                return resolveInCurrentTransaction(identifier);
+            } else {
+                final @Nonnull Future<@Nonnull SemanticType> future = executor.submit(() -> persist(identifier));
+                try {
+                    return future.get(TIMEOUT.get(), TimeUnit.MILLISECONDS);
+                } catch (@Nonnull TimeoutException exception) {
+                    future.cancel(false);
+                    Log.warning("The semantic type $ is mapped in the current transaction because the type registry did not respond in time.", identifier);
+                    return resolveInCurrentTransaction(identifier);
+                } catch (@Nonnull ExecutionException exception) {
+                    final @Nonnull Throwable cause = exception.getCause();
+                    if (cause instanceof RuntimeException) { throw (RuntimeException) cause; }
+                    throw UncheckedExceptionBuilder.withCause(cause instanceof Exception ? (Exception) cause : exception).build();
+                } catch (@Nonnull InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    throw UncheckedExceptionBuilder.withCause(exception).build();
+                }
+            }
+        } catch (@Nonnull DatabaseException | RecoveryException exception) {
+            throw UncheckedExceptionBuilder.withCause(exception).build();
+        }
+    }
+    
+}
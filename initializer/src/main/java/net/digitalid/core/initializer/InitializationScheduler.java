@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.initializer;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.ownership.Capturable;
+import net.digitalid.utility.collections.list.FreezableArrayList;
+import net.digitalid.utility.collections.list.FreezableList;
+import net.digitalid.utility.collections.list.ReadOnlyList;
+import net.digitalid.utility.configuration.Configuration;
+import net.digitalid.utility.contracts.Require;
+import net.digitalid.utility.exceptions.UncheckedExceptionBuilder;
+import net.digitalid.utility.freezable.annotations.Frozen;
+import net.digitalid.utility.freezable.annotations.NonFrozen;
+import net.digitalid.utility.initialization.annotations.Initialize;
+import net.digitalid.utility.logging.Log;
+import net.digitalid.utility.threading.NamedThreadFactory;
+import net.digitalid.utility.threading.annotations.MainThread;
+import net.digitalid.utility.validation.annotations.elements.NonNullableElements;
+import net.digitalid.utility.validation.annotations.type.Utility;
+
+/**
+ * The initialization scheduler runs independent {@link InitializationTask initialization tasks} concurrently on a bounded pool while respecting their dependencies.
+ * Each task is logged with its duration, and the timings of all tasks are returned as a startup report.
+ * The methods with the {@link Initialize} annotation are still run by the utility library, which is why only the hosts are loaded with this scheduler.
+ */
+@Utility
+public abstract class InitializationScheduler {
+    
+    /* -------------------------------------------------- Configuration -------------------------------------------------- */
+    
+    /**
+     * Stores the number of threads on which the tasks that do not have to be run on the main thread are run.
+     */
+    public static final @Nonnull Configuration<Integer> THREADS = Configuration.with(Math.max(2, Runtime.getRuntime().availableProcessors()));
+    
+    /* -------------------------------------------------- Discovery -------------------------------------------------- */
+    
+    /**
+     * Returns the name of the given initializer method.
+     */
+    @Pure
+    public static @Nonnull String getName(@Nonnull Method method) {
+        return method.getDeclaringClass().getSimpleName() + "." + method.getName();
+    }
+    
+    /**
+     * Returns the static methods with the {@link Initialize} annotation in the given classes.
+     */
+    @Pure
+    public static @Capturable @Nonnull @NonFrozen FreezableList<@Nonnull Method> getInitializers(@Nonnull @NonNullableElements Class<?>... classes) {
+        final @Nonnull FreezableList<@Nonnull Method> initializers = FreezableArrayList.withNoElements();
+        for (final @Nonnull Class<?> type : classes) {
+            for (final @Nonnull Method method : type.getDeclaredMethods()) {
+                if (method.isAnnotationPresent(Initialize.class) && Modifier.isStatic(method.getModifiers())) { initializers.add(method); }
+            }
+        }
+        return initializers;
+    }
+    
+    /**
+     * Returns the tasks of the given initializer methods, which are derived from their {@link Initialize} annotations.
+     * A task depends on all the initializers whose target is among the dependencies of its annotation,
+     * and it is run on the main thread if its method is annotated with {@link MainThread}.
+     */
+    @Pure
+    public static @Capturable @Nonnull @NonFrozen FreezableList<@Nonnull InitializationTask> getTasks(@Nonnull ReadOnlyList<@Nonnull Method> initializers) {
+        final @Nonnull Map<@Nonnull Class<?>, @Nonnull List<@Nonnull String>> namesByTarget = new HashMap<>();
+        for (final @Nonnull Method initializer : initializers) {
+            namesByTarget.computeIfAbsent(initializer.getAnnotation(Initialize.class).target(), target -> new ArrayList<>()).add(getName(initializer));
+        }
+        
+        final @Nonnull FreezableList<@Nonnull InitializationTask> tasks = FreezableArrayList.withInitialCapacity(initializers.size());
+        for (final @Nonnull Method initializer : initializers) {
+            final @Nonnull FreezableList<@Nonnull String> dependencies = FreezableArrayList.withNoElements();
+            for (final @Nonnull Class<?> dependency : initializer.getAnnotation(Initialize.class).dependencies()) {
+                dependencies.addAll(namesByTarget.getOrDefault(dependency, Collections.emptyList()));
+            }
+            initializer.setAccessible(true);
+            tasks.add(InitializationTaskBuilder.withName(getName(initializer)).withDependencies(dependencies.freeze()).withAction(() -> invoke(initializer)).withMainThread(initializer.isAnnotationPresent(MainThread.class)).build());
+        }
+        return tasks;
+    }
+    
+    /**
+     * Invokes the given static method and rethrows the exception of the method itself.
+     */
+    @Impure
+    private static void invoke(@Nonnull Method method) throws Exception {
+        try {
+            method.invoke(null);
+        } catch (@Nonnull InvocationTargetException exception) {
+            final @Nullable Throwable cause = exception.getCause();
+            if (cause instanceof Exception) { throw (Exception) cause; }
+            if (cause instanceof Error) { throw (Error) cause; }
+            throw exception;
+        }
+    }
+    
+    /* -------------------------------------------------- Execution -------------------------------------------------- */
+    
+    /**
+     * Runs the given task and logs its duration.
+     */
+    @Impure
+    private static @Nonnull InitializationTiming execute(@Nonnull InitializationTask task, long origin) throws Exception {
+        final long start = System.nanoTime();
+        task.getAction().execute();
+        final long duration = System.nanoTime() - start;
+        Log.information("Ran the initialization task $ in $ ms.", task.getName(), duration / 1_000_000);
+        return InitializationTimingBuilder.withName(task.getName()).withThread(Thread.currentThread().getName()).withStart(start - origin).withDuration(duration).build();
+    }
+    
+    /**
+     * Releases the given task, whose dependencies are all finished, and returns whether it was submitted to the pool.
+     */
+    @Impure
+    private static boolean release(@Nonnull InitializationTask task, @Nonnull Deque<@Nonnull InitializationTask> mainThreadTasks, @Nonnull CompletionService<@Nonnull InitializationTiming> completionService, long origin) {
+        if (task.isMainThread()) {
+            mainThreadTasks.addLast(task);
+            return false;
+        } else {
+            completionService.submit(() -> execute(task, origin));
+            return true;
+        }
+    }
+    
+    /**
+     * Runs the given tasks and returns their timings in the order in which they finished.
+     * The tasks that do not have to be run on the main thread are run on a pool of {@link #THREADS} threads as soon as their dependencies are finished.
+     * 
+     * @require the names of the tasks are unique and their dependencies refer to the given tasks without cycles.
+     */
+    @Impure
+    @MainThread
+    public static @Nonnull @Frozen ReadOnlyList<@Nonnull InitializationTiming> run(@Nonnull ReadOnlyList<@Nonnull InitializationTask> tasks) {
+        final @Nonnull Map<@Nonnull String, @Nonnull InitializationTask> tasksByName = new LinkedHashMap<>();
+        for (final @Nonnull InitializationTask task : tasks) {
+            Require.that(tasksByName.put(task.getName(), task) == null).orThrow("The task $ may be scheduled only once.", task.getName());
+        }
+        
+        final @Nonnull Map<@Nonnull String, @Nonnull Integer> remainingDependencies = new HashMap<>();
+        final @Nonnull Map<@Nonnull String, @Nonnull List<@Nonnull String>> dependents = new HashMap<>();
+        for (final @Nonnull InitializationTask task : tasks) {
+            for (final @Nonnull String dependency : task.getDependencies()) {
+                Require.that(tasksByName.containsKey(dependency)).orThrow("The dependency $ of the task $ has to be scheduled as well.", dependency, task.getName());
+                dependents.computeIfAbsent(dependency, name -> new ArrayList<>()).add(task.getName());
+            }
+            remainingDependencies.put(task.getName(), task.getDependencies().size());
+        }
+        
+        final @Nonnull ExecutorService executor = Executors.newFixedThreadPool(THREADS.get(), NamedThreadFactory.with("Initializer"));
+        final @Nonnull CompletionService<@Nonnull InitializationTiming> completionService = new ExecutorCompletionService<>(executor);
+        final @Nonnull Deque<@Nonnull InitializationTask> mainThreadTasks = new ArrayDeque<>();
+        final @Nonnull FreezableList<@Nonnull InitializationTiming> timings = FreezableArrayList.withInitialCapacity(tasks.size());
+        final long origin = System.nanoTime();
+        int running = 0;
+        try {
+            for (final @Nonnull InitializationTask task : tasks) {
+                if (task.getDependencies().isEmpty() && release(task, mainThreadTasks, completionService, origin)) { running += 1; }
+            }
+            while (timings.size() < tasks.size()) {
+                final @Nullable InitializationTask mainThreadTask = mainThreadTasks.pollFirst();
+                final @Nonnull InitializationTiming timing;
+                if (mainThreadTask != null) {
+                    timing = execute(mainThreadTask, origin);
+                } else {
+                    Require.that(running > 0).orThrow("The tasks $ may not have cyclic dependencies.", remainingDependencies.keySet());
+                    timing = completionService.take().get();
+                    running -= 1;
+                }
+                timings.add(timing);
+                remainingDependencies.remove(timing.getName());
+                for (final @Nonnull String dependent : dependents.getOrDefault(timing.getName(), Collections.emptyList())) {
+                    if (remainingDependencies.merge(dependent, -1, Integer::sum) == 0 && release(tasksByName.get(dependent), mainThreadTasks, completionService, origin)) { running += 1; }
+                }
+            }
+        } catch (@Nonnull RuntimeException exception) {
+            throw exception;
+        } catch (@Nonnull ExecutionException exception) {
+            throw UncheckedExceptionBuilder.withCause(exception.getCause() instanceof Exception ? (Exception) exception.getCause() : exception).build();
+        } catch (@Nonnull InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw UncheckedExceptionBuilder.withCause(exception).build();
+        } catch (@Nonnull Exception exception) {
+            throw UncheckedExceptionBuilder.withCause(exception).build();
+        } finally {
+            executor.shutdownNow();
+        }
+        Log.information("Ran $ initialization tasks in $ ms.", tasks.size(), (System.nanoTime() - origin) / 1_000_000);
+        return timings.freeze();
+    }
+    
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.initializer;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.collections.list.ReadOnlyList;
+import net.digitalid.utility.freezable.annotations.Frozen;
+import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
+import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.rootclass.RootClass;
+import net.digitalid.utility.validation.annotations.generation.Default;
+import net.digitalid.utility.validation.annotations.type.Functional;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+/**
+ * An initialization task is run by the {@link InitializationScheduler initialization scheduler} after all the tasks it depends on.
+ */
+@Immutable
+@GenerateBuilder
+@GenerateSubclass
+public abstract class InitializationTask extends RootClass {
+    
+    /* -------------------------------------------------- Action -------------------------------------------------- */
+    
+    /**
+     * An action performs the initialization of a task.
+     */
+    @Functional
+    public static interface Action {
+        
+        /**
+         * Performs the initialization.
+         */
+        @Impure
+        public void execute() throws Exception;
+        
+    }
+    
+    /* -------------------------------------------------- Fields -------------------------------------------------- */
+    
+    /**
+     * Returns the name of this task, which has to be unique among the scheduled tasks.
+     */
+    @Pure
+    public abstract @Nonnull String getName();
+    
+    /**
+     * Returns the names of the tasks that have to be finished before this task is started.
+     */
+    @Pure
+    public abstract @Nonnull @Frozen ReadOnlyList<@Nonnull String> getDependencies();
+    
+    /**
+     * Returns the action that performs the initialization of this task.
+     */
+    @Pure
+    public abstract @Nonnull Action getAction();
+    
+    /**
+     * Returns whether this task has to be run on the thread that started the scheduler.
+     */
+    @Pure
+    @Default("false")
+    public abstract boolean isMainThread();
+    
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.initializer;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
+import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.rootclass.RootClass;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+/**
+ * An initialization timing reports when and on which thread an {@link InitializationTask initialization task} was run.
+ */
+@Immutable
+@GenerateBuilder
+@GenerateSubclass
+public abstract class InitializationTiming extends RootClass {
+    
+    /**
+     * Returns the name of the task.
+     */
+    @Pure
+    public abstract @Nonnull String getName();
+    
+    /**
+     * Returns the name of the thread on which the task was run.
+     */
+    @Pure
+    public abstract @Nonnull String getThread();
+    
+    /**
+     * Returns the number of nanoseconds between the start of the scheduler and the start of the task.
+     */
+    @Pure
+    public abstract @NonNegative long getStart();
+    
+    /**
+     * Returns the number of nanoseconds that the task took.
+     */
+    @Pure
+    public abstract @NonNegative long getDuration();
+    
+}
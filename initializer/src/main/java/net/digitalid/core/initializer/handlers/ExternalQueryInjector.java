@@ -22,8 +22,6 @@ import net.digitalid.utility.annotations.method.Pure;
 import net.digitalid.utility.annotations.method.PureWithSideEffects;
 import net.digitalid.utility.collections.list.FreezableArrayList;
 import net.digitalid.utility.collections.list.FreezableList;
-import net.digitalid.utility.concurrency.map.ConcurrentHashMapBuilder;
-import net.digitalid.utility.concurrency.map.ConcurrentMap;
 import net.digitalid.utility.exceptions.ExternalException;
 import net.digitalid.utility.initialization.annotations.Initialize;
 import net.digitalid.utility.time.Time;
@@ -31,9 +29,10 @@ import net.digitalid.utility.time.TimeBuilder;
 import net.digitalid.utility.validation.annotations.size.NonEmpty;
 
 import net.digitalid.core.attribute.Attribute;
+import net.digitalid.core.client.CredentialsIndex;
 import net.digitalid.core.client.role.Role;
 import net.digitalid.core.credential.ClientCredential;
-import net.digitalid.core.credential.utility.HashedOrSaltedAgentPermissions;
+import net.digitalid.core.entity.Entity;
 import net.digitalid.core.handler.method.query.ExternalQuery;
 import net.digitalid.core.identification.identity.SemanticType;
 import net.digitalid.core.permissions.ReadOnlyAgentPermissions;
@@ -46,27 +45,23 @@ import net.digitalid.core.typeset.authentications.FreezableAuthentications;
  */
 public class ExternalQueryInjector {
     
-    private static final @Nonnull ConcurrentMap<Role, ConcurrentMap<ReadOnlyAgentPermissions, ClientCredential>> identityBasedCredentials = ConcurrentHashMapBuilder.build();
-    
     @Pure
     private static @Nonnull ClientCredential getAttributeBased(@Nonnull Role role, @Nonnull CertifiedAttributeValue certifiedAttributeValue, @Nonnull @NonEmpty ReadOnlyAgentPermissions permissions) {
         // TODO: implement attribute based client credential
         return null;
     }
     
+    /**
+     * Returns the certified value of the attribute with the given type of the given entity if it is valid at the given time.
+     */
     @Pure
-    private static @Nonnull ClientCredential getIdentityBased(@Nonnull Role role, @Nonnull @NonEmpty ReadOnlyAgentPermissions permissions) {
-        @Nullable ConcurrentMap<ReadOnlyAgentPermissions, ClientCredential> map = identityBasedCredentials.get(role);
-        if (map == null) map = identityBasedCredentials.putIfAbsentElseReturnPresent(role, ConcurrentHashMapBuilder.build());
-        @Nullable ClientCredential credential = map.get(permissions);
-        
-        if (credential == null || !credential.isActive()) {
-            final @Nonnull HashedOrSaltedAgentPermissions randomizedPermissions = HashedOrSaltedAgentPermissions.with(permissions, true);
-            // TODO: uncomment and fix
-//            final @Nonnull CredentialReply reply = new CredentialInternalQuery(role, randomizedPermissions).sendNotNull();
-//            credential = map.putIfAbsentElseReturnPresent(permissions, reply.getInternalCredential(randomizedPermissions, null, BigInteger.ZERO, role.getUnit().secret.get()));
+    private static @Nullable CertifiedAttributeValue getCertifiedValue(@Nonnull Entity entity, @Nonnull SemanticType type, @Nonnull Time time) throws ExternalException {
+        final @Nullable AttributeValue attributeValue = Attribute.of(entity, type).value().get();
+        if (attributeValue != null && attributeValue.isCertified()) {
+            final @Nonnull CertifiedAttributeValue certifiedAttributeValue = attributeValue.castTo(CertifiedAttributeValue.class);
+            if (certifiedAttributeValue.isValid(time)) { return certifiedAttributeValue; }
         }
-        return credential;
+        return null;
     }
     
     @Pure
@@ -75,16 +70,13 @@ public class ExternalQueryInjector {
         final @Nonnull Time time = TimeBuilder.build();
         final @Nonnull Role role = (Role) externalQuery.getEntity();
         if (externalQuery.getAuthentications().contains(FreezableAuthentications.IDENTITY_BASED_TYPE)) {
-            final @Nonnull ClientCredential credential = getIdentityBased(role, permissions);
+            final @Nonnull ClientCredential credential = CredentialsIndex.getIdentityBased(role, permissions);
             credentials = FreezableArrayList.withElement(credential);
         } else {
             credentials = FreezableArrayList.withInitialCapacity(externalQuery.getAuthentications().size());
             for (final @Nonnull SemanticType type : externalQuery.getAuthentications()) {
-                final @Nullable AttributeValue attributeValue = Attribute.of(externalQuery.getEntity(), type).value().get();
-                if (attributeValue != null && attributeValue.isCertified()) {
-                    final @Nonnull CertifiedAttributeValue certifiedAttributeValue = attributeValue.castTo(CertifiedAttributeValue.class);
-                    if (certifiedAttributeValue.isValid(time)) { credentials.add(getAttributeBased(role, certifiedAttributeValue, permissions)); }
-                }
+                final @Nullable CertifiedAttributeValue certifiedAttributeValue = getCertifiedValue(role, type, time);
+                if (certifiedAttributeValue != null) { credentials.add(getAttributeBased(role, certifiedAttributeValue, permissions)); }
             }
         }
         return credentials;
@@ -99,11 +91,8 @@ public class ExternalQueryInjector {
             // TODO: implement the method to get the verifiedAttributes
             for (final @Nonnull SemanticType type : externalQuery.getAuthentications()) {
                 if (!type.equals(FreezableAuthentications.IDENTITY_BASED_TYPE)) {
-                    final @Nullable AttributeValue attributeValue = Attribute.of(externalQuery.getEntity(), type).value().get();
-                    if (attributeValue != null && attributeValue.isCertified()) {
-                        final @Nonnull CertifiedAttributeValue certifiedAttributeValue = attributeValue.castTo(CertifiedAttributeValue.class);
-                        if (certifiedAttributeValue.isValid(time)) { certificates.add(certifiedAttributeValue); }
-                    }
+                    final @Nullable CertifiedAttributeValue certifiedAttributeValue = getCertifiedValue(externalQuery.getEntity(), type, time);
+                    if (certifiedAttributeValue != null) { certificates.add(certifiedAttributeValue); }
                 }
             }
             certificates.freeze();
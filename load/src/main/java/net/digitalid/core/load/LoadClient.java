@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.load;
+
+import java.util.concurrent.ExecutionException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.exceptions.ExternalException;
+import net.digitalid.utility.exceptions.UncheckedExceptionBuilder;
+import net.digitalid.utility.time.Time;
+import net.digitalid.utility.time.TimeBuilder;
+import net.digitalid.utility.tuples.Pair;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+import net.digitalid.database.annotations.transaction.Committing;
+import net.digitalid.database.interfaces.Database;
+
+import net.digitalid.core.account.OpenAccount;
+import net.digitalid.core.attribute.Attribute;
+import net.digitalid.core.cache.attributes.AttributesQueryBuilder;
+import net.digitalid.core.cache.attributes.AttributesReplyConverter;
+import net.digitalid.core.client.Client;
+import net.digitalid.core.client.role.NativeRole;
+import net.digitalid.core.entity.Entity;
+import net.digitalid.core.expression.PassiveExpressionBuilder;
+import net.digitalid.core.identification.identifier.HostIdentifier;
+import net.digitalid.core.identification.identifier.InternalNonHostIdentifier;
+import net.digitalid.core.identification.identity.Category;
+import net.digitalid.core.identification.identity.SemanticType;
+import net.digitalid.core.pack.Pack;
+import net.digitalid.core.pack.PackConverter;
+import net.digitalid.core.property.value.ValuePropertyInternalActionBuilder;
+import net.digitalid.core.property.value.WritableSynchronizedValueProperty;
+import net.digitalid.core.resolution.handlers.IdentityQueryBuilder;
+import net.digitalid.core.resolution.handlers.IdentityReplyConverter;
+import net.digitalid.core.signature.Signature;
+import net.digitalid.core.signature.SignatureBuilder;
+import net.digitalid.core.signature.attribute.AttributeValue;
+import net.digitalid.core.signature.attribute.UncertifiedAttributeValue;
+import net.digitalid.core.synchronizer.Synchronizer;
+import net.digitalid.core.typeset.FreezableAttributeTypeSet;
+
+/**
+ * A load client simulates a client with its own account on the host under load.
+ * Each load client is used by a single thread of the {@link LoadGenerator} and sends one request after the other.
+ */
+@Mutable
+public class LoadClient {
+    
+    /* -------------------------------------------------- Fields -------------------------------------------------- */
+    
+    private final @Nonnull InternalNonHostIdentifier identifier;
+    
+    /**
+     * Returns the identifier of the account of this client.
+     */
+    @Pure
+    public @Nonnull InternalNonHostIdentifier getIdentifier() {
+        return identifier;
+    }
+    
+    private final @Nonnull NativeRole role;
+    
+    private final @Nonnull WritableSynchronizedValueProperty<Entity, SemanticType, Attribute, @Nullable AttributeValue> nickname;
+    
+    /**
+     * Stores the identifier of the account whose identity and attribute are queried by this client.
+     */
+    private @Nonnull InternalNonHostIdentifier peer;
+    
+    /**
+     * Sets the identifier of the account whose identity and attribute are queried by this client.
+     */
+    @Impure
+    public void setPeer(@Nonnull InternalNonHostIdentifier peer) {
+        this.peer = peer;
+    }
+    
+    /**
+     * Stores the number of actions that this client has sent in order to change its nickname with each action.
+     */
+    private long actions = 0;
+    
+    /* -------------------------------------------------- Constructor -------------------------------------------------- */
+    
+    @SuppressWarnings("unchecked")
+    private LoadClient(@Nonnull InternalNonHostIdentifier identifier, @Nonnull NativeRole role, @Nonnull Attribute attribute) {
+        this.identifier = identifier;
+        this.role = role;
+        this.nickname = (WritableSynchronizedValueProperty<Entity, SemanticType, Attribute, @Nullable AttributeValue>) attribute.value();
+        this.peer = identifier;
+    }
+    
+    /**
+     * Opens an account with the given name on the given host for the given client and publishes its nickname to everybody.
+     */
+    @Impure
+    @Committing
+    public static @Nonnull LoadClient open(@Nonnull Client client, @Nonnull HostIdentifier host, @Nonnull String name) throws ExternalException {
+        final @Nonnull InternalNonHostIdentifier identifier = InternalNonHostIdentifier.with(name + "@" + host.getString());
+        final @Nonnull NativeRole role = OpenAccount.of(Category.NATURAL_PERSON, identifier, client);
+        final @Nonnull Attribute attribute = Attribute.of(role, Nickname.TYPE);
+        Database.commit();
+        
+        final @Nonnull LoadClient loadClient = new LoadClient(identifier, role, attribute);
+        attribute.value().set(loadClient.getNextValue());
+        attribute.visibility().set(PassiveExpressionBuilder.withEntity(role).withString("everybody").build());
+        return loadClient;
+    }
+    
+    /* -------------------------------------------------- Requests -------------------------------------------------- */
+    
+    /**
+     * Returns the next nickname of this client as a signed attribute value.
+     */
+    @Impure
+    private @Nonnull UncertifiedAttributeValue getNextValue() throws ExternalException {
+        final @Nonnull Nickname value = NicknameBuilder.withValue("Load client " + actions++).build();
+        final @Nonnull Signature<Pack> signature = SignatureBuilder.withObjectConverter(PackConverter.INSTANCE).withObject(value.pack()).withSubject(identifier).build();
+        return UncertifiedAttributeValue.with(signature);
+    }
+    
+    /**
+     * Sends a request of the given kind to the host and waits for its response.
+     * The current transaction is committed after a successful request and rolled back after a failed request.
+     */
+    @Impure
+    @Committing
+    public void send(@Nonnull RequestKind kind) throws ExternalException {
+        try {
+            switch (kind) {
+                case IDENTITY:
+                    IdentityQueryBuilder.withProvidedSubject(peer).build().send(IdentityReplyConverter.INSTANCE);
+                    break;
+                case ATTRIBUTE:
+                    AttributesQueryBuilder.withAttributeTypes(FreezableAttributeTypeSet.withType(Nickname.TYPE)).withProvidedEntity(role).withProvidedSubject(peer).build().send(AttributesReplyConverter.INSTANCE);
+                    break;
+                case ACTION:
+                    // The action is built like in the setter of the property in order to wait for the response of the host.
+                    final @Nonnull Pair<@Nullable AttributeValue, @Nullable Time> current = nickname.getValueWithTimeOfLastModification();
+                    Synchronizer.execute(ValuePropertyInternalActionBuilder.withProperty(nickname).withOldValue(current.get0()).withNewValue(getNextValue()).withOldTime(current.get1()).withNewTime(TimeBuilder.build()).build()).get();
+                    break;
+            }
+            Database.commit();
+        } catch (@Nonnull ExternalException exception) {
+            Database.rollback();
+            throw exception;
+        } catch (@Nonnull ExecutionException exception) {
+            Database.rollback();
+            final @Nullable Throwable cause = exception.getCause();
+            if (cause instanceof ExternalException) { throw (ExternalException) cause; }
+            throw UncheckedExceptionBuilder.withCause(cause instanceof Exception ? (Exception) cause : exception).build();
+        } catch (@Nonnull InterruptedException exception) {
+            Database.rollback();
+            Thread.currentThread().interrupt();
+            throw UncheckedExceptionBuilder.withCause(exception).build();
+        }
+    }
+    
+}
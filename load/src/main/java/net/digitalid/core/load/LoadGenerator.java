@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.load;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.collections.list.ReadOnlyList;
+import net.digitalid.utility.configuration.Configuration;
+import net.digitalid.utility.exceptions.ExternalException;
+import net.digitalid.utility.exceptions.UncheckedExceptionBuilder;
+import net.digitalid.utility.logging.Log;
+import net.digitalid.utility.threading.NamedThreadFactory;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.size.NonEmpty;
+import net.digitalid.utility.validation.annotations.type.Utility;
+
+import net.digitalid.database.annotations.transaction.Committing;
+
+/**
+ * The load generator drives the given {@link LoadClient load clients} concurrently, each on its own thread,
+ * with a configurable mix of requests and reports the throughput, latency percentiles, failures and allocations.
+ * The clients send their next request as soon as they have received the response to their previous request,
+ * which means that the number of clients determines the number of concurrent requests on the host.
+ */
+@Utility
+public abstract class LoadGenerator {
+    
+    /* -------------------------------------------------- Configurations -------------------------------------------------- */
+    
+    /**
+     * Stores the number of milliseconds during which the requests are sent without being recorded in order to warm up the host.
+     */
+    public static final @Nonnull Configuration<Long> WARMUP = Configuration.with(10_000l);
+    
+    /**
+     * Stores the number of milliseconds during which the requests are sent and recorded.
+     */
+    public static final @Nonnull Configuration<Long> DURATION = Configuration.with(60_000l);
+    
+    /**
+     * Stores the relative frequency of {@link RequestKind#IDENTITY identity queries}.
+     */
+    public static final @Nonnull Configuration<Integer> IDENTITY_WEIGHT = Configuration.with(6);
+    
+    /**
+     * Stores the relative frequency of {@link RequestKind#ATTRIBUTE attribute queries}.
+     */
+    public static final @Nonnull Configuration<Integer> ATTRIBUTE_WEIGHT = Configuration.with(3);
+    
+    /**
+     * Stores the relative frequency of {@link RequestKind#ACTION internal actions}.
+     */
+    public static final @Nonnull Configuration<Integer> ACTION_WEIGHT = Configuration.with(1);
+    
+    /**
+     * Returns the configured relative frequency of the given kind.
+     */
+    @Pure
+    public static @NonNegative int getWeight(@Nonnull RequestKind kind) {
+        switch (kind) {
+            case IDENTITY: return IDENTITY_WEIGHT.get();
+            case ATTRIBUTE: return ATTRIBUTE_WEIGHT.get();
+            default: return ACTION_WEIGHT.get();
+        }
+    }
+    
+    /* -------------------------------------------------- Mix -------------------------------------------------- */
+    
+    /**
+     * Returns a kind of request that is chosen randomly according to the given cumulative weights.
+     */
+    @Impure
+    private static @Nonnull RequestKind choose(@Nonnull Random random, @Nonnull int[] cumulativeWeights) {
+        final int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int index = 0;
+        while (value >= cumulativeWeights[index]) { index++; }
+        return RequestKind.values()[index];
+    }
+    
+    /* -------------------------------------------------- Allocations -------------------------------------------------- */
+    
+    /**
+     * Returns the number of bytes that the current thread has allocated so far or -1 if this is not supported by the virtual machine.
+     */
+    @Pure
+    private static long getAllocatedBytesOfCurrentThread() {
+        final @Nonnull ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            final @Nonnull com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+            if (sunThreadMXBean.isThreadAllocatedMemoryEnabled()) { return sunThreadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId()); }
+        }
+        return -1;
+    }
+    
+    /**
+     * Returns the number of bytes that all live threads, including the threads of the host, have allocated so far or -1 if this is not supported.
+     * The bytes allocated by threads that terminate in between are not included, which is why this is only an approximation.
+     */
+    @Pure
+    private static long getAllocatedBytesOfAllThreads() {
+        final @Nonnull ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            final @Nonnull com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+            if (sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+                long result = 0;
+                for (long allocatedBytes : sunThreadMXBean.getThreadAllocatedBytes(threadMXBean.getAllThreadIds())) { result += Math.max(0, allocatedBytes); }
+                return result;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Returns the number of garbage collections and the accumulated collection time in milliseconds so far.
+     */
+    @Pure
+    private static @Nonnull long[] getGarbageCollections() {
+        final @Nonnull long[] result = new long[2];
+        for (@Nonnull GarbageCollectorMXBean garbageCollector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            result[0] += Math.max(0, garbageCollector.getCollectionCount());
+            result[1] += Math.max(0, garbageCollector.getCollectionTime());
+        }
+        return result;
+    }
+    
+    /* -------------------------------------------------- Driving -------------------------------------------------- */
+    
+    /**
+     * Drives the given client until the given end and records its requests after the given start into the returned statistics.
+     */
+    @Impure
+    @Committing
+    private static @Nonnull LoadStatistics drive(@Nonnull LoadClient client, @Nonnull int[] cumulativeWeights, long start, long end) {
+        final @Nonnull LoadStatistics statistics = new LoadStatistics();
+        final @Nonnull Random random = new Random();
+        long allocatedBytes = Long.MIN_VALUE;
+        long now;
+        while ((now = System.nanoTime()) < end && !Thread.currentThread().isInterrupted()) {
+            final boolean measuring = now >= start;
+            if (measuring && allocatedBytes == Long.MIN_VALUE) { allocatedBytes = getAllocatedBytesOfCurrentThread(); }
+            final @Nonnull RequestKind kind = choose(random, cumulativeWeights);
+            try {
+                client.send(kind);
+                if (measuring) { statistics.record(kind, System.nanoTime() - now); }
+            } catch (@Nonnull ExternalException | RuntimeException exception) {
+                Log.verbose("A request of the kind $ from $ failed.", exception, kind, client.getIdentifier());
+                if (measuring) { statistics.fail(kind, exception); }
+            }
+        }
+        if (allocatedBytes != Long.MIN_VALUE) { statistics.allocate(allocatedBytes < 0 ? -1 : getAllocatedBytesOfCurrentThread() - allocatedBytes); }
+        return statistics;
+    }
+    
+    /**
+     * Drives the given clients concurrently for the configured warmup and duration and returns the report of the recorded requests.
+     * Each client queries the account of the following client so that the queries target the accounts of other clients.
+     */
+    @Impure
+    @Committing
+    public static @Nonnull LoadReport run(@Nonnull @NonEmpty ReadOnlyList<@Nonnull LoadClient> clients) throws InterruptedException {
+        final @Nonnull RequestKind[] kinds = RequestKind.values();
+        final @Nonnull int[] cumulativeWeights = new int[kinds.length];
+        for (int i = 0; i < kinds.length; i++) { cumulativeWeights[i] = (i == 0 ? 0 : cumulativeWeights[i - 1]) + getWeight(kinds[i]); }
+        if (cumulativeWeights[kinds.length - 1] <= 0) { throw new IllegalArgumentException("At least one kind of request has to have a positive weight."); }
+        
+        for (int i = 0; i < clients.size(); i++) { clients.get(i).setPeer(clients.get((i + 1) % clients.size()).getIdentifier()); }
+        
+        final @Nonnull ExecutorService executor = Executors.newFixedThreadPool(clients.size(), NamedThreadFactory.with("LoadClient"));
+        try {
+            final long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(WARMUP.get());
+            final long end = start + TimeUnit.MILLISECONDS.toNanos(DURATION.get());
+            Log.information("Driving $ load clients for $ ms after a warmup of $ ms.", clients.size(), DURATION.get(), WARMUP.get());
+            
+            final @Nonnull List<@Nonnull Future<LoadStatistics>> futures = new ArrayList<>(clients.size());
+            for (@Nonnull LoadClient client : clients) { futures.add(executor.submit(() -> drive(client, cumulativeWeights, start, end))); }
+            
+            Thread.sleep(Math.max(0, TimeUnit.NANOSECONDS.toMillis(start - System.nanoTime())));
+            final @Nonnull long[] collectionsAtStart = getGarbageCollections();
+            final long allocatedBytesAtStart = getAllocatedBytesOfAllThreads();
+            
+            final @Nonnull LoadStatistics statistics = new LoadStatistics();
+            for (@Nonnull Future<LoadStatistics> future : futures) {
+                try {
+                    statistics.add(future.get());
+                } catch (@Nonnull ExecutionException exception) {
+                    final @Nonnull Throwable cause = exception.getCause();
+                    throw UncheckedExceptionBuilder.withCause(cause instanceof Exception ? (Exception) cause : exception).build();
+                }
+            }
+            final @Nonnull long[] collectionsAtEnd = getGarbageCollections();
+            final long allocatedBytes = allocatedBytesAtStart < 0 ? -1 : Math.max(0, getAllocatedBytesOfAllThreads() - allocatedBytesAtStart);
+            return new LoadReport(clients.size(), System.nanoTime() - start, statistics, allocatedBytes, collectionsAtEnd[0] - collectionsAtStart[0], collectionsAtEnd[1] - collectionsAtStart[1]);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+}
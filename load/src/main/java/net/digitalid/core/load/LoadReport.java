@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.load;
+
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.math.Positive;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * The load report summarizes a run of the {@link LoadGenerator} with the {@link LoadStatistics statistics} of all its clients.
+ */
+@Mutable
+public class LoadReport {
+    
+    /* -------------------------------------------------- Fields -------------------------------------------------- */
+    
+    private final @Positive int clients;
+    
+    /**
+     * Returns the number of clients that sent requests concurrently.
+     */
+    @Pure
+    public @Positive int getClients() {
+        return clients;
+    }
+    
+    private final @Positive long duration;
+    
+    /**
+     * Returns the number of nanoseconds during which the requests were recorded.
+     */
+    @Pure
+    public @Positive long getDuration() {
+        return duration;
+    }
+    
+    private final @Nonnull LoadStatistics statistics;
+    
+    /**
+     * Returns the statistics of all clients together.
+     */
+    @Pure
+    public @Nonnull LoadStatistics getStatistics() {
+        return statistics;
+    }
+    
+    private final long allocatedBytes;
+    
+    /**
+     * Returns the approximate number of bytes that the process allocated during the recording or -1 if this is not supported.
+     */
+    @Pure
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+    
+    private final @NonNegative long collections;
+    
+    /**
+     * Returns the number of garbage collections during the recording.
+     */
+    @Pure
+    public @NonNegative long getCollections() {
+        return collections;
+    }
+    
+    private final @NonNegative long collectionTime;
+    
+    /**
+     * Returns the number of milliseconds spent in garbage collections during the recording.
+     */
+    @Pure
+    public @NonNegative long getCollectionTime() {
+        return collectionTime;
+    }
+    
+    /* -------------------------------------------------- Constructor -------------------------------------------------- */
+    
+    LoadReport(@Positive int clients, @Positive long duration, @Nonnull LoadStatistics statistics, long allocatedBytes, @NonNegative long collections, @NonNegative long collectionTime) {
+        this.clients = clients;
+        this.duration = duration;
+        this.statistics = statistics;
+        this.allocatedBytes = allocatedBytes;
+        this.collections = collections;
+        this.collectionTime = collectionTime;
+    }
+    
+    /* -------------------------------------------------- Totals -------------------------------------------------- */
+    
+    /**
+     * Returns the number of successful requests of all kinds.
+     */
+    @Pure
+    public @NonNegative int getRequests() {
+        int requests = 0;
+        for (@Nonnull RequestKind kind : RequestKind.values()) { requests += statistics.getCount(kind); }
+        return requests;
+    }
+    
+    /**
+     * Returns the number of failed requests of all kinds.
+     */
+    @Pure
+    public @NonNegative int getFailures() {
+        int failures = 0;
+        for (@Nonnull RequestKind kind : RequestKind.values()) { failures += statistics.getFailures(kind); }
+        return failures;
+    }
+    
+    /**
+     * Returns the number of successful requests per second.
+     */
+    @Pure
+    public double getThroughput() {
+        return getRequests() / (duration / 1e9);
+    }
+    
+    /* -------------------------------------------------- Formatting -------------------------------------------------- */
+    
+    /**
+     * Returns a table with the throughput, latency percentiles in milliseconds and failures of each kind of request.
+     */
+    @Impure
+    public @Nonnull String format() {
+        final @Nonnull StringBuilder string = new StringBuilder();
+        string.append(String.format("%d clients during %.1f s: %.1f requests/s with %d failures.%n", clients, duration / 1e9, getThroughput(), getFailures()));
+        string.append(String.format("%-10s %10s %10s %8s %8s %8s %8s %8s %8s%n", "kind", "requests", "per second", "p50", "p90", "p99", "p99.9", "max", "failures"));
+        for (@Nonnull RequestKind kind : RequestKind.values()) {
+            final int count = statistics.getCount(kind);
+            string.append(String.format("%-10s %10d %10.1f %8.2f %8.2f %8.2f %8.2f %8.2f %8d%n", kind.getName(), count, count / (duration / 1e9), statistics.getPercentile(kind, 50) / 1e6, statistics.getPercentile(kind, 90) / 1e6, statistics.getPercentile(kind, 99) / 1e6, statistics.getPercentile(kind, 99.9) / 1e6, statistics.getPercentile(kind, 100) / 1e6, statistics.getFailures(kind)));
+            for (@Nonnull Map.Entry<@Nonnull String, @Nonnull Integer> entry : statistics.getFailureReasons(kind).entrySet()) {
+                string.append(String.format("%-10s %s: %d%n", "", entry.getKey(), entry.getValue()));
+            }
+        }
+        final int requests = Math.max(1, getRequests());
+        if (statistics.getAllocatedBytes() >= 0) { string.append(String.format("The clients allocated %.1f MiB, which are %.1f KiB per request.%n", statistics.getAllocatedBytes() / 1048576.0, statistics.getAllocatedBytes() / 1024.0 / requests)); }
+        if (allocatedBytes >= 0) { string.append(String.format("The clients and the host allocated %.1f MiB, which are %.1f KiB per request.%n", allocatedBytes / 1048576.0, allocatedBytes / 1024.0 / requests)); }
+        string.append(String.format("The virtual machine collected garbage %d times in %d ms.", collections, collectionTime));
+        return string.toString();
+    }
+    
+}
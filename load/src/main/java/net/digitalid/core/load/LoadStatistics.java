@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.load;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+import net.digitalid.core.exceptions.request.RequestException;
+
+/**
+ * The load statistics record the latencies and failures of the requests of each {@link RequestKind kind}.
+ * The statistics are not thread-safe: Each thread of the {@link LoadGenerator} records into its own statistics,
+ * which are only {@link #add(LoadStatistics) added} together after the threads have been joined.
+ */
+@Mutable
+public class LoadStatistics {
+    
+    /* -------------------------------------------------- Latencies -------------------------------------------------- */
+    
+    /**
+     * Stores the latencies in nanoseconds of the successful requests of each kind in the first entries of the arrays.
+     */
+    private final @Nonnull Map<@Nonnull RequestKind, @Nonnull long[]> latencies = new EnumMap<>(RequestKind.class);
+    
+    /**
+     * Stores the number of successful requests of each kind.
+     */
+    private final @Nonnull Map<@Nonnull RequestKind, @Nonnull Integer> counts = new EnumMap<>(RequestKind.class);
+    
+    /**
+     * Stores whether the latencies of each kind are sorted.
+     */
+    private final @Nonnull Map<@Nonnull RequestKind, @Nonnull Boolean> sorted = new EnumMap<>(RequestKind.class);
+    
+    /**
+     * Records a successful request of the given kind with the given latency in nanoseconds.
+     */
+    @Impure
+    public void record(@Nonnull RequestKind kind, @NonNegative long latency) {
+        final int count = getCount(kind);
+        @Nullable long[] array = latencies.get(kind);
+        if (array == null) { array = new long[1_024]; }
+        else if (count == array.length) { array = Arrays.copyOf(array, 2 * count); }
+        array[count] = latency;
+        latencies.put(kind, array);
+        counts.put(kind, count + 1);
+        sorted.put(kind, false);
+    }
+    
+    /**
+     * Returns the number of successful requests of the given kind.
+     */
+    @Pure
+    public @NonNegative int getCount(@Nonnull RequestKind kind) {
+        return counts.getOrDefault(kind, 0);
+    }
+    
+    /**
+     * Returns the given percentile of the latencies of the successful requests of the given kind in nanoseconds or zero if there were no such requests.
+     */
+    @Impure
+    public @NonNegative long getPercentile(@Nonnull RequestKind kind, double percentile) {
+        final int count = getCount(kind);
+        if (count == 0) { return 0; }
+        final @Nonnull long[] array = latencies.get(kind);
+        if (!sorted.get(kind)) {
+            Arrays.sort(array, 0, count);
+            sorted.put(kind, true);
+        }
+        final int index = (int) Math.ceil(percentile / 100 * count) - 1;
+        return array[Math.max(0, Math.min(count - 1, index))];
+    }
+    
+    /* -------------------------------------------------- Failures -------------------------------------------------- */
+    
+    /**
+     * Stores the number of failed requests of each kind by the cause of their failure.
+     */
+    private final @Nonnull Map<@Nonnull RequestKind, @Nonnull Map<@Nonnull String, @Nonnull Integer>> failures = new EnumMap<>(RequestKind.class);
+    
+    /**
+     * Records a failed request of the given kind with the given cause.
+     * Request exceptions are distinguished by their error code so that rejections of a busy host can be told apart from other errors.
+     */
+    @Impure
+    public void fail(@Nonnull RequestKind kind, @Nonnull Throwable cause) {
+        final @Nonnull String reason = cause instanceof RequestException ? "RequestException(" + ((RequestException) cause).getCode() + ")" : cause.getClass().getSimpleName();
+        failures.computeIfAbsent(kind, key -> new TreeMap<>()).merge(reason, 1, Integer::sum);
+    }
+    
+    /**
+     * Returns the number of failed requests of the given kind.
+     */
+    @Pure
+    public @NonNegative int getFailures(@Nonnull RequestKind kind) {
+        final @Nullable Map<@Nonnull String, @Nonnull Integer> reasons = failures.get(kind);
+        return reasons == null ? 0 : reasons.values().stream().mapToInt(Integer::intValue).sum();
+    }
+    
+    /**
+     * Returns the number of failed requests of the given kind by the cause of their failure.
+     */
+    @Pure
+    public @Nonnull Map<@Nonnull String, @Nonnull Integer> getFailureReasons(@Nonnull RequestKind kind) {
+        return failures.getOrDefault(kind, new TreeMap<>());
+    }
+    
+    /* -------------------------------------------------- Allocations -------------------------------------------------- */
+    
+    private long allocatedBytes = 0;
+    
+    /**
+     * Returns the number of bytes that were allocated by the threads which recorded into these statistics or -1 if this is not supported.
+     */
+    @Pure
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+    
+    /**
+     * Adds the given number of bytes to the allocated bytes or marks them as not supported if the given number is negative.
+     */
+    @Impure
+    public void allocate(long bytes) {
+        this.allocatedBytes = bytes < 0 || allocatedBytes < 0 ? -1 : allocatedBytes + bytes;
+    }
+    
+    /* -------------------------------------------------- Merging -------------------------------------------------- */
+    
+    /**
+     * Adds the latencies, failures and allocations of the given statistics to these statistics.
+     */
+    @Impure
+    public void add(@Nonnull LoadStatistics statistics) {
+        for (@Nonnull RequestKind kind : RequestKind.values()) {
+            final int count = statistics.getCount(kind);
+            for (int i = 0; i < count; i++) { record(kind, statistics.latencies.get(kind)[i]); }
+            for (@Nonnull Map.Entry<@Nonnull String, @Nonnull Integer> entry : statistics.getFailureReasons(kind).entrySet()) {
+                failures.computeIfAbsent(kind, key -> new TreeMap<>()).merge(entry.getKey(), entry.getValue(), Integer::sum);
+            }
+        }
+        allocate(statistics.allocatedBytes);
+    }
+    
+}
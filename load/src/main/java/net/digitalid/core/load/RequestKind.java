@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.load;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+/**
+ * This class enumerates the kinds of requests which the simulated clients of the {@link LoadGenerator} send to the host.
+ */
+@Immutable
+public enum RequestKind {
+    
+    /**
+     * The kind of external queries which resolve the identity of another client.
+     */
+    IDENTITY,
+    
+    /**
+     * The kind of external queries which retrieve the published attribute of another client.
+     */
+    ATTRIBUTE,
+    
+    /**
+     * The kind of internal actions which change the published attribute of the client itself.
+     */
+    ACTION;
+    
+    /* -------------------------------------------------- Name -------------------------------------------------- */
+    
+    /**
+     * Returns the name of this kind in lower case.
+     */
+    @Pure
+    public @Nonnull String getName() {
+        return name().toLowerCase();
+    }
+    
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.load;
+
+import java.io.IOException;
+import java.net.InetAddress;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.collections.list.FreezableArrayList;
+import net.digitalid.utility.collections.list.FreezableList;
+import net.digitalid.utility.exceptions.ExternalException;
+import net.digitalid.utility.initialization.annotations.Initialize;
+
+import net.digitalid.core.asymmetrickey.KeyPair;
+import net.digitalid.core.asymmetrickey.PrivateKeyRetriever;
+import net.digitalid.core.asymmetrickey.PublicKeyRetriever;
+import net.digitalid.core.client.Client;
+import net.digitalid.core.client.ClientBuilder;
+import net.digitalid.core.host.HostBuilder;
+import net.digitalid.core.identification.identifier.HostIdentifier;
+import net.digitalid.core.packet.Request;
+import net.digitalid.core.permissions.ReadOnlyAgentPermissions;
+import net.digitalid.core.server.Server;
+import net.digitalid.core.synchronizer.AsynchronousSender;
+import net.digitalid.core.testing.CoreTest;
+import net.digitalid.core.testing.providers.TestPrivateKeyRetrieverBuilder;
+import net.digitalid.core.testing.providers.TestPublicKeyRetrieverBuilder;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Puts sustained concurrent load on an in-process host on the loopback interface and prints the {@link LoadReport report}.
+ * The load is configured with the system properties {@code load.clients}, {@code load.warmup}, {@code load.duration} and {@code load.mix}.
+ */
+@SuppressWarnings("UseOfSystemOutOrSystemErr")
+public class LoadGeneratorTest extends CoreTest {
+    
+    /* -------------------------------------------------- Initialization -------------------------------------------------- */
+    
+    /**
+     * Initializes the request parameters.
+     */
+    @PureWithSideEffects
+    @Initialize(target = Request.class)
+    public static void initializeRequest() {
+        Request.ADDRESS.set(identifier -> InetAddress.getLoopbackAddress());
+    }
+    
+    /**
+     * Configures the load generator with the system properties.
+     */
+    @PureWithSideEffects
+    private static void configureLoadGenerator() {
+        LoadGenerator.WARMUP.set(Long.getLong("load.warmup", 10_000l));
+        LoadGenerator.DURATION.set(Long.getLong("load.duration", 60_000l));
+        final @Nonnull String[] weights = System.getProperty("load.mix", "6,3,1").split(",");
+        LoadGenerator.IDENTITY_WEIGHT.set(Integer.parseInt(weights[0].trim()));
+        LoadGenerator.ATTRIBUTE_WEIGHT.set(Integer.parseInt(weights[1].trim()));
+        LoadGenerator.ACTION_WEIGHT.set(Integer.parseInt(weights[2].trim()));
+    }
+    
+    /* -------------------------------------------------- Setup -------------------------------------------------- */
+    
+    private static final @Nonnull HostIdentifier HOST = HostIdentifier.with("load.digitalid.net");
+    
+    @BeforeClass
+    public static void startServer() throws ExternalException, IOException {
+        configureLoadGenerator();
+        
+        final @Nonnull KeyPair keyPair = KeyPair.withRandomValues();
+        PublicKeyRetriever.configuration.set(TestPublicKeyRetrieverBuilder.withKeyPair(keyPair).build());
+        PrivateKeyRetriever.configuration.set(TestPrivateKeyRetrieverBuilder.withKeyPair(keyPair).build());
+        
+        Server.start();
+        HostBuilder.withIdentifier(HOST).build();
+    }
+    
+    @AfterClass
+    public static void stopServer() {
+        Server.stop();
+    }
+    
+    /* -------------------------------------------------- Load -------------------------------------------------- */
+    
+    @Test
+    public void generateLoad() throws ExternalException, InterruptedException {
+        final int number = Integer.getInteger("load.clients", 16);
+        final @Nonnull Client client = ClientBuilder.withIdentifier("load.client.digitalid.net").withDisplayName("Load Client").withPreferredPermissions(ReadOnlyAgentPermissions.GENERAL_WRITE).build();
+        final @Nonnull FreezableList<@Nonnull LoadClient> clients = FreezableArrayList.withInitialCapacity(number);
+        for (int i = 0; i < number; i++) { clients.add(LoadClient.open(client, HOST, "client" + i)); }
+        assertThat(AsynchronousSender.awaitCompletion(60_000)).isTrue();
+        
+        final @Nonnull LoadReport report = LoadGenerator.run(clients.freeze());
+        System.out.println(report.format());
+        assertThat(report.getRequests()).isPositive();
+    }
+    
+}
@@ -22,6 +22,7 @@ import net.digitalid.utility.annotations.method.Pure;
 import net.digitalid.utility.collaboration.annotations.TODO;
 import net.digitalid.utility.collaboration.enumerations.Author;
 import net.digitalid.utility.collections.set.FreezableLinkedHashSetBuilder;
+import net.digitalid.utility.collections.set.FreezableSet;
 import net.digitalid.utility.collections.set.ReadOnlySet;
 import net.digitalid.utility.conversion.exceptions.RecoveryException;
 import net.digitalid.utility.exceptions.UncheckedExceptionBuilder;
@@ -43,6 +44,7 @@ import net.digitalid.core.entity.NonHostEntity;
 import net.digitalid.core.identification.identity.Person;
 import net.digitalid.core.node.ExtendedNode;
 import net.digitalid.core.node.context.Context;
+import net.digitalid.core.node.context.ContextHierarchy;
 import net.digitalid.core.property.RequiredAuthorization;
 import net.digitalid.core.property.RequiredAuthorizationBuilder;
 import net.digitalid.core.restrictions.Node;
@@ -103,9 +105,10 @@ public abstract class Contact extends Node implements ExtendedNode {
     @Pure
     @Override
     @NonCommitting
-    @TODO(task = "Implement.", date = "2017-08-20", author = Author.KASPAR_ETTER)
     public @Nonnull @NonFrozen @NonNullableElements ReadOnlySet<Context> getSupercontexts() throws DatabaseException, RecoveryException {
-        return FreezableLinkedHashSetBuilder.build();
+        final @Nonnull FreezableSet<Context> supercontexts = FreezableLinkedHashSetBuilder.build();
+        for (final @Nonnull Long key : ContextHierarchy.getParents(this)) { supercontexts.add(Context.of(getEntity(), key)); }
+        return supercontexts;
     }
     
     /* -------------------------------------------------- Recovery -------------------------------------------------- */
@@ -17,6 +17,7 @@ package net.digitalid.core.node.context;
 
 import javax.annotation.Nonnull;
 
+import net.digitalid.utility.annotations.method.Impure;
 import net.digitalid.utility.annotations.method.Pure;
 import net.digitalid.utility.annotations.ownership.Capturable;
 import net.digitalid.utility.collaboration.annotations.TODO;
@@ -25,6 +26,7 @@ import net.digitalid.utility.collections.set.FreezableLinkedHashSetBuilder;
 import net.digitalid.utility.collections.set.FreezableSet;
 import net.digitalid.utility.collections.set.ReadOnlySet;
 import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.exceptions.UncheckedExceptionBuilder;
 import net.digitalid.utility.freezable.annotations.NonFrozen;
 import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
 import net.digitalid.utility.generator.annotations.generators.GenerateTableConverter;
@@ -118,17 +120,42 @@ public abstract class Context extends Node implements ExtendedNode {
      */
     @Pure
     @NonCommitting
-    @TODO(task = "Either retrieve all subcontexts by traversing the direct subcontexts or querying the database.", date = "2017-08-20", author = Author.KASPAR_ETTER)
-    public @Capturable @Nonnull @NonFrozen FreezableSet<Context> getAllSubcontexts() throws DatabaseException {
-        throw new UnsupportedOperationException();
+    public @Capturable @Nonnull @NonFrozen FreezableSet<Context> getAllSubcontexts() throws DatabaseException, RecoveryException {
+        final @Nonnull FreezableSet<Context> subcontexts = FreezableLinkedHashSetBuilder.build();
+        subcontexts.add(this);
+        for (final @Nonnull Long key : ContextHierarchy.getDescendants(this)) {
+            if (key % 2 == 0) { subcontexts.add(ContextSubclass.MODULE.getSubjectIndex().get(getEntity(), key)); }
+        }
+        return subcontexts;
+    }
+    
+    /**
+     * Adds the given context as a direct subcontext to this context.
+     */
+    @Impure
+    @NonCommitting
+    public void addSubcontext(@Nonnull Context subcontext) throws DatabaseException, RecoveryException {
+        ContextHierarchy.add(this, subcontext);
+    }
+    
+    /**
+     * Removes the given context as a direct subcontext from this context.
+     */
+    @Impure
+    @NonCommitting
+    public void removeSubcontext(@Nonnull Context subcontext) throws DatabaseException, RecoveryException {
+        ContextHierarchy.remove(this, subcontext);
     }
     
     @Pure
     @Override
     @NonCommitting
-    @TODO(task = "Probably replace with a simple database query.", date = "2017-08-20", author = Author.KASPAR_ETTER)
     public boolean isSupernodeOf(@Nonnull Node node) throws DatabaseException {
-        return getAllSubcontexts().contains(node);
+        try {
+            return ContextHierarchy.contains(this, node);
+        } catch (@Nonnull RecoveryException exception) {
+            throw UncheckedExceptionBuilder.withCause(exception).build();
+        }
     }
     
     /* -------------------------------------------------- Contacts -------------------------------------------------- */
@@ -152,10 +179,12 @@ public abstract class Context extends Node implements ExtendedNode {
      */
     @Pure
     @NonCommitting
-    @TODO(task = "Make a real aggregation.", date = "2017-08-20", author = Author.KASPAR_ETTER)
     public @Capturable @Nonnull @NonFrozen FreezableSet<Contact> getAllContacts() throws DatabaseException, RecoveryException {
-        return FreezableLinkedHashSetBuilder.build();
-//        return contacts().get().clone();
+        final @Nonnull FreezableSet<Contact> contacts = FreezableLinkedHashSetBuilder.build();
+        for (final @Nonnull Long key : ContextHierarchy.getDescendants(this)) {
+            if (key % 2 != 0) { contacts.add(Contact.of(getEntity(), key)); }
+        }
+        return contacts;
     }
     
     /**
@@ -164,7 +193,25 @@ public abstract class Context extends Node implements ExtendedNode {
     @Pure
     @NonCommitting
     public boolean contains(@Nonnull Contact contact) throws DatabaseException, RecoveryException {
-        return getAllContacts().contains(contact);
+        return ContextHierarchy.contains(this, contact);
+    }
+    
+    /**
+     * Adds the given contact as a direct contact to this context.
+     */
+    @Impure
+    @NonCommitting
+    public void addContact(@Nonnull Contact contact) throws DatabaseException, RecoveryException {
+        ContextHierarchy.add(this, contact);
+    }
+    
+    /**
+     * Removes the given contact as a direct contact from this context.
+     */
+    @Impure
+    @NonCommitting
+    public void removeContact(@Nonnull Contact contact) throws DatabaseException, RecoveryException {
+        ContextHierarchy.remove(this, contact);
     }
     
     /* -------------------------------------------------- Supercontexts -------------------------------------------------- */
@@ -172,9 +219,30 @@ public abstract class Context extends Node implements ExtendedNode {
     @Pure
     @Override
     @NonCommitting
-    @TODO(task = "Implement.", date = "2017-08-20", author = Author.KASPAR_ETTER)
     public @Nonnull @NonFrozen @NonNullableElements ReadOnlySet<Context> getSupercontexts() throws DatabaseException, RecoveryException {
-        return FreezableLinkedHashSetBuilder.build();
+        final @Nonnull FreezableSet<Context> supercontexts = FreezableLinkedHashSetBuilder.build();
+        for (final @Nonnull Long key : ContextHierarchy.getParents(this)) { supercontexts.add(ContextSubclass.MODULE.getSubjectIndex().get(getEntity(), key)); }
+        return supercontexts;
+    }
+    
+    /**
+     * Moves this context from its current supercontexts to the given supercontext.
+     */
+    @Impure
+    @NonCommitting
+    public void moveTo(@Nonnull Context supercontext) throws DatabaseException, RecoveryException {
+        ContextHierarchy.move(this, supercontext);
+    }
+    
+    /* -------------------------------------------------- Deletion -------------------------------------------------- */
+    
+    /**
+     * Deletes this context with all its subcontexts from the hierarchy.
+     */
+    @Impure
+    @NonCommitting
+    public void delete() throws DatabaseException, RecoveryException {
+        ContextHierarchy.delete(this);
     }
     
     /* -------------------------------------------------- Recovery -------------------------------------------------- */
@@ -0,0 +1,323 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.node.context;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.annotations.ownership.Capturable;
+import net.digitalid.utility.annotations.ownership.Captured;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Unmodified;
+import net.digitalid.utility.collections.set.FreezableLinkedHashSetBuilder;
+import net.digitalid.utility.collections.set.FreezableSet;
+import net.digitalid.utility.collections.set.ReadOnlySet;
+import net.digitalid.utility.configuration.Configuration;
+import net.digitalid.utility.contracts.Require;
+import net.digitalid.utility.conversion.converters.Integer64Converter;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.freezable.annotations.Frozen;
+import net.digitalid.utility.freezable.annotations.NonFrozen;
+import net.digitalid.utility.initialization.annotations.Initialize;
+import net.digitalid.utility.validation.annotations.type.Utility;
+
+import net.digitalid.database.annotations.transaction.NonCommitting;
+import net.digitalid.database.conversion.SQL;
+import net.digitalid.database.conversion.WhereCondition;
+import net.digitalid.database.conversion.WhereConditionBuilder;
+import net.digitalid.database.exceptions.DatabaseException;
+import net.digitalid.database.interfaces.Database;
+
+import net.digitalid.core.agent.AgentCoverage;
+import net.digitalid.core.entity.NonHostEntity;
+import net.digitalid.core.restrictions.Node;
+import net.digitalid.core.unit.CoreUnit;
+
+/**
+ * This class stores the hierarchy of the contexts of an entity together with its transitive closure in the {@link ContextLink link table}.
+ * The closure contains an entry for every context and every node that the context contains directly or indirectly,
+ * which allows to check whether a context is a supernode of a node and to enumerate all subcontexts and contacts of a context with a single query.
+ * The closure is updated whenever a node is added to or removed from a context, a context is moved or a context is deleted.
+ * As every node is implicitly contained in itself, creating a context does not require any update.
+ */
+@Utility
+public abstract class ContextHierarchy {
+    
+    /* -------------------------------------------------- Caching -------------------------------------------------- */
+    
+    /**
+     * Stores whether the descendants of contexts are cached in memory per entity.
+     * The cache of an entity is invalidated whenever its hierarchy is modified, but a rolled back modification is not undone in the cache,
+     * which is why caching should only be enabled if the hierarchy is modified in committing methods only.
+     */
+    public static final @Nonnull Configuration<Boolean> CACHING = Configuration.with(Boolean.FALSE);
+    
+    /**
+     * Caches the keys of the descendants of contexts by the key of the context per entity.
+     */
+    private static final @Nonnull Map<@Nonnull NonHostEntity, @Nonnull Map<@Nonnull Long, @Nonnull @Frozen ReadOnlySet<@Nonnull Long>>> cache = new ConcurrentHashMap<>();
+    
+    /**
+     * Invalidates the cached descendants of the given entity and the cached coverage of its agents, which depends on the hierarchy through their restrictions.
+     */
+    @Impure
+    public static void invalidate(@Nonnull NonHostEntity entity) {
+        cache.remove(entity);
+        AgentCoverage.invalidate(entity);
+    }
+    
+    /* -------------------------------------------------- Observers -------------------------------------------------- */
+    
+    /**
+     * Stores the observers that are notified about deleted contexts.
+     */
+    private static final @Nonnull List<@Nonnull ContextObserver> observers = new CopyOnWriteArrayList<>();
+    
+    /**
+     * Registers the given observer, which is notified about every deleted context after the deletion has been committed.
+     */
+    @Impure
+    public static void register(@Captured @Nonnull ContextObserver observer) {
+        observers.add(observer);
+    }
+    
+    /**
+     * Deregisters the given observer.
+     */
+    @Impure
+    public static void deregister(@NonCaptured @Unmodified @Nonnull ContextObserver observer) {
+        observers.remove(observer);
+    }
+    
+    /* -------------------------------------------------- Table -------------------------------------------------- */
+    
+    /**
+     * Stores a dummy configuration in order to have an initialization target.
+     */
+    public static final @Nonnull Configuration<Boolean> configuration = Configuration.with(Boolean.TRUE);
+    
+    /**
+     * Adds the link table to the tables which are created on each unit.
+     */
+    @PureWithSideEffects
+    @Initialize(target = ContextHierarchy.class)
+    public static void addTable() {
+        CoreUnit.addTable(ContextLinkConverter.INSTANCE);
+    }
+    
+    /**
+     * Returns a where condition for the given column with the given value.
+     */
+    @Pure
+    private static @Nonnull WhereCondition<Long> where(@Nonnull String column, long value) {
+        return WhereConditionBuilder.withConverter(Integer64Converter.INSTANCE).withObject(value).withPrefix(column).build();
+    }
+    
+    /* -------------------------------------------------- Queries -------------------------------------------------- */
+    
+    /**
+     * Returns the keys of the nodes that the context with the given key contains directly or indirectly (excluding the context itself).
+     */
+    @Pure
+    @NonCommitting
+    private static @Nonnull @Frozen ReadOnlySet<@Nonnull Long> getDescendants(@Nonnull NonHostEntity entity, long context) throws DatabaseException, RecoveryException {
+        if (CACHING.get()) {
+            final @Nullable ReadOnlySet<@Nonnull Long> descendants = cache.computeIfAbsent(entity, key -> new ConcurrentHashMap<>()).get(context);
+            if (descendants != null) { return descendants; }
+        }
+        final @Nonnull FreezableSet<@Nonnull Long> descendants = FreezableLinkedHashSetBuilder.build();
+        for (final @Nonnull ContextLink link : SQL.selectAll(ContextLinkConverter.INSTANCE, null, entity.getUnit(), where("entity", entity.getKey()), where("ancestor", context))) {
+            descendants.add(link.getDescendant());
+        }
+        descendants.freeze();
+        if (CACHING.get()) { cache.computeIfAbsent(entity, key -> new ConcurrentHashMap<>()).put(context, descendants); }
+        return descendants;
+    }
+    
+    /**
+     * Returns the keys of the nodes that the given context contains directly or indirectly (excluding the context itself).
+     */
+    @Pure
+    @NonCommitting
+    public static @Capturable @Nonnull @NonFrozen FreezableSet<@Nonnull Long> getDescendants(@Nonnull Context context) throws DatabaseException, RecoveryException {
+        return getDescendants(context.getEntity(), context.getKey()).clone();
+    }
+    
+    /**
+     * Returns whether the given context contains the given node directly or indirectly or is the given node.
+     */
+    @Pure
+    @NonCommitting
+    public static boolean contains(@Nonnull Context context, @Nonnull Node node) throws DatabaseException, RecoveryException {
+        if (!context.getEntity().equals(node.getEntity())) { return false; }
+        if (context.getKey().equals(node.getKey())) { return true; }
+        if (CACHING.get()) { return getDescendants(context.getEntity(), context.getKey()).contains(node.getKey()); }
+        return SQL.selectFirst(ContextLinkConverter.INSTANCE, null, context.getEntity().getUnit(), where("entity", context.getEntity().getKey()), where("ancestor", context.getKey()), where("descendant", node.getKey())) != null;
+    }
+    
+    /**
+     * Returns the keys of the contexts that contain the given node directly.
+     */
+    @Pure
+    @NonCommitting
+    public static @Capturable @Nonnull @NonFrozen FreezableSet<@Nonnull Long> getParents(@Nonnull Node node) throws DatabaseException, RecoveryException {
+        return getParents(node.getEntity(), node.getKey());
+    }
+    
+    /**
+     * Returns the keys of the contexts that contain the node with the given key directly.
+     */
+    @Pure
+    @NonCommitting
+    private static @Capturable @Nonnull @NonFrozen FreezableSet<@Nonnull Long> getParents(@Nonnull NonHostEntity entity, long node) throws DatabaseException, RecoveryException {
+        final @Nonnull FreezableSet<@Nonnull Long> parents = FreezableLinkedHashSetBuilder.build();
+        for (final @Nonnull ContextLink link : SQL.selectAll(ContextLinkConverter.INSTANCE, null, entity.getUnit(), where("entity", entity.getKey()), where("descendant", node))) {
+            if (link.isDirect()) { parents.add(link.getAncestor()); }
+        }
+        return parents;
+    }
+    
+    /**
+     * Returns the keys of the nodes that the context with the given key contains directly.
+     */
+    @Pure
+    @NonCommitting
+    private static @Capturable @Nonnull @NonFrozen FreezableSet<@Nonnull Long> getChildren(@Nonnull NonHostEntity entity, long context) throws DatabaseException, RecoveryException {
+        final @Nonnull FreezableSet<@Nonnull Long> children = FreezableLinkedHashSetBuilder.build();
+        for (final @Nonnull ContextLink link : SQL.selectAll(ContextLinkConverter.INSTANCE, null, entity.getUnit(), where("entity", entity.getKey()), where("ancestor", context))) {
+            if (link.isDirect()) { children.add(link.getDescendant()); }
+        }
+        return children;
+    }
+    
+    /* -------------------------------------------------- Updates -------------------------------------------------- */
+    
+    /**
+     * Adds or removes the paths through the direct link from the given parent to the given child to or from the closure.
+     * Every ancestor of the parent reaches every descendant of the child through as many additional paths as the product of the respective path counts.
+     */
+    @Impure
+    @NonCommitting
+    private static void update(@Nonnull NonHostEntity entity, long parent, long child, boolean adding) throws DatabaseException, RecoveryException {
+        final @Nonnull CoreUnit unit = entity.getUnit();
+        final @Nonnull WhereCondition<Long> entityWhereCondition = where("entity", entity.getKey());
+        
+        final @Nonnull Map<@Nonnull Long, @Nonnull Long> ancestors = new LinkedHashMap<>();
+        ancestors.put(parent, 1L);
+        for (final @Nonnull ContextLink link : SQL.selectAll(ContextLinkConverter.INSTANCE, null, unit, entityWhereCondition, where("descendant", parent))) { ancestors.put(link.getAncestor(), link.getPaths()); }
+        
+        final @Nonnull Map<@Nonnull Long, @Nonnull Long> descendants = new LinkedHashMap<>();
+        descendants.put(child, 1L);
+        for (final @Nonnull ContextLink link : SQL.selectAll(ContextLinkConverter.INSTANCE, null, unit, entityWhereCondition, where("ancestor", child))) { descendants.put(link.getDescendant(), link.getPaths()); }
+        
+        for (final @Nonnull Map.Entry<@Nonnull Long, @Nonnull Long> ancestor : ancestors.entrySet()) {
+            for (final @Nonnull Map.Entry<@Nonnull Long, @Nonnull Long> descendant : descendants.entrySet()) {
+                final @Nullable ContextLink link = SQL.selectFirst(ContextLinkConverter.INSTANCE, null, unit, entityWhereCondition, where("ancestor", ancestor.getKey()), where("descendant", descendant.getKey()));
+                final long delta = ancestor.getValue() * descendant.getValue();
+                final long paths = (link == null ? 0 : link.getPaths()) + (adding ? delta : -delta);
+                final boolean isDirectLink = ancestor.getKey() == parent && descendant.getKey() == child;
+                final boolean direct = isDirectLink ? adding : link != null && link.isDirect();
+                if (paths > 0) { SQL.insertOrReplace(ContextLinkConverter.INSTANCE, ContextLinkBuilder.withEntity(entity.getKey()).withAncestor(ancestor.getKey()).withDescendant(descendant.getKey()).withPaths(paths).withDirect(direct).build(), unit); }
+                else { SQL.delete(ContextLinkConverter.INSTANCE, unit, entityWhereCondition, where("ancestor", ancestor.getKey()), where("descendant", descendant.getKey())); }
+            }
+        }
+        invalidate(entity);
+    }
+    
+    /**
+     * Adds the given node as a direct child to the given context.
+     * 
+     * @require context.getEntity().equals(node.getEntity()) : "The context and the node belong to the same entity.";
+     * @require !getParents(node).contains(context.getKey()) : "The node is not yet a direct child of the context.";
+     * @require !(node instanceof Context) || !contains((Context) node, context) : "Adding the node does not introduce a cycle.";
+     */
+    @Impure
+    @NonCommitting
+    public static void add(@Nonnull Context context, @Nonnull Node node) throws DatabaseException, RecoveryException {
+        Require.that(context.getEntity().equals(node.getEntity())).orThrow("The context $ and the node $ have to belong to the same entity.", context, node);
+        Require.that(!getParents(node).contains(context.getKey())).orThrow("The node $ may not yet be a direct child of the context $.", node, context);
+        Require.that(!(node instanceof Context) || !contains((Context) node, context)).orThrow("Adding the context $ to the context $ would introduce a cycle.", node, context);
+        
+        update(context.getEntity(), context.getKey(), node.getKey(), true);
+    }
+    
+    /**
+     * Removes the given node as a direct child from the given context.
+     * 
+     * @require getParents(node).contains(context.getKey()) : "The node is a direct child of the context.";
+     */
+    @Impure
+    @NonCommitting
+    public static void remove(@Nonnull Context context, @Nonnull Node node) throws DatabaseException, RecoveryException {
+        Require.that(getParents(node).contains(context.getKey())).orThrow("The node $ has to be a direct child of the context $.", node, context);
+        
+        update(context.getEntity(), context.getKey(), node.getKey(), false);
+    }
+    
+    /**
+     * Moves the given context from its current supercontexts to the given supercontext.
+     * 
+     * @require context.getEntity().equals(supercontext.getEntity()) : "The contexts belong to the same entity.";
+     * @require !contains(context, supercontext) : "Moving the context does not introduce a cycle.";
+     */
+    @Impure
+    @NonCommitting
+    public static void move(@Nonnull Context context, @Nonnull Context supercontext) throws DatabaseException, RecoveryException {
+        Require.that(context.getEntity().equals(supercontext.getEntity())).orThrow("The context $ and the supercontext $ have to belong to the same entity.", context, supercontext);
+        Require.that(!contains(context, supercontext)).orThrow("Moving the context $ to the context $ would introduce a cycle.", context, supercontext);
+        
+        for (final @Nonnull Long parent : getParents(context)) { update(context.getEntity(), parent, context.getKey(), false); }
+        update(context.getEntity(), supercontext.getKey(), context.getKey(), true);
+    }
+    
+    /**
+     * Deletes the given context with all its subcontexts from the hierarchy.
+     * Subcontexts that are shared with other contexts are deleted as well and thus removed from these contexts,
+     * whereas the contacts of the deleted contexts remain in the other contexts that contain them.
+     * All direct links from and to the deleted contexts are removed one by one so that the path counts of all affected ancestors stay correct.
+     * The registered observers are notified about each deleted context once the transaction has been committed.
+     */
+    @Impure
+    @NonCommitting
+    public static void delete(@Nonnull Context context) throws DatabaseException, RecoveryException {
+        final @Nonnull NonHostEntity entity = context.getEntity();
+        final @Nonnull FreezableSet<@Nonnull Context> deleted = FreezableLinkedHashSetBuilder.build();
+        deleted.add(context);
+        for (final @Nonnull Long descendant : getDescendants(entity, context.getKey())) {
+            if (descendant % 2 == 0) { deleted.add(ContextSubclass.MODULE.getSubjectIndex().get(entity, descendant)); }
+        }
+        
+        for (final @Nonnull Context deletedContext : deleted) {
+            for (final @Nonnull Long parent : getParents(entity, deletedContext.getKey())) { update(entity, parent, deletedContext.getKey(), false); }
+            for (final @Nonnull Long child : getChildren(entity, deletedContext.getKey())) { update(entity, deletedContext.getKey(), child, false); }
+        }
+        Database.instance.get().runAfterCommit(() -> {
+            for (final @Nonnull Context deletedContext : deleted) {
+                for (final @Nonnull ContextObserver observer : observers) { observer.notify(deletedContext); }
+            }
+        });
+    }
+    
+}
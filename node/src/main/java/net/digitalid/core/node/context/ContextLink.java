@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.node.context;
+
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
+import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.generator.annotations.generators.GenerateTableConverter;
+import net.digitalid.utility.rootclass.RootClass;
+import net.digitalid.utility.validation.annotations.math.Positive;
+import net.digitalid.utility.validation.annotations.math.modulo.Even;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+import net.digitalid.database.annotations.constraints.PrimaryKey;
+
+/**
+ * This type models an entry in the transitive closure of the context hierarchy of an entity,
+ * which states that the ancestor context contains the descendant node directly or indirectly.
+ * The reflexive entries of the nodes themselves are not stored.
+ * 
+ * @see ContextHierarchy
+ */
+@Immutable
+@GenerateBuilder
+@GenerateSubclass
+@GenerateTableConverter
+public abstract class ContextLink extends RootClass {
+    
+    /* -------------------------------------------------- Fields -------------------------------------------------- */
+    
+    /**
+     * Returns the key of the entity to which the nodes belong.
+     */
+    @Pure
+    @PrimaryKey
+    public abstract long getEntity();
+    
+    /**
+     * Returns the key of the context that contains the descendant.
+     */
+    @Pure
+    @PrimaryKey
+    public abstract @Even long getAncestor();
+    
+    /**
+     * Returns the key of the context or contact that is contained in the ancestor.
+     */
+    @Pure
+    @PrimaryKey
+    public abstract long getDescendant();
+    
+    /**
+     * Returns the number of paths from the ancestor to the descendant, which allows removing a link without recomputing the closure.
+     */
+    @Pure
+    public abstract @Positive long getPaths();
+    
+    /**
+     * Returns whether the descendant is a direct child of the ancestor.
+     */
+    @Pure
+    public abstract boolean isDirect();
+    
+}
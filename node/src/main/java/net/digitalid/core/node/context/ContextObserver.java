@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.node.context;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.validation.annotations.type.Functional;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * Objects that implement this interface can be {@link ContextHierarchy#register(ContextObserver) registered} in order to be notified about deleted contexts.
+ */
+@Mutable
+@Functional
+public interface ContextObserver {
+    
+    /* -------------------------------------------------- Notification -------------------------------------------------- */
+    
+    /**
+     * This method is called on registered observers after the deletion of the given context has been committed.
+     */
+    @Impure
+    public void notify(@Nonnull Context context);
+    
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.node.context;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.exceptions.ExternalException;
+
+import net.digitalid.database.conversion.SQL;
+import net.digitalid.database.interfaces.Database;
+
+import net.digitalid.core.identification.identity.SemanticType;
+import net.digitalid.core.identification.identity.SemanticTypeAttributesBuilder;
+import net.digitalid.core.identification.identity.SyntacticType;
+import net.digitalid.core.node.contact.Contact;
+import net.digitalid.core.node.contact.ContactSubclass;
+import net.digitalid.core.testing.CoreTest;
+import net.digitalid.core.testing.fixtures.TestEntity;
+import net.digitalid.core.testing.fixtures.TestEntityBuilder;
+import net.digitalid.core.testing.fixtures.TestUnit;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ContextHierarchyTest extends CoreTest {
+    
+    /* -------------------------------------------------- Fixtures -------------------------------------------------- */
+    
+    private static final @Nonnull TestUnit UNIT = TestUnit.with("hierarchy", false);
+    
+    private static final @Nonnull SemanticType TYPE = SemanticType.map("hierarchy@core.digitalid.net").load(SemanticTypeAttributesBuilder.withSyntacticBase(SyntacticType.BOOLEAN).build());
+    
+    private static final @Nonnull TestEntity ENTITY = TestEntityBuilder.withUnit(UNIT).withKey(0).withIdentity(TYPE).build();
+    
+    @Impure
+    @BeforeClass
+    public static void createTables() throws ExternalException {
+        TestEntity.createTable(UNIT, ENTITY);
+        SQL.createTable(ContextSubclass.SUPER_MODULE.getSubjectTable(), UNIT);
+        SQL.createTable(ContextSubclass.MODULE.getSubjectTable(), UNIT);
+        SQL.createTable(ContactSubclass.MODULE.getSubjectTable(), UNIT);
+        ContextSubclass.MODULE.accept(table -> SQL.createTable(table, UNIT));
+        Database.commit();
+    }
+    
+    /**
+     * Returns the context with the given number of the test entity.
+     */
+    @Pure
+    private static @Nonnull Context context(int number) throws ExternalException {
+        return Context.of(ENTITY, 2L * number);
+    }
+    
+    /**
+     * Returns the contact with the given number of the test entity.
+     */
+    @Pure
+    private static @Nonnull Contact contact(int number) throws ExternalException {
+        return Contact.of(ENTITY, 2L * number + 1);
+    }
+    
+    /* -------------------------------------------------- Tests -------------------------------------------------- */
+    
+    @Test
+    public void shouldMaintainTheClosure() throws ExternalException {
+        final @Nonnull Context root = context(100);
+        final @Nonnull Context child = context(101);
+        final @Nonnull Context grandchild = context(102);
+        final @Nonnull Context sibling = context(103);
+        ContextHierarchy.add(root, child);
+        ContextHierarchy.add(child, grandchild);
+        ContextHierarchy.add(root, sibling);
+        
+        assertThat(root.isSupernodeOf(grandchild)).isTrue();
+        assertThat(grandchild.isSupernodeOf(grandchild)).isTrue();
+        assertThat(sibling.isSupernodeOf(grandchild)).isFalse();
+        assertThat(root.getAllSubcontexts()).containsExactlyInAnyOrder(root, child, grandchild, sibling);
+        assertThat(grandchild.getSupercontexts()).containsExactly(child);
+        
+        ContextHierarchy.move(child, sibling);
+        assertThat(sibling.isSupernodeOf(grandchild)).isTrue();
+        assertThat(root.isSupernodeOf(grandchild)).isTrue();
+        assertThat(child.getSupercontexts()).containsExactly(sibling);
+        
+        ContextHierarchy.delete(child);
+        assertThat(sibling.isSupernodeOf(grandchild)).isFalse();
+        assertThat(root.getAllSubcontexts()).containsExactlyInAnyOrder(root, sibling);
+        Database.commit();
+    }
+    
+    @Test
+    public void shouldAggregateContactsOverMultiplePaths() throws ExternalException {
+        final @Nonnull Context root = context(200);
+        final @Nonnull Context left = context(201);
+        final @Nonnull Context right = context(202);
+        final @Nonnull Contact contact = contact(200);
+        ContextHierarchy.add(root, left);
+        ContextHierarchy.add(root, right);
+        ContextHierarchy.add(left, contact);
+        ContextHierarchy.add(right, contact);
+        
+        assertThat(root.getAllContacts()).containsExactly(contact);
+        assertThat(contact.getSupercontexts()).containsExactlyInAnyOrder(left, right);
+        
+        ContextHierarchy.remove(left, contact);
+        assertThat(root.contains(contact)).isTrue();
+        assertThat(left.contains(contact)).isFalse();
+        
+        ContextHierarchy.delete(right);
+        assertThat(root.contains(contact)).isFalse();
+        Database.commit();
+    }
+    
+    @Test(expected = RuntimeException.class)
+    public void shouldRejectCycles() throws ExternalException {
+        final @Nonnull Context parent = context(300);
+        final @Nonnull Context child = context(301);
+        ContextHierarchy.add(parent, child);
+        ContextHierarchy.add(child, parent);
+    }
+    
+    @Test
+    public void shouldDeleteSharedSubcontextsFromAllAncestors() throws ExternalException {
+        final @Nonnull Context root = context(400);
+        final @Nonnull Context left = context(401);
+        final @Nonnull Context right = context(402);
+        final @Nonnull Context shared = context(403);
+        final @Nonnull Context leaf = context(404);
+        final @Nonnull Context outer = context(405);
+        final @Nonnull Contact contact = contact(400);
+        final @Nonnull Contact remaining = contact(401);
+        root.addSubcontext(left);
+        root.addSubcontext(right);
+        left.addSubcontext(shared);
+        right.addSubcontext(shared);
+        outer.addSubcontext(shared);
+        shared.addSubcontext(leaf);
+        leaf.addContact(contact);
+        leaf.addContact(remaining);
+        right.addContact(remaining);
+        
+        left.delete();
+        assertThat(root.getAllSubcontexts()).containsExactlyInAnyOrder(root, right);
+        assertThat(right.getAllSubcontexts()).containsExactly(right);
+        assertThat(outer.getAllSubcontexts()).containsExactly(outer);
+        assertThat(root.isSupernodeOf(leaf)).isFalse();
+        assertThat(outer.isSupernodeOf(leaf)).isFalse();
+        assertThat(root.contains(contact)).isFalse();
+        assertThat(root.contains(remaining)).isTrue();
+        assertThat(right.getAllContacts()).containsExactly(remaining);
+        assertThat(contact.getSupercontexts()).isEmpty();
+        assertThat(remaining.getSupercontexts()).containsExactly(right);
+        assertThat(ContextHierarchy.getDescendants(shared)).isEmpty();
+        assertThat(shared.getSupercontexts()).isEmpty();
+        Database.commit();
+    }
+    
+}
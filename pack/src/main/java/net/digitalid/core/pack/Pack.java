@@ -69,6 +69,14 @@ public abstract class Pack extends RootClass {
     @Pure
     protected abstract @Nonnull byte[] getBytes();
     
+    /**
+     * Returns the number of bytes of the serialized content.
+     */
+    @Pure
+    public int getSize() {
+        return getBytes().length;
+    }
+    
     /* -------------------------------------------------- Conversion -------------------------------------------------- */
     
     /**
@@ -92,7 +100,7 @@ public abstract class Pack extends RootClass {
      */
     @Pure
     public static <@Unspecifiable TYPE> @Nonnull Pack pack(@Nonnull Converter<TYPE, ?> converter, @Nonnull TYPE object) {
-        return pack(converter, object, SemanticType.mapWithoutPersistingResult(converter));
+        return pack(converter, object, SemanticType.map(converter));
     }
     
     /* -------------------------------------------------- Load -------------------------------------------------- */
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.packet;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.collaboration.annotations.TODO;
+import net.digitalid.utility.collaboration.enumerations.Author;
+import net.digitalid.utility.collections.list.FreezableList;
+import net.digitalid.utility.configuration.Configuration;
+import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
+import net.digitalid.utility.generator.annotations.generators.GenerateConverter;
+import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.initialization.annotations.Initialize;
+import net.digitalid.utility.rootclass.RootClass;
+import net.digitalid.utility.validation.annotations.elements.NonNullableElements;
+import net.digitalid.utility.validation.annotations.size.NonEmpty;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+import net.digitalid.core.identification.identity.IdentifierResolver;
+import net.digitalid.core.identification.identity.SemanticType;
+import net.digitalid.core.identification.identity.SemanticTypeAttributesBuilder;
+import net.digitalid.core.identification.identity.SyntacticType;
+import net.digitalid.core.identification.identity.TypeLoader;
+import net.digitalid.core.pack.Pack;
+import net.digitalid.core.pack.Packable;
+
+/**
+ * A batch combines the packs of several similar methods or of their replies so that they can be compressed, signed and encrypted together.
+ * The replies of a batch are in the same order as the methods.
+ * 
+ * @see Request
+ * @see Response
+ */
+@Immutable
+@GenerateBuilder
+@GenerateSubclass
+@GenerateConverter
+public abstract class Batch extends RootClass implements Packable {
+    
+    /* -------------------------------------------------- Type -------------------------------------------------- */
+    
+    /**
+     * Stores the semantic type of the {@link BatchConverter}.
+     */
+    @TODO(task = "Declare the type correctly.", date = "2017-08-30", author = Author.KASPAR_ETTER)
+    public static final @Nonnull SemanticType TYPE = SemanticType.map(BatchConverter.INSTANCE).load(SemanticTypeAttributesBuilder.withSyntacticBase(SyntacticType.BOOLEAN).build());
+    
+    /**
+     * Makes sure that this class is loaded in the main thread.
+     */
+    @PureWithSideEffects
+    @Initialize(target = Request.class, dependencies = {IdentifierResolver.class, TypeLoader.class})
+    public static void initializeType() {}
+    
+    /* -------------------------------------------------- Size -------------------------------------------------- */
+    
+    /**
+     * Stores the maximum number of methods in a batch, which the host enforces in order to bound the work of a single request.
+     */
+    public static final @Nonnull Configuration<Integer> MAXIMUM_SIZE = Configuration.with(100);
+    
+    /* -------------------------------------------------- Fields -------------------------------------------------- */
+    
+    /**
+     * Returns the packs of this batch.
+     */
+    @Pure
+    public abstract @Nonnull @NonNullableElements /* TODO: @Frozen */ @NonEmpty /* TODO: ReadOnly */ FreezableList<Pack> getPacks();
+    
+}
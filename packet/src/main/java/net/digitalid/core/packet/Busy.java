@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.packet;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.collaboration.annotations.TODO;
+import net.digitalid.utility.collaboration.enumerations.Author;
+import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
+import net.digitalid.utility.generator.annotations.generators.GenerateConverter;
+import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.initialization.annotations.Initialize;
+import net.digitalid.utility.rootclass.RootClass;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+import net.digitalid.core.exceptions.request.RequestErrorCode;
+import net.digitalid.core.exceptions.request.RequestException;
+import net.digitalid.core.identification.identity.IdentifierResolver;
+import net.digitalid.core.identification.identity.SemanticType;
+import net.digitalid.core.identification.identity.SemanticTypeAttributesBuilder;
+import net.digitalid.core.identification.identity.SyntacticType;
+import net.digitalid.core.identification.identity.TypeLoader;
+import net.digitalid.core.pack.Packable;
+
+/**
+ * A host replies with a busy notice instead of a {@link Response response} if it is overloaded and did not execute the request.
+ * The notice is neither signed nor encrypted so that rejecting a request costs the host as little as possible.
+ * 
+ * @see Request#send()
+ */
+@Immutable
+@GenerateBuilder
+@GenerateSubclass
+@GenerateConverter
+public abstract class Busy extends RootClass implements Packable {
+    
+    /* -------------------------------------------------- Type -------------------------------------------------- */
+    
+    /**
+     * Stores the semantic type of the {@link BusyConverter}.
+     */
+    @TODO(task = "Declare the type correctly.", date = "2017-08-30", author = Author.KASPAR_ETTER)
+    public static final @Nonnull SemanticType TYPE = SemanticType.map(BusyConverter.INSTANCE).load(SemanticTypeAttributesBuilder.withSyntacticBase(SyntacticType.BOOLEAN).build());
+    
+    /**
+     * Makes sure that this class is loaded in the main thread.
+     */
+    @PureWithSideEffects
+    @Initialize(target = Request.class, dependencies = {IdentifierResolver.class, TypeLoader.class})
+    public static void initializeType() {}
+    
+    /* -------------------------------------------------- Fields -------------------------------------------------- */
+    
+    /**
+     * Returns the request exception with the code {@link RequestErrorCode#BUSY} which describes why the request was rejected.
+     */
+    @Pure
+    public abstract @Nonnull RequestException getRequestException();
+    
+    /**
+     * Returns the number of milliseconds after which the host suggests to retry the request.
+     */
+    @Pure
+    public abstract @NonNegative long getRetryAfter();
+    
+}
@@ -20,6 +20,7 @@ import java.net.InetAddress;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
 import java.net.UnknownHostException;
+import java.util.concurrent.ThreadLocalRandom;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -34,6 +35,7 @@ import net.digitalid.utility.functional.failable.FailableUnaryFunction;
 import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
 import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
 import net.digitalid.utility.initialization.annotations.Initialize;
+import net.digitalid.utility.logging.Log;
 import net.digitalid.utility.validation.annotations.type.Immutable;
 
 import net.digitalid.database.annotations.transaction.NonCommitting;
@@ -43,6 +45,8 @@ import net.digitalid.core.conversion.exceptions.NetworkException;
 import net.digitalid.core.conversion.exceptions.NetworkExceptionBuilder;
 import net.digitalid.core.encryption.Encryption;
 import net.digitalid.core.encryption.RequestEncryption;
+import net.digitalid.core.exceptions.request.RequestErrorCode;
+import net.digitalid.core.exceptions.request.RequestException;
 import net.digitalid.core.identification.identifier.HostIdentifier;
 import net.digitalid.core.identification.identity.IdentifierResolver;
 import net.digitalid.core.identification.identity.SemanticType;
@@ -356,6 +360,16 @@ public abstract class Request extends Packet {
      */
     public static final @Nonnull Configuration<Integer> TIMEOUT = Configuration.with(10000);
     
+    /**
+     * Stores how many times a request is resent at most if the recipient replies that it is busy.
+     */
+    public static final @Nonnull Configuration<Integer> RETRIES = Configuration.with(3);
+    
+    /**
+     * Stores the delay in milliseconds before the first resending of a request to a busy recipient, which is doubled with each further attempt.
+     */
+    public static final @Nonnull Configuration<Integer> BACKOFF = Configuration.with(250);
+    
     /* -------------------------------------------------- Type Mappings -------------------------------------------------- */
     
     /**
@@ -381,16 +395,15 @@ public abstract class Request extends Packet {
     }
     
     /**
-     * Sends this request and returns the response.
+     * Sends this request once and returns the packed response or {@link Busy busy notice} of the recipient.
      */
     @NonCommitting
     @PureWithSideEffects
-    public @Nonnull Response send() throws NetworkException, RecoveryException {
+    private @Nonnull Pack transmit() throws NetworkException, RecoveryException {
         try (@Nonnull Socket socket = new Socket(ADDRESS.get().evaluate(getEncryption().getRecipient()), PORT.get())) {
             socket.setSoTimeout(TIMEOUT.get());
             pack().storeTo(socket);
-            final @Nonnull Pack pack = Pack.loadFrom(socket);
-            return pack.unpack(ResponseConverter.INSTANCE, getSymmetricKey());
+            return Pack.loadFrom(socket);
 //        } catch (@Nonnull RequestException exception) {
 //            if (exception.getCode() == RequestErrorCode.KEYROTATION && this instanceof ClientRequest) {
 //                return ((ClientRequest) this).recommit(methods, iteration, verified);
@@ -417,4 +430,32 @@ public abstract class Request extends Packet {
         }
     }
     
+    /**
+     * Sends this request and returns the response.
+     * If the recipient replies that it is busy, the request is resent up to {@link #RETRIES} times after an exponentially increasing delay with random jitter.
+     * 
+     * @throws RequestException with the code {@link RequestErrorCode#BUSY} if the recipient is still busy after the last retry.
+     */
+    @NonCommitting
+    @PureWithSideEffects
+    public @Nonnull Response send() throws NetworkException, RecoveryException, RequestException {
+        for (int attempt = 0; ; attempt++) {
+            final @Nonnull Pack pack = transmit();
+            if (!pack.getType().equals(Busy.TYPE)) { return pack.unpack(ResponseConverter.INSTANCE, getSymmetricKey()); }
+            
+            final @Nonnull Busy busy = pack.unpack(BusyConverter.INSTANCE, null);
+            if (attempt >= RETRIES.get()) { throw busy.getRequestException(); }
+            
+            final long backoff = Math.max(busy.getRetryAfter(), (long) BACKOFF.get() << Math.min(attempt, 16));
+            final long delay = backoff + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+            Log.information("The host $ is busy, resending the request in $ ms.", getEncryption().getRecipient(), delay);
+            try {
+                Thread.sleep(delay);
+            } catch (@Nonnull InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw busy.getRequestException();
+            }
+        }
+    }
+    
 }
@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.packet;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.conversion.converters.StringConverter;
+import net.digitalid.utility.exceptions.ExternalException;
+import net.digitalid.utility.initialization.annotations.Initialize;
+import net.digitalid.utility.logging.Log;
+
+import net.digitalid.core.compression.CompressionBuilder;
+import net.digitalid.core.compression.CompressionConverterBuilder;
+import net.digitalid.core.encryption.EncryptionBuilder;
+import net.digitalid.core.exceptions.request.RequestErrorCode;
+import net.digitalid.core.exceptions.request.RequestException;
+import net.digitalid.core.exceptions.request.RequestExceptionBuilder;
+import net.digitalid.core.identification.identifier.HostIdentifier;
+import net.digitalid.core.identification.identifier.InternalNonHostIdentifier;
+import net.digitalid.core.pack.Pack;
+import net.digitalid.core.pack.PackConverter;
+import net.digitalid.core.signature.SignatureBuilder;
+import net.digitalid.core.testing.CoreTest;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests the resending of a {@link Request request} against a stub listener that replies with a {@link Busy busy notice} a given number of times.
+ */
+public class RequestRetryTest extends CoreTest {
+    
+    /* -------------------------------------------------- Initialization -------------------------------------------------- */
+    
+    /**
+     * Initializes the request parameters.
+     */
+    @PureWithSideEffects
+    @Initialize(target = Request.class)
+    public static void initializeRequest() {
+        Request.ADDRESS.set(identifier -> InetAddress.getLoopbackAddress());
+    }
+    
+    /* -------------------------------------------------- Stub Listener -------------------------------------------------- */
+    
+    /**
+     * Stores the server socket of the stub listener.
+     */
+    private static @Nonnull ServerSocket serverSocket;
+    
+    /**
+     * Stores how many more requests the stub listener rejects with a busy notice.
+     */
+    private static final @Nonnull AtomicInteger busyReplies = new AtomicInteger();
+    
+    /**
+     * Stores the retry-after hint in milliseconds of the busy notices.
+     */
+    private static volatile long retryAfter;
+    
+    /**
+     * Stores the times in milliseconds at which the stub listener accepted a request.
+     */
+    private static final @Nonnull List<@Nonnull Long> arrivals = new CopyOnWriteArrayList<>();
+    
+    /**
+     * Replies to the requests with a busy notice as long as there are busy replies left and with the content of the request otherwise.
+     */
+    @PureWithSideEffects
+    private static void listen() {
+        while (!serverSocket.isClosed()) {
+            try (@Nonnull Socket socket = serverSocket.accept()) {
+                arrivals.add(System.nanoTime() / 1_000_000);
+                final @Nonnull Request request = Pack.loadFrom(socket).unpack(RequestConverter.INSTANCE, null);
+                if (busyReplies.getAndDecrement() > 0) {
+                    BusyBuilder.withRequestException(RequestExceptionBuilder.withCode(RequestErrorCode.BUSY).withMessage("The stub listener is busy.").build()).withRetryAfter(retryAfter).build().pack().storeTo(socket);
+                } else {
+                    ResponseBuilder.withEncryption(EncryptionBuilder.withObject(request.getEncryption().getObject()).build()).build().pack().storeTo(socket);
+                }
+            } catch (@Nonnull IOException | ExternalException exception) {
+                if (!serverSocket.isClosed()) { Log.warning("The stub listener could not reply to a request.", exception); }
+            }
+        }
+    }
+    
+    @BeforeClass
+    public static void startStubListener() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Request.PORT.set(serverSocket.getLocalPort());
+        final @Nonnull Thread thread = new Thread(RequestRetryTest::listen, "StubListener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    @AfterClass
+    public static void stopStubListener() throws IOException {
+        serverSocket.close();
+    }
+    
+    @Before
+    public void resetStubListener() {
+        arrivals.clear();
+        busyReplies.set(0);
+        retryAfter = 0;
+    }
+    
+    /* -------------------------------------------------- Fixtures -------------------------------------------------- */
+    
+    /**
+     * Stores the tolerance in milliseconds for the scheduling and the connection overhead between two attempts.
+     */
+    private static final long TOLERANCE = 150;
+    
+    /**
+     * Returns an unsigned and unencrypted request with the given string.
+     */
+    @Pure
+    private static @Nonnull Request request(@Nonnull String string) {
+        return RequestBuilder.withEncryption(EncryptionBuilder.withObject(SignatureBuilder.withObjectConverter(CompressionConverterBuilder.withObjectConverter(PackConverter.INSTANCE).build()).withObject(CompressionBuilder.withObject(Pack.pack(StringConverter.INSTANCE, string)).build()).withSubject(InternalNonHostIdentifier.with("subject@core.digitalid.net")).build()).withRecipient(HostIdentifier.DIGITALID).build()).build();
+    }
+    
+    /**
+     * Asserts that the delay before the attempt with the given index is at least the given backoff plus at most half of it as jitter.
+     */
+    @Pure
+    private static void assertDelay(int attempt, long backoff) {
+        final long delay = arrivals.get(attempt) - arrivals.get(attempt - 1);
+        assertThat(delay).isGreaterThanOrEqualTo(backoff).isLessThanOrEqualTo(backoff + backoff / 2 + TOLERANCE);
+    }
+    
+    /* -------------------------------------------------- Tests -------------------------------------------------- */
+    
+    @Test
+    public void shouldResendTheRequestWithExponentialBackoff() throws ExternalException {
+        Request.RETRIES.set(3);
+        Request.BACKOFF.set(200);
+        busyReplies.set(2);
+        
+        final @Nonnull Response response = request("Hello World!").send();
+        assertThat(response.getEncryption().getObject().getObject().getObject().unpack(StringConverter.INSTANCE, null)).isEqualTo("Hello World!");
+        assertThat(arrivals.size()).isEqualTo(3);
+        assertDelay(1, 200);
+        assertDelay(2, 400);
+    }
+    
+    @Test
+    public void shouldHonorTheRetryAfterHintOfTheRecipient() throws ExternalException {
+        Request.RETRIES.set(3);
+        Request.BACKOFF.set(50);
+        busyReplies.set(1);
+        retryAfter = 600;
+        
+        request("Hello World!").send();
+        assertThat(arrivals.size()).isEqualTo(2);
+        assertDelay(1, 600);
+    }
+    
+    @Test
+    public void shouldThrowTheBusyExceptionAfterTheLastRetry() throws ExternalException {
+        Request.RETRIES.set(2);
+        Request.BACKOFF.set(50);
+        busyReplies.set(Integer.MAX_VALUE);
+        
+        try {
+            request("Hello World!").send();
+            throw new AssertionError("The request should have been rejected as busy.");
+        } catch (@Nonnull RequestException exception) {
+            assertThat(exception.getCode()).isEqualTo(RequestErrorCode.BUSY);
+        }
+        assertThat(arrivals.size()).isEqualTo(3);
+        assertDelay(1, 50);
+        assertDelay(2, 100);
+    }
+    
+    @Test
+    public void shouldNotResendTheRequestWithoutRetries() throws ExternalException {
+        Request.RETRIES.set(0);
+        busyReplies.set(1);
+        
+        try {
+            request("Hello World!").send();
+            throw new AssertionError("The request should have been rejected as busy.");
+        } catch (@Nonnull RequestException exception) {
+            assertThat(exception.getCode()).isEqualTo(RequestErrorCode.BUSY);
+        }
+        assertThat(arrivals.size()).isEqualTo(1);
+    }
+    
+}
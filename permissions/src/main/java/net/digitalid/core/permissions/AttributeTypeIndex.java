@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.permissions;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.type.Utility;
+
+import net.digitalid.core.identification.annotations.AttributeType;
+import net.digitalid.core.identification.identity.SemanticType;
+
+/**
+ * This class interns the attribute types of {@link FreezableAgentPermissions agent permissions} to dense integer identifiers,
+ * which allows frozen agent permissions to store their types as bitsets.
+ * Identifiers are assigned on first use and never reused.
+ */
+@Utility
+abstract class AttributeTypeIndex {
+    
+    /**
+     * Maps the interned attribute types to their identifiers.
+     */
+    private static final @Nonnull Map<@Nonnull SemanticType, @Nonnull Integer> identifiers = new ConcurrentHashMap<>();
+    
+    /**
+     * Stores the identifier of the next attribute type to intern.
+     */
+    private static final @Nonnull AtomicInteger counter = new AtomicInteger();
+    
+    /**
+     * Returns the identifier of the given attribute type after having interned it if necessary.
+     */
+    @Impure
+    static @NonNegative int intern(@Nonnull @AttributeType SemanticType type) {
+        return identifiers.computeIfAbsent(type, key -> counter.getAndIncrement());
+    }
+    
+    /**
+     * Returns the identifier of the given attribute type or -1 if the type has not been interned yet.
+     */
+    @Pure
+    static int find(@Nonnull @AttributeType SemanticType type) {
+        final @Nullable Integer identifier = identifiers.get(type);
+        return identifier != null ? identifier : -1;
+    }
+    
+}
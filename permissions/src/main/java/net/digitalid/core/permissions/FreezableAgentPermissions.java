@@ -15,6 +15,12 @@
  */
 package net.digitalid.core.permissions;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
@@ -38,6 +44,8 @@ import net.digitalid.core.identification.identity.SemanticType;
 
 /**
  * This class models the permissions of agents as a mapping from attribute types to writings.
+ * Once frozen, the readable and writable types are additionally stored as bitsets of their {@link AttributeTypeIndex interned identifiers},
+ * so that the checks in the authorization of methods are answered with bit tests and word-wise operations instead of hash lookups.
  */
 @GenerateSubclass
 @Freezable(ReadOnlyAgentPermissions.class)
@@ -153,18 +161,97 @@ public abstract class FreezableAgentPermissions extends FreezableLinkedHashMap<@
         return result;
     }
     
+    /* -------------------------------------------------- Bitsets -------------------------------------------------- */
+    
+    /**
+     * Stores the words of the bitset with the identifiers of all types of these permissions or null if these permissions are not frozen.
+     */
+    private @Nullable long[] readableWords = null;
+    
+    /**
+     * Stores the words of the bitset with the identifiers of the writable types of these permissions or null if these permissions are not frozen.
+     */
+    private @Nullable long[] writableWords = null;
+    
+    /**
+     * Returns whether the bitset with the given words contains the given identifier.
+     */
+    @Pure
+    private static boolean contains(@Nonnull long[] words, int identifier) {
+        if (identifier < 0) { return false; }
+        final int index = identifier >>> 6;
+        return index < words.length && (words[index] & (1L << identifier)) != 0;
+    }
+    
+    /**
+     * Returns whether the bitset with the given subset words is a subset of the bitset with the given superset words.
+     */
+    @Pure
+    private static boolean isSubset(@Nonnull long[] subsetWords, @Nonnull long[] supersetWords) {
+        for (int i = 0; i < subsetWords.length; i++) {
+            final long supersetWord = i < supersetWords.length ? supersetWords[i] : 0L;
+            if ((subsetWords[i] & ~supersetWord) != 0) { return false; }
+        }
+        return true;
+    }
+    
+    /* -------------------------------------------------- Reading -------------------------------------------------- */
+    
+    @Pure
+    @Override
+    public boolean allowToRead(@Nonnull @AttributeType SemanticType type) {
+        final @Nullable long[] readableWords = this.readableWords;
+        if (readableWords != null) { return contains(readableWords, AttributeTypeIndex.find(type)) || contains(readableWords, AttributeTypeIndex.find(GENERAL)); }
+        return ReadOnlyAgentPermissions.super.allowToRead(type);
+    }
+    
+    /* -------------------------------------------------- Writing -------------------------------------------------- */
+    
+    @Pure
+    @Override
+    public boolean allowToWrite(@Nonnull @AttributeType SemanticType type) {
+        final @Nullable long[] writableWords = this.writableWords;
+        if (writableWords != null) { return contains(writableWords, AttributeTypeIndex.find(type)) || contains(writableWords, AttributeTypeIndex.find(GENERAL)); }
+        return ReadOnlyAgentPermissions.super.allowToWrite(type);
+    }
+    
+    /* -------------------------------------------------- Coverage -------------------------------------------------- */
+    
+    @Pure
+    @Override
+    public boolean cover(@Nonnull ReadOnlyAgentPermissions permissions) {
+        final @Nullable long[] readableWords = this.readableWords;
+        final @Nullable long[] writableWords = this.writableWords;
+        if (readableWords != null && writableWords != null && permissions instanceof FreezableAgentPermissions) {
+            final @Nullable long[] otherReadableWords = ((FreezableAgentPermissions) permissions).readableWords;
+            final @Nullable long[] otherWritableWords = ((FreezableAgentPermissions) permissions).writableWords;
+            if (otherReadableWords != null && otherWritableWords != null) {
+                final int general = AttributeTypeIndex.find(GENERAL);
+                if (contains(writableWords, general)) { return true; }
+                if (contains(readableWords, general)) { return isSubset(otherWritableWords, writableWords); }
+                return isSubset(otherReadableWords, readableWords) && isSubset(otherWritableWords, writableWords);
+            }
+        }
+        return ReadOnlyAgentPermissions.super.cover(permissions);
+    }
+    
     /* -------------------------------------------------- Restriction -------------------------------------------------- */
     
     /**
      * Restricts these agent permissions to the given agent permissions.
+     * If the given agent permissions are frozen, each type of these permissions is checked with a bit test.
      */
     @Impure
     @NonFrozenRecipient
     public void restrictTo(@Nonnull ReadOnlyAgentPermissions permissions) {
-        for (@Nonnull SemanticType type : keySet()) {
-            if (!permissions.allowToRead(type)) { remove(type); }
-            else if (get(type) && !permissions.allowToWrite(type)) { put(type, false); }
+        final @Nonnull List<@Nonnull SemanticType> removedTypes = new ArrayList<>();
+        final @Nonnull List<@Nonnull SemanticType> restrictedTypes = new ArrayList<>();
+        for (final @Nonnull Map.Entry<@Nonnull SemanticType, @Nonnull Boolean> entry : entrySet()) {
+            if (!permissions.allowToRead(entry.getKey())) { removedTypes.add(entry.getKey()); }
+            else if (entry.getValue() && !permissions.allowToWrite(entry.getKey())) { restrictedTypes.add(entry.getKey()); }
         }
+        for (final @Nonnull SemanticType type : removedTypes) { remove(type); }
+        for (final @Nonnull SemanticType type : restrictedTypes) { super.put(type, false); }
     }
     
     /* -------------------------------------------------- Validatable -------------------------------------------------- */
@@ -189,6 +276,17 @@ public abstract class FreezableAgentPermissions extends FreezableLinkedHashMap<@
     @Override
     @NonFrozenRecipient
     public @Chainable @Nonnull @Frozen ReadOnlyAgentPermissions freeze() {
+        if (readableWords == null) {
+            final @Nonnull BitSet readable = new BitSet();
+            final @Nonnull BitSet writable = new BitSet();
+            for (final @Nonnull Map.Entry<@Nonnull SemanticType, @Nonnull Boolean> entry : entrySet()) {
+                final int identifier = AttributeTypeIndex.intern(entry.getKey());
+                readable.set(identifier);
+                if (entry.getValue()) { writable.set(identifier); }
+            }
+            this.writableWords = writable.toLongArray();
+            this.readableWords = readable.toLongArray();
+        }
         super.freeze();
         return this;
     }
@@ -235,6 +333,23 @@ public abstract class FreezableAgentPermissions extends FreezableLinkedHashMap<@
     
     /* -------------------------------------------------- Object -------------------------------------------------- */
     
+    @Pure
+    @Override
+    public boolean equals(@Nullable Object object) {
+        if (object == this) { return true; }
+        if (readableWords != null && writableWords != null && object instanceof FreezableAgentPermissions) {
+            final @Nonnull FreezableAgentPermissions permissions = (FreezableAgentPermissions) object;
+            if (permissions.readableWords != null && permissions.writableWords != null) { return Arrays.equals(readableWords, permissions.readableWords) && Arrays.equals(writableWords, permissions.writableWords); }
+        }
+        return super.equals(object);
+    }
+    
+    @Pure
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+    
     @Pure
     @Override
     public @Nonnull String toString() {
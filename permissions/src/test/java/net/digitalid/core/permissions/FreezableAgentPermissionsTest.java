@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.permissions;
+
+import java.util.Random;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.collections.list.FreezableArrayList;
+import net.digitalid.utility.collections.list.FreezableList;
+import net.digitalid.utility.time.Time;
+
+import net.digitalid.core.identification.identity.Category;
+import net.digitalid.core.identification.identity.SemanticType;
+import net.digitalid.core.identification.identity.SemanticTypeAttributesBuilder;
+import net.digitalid.core.identification.identity.SyntacticType;
+import net.digitalid.core.testing.CoreTest;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class FreezableAgentPermissionsTest extends CoreTest {
+    
+    /* -------------------------------------------------- Fixtures -------------------------------------------------- */
+    
+    private static final int NUMBER_OF_TYPES = 100;
+    
+    private static final @Nonnull FreezableList<@Nonnull SemanticType> TYPES = FreezableArrayList.withInitialCapacity(NUMBER_OF_TYPES);
+    
+    @BeforeClass
+    public static void mapTypes() {
+        for (int i = 0; i < NUMBER_OF_TYPES; i++) {
+            TYPES.add(SemanticType.map("type" + i + ".permission.agent@core.digitalid.net").load(SemanticTypeAttributesBuilder.withSyntacticBase(SyntacticType.BOOLEAN).withCategories(Category.INTERNAL_IDENTITIES).withCachingPeriod(Time.TROPICAL_YEAR).build()));
+        }
+    }
+    
+    /**
+     * Returns random agent permissions with about the given number of types, which occasionally include the general permission.
+     */
+    @Pure
+    private static @Nonnull FreezableAgentPermissions getRandomPermissions(@Nonnull Random random, int numberOfTypes) {
+        final @Nonnull FreezableAgentPermissions permissions = FreezableAgentPermissions.withNoPermissions();
+        if (random.nextInt(8) == 0) { permissions.put(ReadOnlyAgentPermissions.GENERAL, random.nextInt(4) == 0); }
+        for (int i = 0; i < numberOfTypes; i++) { permissions.put(TYPES.get(random.nextInt(NUMBER_OF_TYPES)), random.nextBoolean()); }
+        return permissions;
+    }
+    
+    /* -------------------------------------------------- Tests -------------------------------------------------- */
+    
+    @Test
+    public void shouldBehaveLikeTheMapVersion() {
+        final @Nonnull Random random = new Random(0);
+        for (int round = 0; round < 1_000; round++) {
+            final @Nonnull FreezableAgentPermissions first = getRandomPermissions(random, random.nextInt(20));
+            final @Nonnull FreezableAgentPermissions second = getRandomPermissions(random, random.nextInt(20));
+            final @Nonnull ReadOnlyAgentPermissions frozenFirst = first.clone().freeze();
+            final @Nonnull ReadOnlyAgentPermissions frozenSecond = second.clone().freeze();
+            
+            for (final @Nonnull SemanticType type : TYPES) {
+                assertThat(frozenFirst.allowToRead(type)).isEqualTo(first.allowToRead(type));
+                assertThat(frozenFirst.allowToWrite(type)).isEqualTo(first.allowToWrite(type));
+            }
+            assertThat(frozenFirst.cover(frozenSecond)).isEqualTo(first.cover(second));
+            assertThat(frozenSecond.cover(frozenFirst)).isEqualTo(second.cover(first));
+            assertThat(frozenFirst.cover(frozenFirst)).isTrue();
+            assertThat(frozenFirst.equals(frozenSecond)).isEqualTo(first.equals(second));
+            assertThat(frozenFirst).isEqualTo(first.clone().freeze());
+            assertThat(frozenFirst.hashCode()).isEqualTo(first.hashCode());
+            
+            final @Nonnull FreezableAgentPermissions restrictedWithMap = first.clone();
+            restrictedWithMap.restrictTo(second);
+            final @Nonnull FreezableAgentPermissions restrictedWithBitsets = first.clone();
+            restrictedWithBitsets.restrictTo(frozenSecond);
+            assertThat(restrictedWithBitsets).isEqualTo(restrictedWithMap);
+            assertThat(frozenSecond.cover(restrictedWithBitsets.freeze())).isTrue();
+        }
+    }
+    
+    @Test
+    public void shouldRestrictWritingToReading() {
+        final @Nonnull FreezableAgentPermissions permissions = FreezableAgentPermissions.withPermission(TYPES.get(0), true);
+        permissions.restrictTo(FreezableAgentPermissions.withPermission(TYPES.get(0), false).freeze());
+        assertThat(permissions.allowToRead(TYPES.get(0))).isTrue();
+        assertThat(permissions.allowToWrite(TYPES.get(0))).isFalse();
+    }
+    
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.property;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.configuration.Configuration;
+import net.digitalid.utility.logging.Log;
+import net.digitalid.utility.threading.NamedThreadFactory;
+import net.digitalid.utility.validation.annotations.lock.LockNotHeldByCurrentThread;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.type.Utility;
+
+import net.digitalid.database.interfaces.Database;
+
+/**
+ * The observer dispatcher delivers the notifications of {@link SynchronizedProperty synchronized properties} to their observers.
+ * By default, the observers are notified immediately on the thread that modifies the property while its lock is held, which means
+ * that they learn about a modification within the same transaction (and are not notified again if the transaction is rolled back).
+ * If the dispatching is {@link #ASYNCHRONOUS asynchronous}, the notifications are only delivered after the current transaction has been
+ * committed, queued per property and in their order on a dedicated executor. This ensures that slow observers do not extend the critical
+ * section of the property and that no notifications of rolled back changes are delivered, but observers that invalidate cached state
+ * learn about a modification only after the commit, so such caches must tolerate to be stale until then.
+ */
+@Utility
+public abstract class ObserverDispatcher {
+    
+    /* -------------------------------------------------- Configurations -------------------------------------------------- */
+    
+    /**
+     * Stores whether the observers are notified on a dedicated executor after the commit instead of immediately on the thread that modified the property.
+     */
+    public static final @Nonnull Configuration<Boolean> ASYNCHRONOUS = Configuration.with(false);
+    
+    /**
+     * Stores the number of threads that notify the observers if the dispatching is asynchronous.
+     */
+    public static final @Nonnull Configuration<Integer> THREADS = Configuration.with(2);
+    
+    /* -------------------------------------------------- Queues -------------------------------------------------- */
+    
+    /**
+     * Stores the queued notifications of each property, which is also used to synchronize the access to the queues.
+     * A property has a queue exactly as long as one of its notifications is being delivered, which ensures that the notifications of a property are delivered in their order.
+     */
+    private static final @Nonnull Map<@Nonnull SynchronizedProperty<?, ?, ?, ?, ?>, @Nonnull Deque<@Nonnull Runnable>> queues = new IdentityHashMap<>();
+    
+    /**
+     * Stores the number of notifications which are queued or being delivered.
+     */
+    private static int pending = 0;
+    
+    /**
+     * Stores the executor that notifies the observers, which is created lazily so that the configuration can still be changed.
+     */
+    private static @Nullable ExecutorService executor;
+    
+    /**
+     * Returns the executor that notifies the observers.
+     */
+    @Impure
+    private static @Nonnull ExecutorService getExecutor() {
+        synchronized (queues) {
+            if (executor == null) { executor = Executors.newFixedThreadPool(THREADS.get(), NamedThreadFactory.with("Observer")); }
+            return executor;
+        }
+    }
+    
+    /* -------------------------------------------------- Dispatching -------------------------------------------------- */
+    
+    /**
+     * Delivers the given notification of the given property immediately or, if the dispatching is asynchronous, once the current transaction has been committed.
+     * This method has to be called while the lock of the property is still held so that the notifications
+     * of a transaction are delivered in the order of the modifications. The notifications of different
+     * transactions are delivered in the order in which the transactions were committed.
+     */
+    @Impure
+    public static void dispatch(@Nonnull SynchronizedProperty<?, ?, ?, ?, ?> property, @Nonnull Runnable notification) {
+        if (ASYNCHRONOUS.get()) { Database.instance.get().runAfterCommit(() -> enqueue(property, notification)); }
+        else { notification.run(); }
+    }
+    
+    /**
+     * Enqueues the given notification of the given property for the executor.
+     */
+    @Impure
+    @LockNotHeldByCurrentThread
+    private static void enqueue(@Nonnull SynchronizedProperty<?, ?, ?, ?, ?> property, @Nonnull Runnable notification) {
+        synchronized (queues) {
+            pending += 1;
+            final @Nullable Deque<@Nonnull Runnable> queue = queues.get(property);
+            if (queue != null) { queue.addLast(notification); }
+            else {
+                queues.put(property, new ArrayDeque<>());
+                getExecutor().execute(() -> deliver(property, notification));
+            }
+        }
+    }
+    
+    /**
+     * Delivers the given notification and then the notifications that were queued for the given property in the meantime.
+     */
+    @PureWithSideEffects
+    private static void deliver(@Nonnull SynchronizedProperty<?, ?, ?, ?, ?> property, @Nonnull Runnable notification) {
+        @Nullable Runnable next = notification;
+        while (next != null) {
+            try {
+                next.run();
+            } catch (@Nonnull RuntimeException exception) {
+                Log.error("An observer of the property $ failed with the following problem:", exception, property);
+            }
+            synchronized (queues) {
+                pending -= 1;
+                next = queues.get(property).pollFirst();
+                if (next == null) { queues.remove(property); }
+                queues.notifyAll();
+            }
+        }
+    }
+    
+    /**
+     * Waits until all queued notifications have been delivered or the given number of milliseconds has elapsed.
+     * 
+     * @return whether all queued notifications have been delivered.
+     */
+    @PureWithSideEffects
+    public static boolean awaitCompletion(@NonNegative long timeout) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + timeout;
+        synchronized (queues) {
+            while (pending > 0) {
+                final long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) { return false; }
+                queues.wait(remaining);
+            }
+        }
+        return true;
+    }
+    
+}
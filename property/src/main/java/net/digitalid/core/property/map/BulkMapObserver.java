@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.property.map;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.generics.Specifiable;
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.collections.map.ReadOnlyMap;
+import net.digitalid.utility.freezable.annotations.Frozen;
+import net.digitalid.utility.validation.annotations.type.Functional;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+import net.digitalid.utility.validation.annotations.value.Valid;
+
+/**
+ * Objects that implement this interface can be {@link WritableSynchronizedMapProperty#registerBulkObserver(BulkMapObserver) registered}
+ * at a synchronized map property in order to be notified once about all the entries that are added or removed in bulk.
+ */
+@Mutable
+@Functional
+public interface BulkMapObserver<@Specifiable MAP_KEY, @Specifiable MAP_VALUE> {
+    
+    /* -------------------------------------------------- Notification -------------------------------------------------- */
+    
+    /**
+     * This method is called on registered observers when the given entries have been added to or removed from the given property.
+     * 
+     * @param entries the entries that have been added or removed, which contain at least one entry.
+     * @param added whether the entries have been added or removed.
+     */
+    @Impure
+    public void notify(@Nonnull WritableSynchronizedMapProperty<?, ?, ?, MAP_KEY, MAP_VALUE, ?, ?> property, @Nonnull @Frozen ReadOnlyMap<@Nonnull @Valid("key") MAP_KEY, @Nonnull @Valid MAP_VALUE> entries, boolean added);
+    
+}
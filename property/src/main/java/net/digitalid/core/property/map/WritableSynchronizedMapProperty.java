@@ -15,6 +15,10 @@
  */
 package net.digitalid.core.property.map;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
@@ -28,9 +32,11 @@ import net.digitalid.utility.annotations.parameter.Unmodified;
 import net.digitalid.utility.annotations.type.ThreadSafe;
 import net.digitalid.utility.collaboration.annotations.TODO;
 import net.digitalid.utility.collaboration.enumerations.Author;
+import net.digitalid.utility.collections.map.FreezableLinkedHashMapBuilder;
 import net.digitalid.utility.collections.map.FreezableMap;
 import net.digitalid.utility.collections.map.ReadOnlyMap;
 import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.freezable.annotations.Frozen;
 import net.digitalid.utility.freezable.annotations.NonFrozen;
 import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
 import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
@@ -51,6 +57,7 @@ import net.digitalid.database.property.map.ReadOnlyPersistentMapProperty;
 import net.digitalid.database.property.map.WritablePersistentMapPropertyImplementation;
 
 import net.digitalid.core.entity.Entity;
+import net.digitalid.core.property.ObserverDispatcher;
 import net.digitalid.core.property.SynchronizedProperty;
 import net.digitalid.core.subject.CoreSubject;
 import net.digitalid.core.synchronizer.Synchronizer;
@@ -74,6 +81,55 @@ public abstract class WritableSynchronizedMapProperty<@Unspecifiable ENTITY exte
     @Override
     protected abstract @Nonnull @NonFrozen FREEZABLE_MAP getMap();
     
+    /* -------------------------------------------------- Snapshot -------------------------------------------------- */
+    
+    /**
+     * Stores a frozen copy of the entries, which is replaced whenever the entries are modified, or null if the entries have to be loaded.
+     * Publishing the snapshot through a volatile field allows readers to retrieve the entries without acquiring the lock.
+     */
+    private volatile @Nullable @Frozen READONLY_MAP snapshot = null;
+    
+    /**
+     * Publishes a frozen copy of the current entries as the new snapshot.
+     * This method may only be called while holding the lock.
+     */
+    @Impure
+    @SuppressWarnings("unchecked")
+    private @Nonnull @Frozen READONLY_MAP publish() {
+        final @Nonnull @Frozen READONLY_MAP snapshot = (READONLY_MAP) getMap().clone().freeze();
+        this.snapshot = snapshot;
+        return snapshot;
+    }
+    
+    /**
+     * Returns a frozen snapshot of the entries of this property.
+     * The lock is only acquired to load the entries if no snapshot has been published yet.
+     */
+    @Pure
+    @Override
+    @NonCommitting
+    public @Nonnull @Frozen READONLY_MAP get() throws DatabaseException, RecoveryException {
+        final @Nullable @Frozen READONLY_MAP snapshot = this.snapshot;
+        if (snapshot != null) { return snapshot; }
+        lock.lock();
+        try {
+            if (!loaded) { load(false); }
+            return publish();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Pure
+    @Override
+    @NonCommitting
+    @LockNotHeldByCurrentThread
+    public void reset() throws DatabaseException, RecoveryException {
+        this.snapshot = null;
+        super.reset();
+        this.snapshot = null;
+    }
+    
     /* -------------------------------------------------- Table -------------------------------------------------- */
     
     @Pure
@@ -148,6 +204,63 @@ public abstract class WritableSynchronizedMapProperty<@Unspecifiable ENTITY exte
         }
     }
     
+    /* -------------------------------------------------- Bulk Operations -------------------------------------------------- */
+    
+    /**
+     * Adds the given entries whose keys are not yet in use to this property without synchronization.
+     * This method is intended to be called only by other actions that add many entries at once.
+     * 
+     * @return the number of entries whose keys were not already in use.
+     */
+    @Impure
+    @NonCommitting
+    @LockNotHeldByCurrentThread
+    public int addAllWithoutSynchronization(@Nonnull Map<? extends @Nonnull @Valid("key") MAP_KEY, ? extends @Nonnull @Valid MAP_VALUE> entries) throws DatabaseException, RecoveryException {
+        return modifyAll(entries, true);
+    }
+    
+    /**
+     * Removes the entries with the given keys from this property without synchronization.
+     * This method is intended to be called only by other actions that remove many entries at once.
+     * 
+     * @return the number of keys that were in use.
+     */
+    @Impure
+    @NonCommitting
+    @LockNotHeldByCurrentThread
+    public int removeAllWithoutSynchronization(@Nonnull Iterable<? extends @Nonnull @Valid("key") MAP_KEY> keys) throws DatabaseException, RecoveryException {
+        final @Nonnull ReadOnlyMap<@Nonnull @Valid("key") MAP_KEY, @Nonnull @Valid MAP_VALUE> map = get();
+        final @Nonnull FreezableMap<@Nonnull @Valid("key") MAP_KEY, @Nonnull @Valid MAP_VALUE> entries = FreezableLinkedHashMapBuilder.build();
+        for (final @Nonnull @Valid("key") MAP_KEY key : keys) {
+            final @Nullable @Valid MAP_VALUE value = map.get(key);
+            if (value != null) { entries.put(key, value); }
+        }
+        return modifyAll(entries, false);
+    }
+    
+    /* -------------------------------------------------- Bulk Observers -------------------------------------------------- */
+    
+    /**
+     * Stores the observers that are notified once per bulk operation.
+     */
+    private final @Nonnull List<@Nonnull BulkMapObserver<MAP_KEY, MAP_VALUE>> bulkObservers = new CopyOnWriteArrayList<>();
+    
+    /**
+     * Registers the given observer, which is notified once about all the entries of a bulk operation.
+     */
+    @Impure
+    public void registerBulkObserver(@Captured @Nonnull BulkMapObserver<MAP_KEY, MAP_VALUE> observer) {
+        bulkObservers.add(observer);
+    }
+    
+    /**
+     * Deregisters the given bulk observer.
+     */
+    @Impure
+    public void deregisterBulkObserver(@NonCaptured @Unmodified @Nonnull BulkMapObserver<MAP_KEY, MAP_VALUE> observer) {
+        bulkObservers.remove(observer);
+    }
+    
     /* -------------------------------------------------- Action -------------------------------------------------- */
     
     /**
@@ -168,7 +281,51 @@ public abstract class WritableSynchronizedMapProperty<@Unspecifiable ENTITY exte
                 SQL.delete(getTable(), getSubject().getUnit(), WhereConditionBuilder.withConverter(getTable()).withObject(entry).build());
                 getMap().remove(key);
             }
-            notifyObservers(key, value, added);
+            if (loaded) { publish(); }
+            ObserverDispatcher.dispatch(this, () -> notifyObservers(key, value, added));
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Adds or removes the given entries to or from this property as a single modification while holding the lock only once.
+     * When adding, the entries whose keys are already in use are skipped. When removing, the entries that are not stored
+     * with the same value are skipped. The remaining entries are persisted in the current transaction before the in-memory
+     * map is updated and its snapshot is published in one step, which means that the map stays unchanged if one of the
+     * statements fails. A single notification is dispatched for the whole operation, in which each bulk observer is
+     * notified once with all the entries (and each observer of single entries once per entry).
+     * 
+     * @return the number of entries that were added or removed.
+     */
+    @Impure
+    @NonCommitting
+    @LockNotHeldByCurrentThread
+    protected int modifyAll(@Nonnull Map<? extends @Nonnull @Valid("key") MAP_KEY, ? extends @Nonnull @Valid MAP_VALUE> entries, boolean added) throws DatabaseException, RecoveryException {
+        lock.lock();
+        try {
+            if (!loaded) { load(false); }
+            final @Nonnull FreezableMap<@Nonnull @Valid("key") MAP_KEY, @Nonnull @Valid MAP_VALUE> modified = FreezableLinkedHashMapBuilder.build();
+            for (final @Nonnull Map.Entry<? extends @Nonnull @Valid("key") MAP_KEY, ? extends @Nonnull @Valid MAP_VALUE> entry : entries.entrySet()) {
+                if (added ? !getMap().containsKey(entry.getKey()) : entry.getValue().equals(getMap().get(entry.getKey()))) { modified.put(entry.getKey(), entry.getValue()); }
+            }
+            if (modified.isEmpty()) { return 0; }
+            
+            for (final @Nonnull Map.Entry<@Nonnull @Valid("key") MAP_KEY, @Nonnull @Valid MAP_VALUE> entry : modified.entrySet()) {
+                final @Nonnull PersistentMapPropertyEntry<SUBJECT, MAP_KEY, MAP_VALUE> propertyEntry = PersistentMapPropertyEntryBuilder.<SUBJECT, MAP_KEY, MAP_VALUE>withSubject(getSubject()).withKey(entry.getKey()).withValue(entry.getValue()).build();
+                if (added) { SQL.insertOrAbort(getTable(), propertyEntry, getSubject().getUnit()); }
+                else { SQL.delete(getTable(), getSubject().getUnit(), WhereConditionBuilder.withConverter(getTable()).withObject(propertyEntry).build()); }
+            }
+            if (added) { getMap().putAll(modified); }
+            else { getMap().keySet().removeAll(modified.keySet()); }
+            publish();
+            
+            final @Nonnull @Frozen ReadOnlyMap<@Nonnull @Valid("key") MAP_KEY, @Nonnull @Valid MAP_VALUE> frozen = modified.freeze();
+            ObserverDispatcher.dispatch(this, () -> {
+                for (final @Nonnull BulkMapObserver<MAP_KEY, MAP_VALUE> bulkObserver : bulkObservers) { bulkObserver.notify(this, frozen, added); }
+                for (final @Nonnull Map.Entry<@Nonnull @Valid("key") MAP_KEY, @Nonnull @Valid MAP_VALUE> entry : modified.entrySet()) { notifyObservers(entry.getKey(), entry.getValue(), added); }
+            });
+            return frozen.size();
         } finally {
             lock.unlock();
         }
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.property.set;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.generics.Specifiable;
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.collections.set.ReadOnlySet;
+import net.digitalid.utility.freezable.annotations.Frozen;
+import net.digitalid.utility.validation.annotations.type.Functional;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+import net.digitalid.utility.validation.annotations.value.Valid;
+
+/**
+ * Objects that implement this interface can be {@link WritableSynchronizedSetProperty#registerBulkObserver(BulkSetObserver) registered}
+ * at a synchronized set property in order to be notified once about all the values that are added or removed in bulk.
+ */
+@Mutable
+@Functional
+public interface BulkSetObserver<@Specifiable VALUE> {
+    
+    /* -------------------------------------------------- Notification -------------------------------------------------- */
+    
+    /**
+     * This method is called on registered observers when the given values have been added to or removed from the given property.
+     * 
+     * @param values the values that have been added or removed, which contain at least one value.
+     * @param added whether the values have been added or removed.
+     */
+    @Impure
+    public void notify(@Nonnull WritableSynchronizedSetProperty<?, ?, ?, VALUE, ?, ?> property, @Nonnull @Frozen ReadOnlySet<@Nonnull @Valid VALUE> values, boolean added);
+    
+}
@@ -15,7 +15,11 @@
  */
 package net.digitalid.core.property.set;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import net.digitalid.utility.annotations.generics.Unspecifiable;
 import net.digitalid.utility.annotations.method.Impure;
@@ -26,9 +30,11 @@ import net.digitalid.utility.annotations.parameter.Unmodified;
 import net.digitalid.utility.annotations.type.ThreadSafe;
 import net.digitalid.utility.collaboration.annotations.TODO;
 import net.digitalid.utility.collaboration.enumerations.Author;
+import net.digitalid.utility.collections.set.FreezableLinkedHashSetBuilder;
 import net.digitalid.utility.collections.set.FreezableSet;
 import net.digitalid.utility.collections.set.ReadOnlySet;
 import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.freezable.annotations.Frozen;
 import net.digitalid.utility.freezable.annotations.NonFrozen;
 import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
 import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
@@ -49,6 +55,7 @@ import net.digitalid.database.property.set.ReadOnlyPersistentSetProperty;
 import net.digitalid.database.property.set.WritablePersistentSetPropertyImplementation;
 
 import net.digitalid.core.entity.Entity;
+import net.digitalid.core.property.ObserverDispatcher;
 import net.digitalid.core.property.SynchronizedProperty;
 import net.digitalid.core.subject.CoreSubject;
 import net.digitalid.core.synchronizer.Synchronizer;
@@ -72,6 +79,55 @@ public abstract class WritableSynchronizedSetProperty<@Unspecifiable ENTITY exte
     @Override
     protected abstract @Nonnull @NonFrozen FREEZABLE_SET getSet();
     
+    /* -------------------------------------------------- Snapshot -------------------------------------------------- */
+    
+    /**
+     * Stores a frozen copy of the values, which is replaced whenever the values are modified, or null if the values have to be loaded.
+     * Publishing the snapshot through a volatile field allows readers to retrieve the values without acquiring the lock.
+     */
+    private volatile @Nullable @Frozen READONLY_SET snapshot = null;
+    
+    /**
+     * Publishes a frozen copy of the current values as the new snapshot.
+     * This method may only be called while holding the lock.
+     */
+    @Impure
+    @SuppressWarnings("unchecked")
+    private @Nonnull @Frozen READONLY_SET publish() {
+        final @Nonnull @Frozen READONLY_SET snapshot = (READONLY_SET) getSet().clone().freeze();
+        this.snapshot = snapshot;
+        return snapshot;
+    }
+    
+    /**
+     * Returns a frozen snapshot of the values of this property.
+     * The lock is only acquired to load the values if no snapshot has been published yet.
+     */
+    @Pure
+    @Override
+    @NonCommitting
+    public @Nonnull @Frozen READONLY_SET get() throws DatabaseException, RecoveryException {
+        final @Nullable @Frozen READONLY_SET snapshot = this.snapshot;
+        if (snapshot != null) { return snapshot; }
+        lock.lock();
+        try {
+            if (!loaded) { load(false); }
+            return publish();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Pure
+    @Override
+    @NonCommitting
+    @LockNotHeldByCurrentThread
+    public void reset() throws DatabaseException, RecoveryException {
+        this.snapshot = null;
+        super.reset();
+        this.snapshot = null;
+    }
+    
     /* -------------------------------------------------- Table -------------------------------------------------- */
     
     @Pure
@@ -144,6 +200,57 @@ public abstract class WritableSynchronizedSetProperty<@Unspecifiable ENTITY exte
         }
     }
     
+    /* -------------------------------------------------- Bulk Operations -------------------------------------------------- */
+    
+    /**
+     * Adds the given values that are not yet stored to this property without synchronization.
+     * This method is intended to be called only by other actions that add many values at once.
+     * 
+     * @return the number of values that were not already stored.
+     */
+    @Impure
+    @NonCommitting
+    @LockNotHeldByCurrentThread
+    public int addAllWithoutSynchronization(@Nonnull Iterable<? extends @Nonnull @Valid VALUE> values) throws DatabaseException, RecoveryException {
+        return modifyAll(values, true);
+    }
+    
+    /**
+     * Removes the given values that are stored from this property without synchronization.
+     * This method is intended to be called only by other actions that remove many values at once.
+     * 
+     * @return the number of values that were stored.
+     */
+    @Impure
+    @NonCommitting
+    @LockNotHeldByCurrentThread
+    public int removeAllWithoutSynchronization(@Nonnull Iterable<? extends @Nonnull @Valid VALUE> values) throws DatabaseException, RecoveryException {
+        return modifyAll(values, false);
+    }
+    
+    /* -------------------------------------------------- Bulk Observers -------------------------------------------------- */
+    
+    /**
+     * Stores the observers that are notified once per bulk operation.
+     */
+    private final @Nonnull List<@Nonnull BulkSetObserver<VALUE>> bulkObservers = new CopyOnWriteArrayList<>();
+    
+    /**
+     * Registers the given observer, which is notified once about all the values of a bulk operation.
+     */
+    @Impure
+    public void registerBulkObserver(@Captured @Nonnull BulkSetObserver<VALUE> observer) {
+        bulkObservers.add(observer);
+    }
+    
+    /**
+     * Deregisters the given bulk observer.
+     */
+    @Impure
+    public void deregisterBulkObserver(@NonCaptured @Unmodified @Nonnull BulkSetObserver<VALUE> observer) {
+        bulkObservers.remove(observer);
+    }
+    
     /* -------------------------------------------------- Action -------------------------------------------------- */
     
     /**
@@ -164,7 +271,50 @@ public abstract class WritableSynchronizedSetProperty<@Unspecifiable ENTITY exte
                 SQL.delete(getTable(), getSubject().getUnit(), WhereConditionBuilder.withConverter(getTable()).withObject(entry).build());
                 getSet().remove(value);
             }
-            notifyObservers(value, added);
+            if (loaded) { publish(); }
+            ObserverDispatcher.dispatch(this, () -> notifyObservers(value, added));
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Adds or removes the given values to or from this property as a single modification while holding the lock only once.
+     * The values that are already stored respectively not stored are skipped. The remaining values are persisted in the
+     * current transaction before the in-memory set is updated and its snapshot is published in one step, which means that
+     * the set stays unchanged if one of the statements fails. A single notification is dispatched for the whole operation,
+     * in which each bulk observer is notified once with all the values (and each observer of single values once per value).
+     * 
+     * @return the number of values that were added or removed.
+     */
+    @Impure
+    @NonCommitting
+    @LockNotHeldByCurrentThread
+    protected int modifyAll(@Nonnull Iterable<? extends @Nonnull @Valid VALUE> values, boolean added) throws DatabaseException, RecoveryException {
+        lock.lock();
+        try {
+            if (!loaded) { load(false); }
+            final @Nonnull FreezableSet<@Nonnull @Valid VALUE> modified = FreezableLinkedHashSetBuilder.build();
+            for (final @Nonnull @Valid VALUE value : values) {
+                if (getSet().contains(value) != added) { modified.add(value); }
+            }
+            if (modified.isEmpty()) { return 0; }
+            
+            for (final @Nonnull @Valid VALUE value : modified) {
+                final @Nonnull PersistentSetPropertyEntry<SUBJECT, VALUE> entry = PersistentSetPropertyEntryBuilder.<SUBJECT, VALUE>withSubject(getSubject()).withValue(value).build();
+                if (added) { SQL.insertOrAbort(getTable(), entry, getSubject().getUnit()); }
+                else { SQL.delete(getTable(), getSubject().getUnit(), WhereConditionBuilder.withConverter(getTable()).withObject(entry).build()); }
+            }
+            if (added) { getSet().addAll(modified); }
+            else { getSet().removeAll(modified); }
+            publish();
+            
+            final @Nonnull @Frozen ReadOnlySet<@Nonnull @Valid VALUE> frozen = modified.freeze();
+            ObserverDispatcher.dispatch(this, () -> {
+                for (final @Nonnull BulkSetObserver<VALUE> bulkObserver : bulkObservers) { bulkObserver.notify(this, frozen, added); }
+                for (final @Nonnull @Valid VALUE value : frozen) { notifyObservers(value, added); }
+            });
+            return frozen.size();
         } finally {
             lock.unlock();
         }
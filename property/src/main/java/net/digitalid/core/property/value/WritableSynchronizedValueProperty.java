@@ -27,6 +27,7 @@ import net.digitalid.utility.annotations.method.Impure;
 import net.digitalid.utility.annotations.method.Pure;
 import net.digitalid.utility.annotations.ownership.Capturable;
 import net.digitalid.utility.annotations.ownership.Captured;
+import net.digitalid.utility.annotations.ownership.NonCapturable;
 import net.digitalid.utility.annotations.type.ThreadSafe;
 import net.digitalid.utility.contracts.Require;
 import net.digitalid.utility.conversion.exceptions.RecoveryException;
@@ -53,6 +54,7 @@ import net.digitalid.database.property.value.ReadOnlyPersistentValueProperty;
 import net.digitalid.database.property.value.WritablePersistentValuePropertyImplementation;
 
 import net.digitalid.core.entity.Entity;
+import net.digitalid.core.property.ObserverDispatcher;
 import net.digitalid.core.property.SynchronizedProperty;
 import net.digitalid.core.subject.CoreSubject;
 import net.digitalid.core.synchronizer.Synchronizer;
@@ -73,6 +75,82 @@ public abstract class WritableSynchronizedValueProperty<@Unspecifiable ENTITY ex
     @Override
     public abstract @Nonnull SynchronizedValuePropertyTable<ENTITY, KEY, SUBJECT, VALUE, ?> getTable();
     
+    /* -------------------------------------------------- Snapshot -------------------------------------------------- */
+    
+    /**
+     * Stores the value together with the time of its last modification, which is replaced whenever the value is modified, or null if the value has to be loaded.
+     * Publishing the snapshot through a volatile field allows readers to retrieve the value without acquiring the lock.
+     */
+    private volatile @Nullable Pair<@Valid VALUE, @Nullable Time> snapshot = null;
+    
+    @Pure
+    @Override
+    @NonCommitting
+    public @Nonnull Pair<@Valid VALUE, @Nullable Time> getValueWithTimeOfLastModification() throws DatabaseException, RecoveryException {
+        final @Nullable Pair<@Valid VALUE, @Nullable Time> snapshot = this.snapshot;
+        if (snapshot != null) { return snapshot; }
+        lock.lock();
+        try {
+            if (!loaded) { load(false); }
+            this.snapshot = Pair.of(value, time);
+            return this.snapshot;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Returns the value of this property from the published snapshot.
+     * The lock is only acquired to load the value if no snapshot has been published yet.
+     */
+    @Pure
+    @Override
+    @NonCommitting
+    public @NonCapturable @Valid VALUE get() throws DatabaseException, RecoveryException {
+        return getValueWithTimeOfLastModification().get0();
+    }
+    
+    @Pure
+    @Override
+    @NonCommitting
+    @LockNotHeldByCurrentThread
+    public void reset() throws DatabaseException, RecoveryException {
+        this.snapshot = null;
+        super.reset();
+        this.snapshot = null;
+    }
+    
+    /* -------------------------------------------------- Seeding -------------------------------------------------- */
+    
+    /**
+     * Returns whether the value of this property has been loaded, which means that it can be retrieved without querying the database.
+     */
+    @Pure
+    public boolean isLoaded() {
+        return snapshot != null;
+    }
+    
+    /**
+     * Seeds this property with the given entry, which has been selected together with the entries of other subjects,
+     * or with the default value if the subject of this property has no entry. The property is only seeded if its
+     * value has not yet been loaded, which means that a seed never replaces a value that has been modified since.
+     */
+    @Impure
+    @LockNotHeldByCurrentThread
+    public void seed(@Nullable PersistentValuePropertyEntry<SUBJECT, VALUE> entry) {
+        lock.lock();
+        try {
+            if (!loaded) {
+                this.time = entry != null ? entry.getTime() : null;
+                this.value = entry != null ? entry.getValue() : getTable().getDefaultValue();
+                this.loaded = true;
+                this.snapshot = Pair.of(value, time);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
     /* -------------------------------------------------- Value -------------------------------------------------- */
     
     @Impure
@@ -133,7 +211,8 @@ public abstract class WritableSynchronizedValueProperty<@Unspecifiable ENTITY ex
             this.time = newTime;
             this.value = newValue;
             this.loaded = true;
-            notifyObservers(oldValue, newValue);
+            this.snapshot = Pair.of(newValue, newTime);
+            ObserverDispatcher.dispatch(this, () -> notifyObservers(oldValue, newValue));
         } finally {
             lock.unlock();
         }
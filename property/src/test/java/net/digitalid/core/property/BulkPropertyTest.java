@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.property;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.collections.list.FreezableArrayList;
+import net.digitalid.utility.collections.list.FreezableList;
+import net.digitalid.utility.collections.map.FreezableLinkedHashMapBuilder;
+import net.digitalid.utility.collections.map.FreezableMap;
+import net.digitalid.utility.collections.map.ReadOnlyMap;
+import net.digitalid.utility.collections.set.FreezableSet;
+import net.digitalid.utility.collections.set.ReadOnlySet;
+import net.digitalid.utility.exceptions.ExternalException;
+import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.generator.annotations.generators.GenerateTableConverter;
+import net.digitalid.utility.validation.annotations.generation.Recover;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+import net.digitalid.database.annotations.transaction.NonCommitting;
+import net.digitalid.database.conversion.SQL;
+import net.digitalid.database.exceptions.DatabaseException;
+import net.digitalid.database.interfaces.Database;
+import net.digitalid.database.property.map.WritablePersistentMapProperty;
+import net.digitalid.database.property.set.WritablePersistentSetProperty;
+
+import net.digitalid.core.entity.NonHostEntity;
+import net.digitalid.core.identification.identity.SemanticType;
+import net.digitalid.core.identification.identity.SemanticTypeAttributesBuilder;
+import net.digitalid.core.identification.identity.SyntacticType;
+import net.digitalid.core.property.map.WritableSynchronizedMapProperty;
+import net.digitalid.core.property.set.WritableSynchronizedSetProperty;
+import net.digitalid.core.restrictions.Restrictions;
+import net.digitalid.core.subject.CoreServiceCoreSubject;
+import net.digitalid.core.subject.annotations.GenerateSynchronizedProperty;
+import net.digitalid.core.subject.utility.None;
+import net.digitalid.core.testing.CoreTest;
+import net.digitalid.core.testing.fixtures.TestEntity;
+import net.digitalid.core.testing.fixtures.TestEntityBuilder;
+import net.digitalid.core.testing.fixtures.TestUnit;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+@Immutable
+@GenerateSubclass
+@GenerateTableConverter
+abstract class BulkTestSubject extends CoreServiceCoreSubject<NonHostEntity, None> {
+    
+    @Pure
+    @Override
+    public abstract @Nonnull None getKey();
+    
+    @Pure
+    @Recover
+    @NonCommitting
+    static @Nonnull BulkTestSubject of(@Nonnull NonHostEntity entity) throws DatabaseException {
+        return BulkTestSubjectSubclass.MODULE.getSubjectIndex().get(entity, None.INSTANCE);
+    }
+    
+    static final @Nonnull RequiredAuthorization<NonHostEntity, None, BulkTestSubject, String> NAMES = RequiredAuthorizationBuilder.<NonHostEntity, None, BulkTestSubject, String>withRequiredRestrictionsToExecuteMethod((concept, value) -> Restrictions.ONLY_FOR_CLIENTS).build();
+    
+    @Pure
+    @GenerateSynchronizedProperty
+    public abstract @Nonnull WritablePersistentSetProperty<BulkTestSubject, String, ReadOnlySet<String>, FreezableSet<String>> names();
+    
+    static final @Nonnull RequiredAuthorization<NonHostEntity, None, BulkTestSubject, String> FLAGS = RequiredAuthorizationBuilder.<NonHostEntity, None, BulkTestSubject, String>withRequiredRestrictionsToExecuteMethod((concept, value) -> Restrictions.ONLY_FOR_CLIENTS).build();
+    
+    @Pure
+    @GenerateSynchronizedProperty
+    public abstract @Nonnull WritablePersistentMapProperty<BulkTestSubject, String, Boolean, ReadOnlyMap<String, Boolean>, FreezableMap<String, Boolean>> flags();
+    
+}
+
+@SuppressWarnings("unchecked")
+public class BulkPropertyTest extends CoreTest {
+    
+    /* -------------------------------------------------- Fixtures -------------------------------------------------- */
+    
+    private static final @Nonnull TestUnit UNIT = TestUnit.with("bulk", false);
+    
+    private static final @Nonnull SemanticType TYPE = SemanticType.map("bulk@core.digitalid.net").load(SemanticTypeAttributesBuilder.withSyntacticBase(SyntacticType.BOOLEAN).build());
+    
+    private static final @Nonnull TestEntity ENTITY = TestEntityBuilder.withUnit(UNIT).withKey(0).withIdentity(TYPE).build();
+    
+    @Impure
+    @BeforeClass
+    public static void createTables() throws ExternalException {
+        TestEntity.createTable(UNIT, ENTITY);
+        SQL.createTable(BulkTestSubjectSubclass.MODULE.getSubjectTable(), UNIT);
+        BulkTestSubjectSubclass.MODULE.accept(table -> SQL.createTable(table, UNIT));
+        Database.commit();
+    }
+    
+    @Pure
+    private static @Nonnull WritableSynchronizedSetProperty<NonHostEntity, None, BulkTestSubject, String, ReadOnlySet<String>, FreezableSet<String>> getNames() throws DatabaseException {
+        return (WritableSynchronizedSetProperty<NonHostEntity, None, BulkTestSubject, String, ReadOnlySet<String>, FreezableSet<String>>) BulkTestSubject.of(ENTITY).names();
+    }
+    
+    @Pure
+    private static @Nonnull WritableSynchronizedMapProperty<NonHostEntity, None, BulkTestSubject, String, Boolean, ReadOnlyMap<String, Boolean>, FreezableMap<String, Boolean>> getFlags() throws DatabaseException {
+        return (WritableSynchronizedMapProperty<NonHostEntity, None, BulkTestSubject, String, Boolean, ReadOnlyMap<String, Boolean>, FreezableMap<String, Boolean>>) BulkTestSubject.of(ENTITY).flags();
+    }
+    
+    /* -------------------------------------------------- Tests -------------------------------------------------- */
+    
+    @Test
+    public void shouldAddAndRemoveValuesInBulk() throws ExternalException {
+        final @Nonnull WritableSynchronizedSetProperty<NonHostEntity, None, BulkTestSubject, String, ReadOnlySet<String>, FreezableSet<String>> names = getNames();
+        names.addWithoutSynchronization("existing");
+        Database.commit();
+        
+        final @Nonnull FreezableList<@Nonnull ReadOnlySet<String>> notifications = FreezableArrayList.withNoElements();
+        names.registerBulkObserver((property, values, added) -> notifications.add(values));
+        
+        assertThat(names.addAllWithoutSynchronization(FreezableArrayList.withElements("existing", "first", "second"))).isEqualTo(2);
+        assertThat(names.get()).contains("existing", "first", "second");
+        Database.commit();
+        
+        assertThat(notifications).hasSize(1);
+        assertThat(notifications.get(0)).containsExactly("first", "second");
+        
+        assertThat(names.removeAllWithoutSynchronization(FreezableArrayList.withElements("first", "second", "missing"))).isEqualTo(2);
+        Database.commit();
+        
+        assertThat(notifications).hasSize(2);
+        assertThat(notifications.get(1)).containsExactly("first", "second");
+        
+        names.reset(); // Not necessary but I want to test the database state.
+        assertThat(names.get()).contains("existing").doesNotContain("first", "second");
+    }
+    
+    @Test
+    public void shouldNotNotifyAboutAnEmptyBulkOperation() throws ExternalException {
+        final @Nonnull WritableSynchronizedSetProperty<NonHostEntity, None, BulkTestSubject, String, ReadOnlySet<String>, FreezableSet<String>> names = getNames();
+        final @Nonnull FreezableList<@Nonnull ReadOnlySet<String>> notifications = FreezableArrayList.withNoElements();
+        names.registerBulkObserver((property, values, added) -> notifications.add(values));
+        
+        assertThat(names.removeAllWithoutSynchronization(FreezableArrayList.withElements("missing"))).isEqualTo(0);
+        Database.commit();
+        
+        assertThat(notifications).isEmpty();
+    }
+    
+    @Test
+    public void shouldAddAndRemoveEntriesInBulk() throws ExternalException {
+        final @Nonnull WritableSynchronizedMapProperty<NonHostEntity, None, BulkTestSubject, String, Boolean, ReadOnlyMap<String, Boolean>, FreezableMap<String, Boolean>> flags = getFlags();
+        final @Nonnull FreezableList<@Nonnull ReadOnlyMap<String, Boolean>> notifications = FreezableArrayList.withNoElements();
+        flags.registerBulkObserver((property, entries, added) -> notifications.add(entries));
+        
+        final @Nonnull FreezableMap<@Nonnull String, @Nonnull Boolean> entries = FreezableLinkedHashMapBuilder.build();
+        entries.put("read", true);
+        entries.put("write", false);
+        
+        assertThat(flags.addAllWithoutSynchronization(entries)).isEqualTo(2);
+        assertThat(flags.addAllWithoutSynchronization(entries)).isEqualTo(0);
+        Database.commit();
+        
+        assertThat(notifications).hasSize(1);
+        assertThat(notifications.get(0).size()).isEqualTo(2);
+        assertThat(notifications.get(0).get("write")).isFalse();
+        
+        flags.reset(); // Not necessary but I want to test the database state.
+        assertThat(flags.get().get("read")).isTrue();
+        assertThat(flags.get().get("write")).isFalse();
+        
+        assertThat(flags.removeAllWithoutSynchronization(FreezableArrayList.withElements("read", "write", "missing"))).isEqualTo(2);
+        Database.commit();
+        
+        assertThat(notifications).hasSize(2);
+        flags.reset(); // Not necessary but I want to test the database state.
+        assertThat(flags.get().containsKey("read")).isFalse();
+    }
+    
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.property;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.collections.set.FreezableSet;
+import net.digitalid.utility.collections.set.ReadOnlySet;
+import net.digitalid.utility.exceptions.ExternalException;
+import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.generator.annotations.generators.GenerateTableConverter;
+import net.digitalid.utility.validation.annotations.generation.Recover;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+import net.digitalid.database.annotations.transaction.NonCommitting;
+import net.digitalid.database.conversion.SQL;
+import net.digitalid.database.exceptions.DatabaseException;
+import net.digitalid.database.interfaces.Database;
+import net.digitalid.database.property.set.WritablePersistentSetProperty;
+
+import net.digitalid.core.entity.NonHostEntity;
+import net.digitalid.core.identification.identity.SemanticType;
+import net.digitalid.core.identification.identity.SemanticTypeAttributesBuilder;
+import net.digitalid.core.identification.identity.SyntacticType;
+import net.digitalid.core.property.set.WritableSynchronizedSetProperty;
+import net.digitalid.core.restrictions.Restrictions;
+import net.digitalid.core.subject.CoreServiceCoreSubject;
+import net.digitalid.core.subject.annotations.GenerateSynchronizedProperty;
+import net.digitalid.core.subject.utility.None;
+import net.digitalid.core.testing.CoreTest;
+import net.digitalid.core.testing.fixtures.TestEntity;
+import net.digitalid.core.testing.fixtures.TestEntityBuilder;
+import net.digitalid.core.testing.fixtures.TestUnit;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+@Immutable
+@GenerateSubclass
+@GenerateTableConverter
+abstract class DispatcherTestSubject extends CoreServiceCoreSubject<NonHostEntity, None> {
+    
+    @Pure
+    @Override
+    public abstract @Nonnull None getKey();
+    
+    @Pure
+    @Recover
+    @NonCommitting
+    static @Nonnull DispatcherTestSubject of(@Nonnull NonHostEntity entity) throws DatabaseException {
+        return DispatcherTestSubjectSubclass.MODULE.getSubjectIndex().get(entity, None.INSTANCE);
+    }
+    
+    static final @Nonnull RequiredAuthorization<NonHostEntity, None, DispatcherTestSubject, String> VALUES = RequiredAuthorizationBuilder.<NonHostEntity, None, DispatcherTestSubject, String>withRequiredRestrictionsToExecuteMethod((concept, value) -> Restrictions.ONLY_FOR_CLIENTS).build();
+    
+    @Pure
+    @GenerateSynchronizedProperty
+    public abstract @Nonnull WritablePersistentSetProperty<DispatcherTestSubject, String, ReadOnlySet<String>, FreezableSet<String>> values();
+    
+}
+
+@SuppressWarnings("unchecked")
+public class ObserverDispatcherTest extends CoreTest {
+    
+    /* -------------------------------------------------- Fixtures -------------------------------------------------- */
+    
+    private static final @Nonnull TestUnit UNIT = TestUnit.with("dispatcher", false);
+    
+    private static final @Nonnull SemanticType TYPE = SemanticType.map("dispatcher@core.digitalid.net").load(SemanticTypeAttributesBuilder.withSyntacticBase(SyntacticType.BOOLEAN).build());
+    
+    private static final @Nonnull TestEntity ENTITY = TestEntityBuilder.withUnit(UNIT).withKey(0).withIdentity(TYPE).build();
+    
+    private static final int WRITERS = 16;
+    
+    private static final int WRITES = 50;
+    
+    /**
+     * Stores the number of milliseconds that each notification of the slow observer takes.
+     */
+    private static final int DELAY = 2;
+    
+    @Impure
+    @BeforeClass
+    public static void createTables() throws ExternalException {
+        ObserverDispatcher.ASYNCHRONOUS.set(true);
+        TestEntity.createTable(UNIT, ENTITY);
+        SQL.createTable(DispatcherTestSubjectSubclass.MODULE.getSubjectTable(), UNIT);
+        DispatcherTestSubjectSubclass.MODULE.accept(table -> SQL.createTable(table, UNIT));
+        Database.commit();
+    }
+    
+    @Impure
+    @AfterClass
+    public static void resetDispatching() {
+        ObserverDispatcher.ASYNCHRONOUS.set(false);
+    }
+    
+    @Pure
+    private static @Nonnull WritableSynchronizedSetProperty<NonHostEntity, None, DispatcherTestSubject, String, ReadOnlySet<String>, FreezableSet<String>> getValues() throws DatabaseException {
+        return (WritableSynchronizedSetProperty<NonHostEntity, None, DispatcherTestSubject, String, ReadOnlySet<String>, FreezableSet<String>>) DispatcherTestSubject.of(ENTITY).values();
+    }
+    
+    @Impure
+    private static void sleep() {
+        try {
+            Thread.sleep(DELAY);
+        } catch (@Nonnull InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /* -------------------------------------------------- Tests -------------------------------------------------- */
+    
+    @Test
+    public void shouldDeliverNotificationsInOrder() throws Exception {
+        final @Nonnull WritableSynchronizedSetProperty<NonHostEntity, None, DispatcherTestSubject, String, ReadOnlySet<String>, FreezableSet<String>> values = getValues();
+        final @Nonnull List<@Nonnull String> notifications = new CopyOnWriteArrayList<>();
+        values.register((property, value, added) -> { sleep(); notifications.add((added ? "+" : "-") + value); });
+        
+        values.addWithoutSynchronization("ordered");
+        values.removeWithoutSynchronization("ordered");
+        values.addWithoutSynchronization("ordered");
+        Database.commit();
+        
+        assertThat(ObserverDispatcher.awaitCompletion(10_000)).isTrue();
+        assertThat(notifications).containsExactly("+ordered", "-ordered", "+ordered");
+    }
+    
+    @Test
+    public void shouldNotifyWithinTheTransactionIfSynchronous() throws Exception {
+        final @Nonnull WritableSynchronizedSetProperty<NonHostEntity, None, DispatcherTestSubject, String, ReadOnlySet<String>, FreezableSet<String>> values = getValues();
+        final @Nonnull List<@Nonnull String> notifications = new CopyOnWriteArrayList<>();
+        values.register((property, value, added) -> notifications.add((added ? "+" : "-") + value));
+        
+        ObserverDispatcher.ASYNCHRONOUS.set(false);
+        try {
+            values.addWithoutSynchronization("synchronous");
+            assertThat(notifications).containsExactly("+synchronous");
+            Database.commit();
+        } finally {
+            ObserverDispatcher.ASYNCHRONOUS.set(true);
+        }
+        assertThat(notifications).containsExactly("+synchronous");
+    }
+    
+    @Test
+    public void shouldNotDeliverNotificationsOfRolledBackChanges() throws Exception {
+        final @Nonnull WritableSynchronizedSetProperty<NonHostEntity, None, DispatcherTestSubject, String, ReadOnlySet<String>, FreezableSet<String>> values = getValues();
+        final @Nonnull List<@Nonnull String> notifications = new CopyOnWriteArrayList<>();
+        values.register((property, value, added) -> notifications.add((added ? "+" : "-") + value));
+        
+        values.addWithoutSynchronization("rolledBack");
+        Database.rollback();
+        values.addWithoutSynchronization("committed");
+        Database.commit();
+        
+        assertThat(ObserverDispatcher.awaitCompletion(10_000)).isTrue();
+        assertThat(notifications).containsExactly("+committed");
+    }
+    
+    @Test
+    public void shouldDeliverNotificationsOfConcurrentWritersInOrder() throws Exception {
+        final @Nonnull WritableSynchronizedSetProperty<NonHostEntity, None, DispatcherTestSubject, String, ReadOnlySet<String>, FreezableSet<String>> values = getValues();
+        final @Nonnull List<@Nonnull String> notifications = new CopyOnWriteArrayList<>();
+        values.register((property, value, added) -> { sleep(); notifications.add((added ? "+" : "-") + value); });
+        values.get(); // Loads the values before the writers start.
+        
+        final @Nonnull List<@Nonnull Throwable> failures = new CopyOnWriteArrayList<>();
+        final @Nonnull Thread[] writers = new Thread[WRITERS];
+        for (int w = 0; w < WRITERS; w++) {
+            final @Nonnull String value = "toggled" + w;
+            writers[w] = new Thread(() -> {
+                try {
+                    for (int i = 0; i < WRITES; i++) {
+                        values.addWithoutSynchronization(value);
+                        Database.commit();
+                        values.removeWithoutSynchronization(value);
+                        Database.commit();
+                    }
+                } catch (@Nonnull Throwable throwable) {
+                    failures.add(throwable);
+                }
+            });
+            writers[w].start();
+        }
+        for (final @Nonnull Thread writer : writers) { writer.join(); }
+        assertThat(ObserverDispatcher.awaitCompletion(60_000)).isTrue();
+        
+        assertThat(failures).isEmpty();
+        assertThat(notifications).hasSize(2 * WRITERS * WRITES);
+        for (int w = 0; w < WRITERS; w++) {
+            final @Nonnull String value = "toggled" + w;
+            boolean added = false;
+            for (final @Nonnull String notification : notifications) {
+                if (notification.substring(1).equals(value)) {
+                    assertThat(notification).isEqualTo((added ? "-" : "+") + value);
+                    added = !added;
+                }
+            }
+            assertThat(added).isFalse();
+        }
+    }
+    
+}
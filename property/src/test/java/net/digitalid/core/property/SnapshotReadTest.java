@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.property;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.collections.set.FreezableSet;
+import net.digitalid.utility.collections.set.ReadOnlySet;
+import net.digitalid.utility.exceptions.ExternalException;
+import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.generator.annotations.generators.GenerateTableConverter;
+import net.digitalid.utility.validation.annotations.generation.Recover;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+import net.digitalid.database.annotations.transaction.NonCommitting;
+import net.digitalid.database.conversion.SQL;
+import net.digitalid.database.exceptions.DatabaseException;
+import net.digitalid.database.interfaces.Database;
+import net.digitalid.database.property.set.WritablePersistentSetProperty;
+
+import net.digitalid.core.entity.NonHostEntity;
+import net.digitalid.core.identification.identity.SemanticType;
+import net.digitalid.core.identification.identity.SemanticTypeAttributesBuilder;
+import net.digitalid.core.identification.identity.SyntacticType;
+import net.digitalid.core.property.set.WritableSynchronizedSetProperty;
+import net.digitalid.core.restrictions.Restrictions;
+import net.digitalid.core.subject.CoreServiceCoreSubject;
+import net.digitalid.core.subject.annotations.GenerateSynchronizedProperty;
+import net.digitalid.core.subject.utility.None;
+import net.digitalid.core.testing.CoreTest;
+import net.digitalid.core.testing.fixtures.TestEntity;
+import net.digitalid.core.testing.fixtures.TestEntityBuilder;
+import net.digitalid.core.testing.fixtures.TestUnit;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+@Immutable
+@GenerateSubclass
+@GenerateTableConverter
+abstract class SnapshotTestSubject extends CoreServiceCoreSubject<NonHostEntity, None> {
+    
+    @Pure
+    @Override
+    public abstract @Nonnull None getKey();
+    
+    @Pure
+    @Recover
+    @NonCommitting
+    static @Nonnull SnapshotTestSubject of(@Nonnull NonHostEntity entity) throws DatabaseException {
+        return SnapshotTestSubjectSubclass.MODULE.getSubjectIndex().get(entity, None.INSTANCE);
+    }
+    
+    static final @Nonnull RequiredAuthorization<NonHostEntity, None, SnapshotTestSubject, String> VALUES = RequiredAuthorizationBuilder.<NonHostEntity, None, SnapshotTestSubject, String>withRequiredRestrictionsToExecuteMethod((concept, value) -> Restrictions.ONLY_FOR_CLIENTS).build();
+    
+    @Pure
+    @GenerateSynchronizedProperty
+    public abstract @Nonnull WritablePersistentSetProperty<SnapshotTestSubject, String, ReadOnlySet<String>, FreezableSet<String>> values();
+    
+}
+
+@SuppressWarnings("unchecked")
+public class SnapshotReadTest extends CoreTest {
+    
+    /* -------------------------------------------------- Fixtures -------------------------------------------------- */
+    
+    private static final @Nonnull TestUnit UNIT = TestUnit.with("snapshot", false);
+    
+    private static final @Nonnull SemanticType TYPE = SemanticType.map("snapshot@core.digitalid.net").load(SemanticTypeAttributesBuilder.withSyntacticBase(SyntacticType.BOOLEAN).build());
+    
+    private static final @Nonnull TestEntity ENTITY = TestEntityBuilder.withUnit(UNIT).withKey(0).withIdentity(TYPE).build();
+    
+    @Impure
+    @BeforeClass
+    public static void createTables() throws ExternalException {
+        TestEntity.createTable(UNIT, ENTITY);
+        SQL.createTable(SnapshotTestSubjectSubclass.MODULE.getSubjectTable(), UNIT);
+        SnapshotTestSubjectSubclass.MODULE.accept(table -> SQL.createTable(table, UNIT));
+        Database.commit();
+    }
+    
+    @Pure
+    private static @Nonnull WritableSynchronizedSetProperty<NonHostEntity, None, SnapshotTestSubject, String, ReadOnlySet<String>, FreezableSet<String>> getValues() throws DatabaseException {
+        return (WritableSynchronizedSetProperty<NonHostEntity, None, SnapshotTestSubject, String, ReadOnlySet<String>, FreezableSet<String>>) SnapshotTestSubject.of(ENTITY).values();
+    }
+    
+    /* -------------------------------------------------- Tests -------------------------------------------------- */
+    
+    @Test
+    public void shouldPublishFrozenSnapshots() throws Exception {
+        final @Nonnull WritableSynchronizedSetProperty<NonHostEntity, None, SnapshotTestSubject, String, ReadOnlySet<String>, FreezableSet<String>> values = getValues();
+        final @Nonnull ReadOnlySet<String> before = values.get();
+        assertThat(before.isFrozen()).isTrue();
+        
+        values.addWithoutSynchronization("published");
+        Database.commit();
+        
+        final @Nonnull ReadOnlySet<String> after = values.get();
+        assertThat(after.isFrozen()).isTrue();
+        assertThat(after).contains("published");
+        assertThat(before).doesNotContain("published");
+        assertThat(values.get()).isSameAs(after);
+        
+        values.reset(); // Not necessary but I want to test the database state.
+        assertThat(values.get()).contains("published");
+    }
+    
+}
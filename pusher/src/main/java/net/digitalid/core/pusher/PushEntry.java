@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.pusher;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
+import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.generator.annotations.generators.GenerateTableConverter;
+import net.digitalid.utility.rootclass.RootClass;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+import net.digitalid.database.annotations.constraints.PrimaryKey;
+
+import net.digitalid.core.identification.identifier.HostIdentifier;
+import net.digitalid.core.pack.Pack;
+
+/**
+ * This type models an entry in the table of the external actions that still need to be {@link Pusher pushed}.
+ */
+@Immutable
+@GenerateBuilder
+@GenerateSubclass
+@GenerateTableConverter
+public abstract class PushEntry extends RootClass {
+    
+    /* -------------------------------------------------- Fields -------------------------------------------------- */
+    
+    /**
+     * Returns the sequence number of this entry, which determines the order in which the actions are pushed.
+     */
+    @Pure
+    @PrimaryKey
+    public abstract long getSequence();
+    
+    /**
+     * Returns the host to which the action is pushed.
+     */
+    @Pure
+    public abstract @Nonnull HostIdentifier getRecipient();
+    
+    /**
+     * Returns the key of the entity on which the action was created.
+     */
+    @Pure
+    public abstract long getEntity();
+    
+    /**
+     * Returns the packed action.
+     */
+    @Pure
+    public abstract @Nonnull Pack getAction();
+    
+}
@@ -15,33 +15,471 @@
  */
 package net.digitalid.core.pusher;
 
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
 import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.collections.list.FreezableArrayList;
+import net.digitalid.utility.collections.list.FreezableList;
+import net.digitalid.utility.configuration.Configuration;
+import net.digitalid.utility.conversion.converters.Integer64Converter;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.exceptions.ExternalException;
+import net.digitalid.utility.initialization.annotations.Initialize;
 import net.digitalid.utility.logging.Log;
+import net.digitalid.utility.threading.NamedThreadFactory;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.math.Positive;
+import net.digitalid.utility.validation.annotations.type.Mutable;
 import net.digitalid.utility.validation.annotations.type.Utility;
 
+import net.digitalid.database.annotations.transaction.Committing;
 import net.digitalid.database.annotations.transaction.NonCommitting;
+import net.digitalid.database.conversion.SQL;
+import net.digitalid.database.conversion.WhereCondition;
+import net.digitalid.database.conversion.WhereConditionBuilder;
 import net.digitalid.database.exceptions.DatabaseException;
+import net.digitalid.database.interfaces.Database;
 
+import net.digitalid.core.conversion.exceptions.NetworkException;
+import net.digitalid.core.entity.NonHostEntity;
+import net.digitalid.core.exceptions.request.RequestErrorCode;
+import net.digitalid.core.exceptions.request.RequestException;
+import net.digitalid.core.handler.method.Method;
+import net.digitalid.core.handler.method.MethodIndex;
 import net.digitalid.core.handler.method.action.ExternalAction;
+import net.digitalid.core.identification.identifier.HostIdentifier;
+import net.digitalid.core.identification.identifier.HostIdentifierConverter;
+import net.digitalid.core.unit.CoreUnit;
+import net.digitalid.core.unit.UnitLock;
 
 /**
  * Pushes the external actions to their recipients (and retries on failure).
+ * The actions are stored in a persistent queue in the transaction in which they are pushed and removed in the transaction that
+ * is committed after their delivery. For each recipient, the pending actions are delivered in their order by a single flush,
+ * which coalesces consecutive similar actions into a single request. If the recipient cannot be reached or is busy, the flush
+ * is rescheduled with an exponentially increasing and randomized delay. The number of concurrent deliveries is limited.
+ * Since the actions are sent with {@link Method#sendBatch(net.digitalid.utility.collections.list.ReadOnlyList)}, the pusher
+ * can be tested against a host in the same process by configuring the {@link net.digitalid.core.packet.Request#ADDRESS address}.
  * 
- * TODO: Only retries if the connection could not be established. Otherwise an external action is created, signed and added to the internal audit.
+ * TODO: Make sure that failed pushs are signed and audited but not transmitted.
  * 
  * @see PushFailed
  */
 @Utility
 public abstract class Pusher extends Thread {
     
+    /* -------------------------------------------------- Configurations -------------------------------------------------- */
+    
+    /**
+     * Stores the maximum number of recipients to which actions are delivered concurrently.
+     */
+    public static final @Nonnull Configuration<Integer> CONCURRENT_DELIVERIES = Configuration.with(4);
+    
+    /**
+     * Stores the maximum number of similar actions that are coalesced into a single request.
+     */
+    public static final @Nonnull Configuration<Integer> BATCH_SIZE = Configuration.with(32);
+    
+    /**
+     * Stores the delay in milliseconds between pushing an action and flushing its recipient, during which further actions can be coalesced.
+     */
+    public static final @Nonnull Configuration<Integer> DELAY = Configuration.with(100);
+    
+    /**
+     * Stores how many times the flushing of a recipient is retried before its pending actions fail.
+     */
+    public static final @Nonnull Configuration<Integer> RETRIES = Configuration.with(16);
+    
+    /**
+     * Stores the delay in milliseconds before the first retry, which is doubled with each further retry.
+     */
+    public static final @Nonnull Configuration<Integer> BACKOFF = Configuration.with(1000);
+    
+    /**
+     * Stores the maximum delay in milliseconds between two retries.
+     */
+    public static final @Nonnull Configuration<Integer> MAXIMUM_BACKOFF = Configuration.with(3_600_000);
+    
+    /**
+     * Stores the interval in milliseconds in which the persistent queue is swept for actions whose recipient is not scheduled.
+     */
+    public static final @Nonnull Configuration<Integer> SWEEP_INTERVAL = Configuration.with(60_000);
+    
+    /* -------------------------------------------------- Recipients -------------------------------------------------- */
+    
+    /**
+     * A recipient stores the delivery state of the actions that are pushed from a unit to a host.
+     * The fields are guarded by the map of all recipients.
+     */
+    @Mutable
+    private static final class Recipient {
+        
+        private final @Nonnull CoreUnit unit;
+        
+        private final @Nonnull HostIdentifier identifier;
+        
+        /**
+         * Stores whether a flush of this recipient is scheduled.
+         */
+        private boolean scheduled = false;
+        
+        /**
+         * Stores whether the actions of this recipient are currently being delivered.
+         */
+        private boolean delivering = false;
+        
+        /**
+         * Stores whether actions were pushed to this recipient during the delivery.
+         */
+        private boolean dirty = false;
+        
+        /**
+         * Stores the number of consecutive flushes that failed.
+         */
+        private int failures = 0;
+        
+        private Recipient(@Nonnull CoreUnit unit, @Nonnull HostIdentifier identifier) {
+            this.unit = unit;
+            this.identifier = identifier;
+        }
+        
+    }
+    
+    /**
+     * Stores the recipients of each unit, which is also used to synchronize the access to their state.
+     */
+    private static final @Nonnull Map<@Nonnull CoreUnit, @Nonnull Map<@Nonnull HostIdentifier, @Nonnull Recipient>> recipients = new HashMap<>();
+    
+    /**
+     * Returns the recipient with the given identifier for the given unit.
+     */
+    @Impure
+    private static @Nonnull Recipient getRecipient(@Nonnull CoreUnit unit, @Nonnull HostIdentifier identifier) {
+        synchronized (recipients) {
+            return recipients.computeIfAbsent(unit, key -> new HashMap<>()).computeIfAbsent(identifier, key -> new Recipient(unit, identifier));
+        }
+    }
+    
+    /**
+     * Stores the executor that flushes the recipients, whose number of threads limits the number of concurrent deliveries.
+     */
+    private static final @Nonnull ScheduledExecutorService executor = Executors.newScheduledThreadPool(CONCURRENT_DELIVERIES.get(), NamedThreadFactory.with("Pusher"));
+    
+    /* -------------------------------------------------- Persistent Queue -------------------------------------------------- */
+    
+    /**
+     * Stores a dummy configuration in order to have an initialization target.
+     */
+    public static final @Nonnull Configuration<Boolean> configuration = Configuration.with(Boolean.TRUE);
+    
+    /**
+     * Adds the tables of the queue and its counter to the tables which are created on each unit.
+     */
+    @PureWithSideEffects
+    @Initialize(target = Pusher.class)
+    public static void addTables() {
+        CoreUnit.addTable(PushEntryConverter.INSTANCE);
+        CoreUnit.addTable(PushCounterConverter.INSTANCE);
+    }
+    
+    /**
+     * Stores the condition that selects the single counter of a unit.
+     */
+    private static final @Nonnull WhereCondition<Long> COUNTER = WhereConditionBuilder.withConverter(Integer64Converter.INSTANCE).withObject(0L).withPrefix("key").build();
+    
+    /**
+     * Returns the sequence number for the next entry of the given unit and increments the counter in the current transaction.
+     * The counter is locked until the end of the current transaction so that concurrent transactions which push actions
+     * from the same unit, even in several processes that share the database, wait for each other instead of taking the same number.
+     */
+    @Impure
+    @NonCommitting
+    private static long nextSequence(@Nonnull CoreUnit unit) throws DatabaseException, RecoveryException {
+        SQL.insertOrIgnore(PushCounterConverter.INSTANCE, PushCounterBuilder.withKey(0).withNext(1).build(), unit);
+        UnitLock.lock(PushCounterConverter.INSTANCE, unit, "key", 0);
+        final long sequence = SQL.selectOne(PushCounterConverter.INSTANCE, null, unit, COUNTER).getNext();
+        SQL.insertOrReplace(PushCounterConverter.INSTANCE, PushCounterBuilder.withKey(0).withNext(sequence + 1).build(), unit);
+        return sequence;
+    }
+    
+    /**
+     * Stores the units whose queue is swept periodically in this process.
+     */
+    private static final @Nonnull Set<@Nonnull CoreUnit> sweptUnits = ConcurrentHashMap.newKeySet();
+    
+    /**
+     * Starts the periodic sweeping of the queue of the given unit if this has not yet been done in this process.
+     */
+    @Impure
+    private static void startSweeping(@Nonnull CoreUnit unit) {
+        if (sweptUnits.add(unit)) { executor.scheduleWithFixedDelay(() -> sweep(unit), SWEEP_INTERVAL.get(), SWEEP_INTERVAL.get(), TimeUnit.MILLISECONDS); }
+    }
+    
+    /**
+     * Returns the entries of the given unit for the given recipient (or all recipients if null) ordered by their sequence number.
+     */
+    @Pure
+    @NonCommitting
+    private static @Nonnull FreezableList<PushEntry> load(@Nonnull CoreUnit unit, @Nullable HostIdentifier recipient) throws DatabaseException, RecoveryException {
+        final @Nonnull FreezableList<PushEntry> entries;
+        if (recipient == null) { entries = SQL.selectAll(PushEntryConverter.INSTANCE, null, unit); }
+        else { entries = SQL.selectAll(PushEntryConverter.INSTANCE, null, unit, WhereConditionBuilder.withConverter(HostIdentifierConverter.INSTANCE).withObject(recipient).withPrefix("recipient").build()); }
+        entries.sort(Comparator.comparingLong(PushEntry::getSequence));
+        return entries;
+    }
+    
+    /**
+     * Removes the given entry from the queue of the given unit.
+     */
+    @Impure
     @NonCommitting
+    private static void remove(@Nonnull CoreUnit unit, @Nonnull PushEntry entry) throws DatabaseException {
+        SQL.delete(PushEntryConverter.INSTANCE, unit, WhereConditionBuilder.withConverter(Integer64Converter.INSTANCE).withObject(entry.getSequence()).withPrefix("sequence").build());
+    }
+    
+    /* -------------------------------------------------- Pushing -------------------------------------------------- */
+    
+    /**
+     * Stores the given action in the persistent queue of its unit and schedules the flushing of its recipient after the current transaction has been committed.
+     * If the transaction is rolled back instead, the action is neither stored nor delivered.
+     */
+    @NonCommitting
+    @PureWithSideEffects
+    public static void send(@Nonnull ExternalAction action) throws DatabaseException, RecoveryException {
+        final @Nonnull NonHostEntity entity = action.getEntity();
+        final @Nonnull CoreUnit unit = entity.getUnit();
+        final long sequence = nextSequence(unit);
+        SQL.insertOrAbort(PushEntryConverter.INSTANCE, PushEntryBuilder.withSequence(sequence).withRecipient(action.getRecipient()).withEntity(entity.getKey()).withAction(action.pack()).build(), unit);
+        Log.debugging("Pushing the action $ to $ with the sequence number $.", action, action.getRecipient(), sequence);
+        final @Nonnull Recipient recipient = getRecipient(unit, action.getRecipient());
+        Database.instance.get().runAfterCommit(() -> schedule(recipient, DELAY.get()));
+        startSweeping(unit);
+    }
+    
+    /**
+     * Schedules the flushing of all recipients with pending actions in the queue of the given unit.
+     * This method should be called when a unit is started in order to deliver the actions that were pushed before a restart.
+     */
+    @Impure
+    public static void resume(@Nonnull CoreUnit unit) {
+        executor.execute(() -> sweep(unit));
+    }
+    
+    /**
+     * Schedules the flushing of the recipients with pending actions in the queue of the given unit.
+     */
+    @Committing
     @PureWithSideEffects
-    public static void send(@Nonnull ExternalAction action) throws DatabaseException {
-        Log.error("The action '" + action + "' should have been pushed but this is not implemented yet."); // TODO: Write a real implementation!
+    private static void sweep(@Nonnull CoreUnit unit) {
+        final @Nonnull Set<@Nonnull HostIdentifier> identifiers = new LinkedHashSet<>();
+        startSweeping(unit);
+        try {
+            for (final @Nonnull PushEntry entry : load(unit, null)) { identifiers.add(entry.getRecipient()); }
+            Database.commit();
+        } catch (@Nonnull DatabaseException | RecoveryException exception) {
+            rollback();
+            Log.error("Could not sweep the queue of the pusher of the unit $.", exception, unit);
+            return;
+        }
+        for (final @Nonnull HostIdentifier identifier : identifiers) { schedule(getRecipient(unit, identifier), 0); }
+    }
+    
+    /* -------------------------------------------------- Scheduling -------------------------------------------------- */
+    
+    /**
+     * Returns the randomized delay in milliseconds before the next flush after the given number of consecutive failures.
+     * The delay is uniformly distributed between half and the full exponential backoff in order to spread the retries of different recipients.
+     */
+    @Pure
+    static @NonNegative long getDelay(@Positive int failures) {
+        final long backoff = Math.min((long) BACKOFF.get() << Math.min(failures - 1, 30), MAXIMUM_BACKOFF.get());
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
     }
     
-    // TODO: Make sure that failed pushs are signed and audited but not transmitted.
+    /**
+     * Schedules the flushing of the given recipient after the given delay unless a flush is already scheduled.
+     * If the recipient is currently being delivered to, it is flushed again after the delivery.
+     */
+    @Impure
+    private static void schedule(@Nonnull Recipient recipient, @NonNegative long delay) {
+        synchronized (recipients) {
+            if (recipient.delivering) { recipient.dirty = true; return; }
+            if (recipient.scheduled) { return; }
+            recipient.scheduled = true;
+        }
+        executor.schedule(() -> flush(recipient), delay, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Flushes the given recipient and reschedules it in case of a failure or of actions that were pushed in the meantime.
+     */
+    @Committing
+    @PureWithSideEffects
+    private static void flush(@Nonnull Recipient recipient) {
+        final boolean last;
+        synchronized (recipients) {
+            recipient.scheduled = false;
+            recipient.delivering = true;
+            recipient.dirty = false;
+            last = recipient.failures >= RETRIES.get();
+        }
+        boolean delivered;
+        try {
+            delivered = deliver(recipient, last);
+        } catch (@Nonnull RuntimeException exception) {
+            rollback();
+            Log.error("Could not flush the actions to $.", exception, recipient.identifier);
+            delivered = false;
+        }
+        final long delay;
+        synchronized (recipients) {
+            recipient.delivering = false;
+            if (!delivered) {
+                recipient.failures += 1;
+                delay = getDelay(recipient.failures);
+                Log.information("Retrying to push the actions to $ in $ ms.", recipient.identifier, delay);
+            } else {
+                recipient.failures = 0;
+                if (!recipient.dirty) { return; }
+                delay = DELAY.get();
+            }
+        }
+        schedule(recipient, delay);
+    }
+    
+    /* -------------------------------------------------- Delivery -------------------------------------------------- */
+    
+    /**
+     * Delivers the pending actions of the given recipient in their order, whereby consecutive similar actions are sent in a single request.
+     * If this is the last attempt, the actions that cannot be delivered fail instead of being retried later.
+     * 
+     * @return whether all pending actions have been delivered or have failed permanently.
+     */
+    @Committing
+    @PureWithSideEffects
+    private static boolean deliver(@Nonnull Recipient recipient, boolean last) {
+        final @Nonnull CoreUnit unit = recipient.unit;
+        final @Nonnull FreezableList<PushEntry> entries = FreezableArrayList.withNoElements();
+        final @Nonnull FreezableList<ExternalAction> actions = FreezableArrayList.withNoElements();
+        try {
+            for (final @Nonnull PushEntry entry : load(unit, recipient.identifier)) {
+                final @Nullable ExternalAction action = recover(unit, entry);
+                if (action != null) {
+                    entries.add(entry);
+                    actions.add(action);
+                } else {
+                    remove(unit, entry);
+                }
+            }
+            Database.commit();
+        } catch (@Nonnull DatabaseException | RecoveryException exception) {
+            rollback();
+            Log.error("Could not load the actions to be pushed to $.", exception, recipient.identifier);
+            return false;
+        }
+        
+        int start = 0;
+        while (start < actions.size()) {
+            int end = start + 1;
+            while (end < actions.size() && end - start < BATCH_SIZE.get() && isSimilar(actions.get(start), actions.get(end))) { end += 1; }
+            final @Nonnull FreezableList<PushEntry> batchEntries = FreezableArrayList.withInitialCapacity(end - start);
+            final @Nonnull FreezableList<ExternalAction> batchActions = FreezableArrayList.withInitialCapacity(end - start);
+            for (int i = start; i < end; i++) {
+                batchEntries.add(entries.get(i));
+                batchActions.add(actions.get(i));
+            }
+            try {
+                Method.sendBatch(batchActions);
+                for (final @Nonnull ExternalAction action : batchActions) { action.executeOnSuccess(); }
+                for (final @Nonnull PushEntry entry : batchEntries) { remove(unit, entry); }
+                Database.commit();
+            } catch (@Nonnull ExternalException exception) {
+                rollback();
+                final boolean retriable = exception instanceof NetworkException || exception instanceof RequestException && ((RequestException) exception).getCode() == RequestErrorCode.BUSY;
+                if (retriable && !last) {
+                    Log.warning("Could not push the actions $ to $.", exception, batchActions, recipient.identifier);
+                    return false;
+                }
+                Log.error("Failed to push the actions $ to $ due to the following problem:", exception, batchActions, recipient.identifier);
+                if (!fail(unit, batchEntries, batchActions)) { return false; }
+            } catch (@Nonnull DatabaseException exception) {
+                rollback();
+                Log.error("Could not commit the transaction after pushing the actions $.", exception, batchActions);
+                return false;
+            }
+            start = end;
+        }
+        return true;
+    }
+    
+    /**
+     * Recovers the action of the given entry or returns null if the entry does not contain an external action that can be recovered.
+     */
+    @Pure
+    @NonCommitting
+    private static @Nullable ExternalAction recover(@Nonnull CoreUnit unit, @Nonnull PushEntry entry) throws DatabaseException {
+        try {
+            final @Nonnull Method<?> method = MethodIndex.get(entry.getAction(), NonHostEntity.with(unit, entry.getEntity()));
+            if (method instanceof ExternalAction) { return (ExternalAction) method; }
+            Log.error("Removing the entry $ from the queue of the pusher because the method $ is not an external action.", entry.getSequence(), method);
+        } catch (@Nonnull RecoveryException | RequestException exception) {
+            Log.error("Removing the entry $ from the queue of the pusher because its action could not be recovered.", exception, entry.getSequence());
+        }
+        return null;
+    }
+    
+    /**
+     * Returns whether the given actions are similar to each other in both directions and can thus be sent in a single request.
+     */
+    @Pure
+    private static boolean isSimilar(@Nonnull ExternalAction reference, @Nonnull ExternalAction action) {
+        return reference.isSimilarTo(action) && action.isSimilarTo(reference);
+    }
+    
+    /**
+     * Executes the failure handlers of the given actions and removes their entries.
+     * 
+     * @return whether the transaction could be committed.
+     */
+    @Committing
+    @PureWithSideEffects
+    private static boolean fail(@Nonnull CoreUnit unit, @Nonnull FreezableList<PushEntry> entries, @Nonnull FreezableList<ExternalAction> actions) {
+        try {
+            for (final @Nonnull ExternalAction action : actions) { action.executeOnFailure(); }
+            for (final @Nonnull PushEntry entry : entries) { remove(unit, entry); }
+            Database.commit();
+            return true;
+        } catch (@Nonnull DatabaseException exception) {
+            rollback();
+            Log.error("Could not execute the failure handlers of the actions $.", exception, actions);
+            return false;
+        }
+    }
+    
+    /**
+     * Rolls back the current transaction and logs a failure.
+     */
+    @PureWithSideEffects
+    private static void rollback() {
+        try {
+            Database.rollback();
+        } catch (@Nonnull DatabaseException exception) {
+            Log.warning("Could not roll back the transaction.", exception);
+        }
+    }
     
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.pusher;
+
+import net.digitalid.utility.testing.UtilityTest;
+
+import org.junit.Test;
+
+public class PusherTest extends UtilityTest {
+    
+    @Test
+    public void shouldIncreaseTheDelayExponentially() {
+        for (int failures = 1; failures <= 10; failures++) {
+            final long backoff = (long) Pusher.BACKOFF.get() << (failures - 1);
+            for (int i = 0; i < 100; i++) {
+                assertThat(Pusher.getDelay(failures)).isBetween(backoff / 2, backoff);
+            }
+        }
+    }
+    
+    @Test
+    public void shouldLimitTheDelay() {
+        for (int failures = 1; failures <= 100; failures++) {
+            assertThat(Pusher.getDelay(failures)).isBetween(0L, (long) Pusher.MAXIMUM_BACKOFF.get());
+        }
+    }
+    
+    @Test
+    public void shouldRandomizeTheDelay() {
+        final long delay = Pusher.getDelay(8);
+        boolean different = false;
+        for (int i = 0; i < 100 && !different; i++) { different = Pusher.getDelay(8) != delay; }
+        assertThat(different).isTrue();
+    }
+    
+}
@@ -21,12 +21,16 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.annotations.ownership.Capturable;
 import net.digitalid.utility.collaboration.annotations.TODO;
 import net.digitalid.utility.collaboration.enumerations.Author;
+import net.digitalid.utility.collections.list.FreezableArrayList;
+import net.digitalid.utility.collections.list.FreezableList;
 import net.digitalid.utility.conversion.converters.Integer64Converter;
 import net.digitalid.utility.conversion.exceptions.RecoveryException;
 import net.digitalid.utility.exceptions.CaseExceptionBuilder;
 import net.digitalid.utility.exceptions.ExternalException;
+import net.digitalid.utility.freezable.annotations.NonFrozen;
 import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
 import net.digitalid.utility.initialization.annotations.Initialize;
 import net.digitalid.utility.logging.Log;
@@ -45,6 +49,7 @@ import net.digitalid.core.identification.identifier.IdentifierConverter;
 import net.digitalid.core.identification.identifier.InternalNonHostIdentifier;
 import net.digitalid.core.identification.identifier.MobileIdentifier;
 import net.digitalid.core.identification.identity.Category;
+import net.digitalid.core.identification.identity.CategoryConverter;
 import net.digitalid.core.identification.identity.IdentifierResolver;
 import net.digitalid.core.identification.identity.Identity;
 import net.digitalid.core.identification.identity.Type;
@@ -116,6 +121,26 @@ public abstract class IdentifierResolverImplementation extends IdentifierResolve
         return identity;
     }
     
+    /* -------------------------------------------------- Bulk Loading -------------------------------------------------- */
+    
+    @Override
+    @NonCommitting
+    @PureWithSideEffects
+    public @Capturable @Nonnull @NonFrozen FreezableList<@Nonnull Identity> loadAll(@Nonnull Category category) throws DatabaseException, RecoveryException {
+        final @Nonnull WhereCondition<Category> whereCondition = WhereConditionBuilder.withConverter(CategoryConverter.INSTANCE).withObject(category).withPrefix("category").build();
+        final @Nonnull FreezableList<@Nonnull Identity> identities = FreezableArrayList.withNoElements();
+        for (final @Nonnull IdentityEntry entry : SQL.selectAll(IdentityEntryConverter.INSTANCE, null, GeneralUnit.INSTANCE, whereCondition)) {
+            @Nullable Identity identity = mapper.getIdentity(entry.getKey());
+            if (identity == null) {
+                identity = createIdentity(entry.getCategory(), entry.getKey(), entry.getAddress());
+                mapper.map(identity);
+            }
+            identities.add(identity);
+        }
+        Log.verbose("Loaded $ identities of the category $ at once.", identities.size(), category);
+        return identities;
+    }
+    
     /* -------------------------------------------------- Identfier Mapping -------------------------------------------------- */
     
     @Override
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.resolution;
+
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.collections.list.FreezableArrayList;
+import net.digitalid.utility.collections.list.FreezableList;
+
+import net.digitalid.database.annotations.transaction.NonCommitting;
+import net.digitalid.database.exceptions.DatabaseException;
+import net.digitalid.database.exceptions.DatabaseExceptionBuilder;
+import net.digitalid.database.interfaces.Database;
+
+import net.digitalid.core.identification.identifier.Identifier;
+import net.digitalid.core.identification.identity.Category;
+import net.digitalid.core.identification.identity.IdentifierResolver;
+import net.digitalid.core.identification.identity.Identity;
+import net.digitalid.core.identification.identity.SemanticType;
+import net.digitalid.core.identification.identity.TypeRegistry;
+import net.digitalid.core.testing.CoreTest;
+import net.digitalid.core.testing.providers.TestIdentifierResolver;
+
+import org.junit.Test;
+
+public class TypeRegistryTest extends CoreTest {
+    
+    private static final @Nonnull ExecutorService executor = Executors.newFixedThreadPool(8);
+    
+    @Test
+    public void shouldPersistConcurrentMappingsExactlyOnce() throws Exception {
+        final long mappings = TypeRegistry.getMappings();
+        final @Nonnull FreezableList<@Nonnull Future<SemanticType>> futures = FreezableArrayList.withNoElements();
+        for (int i = 0; i < 32; i++) { futures.add(executor.submit(() -> SemanticType.map("concurrent.type@test.digitalid.net"))); }
+        final long key = futures.get(0).get().getKey();
+        for (final @Nonnull Future<SemanticType> future : futures) { assertThat(future.get().getKey()).isEqualTo(key); }
+        assertThat(TypeRegistry.getMappings()).isEqualTo(mappings + 1);
+    }
+    
+    @Test
+    public void shouldKeepMappingsWhenTheCallerRollsBack() throws Exception {
+        final long key = executor.submit(() -> {
+            final @Nonnull SemanticType type = SemanticType.map("rolledback.type@test.digitalid.net");
+            Database.rollback();
+            return type.getKey();
+        }).get();
+        final long mappings = TypeRegistry.getMappings();
+        assertThat(SemanticType.map("rolledback.type@test.digitalid.net").getKey()).isEqualTo(key);
+        assertThat(TypeRegistry.getMappings()).isEqualTo(mappings);
+    }
+    
+    @Test
+    public void shouldLoadPersistedTypesAtOnce() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            final @Nonnull String identifier = "persisted" + i + ".type@test.digitalid.net";
+            executor.submit(() -> SemanticType.map(identifier)).get();
+        }
+        TypeRegistry.reset();
+        final long mappings = TypeRegistry.getMappings();
+        SemanticType.map("persisted0.type@test.digitalid.net");
+        assertThat(TypeRegistry.size()).isGreaterThanOrEqualTo(10);
+        for (int i = 0; i < 10; i++) { SemanticType.map("persisted" + i + ".type@test.digitalid.net"); }
+        assertThat(TypeRegistry.getMappings()).isEqualTo(mappings);
+    }
+    
+    /**
+     * This identifier resolver blocks all mappings of the type registry until it is released, as if they waited for locks held by the callers,
+     * and then rejects them, as if the callers had already committed the same identifiers.
+     */
+    private static class BlockingIdentifierResolver extends TestIdentifierResolver {
+        
+        private final @Nonnull ThreadLocal<@Nonnull Boolean> caller = ThreadLocal.withInitial(() -> false);
+        
+        private final @Nonnull CountDownLatch release = new CountDownLatch(1);
+        
+        @Override
+        @NonCommitting
+        @PureWithSideEffects
+        public @Nonnull Identity map(@Nonnull Category category, @Nonnull Identifier address) throws DatabaseException {
+            if (caller.get()) { return super.map(category, address); }
+            try {
+                release.await();
+            } catch (@Nonnull InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            throw DatabaseExceptionBuilder.withCause(new SQLException("The identifier " + address.getString() + " has already been mapped.")).build();
+        }
+        
+    }
+    
+    @Test
+    public void shouldMapTypesInTheCurrentTransactionIfTheRegistryDoesNotRespond() throws Exception {
+        final @Nonnull IdentifierResolver identifierResolver = IdentifierResolver.configuration.get();
+        final @Nonnull BlockingIdentifierResolver blockingResolver = new BlockingIdentifierResolver();
+        final int timeout = TypeRegistry.TIMEOUT.get();
+        IdentifierResolver.configuration.set(blockingResolver);
+        TypeRegistry.TIMEOUT.set(100);
+        try {
+            final @Nonnull FreezableList<@Nonnull Future<Long>> futures = FreezableArrayList.withNoElements();
+            for (int i = 0; i < 8; i++) {
+                final @Nonnull String identifier = "blocked" + i + ".type@test.digitalid.net";
+                futures.add(executor.submit(() -> {
+                    blockingResolver.caller.set(true);
+                    final @Nonnull SemanticType type = SemanticType.map(identifier);
+                    Database.commit();
+                    return type.getKey();
+                }));
+            }
+            for (int i = 0; i < 8; i++) {
+                final long key = futures.get(i).get(10, TimeUnit.SECONDS);
+                assertThat(SemanticType.map("blocked" + i + ".type@test.digitalid.net").getKey()).isEqualTo(key);
+            }
+        } finally {
+            blockingResolver.release.countDown();
+            TypeRegistry.TIMEOUT.set(timeout);
+            IdentifierResolver.configuration.set(identifierResolver);
+        }
+    }
+    
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.configuration.Configuration;
+import net.digitalid.utility.time.Time;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.math.Positive;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+import net.digitalid.utility.validation.annotations.type.Utility;
+
+import net.digitalid.core.conversion.exceptions.NetworkException;
+import net.digitalid.core.conversion.exceptions.NetworkExceptionBuilder;
+import net.digitalid.core.exceptions.request.RequestErrorCode;
+import net.digitalid.core.exceptions.request.RequestExceptionBuilder;
+import net.digitalid.core.packet.Busy;
+import net.digitalid.core.packet.BusyBuilder;
+
+/**
+ * The admission control bounds the number of requests of each {@link RequestClass request class} that are executed and waiting at the same time.
+ * Requests which cannot be admitted or which waited longer than the {@link #DEADLINE} are rejected with a {@link Busy busy notice}.
+ * 
+ * @see Listener
+ * @see Worker
+ */
+@Utility
+public abstract class AdmissionControl {
+    
+    /* -------------------------------------------------- Configurations -------------------------------------------------- */
+    
+    /**
+     * Stores the number of queries that can be executed at the same time.
+     */
+    public static final @Nonnull Configuration<Integer> QUERY_PERMITS = Configuration.with(8);
+    
+    /**
+     * Stores the number of queries that can wait for their execution at the same time.
+     */
+    public static final @Nonnull Configuration<Integer> QUERY_QUEUE = Configuration.with(4);
+    
+    /**
+     * Stores the number of actions that can be executed at the same time.
+     * Together with the waiting actions, they should occupy less workers than the listener has so that queries can always proceed.
+     */
+    public static final @Nonnull Configuration<Integer> ACTION_PERMITS = Configuration.with(2);
+    
+    /**
+     * Stores the number of actions that can wait for their execution at the same time.
+     */
+    public static final @Nonnull Configuration<Integer> ACTION_QUEUE = Configuration.with(2);
+    
+    /**
+     * Stores the time in milliseconds after which a request that has not been executed since its acceptance is rejected.
+     * This deadline should be considerably shorter than the {@link net.digitalid.core.packet.Request#TIMEOUT} of the client.
+     */
+    public static final @Nonnull Configuration<Integer> DEADLINE = Configuration.with(2000);
+    
+    /**
+     * Stores the time in milliseconds after which a client should retry a rejected request if no request of the same class is waiting.
+     */
+    public static final @Nonnull Configuration<Integer> RETRY_AFTER = Configuration.with(500);
+    
+    /**
+     * Stores the time in milliseconds during which the remainder of a rejected request is discarded at most before the socket is closed.
+     */
+    public static final @Nonnull Configuration<Integer> DISCARD_TIMEOUT = Configuration.with(100);
+    
+    /**
+     * Stores the number of bytes of a rejected request that are discarded at most before the socket is closed.
+     */
+    public static final int DISCARD_LIMIT = 65_536;
+    
+    /* -------------------------------------------------- Gates -------------------------------------------------- */
+    
+    /**
+     * A gate bounds the number of requests of a single class that are executed and waiting at the same time.
+     */
+    @Mutable
+    private static final class Gate {
+        
+        private final @Nonnull Semaphore permits;
+        
+        private final int capacity;
+        
+        private final @Nonnull AtomicInteger waiting = new AtomicInteger();
+        
+        private Gate(@Positive int permits, @NonNegative int capacity) {
+            this.permits = new Semaphore(permits, true);
+            this.capacity = capacity;
+        }
+        
+    }
+    
+    /**
+     * Stores the gate of each request class, whose sizes are read from the configurations when this class is loaded.
+     */
+    private static final @Nonnull Map<@Nonnull RequestClass, @Nonnull Gate> gates = new EnumMap<>(RequestClass.class);
+    
+    static {
+        gates.put(RequestClass.QUERY, new Gate(QUERY_PERMITS.get(), QUERY_QUEUE.get()));
+        gates.put(RequestClass.ACTION, new Gate(ACTION_PERMITS.get(), ACTION_QUEUE.get()));
+    }
+    
+    /* -------------------------------------------------- Admission -------------------------------------------------- */
+    
+    /**
+     * Returns whether the request that was accepted at the given time has already waited longer than the {@link #DEADLINE}.
+     */
+    @Pure
+    public static boolean isExpired(@Nonnull Time acceptance) {
+        return acceptance.ago().getValue() > DEADLINE.get();
+    }
+    
+    /**
+     * Tries to admit a request of the given class that was accepted at the given time.
+     * If all permits of the class are taken, the request waits until the {@link #DEADLINE} unless too many requests of the class are already waiting.
+     * 
+     * @return whether the request was admitted, in which case {@link #leave(RequestClass)} has to be called after its execution.
+     */
+    @Impure
+    public static boolean enter(@Nonnull RequestClass requestClass, @Nonnull Time acceptance) {
+        final @Nonnull Gate gate = gates.get(requestClass);
+        if (gate.permits.tryAcquire()) { return true; }
+        if (gate.waiting.incrementAndGet() > gate.capacity) {
+            gate.waiting.decrementAndGet();
+            return false;
+        }
+        try {
+            final long remaining = DEADLINE.get() - acceptance.ago().getValue();
+            return remaining > 0 && gate.permits.tryAcquire(remaining, TimeUnit.MILLISECONDS);
+        } catch (@Nonnull InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            gate.waiting.decrementAndGet();
+        }
+    }
+    
+    /**
+     * Releases the permit of a request of the given class that was admitted with {@link #enter(RequestClass, Time)}.
+     */
+    @Impure
+    public static void leave(@Nonnull RequestClass requestClass) {
+        gates.get(requestClass).permits.release();
+    }
+    
+    /* -------------------------------------------------- Rejection -------------------------------------------------- */
+    
+    /**
+     * Returns the time in milliseconds after which a client should retry a rejected request of the given class.
+     * The hint grows with the number of requests of the class that are currently waiting.
+     * 
+     * @param requestClass the class of the rejected request or null if the request has not been decoded.
+     */
+    @Pure
+    public static @NonNegative long getRetryAfter(@Nullable RequestClass requestClass) {
+        final int waiting = requestClass == null ? 0 : gates.get(requestClass).waiting.get();
+        return (long) RETRY_AFTER.get() * (1 + waiting);
+    }
+    
+    /**
+     * Replies to the request on the given socket with a busy notice that contains the given message.
+     * Afterwards, the remainder of the request is discarded so that closing the socket does not reset the connection before the client has read the notice.
+     * In order not to occupy the calling thread, at most {@link #DISCARD_LIMIT} bytes are discarded during at most the {@link #DISCARD_TIMEOUT}.
+     * 
+     * @param requestClass the class of the rejected request or null if the request has not been decoded.
+     */
+    @PureWithSideEffects
+    public static void reject(@Nonnull Socket socket, @Nullable RequestClass requestClass, @Nonnull String message) throws NetworkException {
+        final @Nonnull Busy busy = BusyBuilder.withRequestException(RequestExceptionBuilder.withCode(RequestErrorCode.BUSY).withMessage(message).build()).withRetryAfter(getRetryAfter(requestClass)).build();
+        busy.pack().storeTo(socket);
+        try {
+            socket.shutdownOutput();
+            socket.setSoTimeout(DISCARD_TIMEOUT.get());
+            final long deadline = System.currentTimeMillis() + DISCARD_TIMEOUT.get();
+            final @Nonnull InputStream inputStream = socket.getInputStream();
+            final @Nonnull byte[] buffer = new byte[1024];
+            int discarded = 0;
+            while (discarded < DISCARD_LIMIT && System.currentTimeMillis() < deadline) {
+                final int read = inputStream.read(buffer);
+                if (read < 0) { break; }
+                discarded += read;
+            }
+        } catch (@Nonnull SocketTimeoutException exception) {
+            // The client did not send the remainder of its request in time, which is why the socket is closed anyway.
+        } catch (@Nonnull IOException exception) {
+            throw NetworkExceptionBuilder.withCause(exception).build();
+        }
+    }
+    
+}
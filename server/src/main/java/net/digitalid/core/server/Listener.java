@@ -24,11 +24,14 @@ import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
+import net.digitalid.utility.annotations.method.Pure;
 import net.digitalid.utility.annotations.method.PureWithSideEffects;
 import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
 import net.digitalid.utility.logging.Log;
 import net.digitalid.utility.threading.NamedThreadFactory;
+import net.digitalid.utility.time.TimeBuilder;
 import net.digitalid.utility.validation.annotations.type.Immutable;
 
 import net.digitalid.core.packet.Request;
@@ -47,28 +50,106 @@ public class Listener extends Thread {
      */
     private final @Nonnull ServerSocket serverSocket;
     
-    /* -------------------------------------------------- Executor -------------------------------------------------- */
+    /* -------------------------------------------------- Executors -------------------------------------------------- */
+    
+    /**
+     * The thread pool executor runs the {@link Rejecter rejecters} that reply with a busy notice if no {@link Worker worker} is available.
+     * Since rejecting a request is cheap, a single thread with a large queue suffices and connections are only closed without a reply if even this queue is full.
+     */
+    private final @Nonnull ThreadPoolExecutor rejectingExecutor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(256), NamedThreadFactory.with("Rejecter"), new ThreadPoolExecutor.AbortPolicy());
     
     /**
      * The thread pool executor runs the {@link Worker workers} that handle the incoming {@link Request requests}.
      */
-    private final @Nonnull ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(8, 16, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(32), NamedThreadFactory.with("Worker"), new ThreadPoolExecutor.AbortPolicy());
+    private final @Nonnull ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(8, 16, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(32), NamedThreadFactory.with("Worker"), this::reject);
+    
+    /**
+     * Hands the socket of the given worker, which was rejected by the given executor, to a {@link Rejecter rejecter}.
+     */
+    @PureWithSideEffects
+    private void reject(@Nonnull Runnable worker, @Nonnull ThreadPoolExecutor executor) {
+        reject(((Worker) worker).getSocket());
+    }
+    
+    /**
+     * Hands the given socket, for which no worker is available, to a {@link Rejecter rejecter}.
+     */
+    @PureWithSideEffects
+    private void reject(@Nonnull Socket socket) {
+        reject(RejecterBuilder.withSocket(socket).build(), socket);
+    }
+    
+    /**
+     * Hands the given socket, whose request of the given class was decoded but cannot be executed, to a {@link Rejecter rejecter}, which replies with the given message.
+     * The rejecter closes the socket so that the caller may no longer use it.
+     */
+    @PureWithSideEffects
+    void reject(@Nonnull Socket socket, @Nullable RequestClass requestClass, @Nonnull String message) {
+        reject(RejecterBuilder.withSocket(socket).withRequestClass(requestClass).withMessage(message).build(), socket);
+    }
+    
+    /**
+     * Runs the given rejecter or closes the given socket if the queue of the rejecters is full.
+     */
+    @PureWithSideEffects
+    private void reject(@Nonnull Rejecter rejecter, @Nonnull Socket socket) {
+        try {
+            rejectingExecutor.execute(rejecter);
+        } catch (@Nonnull RejectedExecutionException exception) {
+            Log.warning("Could not add a new rejecter.", exception);
+            try {
+                socket.close();
+            } catch (@Nonnull IOException closingException) {
+                Log.warning("Could not close the socket.", closingException);
+            }
+        }
+    }
+    
+    /* -------------------------------------------------- Stages -------------------------------------------------- */
+    
+    /**
+     * Stores the stage which decodes the requests and encodes the replies if the {@link Pipeline pipeline} is {@link Pipeline#STAGED staged}.
+     */
+    private final @Nonnull Pipeline.Stage cryptoStage;
+    
+    /**
+     * Returns the stage which decodes the requests and encodes the replies if the {@link Pipeline pipeline} is {@link Pipeline#STAGED staged}.
+     */
+    @Pure
+    @Nonnull Pipeline.Stage getCryptoStage() {
+        return cryptoStage;
+    }
+    
+    /**
+     * Stores the stage which executes the methods if the {@link Pipeline pipeline} is {@link Pipeline#STAGED staged}.
+     */
+    private final @Nonnull Pipeline.Stage executionStage;
+    
+    /**
+     * Returns the stage which executes the methods if the {@link Pipeline pipeline} is {@link Pipeline#STAGED staged}.
+     */
+    @Pure
+    @Nonnull Pipeline.Stage getExecutionStage() {
+        return executionStage;
+    }
     
     /* -------------------------------------------------- Constructor -------------------------------------------------- */
     
     /**
-     * Creates a new listener that accepts incoming requests.
+     * Creates a new listener that accepts incoming requests with stages whose sizes are read from the configurations of the {@link Pipeline pipeline}.
      */
     Listener() throws IOException {
         super("Listener");
         
         this.serverSocket = new ServerSocket(Request.PORT.get());
+        this.cryptoStage = new Pipeline.Stage("Crypto", Pipeline.CRYPTO_THREADS.get(), Pipeline.CRYPTO_QUEUE.get());
+        this.executionStage = new Pipeline.Stage("Execution", Pipeline.EXECUTION_THREADS.get(), Pipeline.EXECUTION_QUEUE.get());
     }
     
     /* -------------------------------------------------- Running -------------------------------------------------- */
     
     /**
-     * Accepts incoming requests and lets them handle by {@link Worker workers}.
+     * Accepts incoming requests and lets them handle by {@link Worker workers}, which are run by the {@link Pipeline pipeline} if it is {@link Pipeline#STAGED staged}.
      */
     @Override
     @PureWithSideEffects
@@ -77,30 +158,55 @@ public class Listener extends Thread {
             try {
                 final @Nonnull Socket socket = serverSocket.accept();
                 socket.setSoTimeout(Request.TIMEOUT.get());
-                try {
-                    threadPoolExecutor.execute(WorkerBuilder.withSocket(socket).build());
-                    Log.verbose("Connection accepted from '" + socket.getInetAddress().toString().substring(1) + "'.");
-                } catch (@Nonnull RejectedExecutionException exception) {
-                    Log.warning("Could not add a new worker.", exception);
-                    socket.close();
+                final @Nonnull Worker worker = WorkerBuilder.withSocket(socket).withAcceptanceTime(TimeBuilder.build()).build();
+                if (Pipeline.STAGED.get()) {
+                    if (!cryptoStage.handOff(() -> worker.decodeStaged(this))) { reject(socket); }
+                } else {
+                    threadPoolExecutor.execute(worker);
                 }
+                Log.verbose("Connection accepted from '" + socket.getInetAddress().toString().substring(1) + "'.");
             } catch (@Nonnull IOException exception) {
-                if (!serverSocket.isClosed()) { Log.warning("Could not accept or close a socket.", exception); }
+                if (!serverSocket.isClosed()) { Log.warning("Could not accept a socket.", exception); }
             }
         }
     }
     
     /* -------------------------------------------------- Shut Down -------------------------------------------------- */
     
+    /**
+     * Shuts down the given executor and logs a warning if its pending tasks could not be run within five seconds.
+     */
+    @PureWithSideEffects
+    private static void shutDown(@Nonnull String name, @Nonnull ThreadPoolExecutor executor) throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(5L, TimeUnit.SECONDS)) { Log.warning("The $ did not terminate within five seconds.", name); }
+    }
+    
+    /**
+     * Shuts down the given stage and logs a warning if its pending tasks could not be run within five seconds.
+     */
+    @PureWithSideEffects
+    private static void shutDown(@Nonnull Pipeline.Stage stage) throws InterruptedException {
+        if (stage.shutDown(5L, TimeUnit.SECONDS)) {
+            Log.information("Shut down the $.", stage);
+        } else {
+            Log.warning("The $ did not terminate within five seconds.", stage);
+        }
+    }
+    
     /**
      * Shuts down the listener after having handled all pending requests.
+     * The crypto stage is shut down before the execution stage so that the requests which it decoded can still be executed,
+     * and the rejecters are shut down last as the workers and the stages can hand requests off to them.
      */
     @PureWithSideEffects
     void shutDown() {
         try {
             serverSocket.close();
-            threadPoolExecutor.shutdown();
-            threadPoolExecutor.awaitTermination(5L, TimeUnit.SECONDS);
+            shutDown("worker executor", threadPoolExecutor);
+            shutDown(cryptoStage);
+            shutDown(executionStage);
+            shutDown("rejecting executor", rejectingExecutor);
         } catch (@Nonnull IOException | InterruptedException exception) {
             Log.warning("Could not shut down the listener.", exception);
         }
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.server;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.configuration.Configuration;
+import net.digitalid.utility.threading.NamedThreadFactory;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.math.Positive;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+import net.digitalid.utility.validation.annotations.type.Utility;
+
+/**
+ * The pipeline handles incoming requests in stages if it is {@link #STAGED staged}.
+ * The crypto stage decrypts requests, verifies their signatures and signs and encrypts the replies, which is bound by the processors,
+ * whereas the execution stage executes the methods and commits their effects, which is bound by the database.
+ * Each stage has its own threads and its own bounded queue so that each stage can be sized to the resource which it is bound by.
+ * The stages are owned by the {@link Listener listener} so that they are created and shut down together with it.
+ * 
+ * @see Listener
+ * @see Worker
+ */
+@Utility
+public abstract class Pipeline {
+    
+    /* -------------------------------------------------- Configurations -------------------------------------------------- */
+    
+    /**
+     * Stores whether the incoming requests are handled in stages instead of by a single {@link Worker worker} each.
+     * The value is read for each accepted request so that the mode can be changed while the server is running.
+     */
+    public static final @Nonnull Configuration<Boolean> STAGED = Configuration.with(false);
+    
+    /**
+     * Stores the number of threads of the crypto stage, which should not exceed the number of processors.
+     * The value is read when the {@link Listener listener} is created.
+     */
+    public static final @Nonnull Configuration<Integer> CRYPTO_THREADS = Configuration.with(Runtime.getRuntime().availableProcessors());
+    
+    /**
+     * Stores the number of tasks that can wait in the queue of the crypto stage.
+     */
+    public static final @Nonnull Configuration<Integer> CRYPTO_QUEUE = Configuration.with(64);
+    
+    /**
+     * Stores the number of threads of the execution stage, which should not exceed the number of database connections.
+     * The threads have to accommodate the requests that are executed and waiting in the {@link AdmissionControl admission control}.
+     * The value is read when the {@link Listener listener} is created.
+     */
+    public static final @Nonnull Configuration<Integer> EXECUTION_THREADS = Configuration.with(16);
+    
+    /**
+     * Stores the number of tasks that can wait in the queue of the execution stage.
+     */
+    public static final @Nonnull Configuration<Integer> EXECUTION_QUEUE = Configuration.with(32);
+    
+    /* -------------------------------------------------- Stages -------------------------------------------------- */
+    
+    /**
+     * A stage runs the tasks that are handed off to it on its own threads and records the statistics of its queue.
+     */
+    @Mutable
+    public static final class Stage {
+        
+        private final @Nonnull String name;
+        
+        private final @Nonnull ThreadPoolExecutor executor;
+        
+        private final @Nonnull AtomicLong handedOff = new AtomicLong();
+        
+        private final @Nonnull AtomicLong rejected = new AtomicLong();
+        
+        private final @Nonnull AtomicLong started = new AtomicLong();
+        
+        private final @Nonnull AtomicLong waitingTime = new AtomicLong();
+        
+        private final @Nonnull AtomicInteger maximumQueueSize = new AtomicInteger();
+        
+        Stage(@Nonnull String name, @Positive int threads, @Positive int capacity) {
+            this.name = name;
+            this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(capacity), NamedThreadFactory.with(name), new ThreadPoolExecutor.AbortPolicy());
+        }
+        
+        /**
+         * Hands the given task off to this stage unless its queue is full.
+         * 
+         * @return whether the task was accepted, otherwise the caller is responsible for the request.
+         */
+        @Impure
+        boolean handOff(@Nonnull Runnable task) {
+            final long enqueued = System.nanoTime();
+            try {
+                executor.execute(() -> {
+                    waitingTime.addAndGet(System.nanoTime() - enqueued);
+                    started.incrementAndGet();
+                    task.run();
+                });
+            } catch (@Nonnull RejectedExecutionException exception) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            handedOff.incrementAndGet();
+            maximumQueueSize.accumulateAndGet(executor.getQueue().size(), Math::max);
+            return true;
+        }
+        
+        /**
+         * Returns the number of tasks that are currently waiting in the queue of this stage.
+         */
+        @Pure
+        public @NonNegative int getQueueSize() {
+            return executor.getQueue().size();
+        }
+        
+        /**
+         * Returns the largest number of tasks that waited in the queue of this stage since the last reset.
+         */
+        @Pure
+        public @NonNegative int getMaximumQueueSize() {
+            return maximumQueueSize.get();
+        }
+        
+        /**
+         * Returns the number of threads of this stage that are currently running a task.
+         */
+        @Pure
+        public @NonNegative int getActiveThreads() {
+            return executor.getActiveCount();
+        }
+        
+        /**
+         * Returns the number of tasks that were handed off to this stage since the last reset.
+         */
+        @Pure
+        public @NonNegative long getHandedOff() {
+            return handedOff.get();
+        }
+        
+        /**
+         * Returns the number of tasks that were rejected by this stage because its queue was full since the last reset.
+         */
+        @Pure
+        public @NonNegative long getRejected() {
+            return rejected.get();
+        }
+        
+        /**
+         * Returns the average time in milliseconds that the tasks waited in the queue of this stage since the last reset.
+         */
+        @Pure
+        public @NonNegative double getAverageWaitingTime() {
+            final long number = started.get();
+            return number == 0 ? 0 : waitingTime.get() / 1e6 / number;
+        }
+        
+        /**
+         * Resets the statistics of this stage.
+         */
+        @Impure
+        public void resetStatistics() {
+            handedOff.set(0);
+            rejected.set(0);
+            started.set(0);
+            waitingTime.set(0);
+            maximumQueueSize.set(0);
+        }
+        
+        /**
+         * Shuts down this stage after having run all pending tasks.
+         * 
+         * @return whether all pending tasks were run within the given timeout.
+         */
+        @PureWithSideEffects
+        boolean shutDown(long timeout, @Nonnull TimeUnit unit) throws InterruptedException {
+            executor.shutdown();
+            return executor.awaitTermination(timeout, unit);
+        }
+        
+        @Pure
+        @Override
+        public @Nonnull String toString() {
+            return name + " stage: " + getHandedOff() + " handed off, " + getRejected() + " rejected, " + getQueueSize() + " queued (at most " + getMaximumQueueSize() + "), " + String.format("%.2f", getAverageWaitingTime()) + " ms waited on average";
+        }
+        
+    }
+    
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.server;
+
+import java.io.IOException;
+import java.net.Socket;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
+import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.logging.Log;
+import net.digitalid.utility.validation.annotations.generation.Default;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+import net.digitalid.core.conversion.exceptions.NetworkException;
+
+/**
+ * A rejecter replies with a {@link net.digitalid.core.packet.Busy busy notice} to a request for which no {@link Worker worker} or no stage of the {@link Pipeline pipeline} is available.
+ * 
+ * @see Listener
+ */
+@Immutable
+@GenerateBuilder
+@GenerateSubclass
+public abstract class Rejecter implements Runnable {
+    
+    /**
+     * Returns the socket which this rejecter is connected to.
+     */
+    @Pure
+    protected abstract @Nonnull Socket getSocket();
+    
+    /**
+     * Returns the class of the rejected request or null if the request has not yet been decoded.
+     */
+    @Pure
+    @Default("null")
+    protected abstract @Nullable RequestClass getRequestClass();
+    
+    /**
+     * Returns the message of the busy notice.
+     */
+    @Pure
+    @Default("\"The server is too busy to handle the request.\"")
+    protected abstract @Nonnull String getMessage();
+    
+    /**
+     * Asynchronous method to reject the incoming request.
+     */
+    @Override
+    @PureWithSideEffects
+    public void run() {
+        try {
+            AdmissionControl.reject(getSocket(), getRequestClass(), getMessage());
+            Log.information("Rejected a request of the class $ from $ with the message '$'.", getRequestClass(), getSocket().getInetAddress().getHostAddress(), getMessage());
+        } catch (@Nonnull NetworkException exception) {
+            Log.warning("Could not send a busy notice.", exception);
+        } finally {
+            try {
+                if (!getSocket().isClosed()) { getSocket().close(); }
+            } catch (@Nonnull IOException exception) {
+                Log.warning("Could not close the socket.", exception);
+            }
+        }
+    }
+    
+}
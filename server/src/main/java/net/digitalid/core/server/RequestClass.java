@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.server;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+import net.digitalid.core.handler.method.Method;
+import net.digitalid.core.handler.method.query.Query;
+
+/**
+ * This class enumerates the classes of requests which are admitted separately by the {@link AdmissionControl}
+ * so that a flood of expensive actions cannot starve the cheap queries and vice versa.
+ */
+@Immutable
+public enum RequestClass {
+    
+    /**
+     * The class of queries, which only read data and are thus cheap to execute.
+     */
+    QUERY,
+    
+    /**
+     * The class of actions, which modify data and are thus more expensive to execute.
+     */
+    ACTION;
+    
+    /* -------------------------------------------------- Classification -------------------------------------------------- */
+    
+    /**
+     * Returns the class of the request with the given method.
+     */
+    @Pure
+    public static @Nonnull RequestClass of(@Nonnull Method<?> method) {
+        return method instanceof Query ? QUERY : ACTION;
+    }
+    
+}
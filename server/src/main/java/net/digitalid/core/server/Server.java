@@ -22,9 +22,11 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.collections.list.FreezableArrayList;
+import net.digitalid.utility.collections.list.FreezableList;
 import net.digitalid.utility.configuration.Configuration;
 import net.digitalid.utility.console.Console;
-import net.digitalid.utility.conversion.exceptions.ConversionException;
 import net.digitalid.utility.exceptions.ExternalException;
 import net.digitalid.utility.file.Files;
 import net.digitalid.utility.functional.iterables.FiniteIterable;
@@ -37,15 +39,23 @@ import net.digitalid.database.annotations.transaction.Committing;
 import net.digitalid.database.interfaces.Database;
 
 import net.digitalid.core.attribute.AttributeModuleInitializer;
+import net.digitalid.core.audit.module.ActionModule;
+import net.digitalid.core.authorization.HostCredentialStore;
 import net.digitalid.core.cache.CacheModule;
+import net.digitalid.core.client.CredentialsIndex;
 import net.digitalid.core.clientagent.ClientAgentModuleInitializer;
 import net.digitalid.core.host.HostBuilder;
 import net.digitalid.core.host.key.PrivateKeyChainLoader;
 import net.digitalid.core.host.key.PublicKeyChainLoader;
 import net.digitalid.core.identification.identifier.HostIdentifier;
+import net.digitalid.core.initializer.InitializationScheduler;
+import net.digitalid.core.initializer.InitializationTask;
+import net.digitalid.core.initializer.InitializationTaskBuilder;
 import net.digitalid.core.node.contact.ContactModuleInitializer;
+import net.digitalid.core.node.context.ContextHierarchy;
 import net.digitalid.core.node.context.ContextModuleInitializer;
 import net.digitalid.core.packet.Request;
+import net.digitalid.core.pusher.Pusher;
 
 /**
  * The server runs the configured hosts.
@@ -62,16 +72,47 @@ public abstract class Server {
     
     /* -------------------------------------------------- Hosts -------------------------------------------------- */
     
+    /**
+     * Creates the host with the given identifier and commits its creation or rolls it back if the creation failed.
+     * This method is run on the threads of the {@link InitializationScheduler initialization scheduler}, where each thread commits its own transaction like the {@link Worker workers}.
+     * Concurrent creations do not interfere with each other because every host creates its tables in its own unit and registers itself in a synchronized map.
+     */
+    @Impure
+    @Committing
+    private static void loadHost(@Nonnull HostIdentifier identifier) throws ExternalException {
+        try {
+            HostBuilder.withIdentifier(identifier).build();
+            Database.commit();
+        } catch (@Nonnull ExternalException | RuntimeException exception) {
+            Database.rollback();
+            throw exception;
+        }
+    }
+    
     /**
      * Loads all hosts with cryptographic keys but without an exported tables file in the hosts directory.
+     * As the hosts are independent of each other, their keys are loaded and their tables are created concurrently.
+     * The only exception is the host of {@link HostIdentifier#DIGITALID}, which certifies the public keys of the other hosts on this server and is thus loaded first.
      */
     @Impure
     @Committing
-    @Initialize(target = Server.class, dependencies = {PrivateKeyChainLoader.class, PublicKeyChainLoader.class, CacheModule.class, AttributeModuleInitializer.class, ContextModuleInitializer.class, ContactModuleInitializer.class, ClientAgentModuleInitializer.class})
-    public static void loadHosts() throws ConversionException {
+    @Initialize(target = Server.class, dependencies = {PrivateKeyChainLoader.class, PublicKeyChainLoader.class, CacheModule.class, AttributeModuleInitializer.class, ContextModuleInitializer.class, ContextHierarchy.class, ContactModuleInitializer.class, ClientAgentModuleInitializer.class, CredentialsIndex.class, HostCredentialStore.class, Pusher.class, ActionModule.class})
+    public static void loadHosts() {
         final @Nonnull FiniteIterable<@Nonnull @Existent File> configurationDirectoryFiles = Files.listNonHiddenFiles(Files.relativeToConfigurationDirectory("")).filter(File::isFile);
         final @Nonnull FiniteIterable<@Nonnull String> privateKeyFiles = configurationDirectoryFiles.map(File::getName).filter(name -> name.endsWith(".private.xdf"));
-        privateKeyFiles.map(name -> name.substring(0, name.length() - 12)).filterNot(name -> Files.relativeToConfigurationDirectory(name + ".tables.xdf").exists()).map(HostIdentifier::with).doForEach(identifier -> HostBuilder.withIdentifier(identifier).build());
+        final @Nonnull FiniteIterable<@Nonnull HostIdentifier> identifiers = privateKeyFiles.map(name -> name.substring(0, name.length() - 12)).filterNot(name -> Files.relativeToConfigurationDirectory(name + ".tables.xdf").exists()).map(HostIdentifier::with);
+        final @Nonnull String digitalid = "Host " + HostIdentifier.DIGITALID.getString();
+        boolean loadingDigitalid = false;
+        for (final @Nonnull HostIdentifier identifier : identifiers) {
+            if (identifier.equals(HostIdentifier.DIGITALID)) { loadingDigitalid = true; }
+        }
+        final @Nonnull FreezableList<@Nonnull InitializationTask> tasks = FreezableArrayList.withNoElements();
+        for (final @Nonnull HostIdentifier identifier : identifiers) {
+            final @Nonnull FreezableList<@Nonnull String> dependencies = FreezableArrayList.withNoElements();
+            if (loadingDigitalid && !identifier.equals(HostIdentifier.DIGITALID)) { dependencies.add(digitalid); }
+            tasks.add(InitializationTaskBuilder.withName("Host " + identifier.getString()).withDependencies(dependencies.freeze()).withAction(() -> loadHost(identifier)).build());
+        }
+        InitializationScheduler.run(tasks.freeze());
     }
     
     /* -------------------------------------------------- Services -------------------------------------------------- */
@@ -105,6 +146,14 @@ public abstract class Server {
      */
     private static @Nullable Listener listener;
     
+    /**
+     * Returns the thread that listens on the socket or null if the server has not been started.
+     */
+    @Pure
+    static @Nullable Listener getListener() {
+        return listener;
+    }
+    
     /**
      * Starts the server with the configured hosts.
      */
@@ -23,6 +23,10 @@ import javax.annotation.Nullable;
 
 import net.digitalid.utility.annotations.method.Pure;
 import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.collections.list.FreezableArrayList;
+import net.digitalid.utility.collections.list.FreezableList;
+import net.digitalid.utility.collections.list.ReadOnlyList;
+import net.digitalid.utility.contracts.Require;
 import net.digitalid.utility.exceptions.CaseExceptionBuilder;
 import net.digitalid.utility.exceptions.ExternalException;
 import net.digitalid.utility.exceptions.InternalException;
@@ -31,10 +35,9 @@ import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
 import net.digitalid.utility.logging.Log;
 import net.digitalid.utility.time.Time;
 import net.digitalid.utility.time.TimeBuilder;
-import net.digitalid.utility.validation.annotations.type.Immutable;
+import net.digitalid.utility.validation.annotations.type.Mutable;
 
 import net.digitalid.database.annotations.transaction.Committing;
-import net.digitalid.database.exceptions.DatabaseException;
 import net.digitalid.database.interfaces.Database;
 
 import net.digitalid.core.account.OpenAccount;
@@ -61,6 +64,9 @@ import net.digitalid.core.identification.identifier.InternalIdentifier;
 import net.digitalid.core.identification.identity.SemanticType;
 import net.digitalid.core.pack.Pack;
 import net.digitalid.core.pack.PackConverter;
+import net.digitalid.core.packet.Batch;
+import net.digitalid.core.packet.BatchBuilder;
+import net.digitalid.core.packet.BatchConverter;
 import net.digitalid.core.packet.Request;
 import net.digitalid.core.packet.RequestConverter;
 import net.digitalid.core.packet.Response;
@@ -73,20 +79,251 @@ import net.digitalid.core.signature.host.HostSignatureCreator;
 
 /**
  * A worker processes incoming requests asynchronously.
+ * By default, a single worker {@link #run() runs} all phases of a request on the same thread.
+ * If the {@link Pipeline pipeline} is {@link Pipeline#STAGED staged}, the worker is instead passed from the crypto stage of its {@link Listener listener} to the execution stage and back.
  * 
  * @see Listener
+ * @see Pipeline
  */
-@Immutable
+@Mutable
 @GenerateBuilder
 @GenerateSubclass
 public abstract class Worker implements Runnable {
     
+    /* -------------------------------------------------- Fields -------------------------------------------------- */
+    
     /**
      * Returns the socket which this worker is connected to.
      */
     @Pure
     protected abstract @Nonnull Socket getSocket();
     
+    /**
+     * Returns the time at which the socket of this worker was accepted by the {@link Listener listener}.
+     */
+    @Pure
+    protected abstract @Nonnull Time getAcceptanceTime();
+    
+    /* -------------------------------------------------- State -------------------------------------------------- */
+    
+    private @Nonnull Time start = TimeBuilder.build();
+    
+    private @Nullable Encryption<Signature<Compression<Pack>>> encryptedMethod = null;
+    
+    private @Nullable Signature<Compression<Pack>> signedMethod = null;
+    
+    private @Nullable SemanticType type = null;
+    
+    private @Nullable FreezableList<Method<?>> methods = null;
+    
+    private @Nullable Method<?> method = null;
+    
+    private @Nullable RequestClass requestClass = null;
+    
+    private @Nullable Reply<?> reply = null;
+    
+    private @Nullable Batch batchReply = null;
+    
+    /* -------------------------------------------------- Phases -------------------------------------------------- */
+    
+    /**
+     * Returns the address of the client which sent the request.
+     */
+    @Pure
+    private @Nonnull String getAddress() {
+        return getSocket().getInetAddress().getHostAddress();
+    }
+    
+    /**
+     * Rejects the request with a busy notice if it waited longer than the {@link AdmissionControl#DEADLINE deadline} since its acceptance.
+     * 
+     * @return whether the request was rejected.
+     */
+    @PureWithSideEffects
+    private boolean rejectIfExpired() throws NetworkException {
+        final @Nonnull String address = getAddress();
+        Log.debugging("Received a request from $.", address);
+        start = TimeBuilder.build();
+        
+        if (AdmissionControl.isExpired(getAcceptanceTime())) {
+            AdmissionControl.reject(getSocket(), null, "The request waited too long for a worker.");
+            Log.information("Rejected a request from $ after having waited $ ms for a worker.", address, getAcceptanceTime().ago().getValue());
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Loads the request from the socket, decrypts it, verifies its signature and recovers its methods.
+     */
+    @PureWithSideEffects
+    private void decode() throws InternalException, ExternalException {
+        final @Nonnull Pack pack = Pack.loadFrom(getSocket());
+        final @Nonnull Request request = pack.unpack(RequestConverter.INSTANCE, null);
+        
+        encryptedMethod = request.getEncryption();
+        final @Nullable HostIdentifier recipient = encryptedMethod.getRecipient();
+        if (recipient == null) { throw RequestExceptionBuilder.withCode(RequestErrorCode.RECIPIENT).withMessage("The recipient may not be null.").build(); }
+        final @Nonnull Host host = Host.of(recipient);
+        
+        final @Nonnull Signature<Compression<Pack>> signedMethod = encryptedMethod.getObject();
+        this.signedMethod = signedMethod;
+        final @Nonnull SemanticType type = signedMethod.getObject().getObject().getType();
+        this.type = type;
+        Log.debugging("Executing the method $ for $ on host $.", type.getAddress(), signedMethod.getSubject(), recipient);
+        
+        final @Nonnull InternalIdentifier subject;
+        if (type.equals(OpenAccount.TYPE) || type.equals(IdentityQuery.TYPE)) {
+            subject = recipient;
+        } else {
+            subject = signedMethod.getSubject();
+        }
+        
+        final @Nonnull Account account = Account.with(host, subject.resolve());
+        final @Nonnull FreezableList<Method<?>> methods;
+        if (type.equals(Batch.TYPE)) {
+            final @Nonnull ReadOnlyList<Pack> packs = signedMethod.getObject().getObject().unpack(BatchConverter.INSTANCE, null).getPacks();
+            if (packs.size() > Batch.MAXIMUM_SIZE.get()) { throw RequestExceptionBuilder.withCode(RequestErrorCode.METHOD).withMessage("A batch may contain at most " + Batch.MAXIMUM_SIZE.get() + " methods.").build(); }
+            methods = FreezableArrayList.withInitialCapacity(packs.size());
+            for (final @Nonnull Pack methodPack : packs) {
+                // The subject of a batch is always the signer, which is why methods that are executed for the recipient cannot be batched.
+                if (methodPack.getType().equals(OpenAccount.TYPE) || methodPack.getType().equals(IdentityQuery.TYPE)) { throw RequestExceptionBuilder.withCode(RequestErrorCode.METHOD).withMessage("The method " + methodPack.getType().getAddress() + " cannot be sent in a batch.").build(); }
+                methods.add(MethodIndex.get(signedMethod, methodPack, account));
+            }
+            if (!Method.areSimilar(methods)) { throw RequestExceptionBuilder.withCode(RequestErrorCode.METHOD).withMessage("The methods of a batch have to be similar to each other.").build(); }
+            Log.debugging("Unpacked a batch of $ methods.", methods.size());
+        } else {
+            methods = FreezableArrayList.withElement(MethodIndex.get(signedMethod, account));
+        }
+        this.methods = methods;
+        final @Nonnull Method<?> method = methods.get(0);
+        this.method = method;
+        
+        for (final @Nonnull Method<?> element : methods) {
+            if (element.getService() == CoreService.INSTANCE && !element.getRecipient().equals(recipient)) {
+                throw RequestExceptionBuilder.withCode(RequestErrorCode.RECIPIENT).withMessage("The method was sent to the wrong recipient.").build();
+            }
+        }
+        
+        // The request can only be classified after its decryption as the type of the method is encrypted.
+        requestClass = RequestClass.of(method);
+    }
+    
+    /**
+     * Executes the decoded methods after their admission and commits their effects.
+     * 
+     * @return whether the methods were admitted, otherwise the request has already been rejected with a busy notice.
+     */
+    @Committing
+    @PureWithSideEffects
+    private boolean execute() throws InternalException, ExternalException {
+        Require.that(requestClass != null && methods != null && method != null && type != null).orThrow("The request has to be decoded before it can be executed.");
+        
+        if (!AdmissionControl.enter(requestClass, getAcceptanceTime())) {
+            Database.rollback();
+            // A failure to send the busy notice may not be turned into a request error as the output of the socket might already be shut down.
+            try {
+                AdmissionControl.reject(getSocket(), requestClass, "The server is too busy to execute the method " + type.getAddress() + ".");
+                Log.information("Rejected $ from $ because too many requests of the class $ are pending.", method, getAddress(), requestClass);
+            } catch (@Nonnull NetworkException exception) {
+                Log.warning("Could not send a busy notice.", exception);
+            }
+            return false;
+        }
+        try {
+            if (type.equals(Batch.TYPE)) {
+                // The methods of a batch are executed within the same transaction so that either all or none of them take effect.
+                final @Nonnull FreezableList<Pack> replyPacks = FreezableArrayList.withInitialCapacity(methods.size());
+                for (final @Nonnull Method<?> element : methods) {
+                    final @Nullable Reply<?> elementReply = element.executeOnHost();
+                    replyPacks.add(elementReply != null ? elementReply.pack() : EmptyReplyBuilder.build().pack());
+                }
+                batchReply = BatchBuilder.withPacks(replyPacks).build();
+            } else {
+                reply = method.executeOnHost();
+            }
+            
+            Database.commit();
+        } finally {
+            AdmissionControl.leave(requestClass);
+        }
+        return true;
+    }
+    
+    /**
+     * Rolls back the current transaction and replaces the reply with a request error for the given exception.
+     */
+    @Committing
+    @PureWithSideEffects
+    private void fail(@Nonnull Exception exception) {
+        final @Nonnull RequestException requestException;
+        if (exception instanceof InternalException) {
+            requestException = RequestExceptionBuilder.withCode(RequestErrorCode.INTERNAL).withMessage("An internal problem occurred.").withCause(exception).build();
+        } else {
+            requestException = RequestExceptionBuilder.withCode(RequestErrorCode.EXTERNAL).withMessage("An external problem occurred.").withCause(exception).build();
+        }
+        Database.rollback();
+        Log.warning("A request error occurred:", requestException);
+        batchReply = null;
+        reply = RequestExceptionReplyBuilder.withRequestException(requestException.isDecoded() ? RequestExceptionBuilder.withCode(RequestErrorCode.REQUEST).withMessage("Another server responded with a request error.").withCause(requestException).build() : requestException).build();
+    }
+    
+    /**
+     * Compresses the reply, signs it as the host, encrypts it and sends it to the client.
+     */
+    @PureWithSideEffects
+    private void respond() throws NetworkException {
+        final @Nonnull Reply<?> reply = this.reply != null ? this.reply : EmptyReplyBuilder.build();
+        final @Nonnull Compression<Pack> compressedReply = CompressionBuilder.withObject(batchReply != null ? batchReply.pack() : reply.pack()).build();
+        
+        final @Nonnull Signature<Compression<Pack>> signedReply;
+        if (encryptedMethod != null && signedMethod != null) {
+            final @Nullable HostIdentifier recipient = encryptedMethod.getRecipient();
+            if (recipient == null) { throw CaseExceptionBuilder.withVariable("recipient").withValue(recipient).build(); } // If the recipient is null, then the signedMethod variable is also null and thus this case exception should never occur.
+            signedReply = HostSignatureCreator.sign(compressedReply, CompressionConverterBuilder.withObjectConverter(PackConverter.INSTANCE).build()).about(signedMethod.getSubject()).as(recipient);
+        } else {
+            signedReply = SignatureBuilder.withObjectConverter(CompressionConverterBuilder.withObjectConverter(PackConverter.INSTANCE).build()).withObject(compressedReply).withSubject(HostIdentifier.DIGITALID).build();
+        }
+        
+        final @Nonnull Encryption<Signature<Compression<Pack>>> encryptedReply;
+        if (encryptedMethod instanceof RequestEncryption) {
+            encryptedReply = ResponseEncryptionBuilder.withObject(signedReply).withSymmetricKey(((RequestEncryption) encryptedMethod).getSymmetricKey()).build();
+        } else {
+            encryptedReply = EncryptionBuilder.withObject(signedReply).build();
+        }
+        
+        final @Nonnull Response response = ResponseBuilder.withEncryption(encryptedReply).build();
+        response.pack().storeTo(getSocket());
+        
+        Log.information(method + " from " + getAddress() + " handled in " + start.ago().getValue() + " ms.");
+    }
+    
+    /**
+     * Logs the given throwable which aborted the handling of the request.
+     */
+    @PureWithSideEffects
+    private static void report(@Nonnull Throwable throwable) {
+        if (throwable instanceof NetworkException) {
+            Log.warning("Could not send a response.", throwable);
+        } else {
+            Log.warning("Something went wrong.", throwable);
+        }
+    }
+    
+    /**
+     * Closes the socket of this worker.
+     */
+    @PureWithSideEffects
+    private void close() {
+        try {
+            if (!getSocket().isClosed()) { getSocket().close(); }
+        } catch (@Nonnull IOException exception) {
+            Log.warning("Could not close the socket.", exception);
+        }
+    }
+    
+    /* -------------------------------------------------- Sequential Mode -------------------------------------------------- */
+    
     /**
      * Asynchronous method to handle the incoming request.
      */
@@ -96,97 +333,99 @@ public abstract class Worker implements Runnable {
     @SuppressWarnings("UseSpecificCatch")
     public void run() {
         try {
-            final @Nonnull String address = getSocket().getInetAddress().getHostAddress();
-            Log.debugging("Received a request from $.", address);
-            
-            final @Nonnull Time start = TimeBuilder.build();
-            
-            @Nullable Encryption<Signature<Compression<Pack>>> encryptedMethod = null;
-            @Nullable Signature<Compression<Pack>> signedMethod = null;
-            
-            @Nullable Method<?> method = null;
-            @Nullable Reply<?> reply = null;
+            if (rejectIfExpired()) { return; }
             
             try {
-                try {
-                    final @Nonnull Pack pack = Pack.loadFrom(getSocket());
-                    final @Nonnull Request request = pack.unpack(RequestConverter.INSTANCE, null);
-                    
-                    encryptedMethod = request.getEncryption();
-                    final @Nullable HostIdentifier recipient = encryptedMethod.getRecipient();
-                    if (recipient == null) { throw RequestExceptionBuilder.withCode(RequestErrorCode.RECIPIENT).withMessage("The recipient may not be null.").build(); }
-                    final @Nonnull Host host = Host.of(recipient);
-                    
-                    signedMethod = encryptedMethod.getObject();
-                    final @Nonnull SemanticType type = signedMethod.getObject().getObject().getType();
-                    Log.debugging("Executing the method $ for $ on host $.", type.getAddress(), signedMethod.getSubject(), recipient);
-                    
-                    final @Nonnull InternalIdentifier subject;
-                    if (type.equals(OpenAccount.TYPE) || type.equals(IdentityQuery.TYPE)) {
-                        subject = recipient;
-                    } else {
-                        subject = signedMethod.getSubject();
-                    }
-                    
-                    final @Nonnull Account account = Account.with(host, subject.resolve());
-                    method = MethodIndex.get(signedMethod, account);
-                    
-                    if (method.getService() == CoreService.INSTANCE && !method.getRecipient().equals(recipient)) {
-                        throw RequestExceptionBuilder.withCode(RequestErrorCode.RECIPIENT).withMessage("The method was sent to the wrong recipient.").build();
-                    }
-                    
-                    reply = method.executeOnHost();
-                    
-                    Database.commit();
-                } catch (@Nonnull InternalException exception) {
-                    throw RequestExceptionBuilder.withCode(RequestErrorCode.INTERNAL).withMessage("An internal problem occurred.").withCause(exception).build();
-                } catch (@Nonnull ExternalException exception) {
-                    throw RequestExceptionBuilder.withCode(RequestErrorCode.EXTERNAL).withMessage("An external problem occurred.").withCause(exception).build();
-                }
-            } catch (@Nonnull RequestException exception) {
-                Database.rollback();
-                Log.warning("A request error occurred:", exception);
-                reply = RequestExceptionReplyBuilder.withRequestException(exception.isDecoded() ? RequestExceptionBuilder.withCode(RequestErrorCode.REQUEST).withMessage("Another server responded with a request error.").withCause(exception).build() : exception).build();
+                decode();
+                if (!execute()) { return; }
+            } catch (@Nonnull InternalException | ExternalException exception) {
+                fail(exception);
             }
             
-            if (reply == null) { reply = EmptyReplyBuilder.build(); }
-            final @Nonnull Compression<Pack> compressedReply = CompressionBuilder.withObject(reply.pack()).build();
-            
-            // The reply.pack() statement maps the semantic type of the reply converter, which results in a concurrent update if the client unpacks the response with the same database. The following commit prevents this. However, it is a suboptimal fix for this problem.
-            try { Database.commit(); } catch (@Nonnull DatabaseException exception) { Database.rollback(); }
+            respond();
+        } catch (@Nonnull Throwable throwable) {
+            report(throwable);
+        } finally {
+            close();
+        }
+    }
+    
+    /* -------------------------------------------------- Staged Mode -------------------------------------------------- */
+    
+    /**
+     * Decodes the request on the {@link Listener#getCryptoStage() crypto stage} of the given listener and hands it off to its {@link Listener#getExecutionStage() execution stage}.
+     * As database transactions are bound to threads, the identities that were resolved during the decoding are committed before the hand-off.
+     * If the execution stage is saturated, the socket is handed to a {@link Rejecter rejecter} of the listener so that the crypto stage is not blocked by sending the busy notice.
+     */
+    @Committing
+    @PureWithSideEffects
+    @SuppressWarnings("UseSpecificCatch")
+    void decodeStaged(@Nonnull Listener listener) {
+        boolean handedOff = false;
+        try {
+            if (rejectIfExpired()) { return; }
             
-            final @Nonnull Signature<Compression<Pack>> signedReply;
-            if (encryptedMethod != null && signedMethod != null) {
-                final @Nullable HostIdentifier recipient = encryptedMethod.getRecipient();
-                if (recipient == null) { throw CaseExceptionBuilder.withVariable("recipient").withValue(recipient).build(); } // If the recipient is null, then the signedMethod variable is also null and thus this case exception should never occur.
-                signedReply = HostSignatureCreator.sign(compressedReply, CompressionConverterBuilder.withObjectConverter(PackConverter.INSTANCE).build()).about(signedMethod.getSubject()).as(recipient);
-            } else {
-                signedReply = SignatureBuilder.withObjectConverter(CompressionConverterBuilder.withObjectConverter(PackConverter.INSTANCE).build()).withObject(compressedReply).withSubject(HostIdentifier.DIGITALID).build();
+            try {
+                decode();
+                Database.commit();
+            } catch (@Nonnull InternalException | ExternalException exception) {
+                fail(exception);
+                respond();
+                return;
             }
             
-            final @Nonnull Encryption<Signature<Compression<Pack>>> encryptedReply;
-            if (encryptedMethod instanceof RequestEncryption) {
-                encryptedReply = ResponseEncryptionBuilder.withObject(signedReply).withSymmetricKey(((RequestEncryption) encryptedMethod).getSymmetricKey()).build();
-            } else {
-                encryptedReply = EncryptionBuilder.withObject(signedReply).build();
+            handedOff = listener.getExecutionStage().handOff(() -> executeStaged(listener));
+            if (!handedOff) {
+                Log.information("Rejecting $ from $ because the execution stage is saturated.", method, getAddress());
+                // The rejecter closes the socket, which is why it counts as handed off.
+                handedOff = true;
+                listener.reject(getSocket(), requestClass, "The server is too busy to execute the method " + type.getAddress() + ".");
             }
-            
-            final @Nonnull Response response = ResponseBuilder.withEncryption(encryptedReply).build();
-            response.pack().storeTo(getSocket());
-            
-            Log.information(method + " from " + address + " handled in " + start.ago().getValue() + " ms.");
-        } catch (@Nonnull NetworkException exception) {
-            Log.warning("Could not send a response.", exception);
         } catch (@Nonnull Throwable throwable) {
-            Log.warning("Something went wrong.", throwable);
+            report(throwable);
         } finally {
+            if (!handedOff) { close(); }
+        }
+    }
+    
+    /**
+     * Executes the decoded request on the {@link Listener#getExecutionStage() execution stage} of the given listener and hands it back to its {@link Listener#getCryptoStage() crypto stage}.
+     * As the effects of the request are already committed at this point, the reply is sent by the current thread if the crypto stage is saturated.
+     */
+    @Committing
+    @PureWithSideEffects
+    @SuppressWarnings("UseSpecificCatch")
+    private void executeStaged(@Nonnull Listener listener) {
+        boolean handedOff = false;
+        try {
             try {
-                if (!getSocket().isClosed()) { getSocket().close(); }
-            } catch (@Nonnull IOException exception) {
-                Log.warning("Could not close the socket.", exception);
+                if (!execute()) { return; }
+            } catch (@Nonnull InternalException | ExternalException exception) {
+                fail(exception);
             }
+            
+            handedOff = true;
+            if (!listener.getCryptoStage().handOff(this::respondStaged)) { respondStaged(); }
+        } catch (@Nonnull Throwable throwable) {
+            report(throwable);
+        } finally {
+            if (!handedOff) { close(); }
+        }
+    }
+    
+    /**
+     * Sends the reply to the request on the crypto stage.
+     */
+    @PureWithSideEffects
+    @SuppressWarnings("UseSpecificCatch")
+    private void respondStaged() {
+        try {
+            respond();
+        } catch (@Nonnull Throwable throwable) {
+            report(throwable);
+        } finally {
+            close();
         }
-        
     }
     
 }
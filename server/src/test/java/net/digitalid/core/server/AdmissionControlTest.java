@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.server;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.testing.UtilityTest;
+import net.digitalid.utility.time.Time;
+import net.digitalid.utility.time.TimeBuilder;
+
+import org.junit.Test;
+
+public class AdmissionControlTest extends UtilityTest {
+    
+    @Test
+    public void shouldAdmitRequestsUpToTheirPermits() throws Exception {
+        final @Nonnull Time acceptance = TimeBuilder.build();
+        assertThat(AdmissionControl.isExpired(acceptance)).isFalse();
+        
+        final int permits = AdmissionControl.QUERY_PERMITS.get();
+        for (int i = 0; i < permits; i++) { assertThat(AdmissionControl.enter(RequestClass.QUERY, acceptance)).isTrue(); }
+        
+        // The actions are admitted independently of the queries.
+        assertThat(AdmissionControl.enter(RequestClass.ACTION, acceptance)).isTrue();
+        AdmissionControl.leave(RequestClass.ACTION);
+        
+        final @Nonnull ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final @Nonnull Future<Boolean> waiting = executor.submit(() -> AdmissionControl.enter(RequestClass.QUERY, TimeBuilder.build()));
+            Thread.sleep(100);
+            assertThat(AdmissionControl.getRetryAfter(RequestClass.QUERY)).isGreaterThan(AdmissionControl.getRetryAfter(null));
+            AdmissionControl.leave(RequestClass.QUERY);
+            assertThat(waiting.get(1, TimeUnit.SECONDS)).isTrue();
+            
+            // Without a released permit, the request is rejected once its deadline has passed.
+            assertThat(AdmissionControl.enter(RequestClass.QUERY, TimeBuilder.build())).isFalse();
+        } finally {
+            executor.shutdownNow();
+            for (int i = 0; i < permits; i++) { AdmissionControl.leave(RequestClass.QUERY); }
+        }
+    }
+    
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.server;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.collections.list.FreezableArrayList;
+import net.digitalid.utility.collections.list.FreezableList;
+import net.digitalid.utility.collections.list.ReadOnlyList;
+import net.digitalid.utility.initialization.annotations.Initialize;
+import net.digitalid.utility.testing.UtilityTest;
+
+import net.digitalid.core.attribute.AttributeModuleInitializer;
+import net.digitalid.core.audit.module.ActionModule;
+import net.digitalid.core.authorization.HostCredentialStore;
+import net.digitalid.core.cache.Cache;
+import net.digitalid.core.cache.CacheModule;
+import net.digitalid.core.client.ClientSecretLoader;
+import net.digitalid.core.client.CredentialsIndex;
+import net.digitalid.core.client.method.InternalMethodSignatureInjector;
+import net.digitalid.core.client.role.Role;
+import net.digitalid.core.client.role.RoleModule;
+import net.digitalid.core.clientagent.ClientAgent;
+import net.digitalid.core.clientagent.ClientAgentModuleInitializer;
+import net.digitalid.core.clientagent.ClientAgentRetriever;
+import net.digitalid.core.handler.reply.instances.RequestExceptionReply;
+import net.digitalid.core.host.Host;
+import net.digitalid.core.host.account.Account;
+import net.digitalid.core.host.key.PrivateKeyChainLoader;
+import net.digitalid.core.host.key.PublicKeyChainLoader;
+import net.digitalid.core.initializer.CoreInitializer;
+import net.digitalid.core.initializer.InitializationScheduler;
+import net.digitalid.core.initializer.InitializationTask;
+import net.digitalid.core.initializer.InitializationTaskBuilder;
+import net.digitalid.core.initializer.InitializationTiming;
+import net.digitalid.core.initializer.handlers.ExternalQueryInjector;
+import net.digitalid.core.node.ExtendedNode;
+import net.digitalid.core.node.contact.ContactModuleInitializer;
+import net.digitalid.core.node.context.ContextHierarchy;
+import net.digitalid.core.node.context.ContextModuleInitializer;
+import net.digitalid.core.packet.Batch;
+import net.digitalid.core.packet.Busy;
+import net.digitalid.core.packet.Request;
+import net.digitalid.core.pusher.Pusher;
+import net.digitalid.core.resolution.IdentifierResolverImplementation;
+import net.digitalid.core.symmetrickey.SymmetricKey;
+import net.digitalid.core.synchronizer.AuditRetriever;
+import net.digitalid.core.synchronizer.Outbox;
+import net.digitalid.core.testing.CoreTest;
+import net.digitalid.core.unit.GeneralUnit;
+
+import org.junit.Test;
+
+public class InitializationSchedulerTest extends UtilityTest {
+    
+    /* -------------------------------------------------- Fixtures -------------------------------------------------- */
+    
+    /**
+     * Stores the classes of the core that contain methods with the {@link Initialize} annotation.
+     */
+    private static final @Nonnull Class<?>[] INITIALIZER_CLASSES = {
+        AttributeModuleInitializer.class, Cache.class, CacheModule.class, ClientSecretLoader.class, InternalMethodSignatureInjector.class, Role.class, RoleModule.class,
+        ClientAgent.class, ClientAgentModuleInitializer.class, ClientAgentRetriever.class, RequestExceptionReply.class, Host.class, Account.class, PrivateKeyChainLoader.class,
+        PublicKeyChainLoader.class, CoreInitializer.class, ExternalQueryInjector.class, ExtendedNode.class, ContactModuleInitializer.class, ContextModuleInitializer.class,
+        Batch.class, Busy.class, Request.class, IdentifierResolverImplementation.class, Server.class, SymmetricKey.class, CoreTest.class, GeneralUnit.class,
+        ContextHierarchy.class, CredentialsIndex.class, HostCredentialStore.class, Pusher.class, ActionModule.class, Outbox.class, AuditRetriever.class
+    };
+    
+    /**
+     * Returns a task with the given name and dependencies that sleeps for the given number of milliseconds.
+     */
+    @Pure
+    private static @Nonnull InitializationTask task(@Nonnull String name, long milliseconds, boolean mainThread, @Nonnull String... dependencies) {
+        return InitializationTaskBuilder.withName(name).withDependencies(FreezableArrayList.withElements(dependencies).freeze()).withAction(() -> Thread.sleep(milliseconds)).withMainThread(mainThread).build();
+    }
+    
+    /**
+     * Returns the timing of the task with the given name.
+     */
+    @Pure
+    private static @Nonnull InitializationTiming timing(@Nonnull ReadOnlyList<@Nonnull InitializationTiming> timings, @Nonnull String name) {
+        for (final @Nonnull InitializationTiming timing : timings) {
+            if (timing.getName().equals(name)) { return timing; }
+        }
+        throw new AssertionError("No timing was found for the task " + name + ".");
+    }
+    
+    /* -------------------------------------------------- Scheduling -------------------------------------------------- */
+    
+    @Test
+    public void shouldRespectDependencies() {
+        final @Nonnull ReadOnlyList<@Nonnull InitializationTiming> timings = InitializationScheduler.run(FreezableArrayList.withElements(
+                task("a", 50, false), task("b", 50, false), task("c", 10, false, "a"), task("d", 10, true, "a", "b"), task("e", 10, false, "c", "d")
+        ).freeze());
+        
+        assertThat(timings.size()).isEqualTo(5);
+        for (final @Nonnull String[] edge : new String[][] {{"a", "c"}, {"a", "d"}, {"b", "d"}, {"c", "e"}, {"d", "e"}}) {
+            final @Nonnull InitializationTiming dependency = timing(timings, edge[0]);
+            assertThat(timing(timings, edge[1]).getStart()).isGreaterThanOrEqualTo(dependency.getStart() + dependency.getDuration());
+        }
+        assertThat(timing(timings, "d").getThread()).isEqualTo(Thread.currentThread().getName());
+    }
+    
+    @Test
+    public void shouldRunIndependentTasksConcurrently() {
+        final @Nonnull AtomicInteger running = new AtomicInteger();
+        final @Nonnull AtomicInteger maximum = new AtomicInteger();
+        final @Nonnull FreezableList<@Nonnull InitializationTask> tasks = FreezableArrayList.withNoElements();
+        for (int i = 0; i < 8; i++) {
+            tasks.add(InitializationTaskBuilder.withName("task" + i).withDependencies(FreezableArrayList.<String>withNoElements().freeze()).withAction(() -> {
+                maximum.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(50);
+                running.decrementAndGet();
+            }).build());
+        }
+        InitializationScheduler.run(tasks.freeze());
+        assertThat(maximum.get()).isGreaterThan(1).isLessThanOrEqualTo(InitializationScheduler.THREADS.get());
+    }
+    
+    @Test(expected = RuntimeException.class)
+    public void shouldRejectCyclicDependencies() {
+        InitializationScheduler.run(FreezableArrayList.withElements(task("a", 0, false, "b"), task("b", 0, false, "a")).freeze());
+    }
+    
+    /* -------------------------------------------------- Declarations -------------------------------------------------- */
+    
+    /**
+     * Matches the comments, string literals and character literals in Java source code.
+     */
+    private static final @Nonnull Pattern COMMENTS_AND_LITERALS = Pattern.compile("\"(?:\\\\.|[^\"\\\\])*\"|'(?:\\\\.|[^'\\\\])*'|//[^\\n]*|/\\*.*?\\*/", Pattern.DOTALL);
+    
+    /**
+     * Returns the body of the given method in the source file of its top-level class without comments and literals.
+     * The source file is looked up relative to the output directory of the Maven module that contains the class.
+     */
+    @Pure
+    private static @Nonnull String getBody(@Nonnull Method method) throws IOException, URISyntaxException {
+        Class<?> type = method.getDeclaringClass();
+        while (type.getEnclosingClass() != null) { type = type.getEnclosingClass(); }
+        final @Nonnull Path output = Paths.get(type.getProtectionDomain().getCodeSource().getLocation().toURI());
+        final @Nonnull Path sources = output.getParent().getParent().resolve(output.getFileName().toString().equals("test-classes") ? "src/test/java" : "src/main/java");
+        final @Nonnull String source = COMMENTS_AND_LITERALS.matcher(new String(Files.readAllBytes(sources.resolve(type.getName().replace('.', '/') + ".java")), StandardCharsets.UTF_8)).replaceAll(" ");
+        
+        final @Nonnull Matcher matcher = Pattern.compile("\\bstatic\\s+[^;{}=]*?\\b" + Pattern.quote(method.getName()) + "\\s*\\(").matcher(source);
+        assertThat(matcher.find()).isTrue();
+        final int start = source.indexOf('{', matcher.end());
+        int depth = 0;
+        for (int i = start; i < source.length(); i++) {
+            if (source.charAt(i) == '{') { depth += 1; }
+            if (source.charAt(i) == '}' && --depth == 0) { return source.substring(start, i + 1); }
+        }
+        throw new AssertionError("The body of the method " + InitializationScheduler.getName(method) + " is not closed.");
+    }
+    
+    /**
+     * Returns the simple names of the initialization targets in the given map that are referenced in the body of the given method
+     * but are neither the given target nor among the given dependencies and their declared dependencies.
+     */
+    @Pure
+    private static @Nonnull Set<@Nonnull String> getUndeclaredDependencies(@Nonnull Method method, @Nonnull Class<?> target, @Nonnull Class<?>[] dependencies, @Nonnull Map<@Nonnull Class<?>, @Nonnull Set<@Nonnull Class<?>>> dependenciesByTarget) throws IOException, URISyntaxException {
+        final @Nonnull Set<@Nonnull Class<?>> declared = new HashSet<>();
+        final @Nonnull Deque<@Nonnull Class<?>> pending = new ArrayDeque<>();
+        for (final @Nonnull Class<?> dependency : dependencies) { pending.add(dependency); }
+        while (!pending.isEmpty()) {
+            final @Nonnull Class<?> dependency = pending.removeFirst();
+            if (declared.add(dependency)) { pending.addAll(dependenciesByTarget.getOrDefault(dependency, new HashSet<>())); }
+        }
+        
+        final @Nonnull String body = getBody(method);
+        final @Nonnull Set<@Nonnull String> undeclared = new TreeSet<>();
+        for (final @Nonnull Class<?> referenced : dependenciesByTarget.keySet()) {
+            if (referenced != target && !declared.contains(referenced) && Pattern.compile("\\b" + Pattern.quote(referenced.getSimpleName()) + "\\b").matcher(body).find()) { undeclared.add(referenced.getSimpleName()); }
+        }
+        return undeclared;
+    }
+    
+    /**
+     * Returns the declared dependencies of the targets of the initializers in the given classes.
+     */
+    @Pure
+    private static @Nonnull Map<@Nonnull Class<?>, @Nonnull Set<@Nonnull Class<?>>> getDependenciesByTarget(@Nonnull Class<?>... classes) {
+        final @Nonnull Map<@Nonnull Class<?>, @Nonnull Set<@Nonnull Class<?>>> dependenciesByTarget = new HashMap<>();
+        for (final @Nonnull Method initializer : InitializationScheduler.getInitializers(classes)) {
+            final @Nonnull Initialize annotation = initializer.getAnnotation(Initialize.class);
+            final @Nonnull Set<@Nonnull Class<?>> dependencies = dependenciesByTarget.computeIfAbsent(annotation.target(), target -> new HashSet<>());
+            for (final @Nonnull Class<?> dependency : annotation.dependencies()) { dependencies.add(dependency); }
+        }
+        return dependenciesByTarget;
+    }
+    
+    /**
+     * Reads the cache module without declaring it as a dependency, which the scan has to detect.
+     */
+    @Pure
+    private static void referenceTheCacheModule() {
+        CacheModule.class.getName();
+    }
+    
+    @Test
+    public void shouldDetectAnUndeclaredDependency() throws Exception {
+        final @Nonnull Map<@Nonnull Class<?>, @Nonnull Set<@Nonnull Class<?>>> dependenciesByTarget = getDependenciesByTarget(INITIALIZER_CLASSES);
+        final @Nonnull Method method = InitializationSchedulerTest.class.getDeclaredMethod("referenceTheCacheModule");
+        assertThat(getUndeclaredDependencies(method, InitializationSchedulerTest.class, new Class<?>[0], dependenciesByTarget)).containsExactly("CacheModule");
+        assertThat(getUndeclaredDependencies(method, InitializationSchedulerTest.class, new Class<?>[] {CacheModule.class}, dependenciesByTarget)).isEmpty();
+        assertThat(getUndeclaredDependencies(method, InitializationSchedulerTest.class, new Class<?>[] {Server.class}, dependenciesByTarget)).isEmpty();
+    }
+    
+    @Test
+    public void shouldDeclareTheReferencedTargetsAsDependencies() throws Exception {
+        final @Nonnull Map<@Nonnull Class<?>, @Nonnull Set<@Nonnull Class<?>>> dependenciesByTarget = getDependenciesByTarget(INITIALIZER_CLASSES);
+        final @Nonnull Set<@Nonnull String> violations = new TreeSet<>();
+        for (final @Nonnull Method initializer : InitializationScheduler.getInitializers(INITIALIZER_CLASSES)) {
+            final @Nonnull Initialize annotation = initializer.getAnnotation(Initialize.class);
+            for (final @Nonnull String undeclared : getUndeclaredDependencies(initializer, annotation.target(), annotation.dependencies(), dependenciesByTarget)) {
+                violations.add(InitializationScheduler.getName(initializer) + " -> " + undeclared);
+            }
+        }
+        assertThat(violations).isEmpty();
+    }
+    
+    @Test
+    public void shouldScheduleTheDeclaredInitializers() {
+        final @Nonnull FreezableList<@Nonnull InitializationTask> tasks = FreezableArrayList.withNoElements();
+        for (final @Nonnull InitializationTask task : InitializationScheduler.getTasks(InitializationScheduler.getInitializers(INITIALIZER_CLASSES).freeze())) {
+            tasks.add(InitializationTaskBuilder.withName(task.getName()).withDependencies(task.getDependencies()).withAction(() -> {}).withMainThread(task.isMainThread()).build());
+        }
+        final @Nonnull ReadOnlyList<@Nonnull InitializationTiming> timings = InitializationScheduler.run(tasks.freeze());
+        assertThat(timings.size()).isEqualTo(tasks.size());
+        for (final @Nonnull InitializationTask task : tasks) {
+            if (task.isMainThread()) { assertThat(timing(timings, task.getName()).getThread()).isEqualTo(Thread.currentThread().getName()); }
+        }
+    }
+    
+}
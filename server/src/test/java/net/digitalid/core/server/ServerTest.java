@@ -17,10 +17,20 @@ package net.digitalid.core.server;
 
 import java.io.IOException;
 import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.collections.list.FreezableArrayList;
+import net.digitalid.utility.collections.list.FreezableList;
+import net.digitalid.utility.collections.list.ReadOnlyList;
 import net.digitalid.utility.exceptions.ExternalException;
 import net.digitalid.utility.initialization.annotations.Initialize;
 import net.digitalid.utility.logging.Log;
@@ -33,10 +43,12 @@ import net.digitalid.core.asymmetrickey.PrivateKeyRetriever;
 import net.digitalid.core.asymmetrickey.PublicKeyRetriever;
 import net.digitalid.core.attribute.Attribute;
 import net.digitalid.core.cache.CacheQueryBuilder;
+import net.digitalid.core.exceptions.request.RequestException;
 import net.digitalid.core.client.Client;
 import net.digitalid.core.client.ClientBuilder;
 import net.digitalid.core.client.role.NativeRole;
 import net.digitalid.core.expression.PassiveExpressionBuilder;
+import net.digitalid.core.handler.method.Method;
 import net.digitalid.core.handler.method.MethodIndex;
 import net.digitalid.core.host.Host;
 import net.digitalid.core.host.HostBuilder;
@@ -45,8 +57,13 @@ import net.digitalid.core.identification.identifier.InternalNonHostIdentifier;
 import net.digitalid.core.identification.identity.Category;
 import net.digitalid.core.pack.Pack;
 import net.digitalid.core.pack.PackConverter;
+import net.digitalid.core.packet.Batch;
 import net.digitalid.core.packet.Request;
 import net.digitalid.core.permissions.ReadOnlyAgentPermissions;
+import net.digitalid.core.pusher.Pusher;
+import net.digitalid.core.server.handlers.TestAction;
+import net.digitalid.core.server.handlers.TestActionBuilder;
+import net.digitalid.core.server.handlers.TestActionConverter;
 import net.digitalid.core.server.handlers.TestQuery;
 import net.digitalid.core.server.handlers.TestQueryBuilder;
 import net.digitalid.core.server.handlers.TestQueryConverter;
@@ -55,10 +72,10 @@ import net.digitalid.core.server.handlers.TestReplyConverter;
 import net.digitalid.core.signature.Signature;
 import net.digitalid.core.signature.SignatureBuilder;
 import net.digitalid.core.signature.attribute.UncertifiedAttributeValue;
+import net.digitalid.core.synchronizer.AsynchronousSender;
 import net.digitalid.core.testing.CoreTest;
 import net.digitalid.core.testing.providers.TestPrivateKeyRetrieverBuilder;
 import net.digitalid.core.testing.providers.TestPublicKeyRetrieverBuilder;
-import net.digitalid.core.unit.CoreUnit;
 
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -91,6 +108,7 @@ public class ServerTest extends CoreTest {
     @Initialize(target = MethodIndex.class)
     public static void initializeMethodIndex() {
         MethodIndex.add(TestQueryConverter.INSTANCE);
+        MethodIndex.add(TestActionConverter.INSTANCE);
     }
     
     /* -------------------------------------------------- Setup -------------------------------------------------- */
@@ -100,18 +118,12 @@ public class ServerTest extends CoreTest {
     protected static @Nonnull Host host;
     
     @BeforeClass
-    @SuppressWarnings("UseOfSystemOutOrSystemErr")
     public static void startServer() throws ExternalException, IOException {
         // TODO: Remove the following three lines as soon as the cache works.
         final @Nonnull KeyPair keyPair = KeyPair.withRandomValues();
         PublicKeyRetriever.configuration.set(TestPublicKeyRetrieverBuilder.withKeyPair(keyPair).build());
         PrivateKeyRetriever.configuration.set(TestPrivateKeyRetrieverBuilder.withKeyPair(keyPair).build());
         
-        System.out.println();
-        System.out.println("Tables created on each CoreUnit:");
-        CoreUnit.MODULE.accept(table -> System.out.println(table.getFullNameWithUnderlines()));
-        System.out.println();
-        
         Server.start();
         hostIdentifier = HostIdentifier.with("test.digitalid.net");
         host = HostBuilder.withIdentifier(hostIdentifier).build();
@@ -133,7 +145,99 @@ public class ServerTest extends CoreTest {
     }
     
     @Test
-    public void testIdentityCreation() throws ExternalException {
+    public void testBatch() throws ExternalException {
+        Log.information("Started the batch test.");
+        final @Nonnull FreezableList<TestQuery> queries = FreezableArrayList.withInitialCapacity(3);
+        for (int i = 0; i < 3; i++) { queries.add(TestQueryBuilder.withMessage("Message " + i).withProvidedSubject(hostIdentifier).build()); }
+        final @Nonnull ReadOnlyList<TestReply> replies = Method.sendBatch(queries, TestReplyConverter.INSTANCE);
+        assertThat(replies.size()).isEqualTo(3);
+        for (@Nonnull TestReply reply : replies) { assertThat(reply.getMessage()).isEqualTo("Hi there!"); }
+    }
+    
+    @Test
+    public void testBoundedRejection() throws Exception {
+        try (@Nonnull ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+                @Nonnull Socket client = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+                @Nonnull Socket socket = serverSocket.accept()) {
+            // The client neither sends the remainder of its request nor closes the connection.
+            final long start = System.nanoTime();
+            AdmissionControl.reject(socket, null, "The server is too busy to handle the request.");
+            assertThat((System.nanoTime() - start) / 1_000_000).isLessThan(10L * AdmissionControl.DISCARD_TIMEOUT.get());
+            assertThat(client.getInputStream().read()).isGreaterThanOrEqualTo(0);
+        }
+    }
+    
+    @Test(expected = RequestException.class)
+    public void testOversizedBatch() throws ExternalException {
+        final int size = Batch.MAXIMUM_SIZE.get() + 1;
+        final @Nonnull FreezableList<TestQuery> queries = FreezableArrayList.withInitialCapacity(size);
+        for (int i = 0; i < size; i++) { queries.add(TestQueryBuilder.withMessage("Message " + i).withProvidedSubject(hostIdentifier).build()); }
+        Method.sendBatch(queries, TestReplyConverter.INSTANCE);
+    }
+    
+    @Test
+    public void testPushing() throws ExternalException, InterruptedException {
+        Log.information("Started the pushing test.");
+        
+        final @Nonnull Client client = ClientBuilder.withIdentifier("push.client.digitalid.net").withDisplayName("Push Client").withPreferredPermissions(ReadOnlyAgentPermissions.GENERAL_WRITE).build();
+        final @Nonnull InternalNonHostIdentifier identifier = InternalNonHostIdentifier.with("pusher@test.digitalid.net");
+        final @Nonnull NativeRole role = OpenAccount.of(Category.NATURAL_PERSON, identifier, client);
+        Database.commit();
+        
+        TestAction.received.clear();
+        for (int i = 0; i < 3; i++) { Pusher.send(TestActionBuilder.withMessage("Push " + i).withProvidedSubject(identifier).withProvidedEntity(role).build()); }
+        Database.commit();
+        
+        for (int i = 0; i < 3; i++) { assertThat(TestAction.received.poll(60, TimeUnit.SECONDS)).isEqualTo("Push " + i); }
+    }
+    
+    @Test
+    public void testStagedExecution() throws ExternalException, InterruptedException {
+        Log.information("Started the staged execution test.");
+        
+        final @Nullable Listener listener = Server.getListener();
+        assertThat(listener).isNotNull();
+        final long decoded = listener.getCryptoStage().getHandedOff();
+        final long executed = listener.getExecutionStage().getHandedOff();
+        
+        final int clients = 4;
+        final int requests = 5;
+        final @Nonnull AtomicInteger failures = new AtomicInteger();
+        final @Nonnull ExecutorService executor = Executors.newFixedThreadPool(clients);
+        Pipeline.STAGED.set(true);
+        try {
+            for (int client = 0; client < clients; client++) {
+                executor.execute(() -> {
+                    for (int i = 0; i < requests; i++) {
+                        try {
+                            final @Nonnull TestReply reply = TestQueryBuilder.withMessage("Message " + i).withProvidedSubject(hostIdentifier).build().send(TestReplyConverter.INSTANCE);
+                            if (!reply.getMessage().equals("Hi there!")) { failures.incrementAndGet(); }
+                        } catch (@Nonnull ExternalException exception) {
+                            Log.warning("The staged request failed.", exception);
+                            failures.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            executor.shutdown();
+            assertThat(executor.awaitTermination(5, TimeUnit.MINUTES)).isTrue();
+            
+            final @Nonnull FreezableList<TestQuery> queries = FreezableArrayList.withInitialCapacity(3);
+            for (int i = 0; i < 3; i++) { queries.add(TestQueryBuilder.withMessage("Batched " + i).withProvidedSubject(hostIdentifier).build()); }
+            final @Nonnull ReadOnlyList<TestReply> replies = Method.sendBatch(queries, TestReplyConverter.INSTANCE);
+            assertThat(replies.size()).isEqualTo(3);
+            for (@Nonnull TestReply reply : replies) { assertThat(reply.getMessage()).isEqualTo("Hi there!"); }
+        } finally {
+            Pipeline.STAGED.set(false);
+        }
+        
+        assertThat(failures.get()).isEqualTo(0);
+        assertThat(listener.getCryptoStage().getHandedOff() - decoded).isEqualTo(clients * requests + 1);
+        assertThat(listener.getExecutionStage().getHandedOff() - executed).isEqualTo(clients * requests + 1);
+    }
+    
+    @Test
+    public void testIdentityCreation() throws ExternalException, InterruptedException {
         Log.information("Started the identity creation test.");
         
         final @Nonnull Client client = ClientBuilder.withIdentifier("test.client.digitalid.net").withDisplayName("Test Client").withPreferredPermissions(ReadOnlyAgentPermissions.GENERAL_WRITE).build();
@@ -148,6 +252,7 @@ public class ServerTest extends CoreTest {
         
         nameAttribute.value().set(UncertifiedAttributeValue.with(signature));
         nameAttribute.visibility().set(PassiveExpressionBuilder.withEntity(role).withString("everybody").build());
+        assertThat(AsynchronousSender.awaitCompletion(60_000)).isTrue();
         
         final @Nonnull Name cachedName = CacheQueryBuilder.withConverter(NameConverter.INSTANCE).withRequestee(role.getIdentity()).withType(Name.TYPE).build().execute();
         assertThat(cachedName).isEqualTo(name);
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.server.handlers;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
+import net.digitalid.utility.generator.annotations.generators.GenerateConverter;
+import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.logging.Log;
+import net.digitalid.utility.storage.Storage;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+import net.digitalid.database.annotations.transaction.NonCommitting;
+import net.digitalid.database.exceptions.DatabaseException;
+
+import net.digitalid.core.entity.NonHostEntity;
+import net.digitalid.core.exceptions.request.RequestException;
+import net.digitalid.core.handler.annotations.Matching;
+import net.digitalid.core.handler.annotations.MethodHasBeenReceived;
+import net.digitalid.core.handler.method.CoreMethod;
+import net.digitalid.core.handler.method.action.ExternalAction;
+import net.digitalid.core.handler.reply.ActionReply;
+import net.digitalid.core.service.CoreService;
+import net.digitalid.core.unit.annotations.OnHostRecipient;
+
+@Immutable
+@GenerateBuilder
+@GenerateSubclass
+@GenerateConverter
+public abstract class TestAction extends ExternalAction implements CoreMethod<NonHostEntity> {
+    
+    /**
+     * Stores the messages of the actions that were received by the host in the order of their execution.
+     */
+    public static final @Nonnull BlockingQueue<String> received = new LinkedBlockingQueue<>();
+    
+    /* -------------------------------------------------- Fields -------------------------------------------------- */
+    
+    /**
+     * Returns the message that is pushed.
+     */
+    @Pure
+    public abstract @Nonnull String getMessage();
+    
+    /* -------------------------------------------------- Execution -------------------------------------------------- */
+    
+    @Override
+    @NonCommitting
+    @OnHostRecipient
+    @PureWithSideEffects
+    @MethodHasBeenReceived
+    public @Nullable @Matching ActionReply executeOnHost() throws RequestException, DatabaseException {
+        Log.information("Received the pushed message $.", getMessage());
+        received.add(getMessage());
+        return null;
+    }
+    
+    @Override
+    @NonCommitting
+    @PureWithSideEffects
+    public void executeOnFailure() throws DatabaseException {
+        Log.warning("Could not push the message $.", getMessage());
+    }
+    
+    /* -------------------------------------------------- Storage -------------------------------------------------- */
+    
+    @Pure
+    @Override
+    public @Nonnull Storage getStorage() {
+        return CoreService.INSTANCE.getModule();
+    }
+    
+}
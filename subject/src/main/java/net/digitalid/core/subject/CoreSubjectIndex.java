@@ -17,6 +17,8 @@ package net.digitalid.core.subject;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -28,9 +30,12 @@ import net.digitalid.utility.collaboration.annotations.TODO;
 import net.digitalid.utility.collaboration.enumerations.Author;
 import net.digitalid.utility.concurrency.map.ConcurrentHashMapBuilder;
 import net.digitalid.utility.concurrency.map.ConcurrentMap;
+import net.digitalid.utility.configuration.Configuration;
 import net.digitalid.utility.contracts.Require;
 import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
 import net.digitalid.utility.validation.annotations.type.Immutable;
+import net.digitalid.utility.validation.annotations.type.Mutable;
 
 import net.digitalid.database.access.Access;
 import net.digitalid.database.access.Mode;
@@ -38,6 +43,7 @@ import net.digitalid.database.access.annotations.SingleAccess;
 import net.digitalid.database.annotations.transaction.NonCommitting;
 import net.digitalid.database.conversion.SQL;
 import net.digitalid.database.exceptions.DatabaseException;
+import net.digitalid.database.interfaces.Database;
 
 import net.digitalid.core.entity.Entity;
 
@@ -49,6 +55,20 @@ import net.digitalid.core.entity.Entity;
 @TODO(task = "Make the subjects somehow observable and expose a read-only view through the subject class? Problem: The index only knows the loaded subjects, not all that exist.", date = "2017-08-20", author = Author.KASPAR_ETTER)
 public abstract class CoreSubjectIndex<@Unspecifiable ENTITY extends Entity, @Unspecifiable KEY, @Unspecifiable SUBJECT extends CoreSubject<ENTITY, KEY>> {
     
+    /* -------------------------------------------------- Configuration -------------------------------------------------- */
+    
+    /**
+     * Stores the number of entries that each index keeps at most in multi-access mode.
+     * (In single-access mode, the subjects are never evicted because they have to be unique.)
+     */
+    public static final @Nonnull Configuration<Integer> CAPACITY = Configuration.with(100_000);
+    
+    /**
+     * Stores the time in milliseconds during which a persisted subject is assumed to still exist in multi-access mode.
+     * (In multi-access mode, other processes might delete the subject without removing the entry from this index.)
+     */
+    public static final @Nonnull Configuration<Integer> VALIDITY = Configuration.with(60_000);
+    
     /* -------------------------------------------------- Removal -------------------------------------------------- */
     
     /**
@@ -66,7 +86,8 @@ public abstract class CoreSubjectIndex<@Unspecifiable ENTITY extends Entity, @Un
         Require.that(Access.mode.get() == Mode.SINGLE).orThrow("The database has to be in single-access mode.");
         
         for (@Nonnull CoreSubjectIndex<?, ?, ?> index : indexes) {
-            index.subjects.remove(entity);
+            final @Nullable ConcurrentMap<?, ?> removed = index.entries.remove(entity);
+            if (removed != null) { index.size.addAndGet(-removed.size()); }
         }
     }
     
@@ -84,29 +105,100 @@ public abstract class CoreSubjectIndex<@Unspecifiable ENTITY extends Entity, @Un
         indexes.add(this);
     }
     
+    /* -------------------------------------------------- Entries -------------------------------------------------- */
+    
+    /**
+     * An entry stores the interned subject of an entity and key together with whether the subject is known to be persisted.
+     */
+    @Mutable
+    private static class Entry<@Unspecifiable SUBJECT> {
+        
+        /**
+         * Stores the interned subject, which is only set in single-access mode because the properties of a subject cache their values,
+         * which other processes might change in multi-access mode.
+         */
+        private final @Nullable SUBJECT subject;
+        
+        /**
+         * Stores the time at which the transaction that inserted the subject into its table was committed or zero if it has not yet been committed.
+         */
+        private volatile long persisted = 0;
+        
+        private Entry(@Nullable SUBJECT subject) {
+            this.subject = subject;
+        }
+        
+    }
+    
+    /**
+     * Stores the entries of this index.
+     */
+    private final @Nonnull ConcurrentMap<@Nonnull ENTITY, @Nonnull ConcurrentMap<@Nonnull KEY, @Nonnull Entry<SUBJECT>>> entries = ConcurrentHashMapBuilder.build();
+    
+    /**
+     * Stores the number of entries of this index.
+     */
+    private final @Nonnull AtomicInteger size = new AtomicInteger();
+    
+    /**
+     * Evicts the entries of entities until this index no longer exceeds its capacity.
+     */
+    @Impure
+    private void evict() {
+        for (final @Nonnull ENTITY entity : entries.keySet()) {
+            if (size.get() <= CAPACITY.get()) { return; }
+            final @Nullable ConcurrentMap<KEY, Entry<SUBJECT>> removed = entries.remove(entity);
+            if (removed != null) { size.addAndGet(-removed.size()); }
+        }
+    }
+    
     /* -------------------------------------------------- Subjects -------------------------------------------------- */
     
     /**
-     * Stores the core subjects of this index.
+     * Stores the number of subjects that have been inserted into their table.
+     */
+    private static final @Nonnull AtomicLong inserts = new AtomicLong();
+    
+    /**
+     * Returns the number of subjects that have been inserted into their table by all indexes.
+     */
+    @Pure
+    public static @NonNegative long getInserts() {
+        return inserts.get();
+    }
+    
+    /**
+     * Returns whether the subject of the given entry is known to be persisted.
      */
-    private final @Nonnull ConcurrentMap<@Nonnull ENTITY, @Nonnull ConcurrentMap<@Nonnull KEY, @Nonnull SUBJECT>> subjects = ConcurrentHashMapBuilder.build();
+    @Pure
+    private static boolean isPersisted(@Nonnull Entry<?> entry, boolean singleAccess) {
+        final long persisted = entry.persisted;
+        return persisted != 0 && (singleAccess || System.currentTimeMillis() - persisted < VALIDITY.get());
+    }
     
     /**
-     * Returns the potentially cached core subject with the given entity and key after having inserted it into its database table.
+     * Returns the potentially cached core subject with the given entity and key after having inserted it into its database table unless it is known to be persisted.
+     * The subject is only known to be persisted once the transaction that inserted it has been committed, which is why the subject is inserted again after a rollback.
      */
     @Pure
     @NonCommitting
     public @Nonnull SUBJECT get(@Nonnull ENTITY entity, @Nonnull KEY key) throws DatabaseException {
-        @Nullable SUBJECT subject;
-        if (Access.mode.get() == Mode.SINGLE) {
-            @Nullable ConcurrentMap<KEY, SUBJECT> map = subjects.get(entity);
-            if (map == null) { map = subjects.putIfAbsentElseReturnPresent(entity, ConcurrentHashMapBuilder.<KEY, SUBJECT>build()); }
-            subject = map.get(key);
-            if (subject == null) { subject = map.putIfAbsentElseReturnPresent(key, getSubjectModule().getSubjectFactory().evaluate(entity, key)); }
-        } else {
-            subject = getSubjectModule().getSubjectFactory().evaluate(entity, key);
+        final boolean singleAccess = Access.mode.get() == Mode.SINGLE;
+        @Nullable ConcurrentMap<KEY, Entry<SUBJECT>> map = entries.get(entity);
+        if (map == null) { map = entries.putIfAbsentElseReturnPresent(entity, ConcurrentHashMapBuilder.<KEY, Entry<SUBJECT>>build()); }
+        @Nullable Entry<SUBJECT> entry = map.get(key);
+        if (entry == null) {
+            final @Nonnull Entry<SUBJECT> newEntry = new Entry<>(singleAccess ? getSubjectModule().getSubjectFactory().evaluate(entity, key) : null);
+            entry = map.putIfAbsentElseReturnPresent(key, newEntry);
+            if (entry == newEntry && size.incrementAndGet() > CAPACITY.get() && !singleAccess) { evict(); }
+        }
+        final @Nonnull SUBJECT subject = entry.subject != null ? entry.subject : getSubjectModule().getSubjectFactory().evaluate(entity, key);
+        if (!isPersisted(entry, singleAccess)) {
+            SQL.insertOrIgnore(getSubjectModule().getSubjectTable(), subject, entity.getUnit());
+            inserts.incrementAndGet();
+            final @Nonnull Entry<SUBJECT> insertedEntry = entry;
+            Database.instance.get().runAfterCommit(() -> insertedEntry.persisted = System.currentTimeMillis());
         }
-        SQL.insertOrIgnore(getSubjectModule().getSubjectTable(), subject, entity.getUnit());
         return subject;
     }
     
@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.subject;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.exceptions.ExternalException;
+import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.generator.annotations.generators.GenerateTableConverter;
+import net.digitalid.utility.validation.annotations.generation.Recover;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+import net.digitalid.database.access.Access;
+import net.digitalid.database.access.Mode;
+import net.digitalid.database.annotations.transaction.NonCommitting;
+import net.digitalid.database.conversion.SQL;
+import net.digitalid.database.exceptions.DatabaseException;
+import net.digitalid.database.interfaces.Database;
+
+import net.digitalid.core.entity.NonHostEntity;
+import net.digitalid.core.identification.identity.SemanticType;
+import net.digitalid.core.identification.identity.SemanticTypeAttributesBuilder;
+import net.digitalid.core.identification.identity.SyntacticType;
+import net.digitalid.core.testing.CoreTest;
+import net.digitalid.core.testing.fixtures.TestEntity;
+import net.digitalid.core.testing.fixtures.TestEntityBuilder;
+import net.digitalid.core.testing.fixtures.TestUnit;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+@Immutable
+@GenerateSubclass
+@GenerateTableConverter
+abstract class IndexTestSubject extends CoreServiceCoreSubject<NonHostEntity, Long> {
+    
+    @Pure
+    @Override
+    public abstract @Nonnull Long getKey();
+    
+    @Pure
+    @Recover
+    @NonCommitting
+    static @Nonnull IndexTestSubject of(@Nonnull NonHostEntity entity, long key) throws DatabaseException {
+        return IndexTestSubjectSubclass.MODULE.getSubjectIndex().get(entity, key);
+    }
+    
+}
+
+public class CoreSubjectIndexTest extends CoreTest {
+    
+    /* -------------------------------------------------- Fixtures -------------------------------------------------- */
+    
+    private static final @Nonnull TestUnit UNIT = TestUnit.with("index", true);
+    
+    private static final @Nonnull SemanticType TYPE = SemanticType.map("index@core.digitalid.net").load(SemanticTypeAttributesBuilder.withSyntacticBase(SyntacticType.BOOLEAN).build());
+    
+    private static final @Nonnull TestEntity ENTITY = TestEntityBuilder.withUnit(UNIT).withKey(0).withIdentity(TYPE).build();
+    
+    @Impure
+    @BeforeClass
+    public static void createTables() throws ExternalException {
+        TestEntity.createTable(UNIT, ENTITY);
+        SQL.createTable(IndexTestSubjectSubclass.MODULE.getSubjectTable(), UNIT);
+        Database.commit();
+    }
+    
+    /* -------------------------------------------------- Tests -------------------------------------------------- */
+    
+    @Test
+    public void shouldInsertSubjectsOnlyUntilCommitted() throws ExternalException {
+        final long inserts = CoreSubjectIndex.getInserts();
+        final @Nonnull IndexTestSubject subject = IndexTestSubject.of(ENTITY, 1);
+        assertThat(IndexTestSubject.of(ENTITY, 1)).isSameAs(subject);
+        Database.commit();
+        assertThat(IndexTestSubject.of(ENTITY, 1)).isSameAs(subject);
+        assertThat(IndexTestSubject.of(ENTITY, 1)).isSameAs(subject);
+        assertThat(CoreSubjectIndex.getInserts() - inserts).isEqualTo(2);
+    }
+    
+    @Test
+    public void shouldInsertSubjectsAgainAfterRollback() throws ExternalException {
+        final long inserts = CoreSubjectIndex.getInserts();
+        IndexTestSubject.of(ENTITY, 2);
+        Database.rollback();
+        IndexTestSubject.of(ENTITY, 2);
+        Database.commit();
+        IndexTestSubject.of(ENTITY, 2);
+        assertThat(CoreSubjectIndex.getInserts() - inserts).isEqualTo(2);
+    }
+    
+    @Test
+    public void shouldInsertSubjectsOnlyOnceInMultiAccessMode() throws ExternalException {
+        final @Nonnull Mode mode = Access.mode.get();
+        Access.mode.set(Mode.MULTI);
+        try {
+            final long inserts = CoreSubjectIndex.getInserts();
+            final @Nonnull IndexTestSubject subject = IndexTestSubject.of(ENTITY, 3);
+            Database.commit();
+            assertThat(IndexTestSubject.of(ENTITY, 3)).isEqualTo(subject).isNotSameAs(subject);
+            assertThat(CoreSubjectIndex.getInserts() - inserts).isEqualTo(1);
+        } finally {
+            Access.mode.set(mode);
+        }
+    }
+    
+    @Test
+    public void shouldEvictEntriesBeyondTheCapacityInMultiAccessMode() throws ExternalException {
+        final @Nonnull Mode mode = Access.mode.get();
+        final int capacity = CoreSubjectIndex.CAPACITY.get();
+        Access.mode.set(Mode.MULTI);
+        CoreSubjectIndex.CAPACITY.set(10);
+        try {
+            for (long key = 100; key < 120; key++) { IndexTestSubject.of(ENTITY, key); }
+            Database.commit();
+            final long inserts = CoreSubjectIndex.getInserts();
+            IndexTestSubject.of(ENTITY, 100);
+            assertThat(CoreSubjectIndex.getInserts() - inserts).isEqualTo(1);
+        } finally {
+            CoreSubjectIndex.CAPACITY.set(capacity);
+            Access.mode.set(mode);
+        }
+    }
+    
+    @Test
+    public void shouldInsertSubjectsAgainAfterTheValidityInMultiAccessMode() throws ExternalException {
+        final @Nonnull Mode mode = Access.mode.get();
+        final int validity = CoreSubjectIndex.VALIDITY.get();
+        Access.mode.set(Mode.MULTI);
+        try {
+            IndexTestSubject.of(ENTITY, 4);
+            Database.commit();
+            final long inserts = CoreSubjectIndex.getInserts();
+            IndexTestSubject.of(ENTITY, 4);
+            assertThat(CoreSubjectIndex.getInserts() - inserts).isEqualTo(0);
+            
+            CoreSubjectIndex.VALIDITY.set(0);
+            IndexTestSubject.of(ENTITY, 4);
+            Database.commit();
+            assertThat(CoreSubjectIndex.getInserts() - inserts).isEqualTo(1);
+        } finally {
+            CoreSubjectIndex.VALIDITY.set(validity);
+            Access.mode.set(mode);
+        }
+    }
+    
+    @Test
+    public void shouldInsertEachSubjectOnceOverManyRequestsInMultiAccessMode() throws ExternalException {
+        final @Nonnull Mode mode = Access.mode.get();
+        Access.mode.set(Mode.MULTI);
+        try {
+            final int requests = 100;
+            final int lookups = 10;
+            final long inserts = CoreSubjectIndex.getInserts();
+            for (int request = 0; request < requests; request++) {
+                for (long key = 200; key < 200 + lookups; key++) { IndexTestSubject.of(ENTITY, key); }
+                Database.commit();
+            }
+            assertThat(CoreSubjectIndex.getInserts() - inserts).isEqualTo(lookups);
+        } finally {
+            Access.mode.set(mode);
+        }
+    }
+    
+}
@@ -81,7 +81,7 @@ public abstract class SymmetricKey extends RootClass {
      * Initializes the maximum allowed key length of AES by circumventing the Java Runtime Environment restrictions.
      */
     @Pure
-    @Initialize(target = SymmetricKey.class)
+    @Initialize(target = SymmetricKey.class, dependencies = Parameters.class)
     @TODO(task = "Consider using Bouncy Castle as a JRE-independent solution to the following hack.", date = "2016-04-19", author = Author.KASPAR_ETTER, priority = Priority.LOW)
     public static void initializeKeyLength() {
         try {
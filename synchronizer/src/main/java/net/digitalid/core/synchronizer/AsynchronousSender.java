@@ -0,0 +1,441 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.synchronizer;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.collections.list.FreezableArrayList;
+import net.digitalid.utility.collections.list.FreezableList;
+import net.digitalid.utility.configuration.Configuration;
+import net.digitalid.utility.exceptions.ExternalException;
+import net.digitalid.utility.logging.Log;
+import net.digitalid.utility.threading.NamedThreadFactory;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+import net.digitalid.utility.validation.annotations.type.Utility;
+
+import net.digitalid.database.annotations.transaction.Committing;
+import net.digitalid.database.annotations.transaction.NonCommitting;
+import net.digitalid.database.exceptions.DatabaseException;
+import net.digitalid.database.interfaces.Database;
+
+import net.digitalid.core.conversion.exceptions.NetworkException;
+import net.digitalid.core.entity.Entity;
+import net.digitalid.core.exceptions.request.RequestErrorCode;
+import net.digitalid.core.exceptions.request.RequestException;
+import net.digitalid.core.handler.method.Method;
+import net.digitalid.core.handler.method.action.InternalAction;
+import net.digitalid.core.packet.Response;
+import net.digitalid.core.unit.CoreUnit;
+
+/**
+ * The asynchronous sender delivers {@link InternalAction internal actions} to their host in the background.
+ * The actions are queued per role and sent in their order, whereby consecutive similar actions are coalesced into a single request.
+ * Requests which fail due to the network are retried with an exponentially increasing delay, whereas busy notices are already retried by the {@link net.digitalid.core.packet.Request#send() request} itself.
+ * If the host rejects coalesced actions, they are resent separately so that only the rejected action fails.
+ * Actions which were appended to the {@link Outbox outbox} are removed from it in the transaction that is committed after their sending.
+ * Whenever a request has been sent successfully, the stalled outboxes are {@link Outbox#resume() resumed}.
+ * 
+ * @see Synchronizer
+ */
+@Utility
+public abstract class AsynchronousSender {
+    
+    /* -------------------------------------------------- Configurations -------------------------------------------------- */
+    
+    /**
+     * Stores the maximum number of similar actions that are coalesced into a single request.
+     */
+    public static final @Nonnull Configuration<Integer> BATCH_SIZE = Configuration.with(32);
+    
+    /**
+     * Stores how many times a request is resent at most after a network failure.
+     */
+    public static final @Nonnull Configuration<Integer> RETRIES = Configuration.with(8);
+    
+    /**
+     * Stores the delay in milliseconds before the first resending of a request, which is doubled with each further attempt.
+     */
+    public static final @Nonnull Configuration<Integer> BACKOFF = Configuration.with(1000);
+    
+    /**
+     * Stores the maximum delay in milliseconds between two attempts to send a request.
+     */
+    public static final @Nonnull Configuration<Integer> MAXIMUM_BACKOFF = Configuration.with(60000);
+    
+    /* -------------------------------------------------- Pending Actions -------------------------------------------------- */
+    
+    /**
+     * A pending action stores an action together with the future that is completed once the action has been sent.
+     */
+    @Mutable
+    private static final class PendingAction {
+        
+        private final @Nonnull InternalAction action;
+        
+        private final @Nonnull CompletableFuture<Response> future = new CompletableFuture<>();
+        
+        private final long queued = System.nanoTime();
+        
+        /**
+         * Stores the sequence number of the action in the outbox or null if the action was not appended to the outbox.
+         */
+        private final @Nullable Long sequence;
+        
+        /**
+         * Stores whether the action has to be sent separately because the host rejected a request in which it was coalesced.
+         */
+        private boolean separately = false;
+        
+        private PendingAction(@Nonnull InternalAction action, @Nullable Long sequence) {
+            this.action = action;
+            this.sequence = sequence;
+        }
+        
+    }
+    
+    /**
+     * Stores the queued actions of each role, which is also used to synchronize the access to the queues and the set of sending roles.
+     */
+    private static final @Nonnull Map<@Nullable Entity, @Nonnull Deque<@Nonnull PendingAction>> queues = new HashMap<>();
+    
+    /**
+     * Stores the roles for which a request is currently being sent or scheduled to be resent.
+     */
+    private static final @Nonnull Set<@Nullable Entity> sendingRoles = new HashSet<>();
+    
+    /**
+     * Stores the executor that sends the requests and schedules their resending.
+     */
+    private static final @Nonnull ScheduledExecutorService executor = Executors.newScheduledThreadPool(2, NamedThreadFactory.with("Sender"));
+    
+    /* -------------------------------------------------- Metrics -------------------------------------------------- */
+    
+    private static final @Nonnull AtomicInteger queueDepth = new AtomicInteger();
+    
+    /**
+     * Returns the number of actions which are queued or being sent.
+     */
+    @Pure
+    public static @NonNegative int getQueueDepth() {
+        return queueDepth.get();
+    }
+    
+    private static final @Nonnull AtomicLong sentActions = new AtomicLong();
+    
+    /**
+     * Returns the number of actions which have been sent successfully.
+     */
+    @Pure
+    public static @NonNegative long getSentActions() {
+        return sentActions.get();
+    }
+    
+    private static final @Nonnull AtomicLong sentRequests = new AtomicLong();
+    
+    /**
+     * Returns the number of requests in which the successfully sent actions were coalesced.
+     */
+    @Pure
+    public static @NonNegative long getSentRequests() {
+        return sentRequests.get();
+    }
+    
+    private static final @Nonnull AtomicLong totalLatency = new AtomicLong();
+    
+    /**
+     * Returns the average time in milliseconds from the queuing of an action until it was sent successfully.
+     */
+    @Pure
+    public static @NonNegative long getAverageLatency() {
+        final long actions = sentActions.get();
+        return actions == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalLatency.get() / actions);
+    }
+    
+    private static final @Nonnull AtomicLong maximumLatency = new AtomicLong();
+    
+    /**
+     * Returns the maximum time in milliseconds from the queuing of an action until it was sent successfully.
+     */
+    @Pure
+    public static @NonNegative long getMaximumLatency() {
+        return TimeUnit.NANOSECONDS.toMillis(maximumLatency.get());
+    }
+    
+    /* -------------------------------------------------- Queuing -------------------------------------------------- */
+    
+    /**
+     * Queues the given action for sending and returns a future that is completed with the response of the host.
+     * If the action cannot be sent, the future is completed exceptionally.
+     */
+    @Impure
+    public static @Nonnull CompletableFuture<Response> send(@Nonnull InternalAction action) {
+        return send(action, null);
+    }
+    
+    /**
+     * Queues the given action, which was appended to the outbox with the given sequence number, for sending.
+     */
+    @Impure
+    static @Nonnull CompletableFuture<Response> send(@Nonnull InternalAction action, @Nullable Long sequence) {
+        final @Nonnull PendingAction pendingAction = new PendingAction(action, sequence);
+        queueDepth.incrementAndGet();
+        final @Nullable Entity role = action.getEntity();
+        synchronized (queues) {
+            queues.computeIfAbsent(role, key -> new ArrayDeque<>()).addLast(pendingAction);
+            if (sendingRoles.add(role)) { executor.execute(() -> sendNext(role)); }
+        }
+        return pendingAction.future;
+    }
+    
+    /**
+     * Waits until all queued actions have been sent or the given number of milliseconds has elapsed.
+     * 
+     * @return whether all queued actions have been sent.
+     */
+    @PureWithSideEffects
+    public static boolean awaitCompletion(@NonNegative long timeout) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + timeout;
+        synchronized (queues) {
+            while (queueDepth.get() > 0) {
+                final long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) { return false; }
+                queues.wait(remaining);
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Removes the next action of the given role together with the consecutive actions that are similar to it from the queue.
+     * If no action of the given role is queued, the role is removed from the sending roles and an empty list is returned.
+     */
+    @Impure
+    private static @Nonnull FreezableList<PendingAction> takeNext(@Nullable Entity role) {
+        final @Nonnull FreezableList<PendingAction> pendingActions = FreezableArrayList.withNoElements();
+        synchronized (queues) {
+            final @Nullable Deque<PendingAction> queue = queues.get(role);
+            final @Nullable PendingAction reference = queue == null ? null : queue.pollFirst();
+            if (reference == null) {
+                queues.remove(role);
+                sendingRoles.remove(role);
+                return pendingActions;
+            }
+            pendingActions.add(reference);
+            while (!reference.separately && pendingActions.size() < BATCH_SIZE.get() && !queue.isEmpty() && !queue.peekFirst().separately && isSimilar(reference.action, queue.peekFirst().action)) {
+                pendingActions.add(queue.pollFirst());
+            }
+        }
+        return pendingActions;
+    }
+    
+    /**
+     * Returns whether the given actions are similar to each other in both directions and can thus be coalesced.
+     */
+    @Pure
+    private static boolean isSimilar(@Nonnull InternalAction reference, @Nonnull InternalAction action) {
+        return reference.isSimilarTo(action) && action.isSimilarTo(reference);
+    }
+    
+    /* -------------------------------------------------- Sending -------------------------------------------------- */
+    
+    /**
+     * Sends the next actions of the given role if there are any.
+     */
+    @Committing
+    @PureWithSideEffects
+    private static void sendNext(@Nullable Entity role) {
+        final @Nonnull FreezableList<PendingAction> pendingActions = takeNext(role);
+        if (!pendingActions.isEmpty()) { send(role, pendingActions, 0); }
+    }
+    
+    /**
+     * Sends the given actions of the given role in a single request and schedules the resending in case of a transient failure.
+     */
+    @Committing
+    @PureWithSideEffects
+    private static void send(@Nullable Entity role, @Nonnull FreezableList<PendingAction> pendingActions, @NonNegative int attempt) {
+        final @Nonnull FreezableList<InternalAction> actions = FreezableArrayList.withInitialCapacity(pendingActions.size());
+        for (final @Nonnull PendingAction pendingAction : pendingActions) { actions.add(pendingAction.action); }
+        try {
+            Log.debugging("Sending the actions $ in attempt $.", actions, attempt);
+            final @Nonnull Response response = Method.sendBatch(actions);
+            removeFromOutbox(pendingActions);
+            Database.commit();
+            sentRequests.incrementAndGet();
+            for (final @Nonnull PendingAction pendingAction : pendingActions) {
+                final long latency = System.nanoTime() - pendingAction.queued;
+                totalLatency.addAndGet(latency);
+                maximumLatency.accumulateAndGet(latency, Math::max);
+                sentActions.incrementAndGet();
+                pendingAction.future.complete(response);
+            }
+            Outbox.resume();
+        } catch (@Nonnull ExternalException exception) {
+            rollback();
+            // Busy notices are already retried by the request itself, which is why only network failures are retried here.
+            final boolean network = exception instanceof NetworkException;
+            final boolean retriable = network || exception instanceof RequestException && ((RequestException) exception).getCode() == RequestErrorCode.BUSY;
+            if (network && attempt < RETRIES.get()) {
+                final long delay = Math.min((long) BACKOFF.get() << Math.min(attempt, 16), MAXIMUM_BACKOFF.get());
+                Log.warning("Could not send the actions $ and retrying in $ ms.", exception, actions, delay);
+                executor.schedule(() -> send(role, pendingActions, attempt + 1), delay, TimeUnit.MILLISECONDS);
+                return;
+            }
+            if (!retriable && pendingActions.size() > 1) {
+                Log.warning("The host rejected the coalesced actions $, which are resent separately.", exception, actions);
+                requeueSeparately(role, pendingActions);
+                executor.execute(() -> sendNext(role));
+                return;
+            }
+            Log.error("Failed to send the actions $ due to the following problem:", exception, actions);
+            if (retriable) { stallOutbox(pendingActions, exception); }
+            else { discardFromOutbox(pendingActions); }
+            fail(pendingActions, exception);
+        } catch (@Nonnull DatabaseException exception) {
+            rollback();
+            Log.error("Could not commit the transaction after sending the actions $.", exception, actions);
+            fail(pendingActions, exception);
+        } catch (@Nonnull RuntimeException exception) {
+            rollback();
+            Log.error("Failed to send the actions $ due to the following problem:", exception, actions);
+            fail(pendingActions, exception);
+        }
+        synchronized (queues) {
+            queueDepth.addAndGet(-pendingActions.size());
+            queues.notifyAll();
+        }
+        executor.execute(() -> sendNext(role));
+    }
+    
+    /**
+     * Puts the given actions back to the front of the queue of the given role in their order so that each of them is sent in a separate request.
+     */
+    @Impure
+    private static void requeueSeparately(@Nullable Entity role, @Nonnull FreezableList<PendingAction> pendingActions) {
+        synchronized (queues) {
+            final @Nonnull Deque<@Nonnull PendingAction> queue = queues.computeIfAbsent(role, key -> new ArrayDeque<>());
+            for (int i = pendingActions.size() - 1; i >= 0; i--) {
+                final @Nonnull PendingAction pendingAction = pendingActions.get(i);
+                pendingAction.separately = true;
+                queue.addFirst(pendingAction);
+            }
+        }
+    }
+    
+    /* -------------------------------------------------- Outbox -------------------------------------------------- */
+    
+    /**
+     * Removes the given actions from the outbox if they were appended to it.
+     */
+    @Impure
+    @NonCommitting
+    private static void removeFromOutbox(@Nonnull FreezableList<PendingAction> pendingActions) throws DatabaseException {
+        for (final @Nonnull PendingAction pendingAction : pendingActions) {
+            if (pendingAction.sequence != null) { Outbox.remove(pendingAction.action.getEntity().getUnit(), pendingAction.sequence); }
+        }
+    }
+    
+    /**
+     * Removes the given actions, which were rejected by the host, from the outbox so that they are not resent.
+     */
+    @Committing
+    @PureWithSideEffects
+    private static void discardFromOutbox(@Nonnull FreezableList<PendingAction> pendingActions) {
+        try {
+            removeFromOutbox(pendingActions);
+            Database.commit();
+        } catch (@Nonnull DatabaseException exception) {
+            rollback();
+            Log.warning("Could not remove the rejected actions from the outbox.", exception);
+        }
+    }
+    
+    /**
+     * Marks the outbox of the given actions as stalled so that they are resent when the outbox is flushed again.
+     * The queued actions from the same outboxes are withdrawn and failed with the given exception so that they are not sent before the stalled ones.
+     * As they remain in their outbox, they are resent in their order after the stalled actions.
+     */
+    @Impure
+    private static void stallOutbox(@Nonnull FreezableList<PendingAction> pendingActions, @Nonnull Throwable exception) {
+        final @Nonnull Set<@Nonnull CoreUnit> units = new HashSet<>();
+        for (final @Nonnull PendingAction pendingAction : pendingActions) {
+            if (pendingAction.sequence != null) { units.add(pendingAction.action.getEntity().getUnit()); }
+        }
+        if (units.isEmpty()) { return; }
+        for (final @Nonnull CoreUnit unit : units) { Outbox.stall(unit); }
+        final @Nonnull FreezableList<PendingAction> withdrawnActions = FreezableArrayList.withNoElements();
+        synchronized (queues) {
+            for (final @Nonnull Deque<@Nonnull PendingAction> queue : queues.values()) {
+                final @Nonnull Iterator<@Nonnull PendingAction> iterator = queue.iterator();
+                while (iterator.hasNext()) {
+                    final @Nonnull PendingAction pendingAction = iterator.next();
+                    if (pendingAction.sequence != null && units.contains(pendingAction.action.getEntity().getUnit())) {
+                        withdrawnActions.add(pendingAction);
+                        iterator.remove();
+                    }
+                }
+            }
+            queueDepth.addAndGet(-withdrawnActions.size());
+            queues.notifyAll();
+        }
+        if (!withdrawnActions.isEmpty()) {
+            Log.warning("Withdrew $ actions which are resent after the stalled actions.", withdrawnActions.size());
+            fail(withdrawnActions, exception);
+        }
+    }
+    
+    /* -------------------------------------------------- Failures -------------------------------------------------- */
+    
+    /**
+     * Completes the futures of the given actions with the given exception.
+     */
+    @Impure
+    private static void fail(@Nonnull FreezableList<PendingAction> pendingActions, @Nonnull Throwable exception) {
+        for (final @Nonnull PendingAction pendingAction : pendingActions) { pendingAction.future.completeExceptionally(exception); }
+    }
+    
+    /**
+     * Rolls back the current transaction and logs a failure.
+     */
+    @PureWithSideEffects
+    static void rollback() {
+        try {
+            Database.rollback();
+        } catch (@Nonnull DatabaseException exception) {
+            Log.warning("Could not roll back the transaction.", exception);
+        }
+    }
+    
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.synchronizer;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.exceptions.ExternalException;
+import net.digitalid.utility.validation.annotations.type.Functional;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+import net.digitalid.database.annotations.transaction.NonCommitting;
+
+import net.digitalid.core.pack.Pack;
+
+/**
+ * An audit applier applies the actions of an audit trail on the client.
+ * 
+ * @see AuditRetriever
+ */
+@Mutable
+@Functional
+public interface AuditApplier {
+    
+    /* -------------------------------------------------- Interface -------------------------------------------------- */
+    
+    /**
+     * Applies the given packed action in the current transaction, which is committed once the whole page has been applied.
+     */
+    @Impure
+    @NonCommitting
+    public void apply(@Nonnull Pack action) throws ExternalException;
+    
+}
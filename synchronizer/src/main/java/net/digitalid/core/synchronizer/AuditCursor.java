@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.synchronizer;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
+import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.generator.annotations.generators.GenerateTableConverter;
+import net.digitalid.utility.rootclass.RootClass;
+import net.digitalid.utility.time.Time;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+import net.digitalid.database.annotations.constraints.PrimaryKey;
+
+import net.digitalid.core.identification.identity.SemanticType;
+
+/**
+ * This type models the position up to which the audit of a service has been applied to an entity.
+ * 
+ * @see AuditRetriever
+ */
+@Immutable
+@GenerateBuilder
+@GenerateSubclass
+@GenerateTableConverter
+public abstract class AuditCursor extends RootClass {
+    
+    /* -------------------------------------------------- Fields -------------------------------------------------- */
+    
+    /**
+     * Returns the key of the entity to which the audit is applied.
+     */
+    @Pure
+    @PrimaryKey
+    public abstract long getEntity();
+    
+    /**
+     * Returns the type of the service whose audit is applied.
+     */
+    @Pure
+    @PrimaryKey
+    public abstract @Nonnull SemanticType getService();
+    
+    /**
+     * Returns the time of the last audit page that has been applied completely.
+     */
+    @Pure
+    public abstract @Nonnull Time getTime();
+    
+}
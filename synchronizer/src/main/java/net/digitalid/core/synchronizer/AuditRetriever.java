@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.synchronizer;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.configuration.Configuration;
+import net.digitalid.utility.conversion.converters.Integer64Converter;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.exceptions.ExternalException;
+import net.digitalid.utility.functional.failable.FailableUnaryFunction;
+import net.digitalid.utility.initialization.annotations.Initialize;
+import net.digitalid.utility.logging.Log;
+import net.digitalid.utility.time.Time;
+import net.digitalid.utility.validation.annotations.math.Positive;
+import net.digitalid.utility.validation.annotations.type.Utility;
+
+import net.digitalid.database.annotations.transaction.Committing;
+import net.digitalid.database.annotations.transaction.NonCommitting;
+import net.digitalid.database.conversion.SQL;
+import net.digitalid.database.conversion.WhereConditionBuilder;
+import net.digitalid.database.exceptions.DatabaseException;
+import net.digitalid.database.interfaces.Database;
+
+import net.digitalid.core.audit.RequestAudit;
+import net.digitalid.core.audit.RequestAuditBuilder;
+import net.digitalid.core.audit.ResponseAudit;
+import net.digitalid.core.entity.NonHostEntity;
+import net.digitalid.core.identification.identity.SemanticType;
+import net.digitalid.core.pack.Pack;
+import net.digitalid.core.unit.CoreUnit;
+
+/**
+ * The audit retriever retrieves the audit of a service page by page and applies each page as soon as it arrives.
+ * After a page has been applied, its time is stored as the {@link AuditCursor cursor} in the same transaction.
+ * If the retrieval is interrupted, it is resumed with the page after the last page that has been applied completely,
+ * which means that neither the requester nor the host has to hold the whole trail in memory at once.
+ */
+@Utility
+public abstract class AuditRetriever {
+    
+    /* -------------------------------------------------- Configurations -------------------------------------------------- */
+    
+    /**
+     * Stores the maximum number of actions per page.
+     */
+    public static final @Nonnull Configuration<Integer> PAGE_ENTRIES = Configuration.with(1_000);
+    
+    /**
+     * Stores the maximum number of bytes of the actions per page.
+     */
+    public static final @Nonnull Configuration<Integer> PAGE_BYTES = Configuration.with(1_048_576);
+    
+    /* -------------------------------------------------- Cursors -------------------------------------------------- */
+    
+    /**
+     * Stores a dummy configuration in order to have an initialization target.
+     */
+    public static final @Nonnull Configuration<Boolean> configuration = Configuration.with(Boolean.TRUE);
+    
+    /**
+     * Adds the table of the cursors to the tables which are created on each unit.
+     */
+    @PureWithSideEffects
+    @Initialize(target = AuditRetriever.class)
+    public static void addTable() {
+        CoreUnit.addTable(AuditCursorConverter.INSTANCE);
+    }
+    
+    /**
+     * Returns the time of the last page of the audit of the given service that has been applied to the given entity.
+     */
+    @Pure
+    @NonCommitting
+    public static @Nonnull Time getLastTime(@Nonnull NonHostEntity entity, @Nonnull SemanticType service) throws DatabaseException, RecoveryException {
+        for (final @Nonnull AuditCursor cursor : SQL.selectAll(AuditCursorConverter.INSTANCE, null, entity.getUnit(), WhereConditionBuilder.withConverter(Integer64Converter.INSTANCE).withObject(entity.getKey()).withPrefix("entity").build())) {
+            if (cursor.getService().equals(service)) { return cursor.getTime(); }
+        }
+        return Time.MIN;
+    }
+    
+    /**
+     * Sets the time of the last page of the audit of the given service that has been applied to the given entity.
+     */
+    @Impure
+    @NonCommitting
+    static void setLastTime(@Nonnull NonHostEntity entity, @Nonnull SemanticType service, @Nonnull Time time) throws DatabaseException {
+        SQL.insertOrReplace(AuditCursorConverter.INSTANCE, AuditCursorBuilder.withEntity(entity.getKey()).withService(service).withTime(time).build(), entity.getUnit());
+    }
+    
+    /* -------------------------------------------------- Retrieval -------------------------------------------------- */
+    
+    /**
+     * Retrieves the audit of the given service for the given entity from the given source and applies its actions with the given applier.
+     * Each page is applied and committed together with the new cursor before the next page is requested.
+     * If a page cannot be applied, the transaction is rolled back and the exception is rethrown,
+     * so that a later retrieval continues with exactly this page.
+     * 
+     * @param maximumEntries the maximum number of actions per page.
+     * @param maximumBytes the maximum number of bytes of the actions per page.
+     * @param source the function that sends the given request audit to the host and returns its response audit.
+     * 
+     * @return the time of the last page, which is the time until which the audit has been applied.
+     */
+    @Impure
+    @Committing
+    public static @Nonnull Time retrieve(@Nonnull NonHostEntity entity, @Nonnull SemanticType service, @Positive int maximumEntries, @Positive int maximumBytes, @Nonnull FailableUnaryFunction<@Nonnull RequestAudit, @Nonnull ResponseAudit, ? extends ExternalException> source, @Nonnull AuditApplier applier) throws ExternalException {
+        @Nonnull Time lastTime = getLastTime(entity, service);
+        Database.commit();
+        
+        int pages = 0;
+        while (true) {
+            final @Nonnull RequestAudit requestAudit = RequestAuditBuilder.withLastTime(lastTime).withMaximumEntries(maximumEntries).withMaximumBytes(maximumBytes).build();
+            final @Nonnull ResponseAudit responseAudit = source.evaluate(requestAudit);
+            try {
+                for (final @Nonnull Pack action : responseAudit.getTrail()) { applier.apply(action); }
+                setLastTime(entity, service, responseAudit.getThisTime());
+                Database.commit();
+            } catch (@Nonnull ExternalException | RuntimeException exception) {
+                AsynchronousSender.rollback();
+                Log.warning("Could not apply the page of the audit of $ after $.", exception, service, lastTime);
+                throw exception;
+            }
+            lastTime = responseAudit.getThisTime();
+            pages++;
+            if (responseAudit.isComplete()) {
+                Log.debugging("Applied $ pages of the audit of $.", pages, service);
+                return lastTime;
+            }
+        }
+    }
+    
+    /**
+     * Retrieves the audit of the given service for the given entity from the given source with the configured page size.
+     * 
+     * @see #retrieve(NonHostEntity, SemanticType, int, int, FailableUnaryFunction, AuditApplier)
+     */
+    @Impure
+    @Committing
+    public static @Nonnull Time retrieve(@Nonnull NonHostEntity entity, @Nonnull SemanticType service, @Nonnull FailableUnaryFunction<@Nonnull RequestAudit, @Nonnull ResponseAudit, ? extends ExternalException> source, @Nonnull AuditApplier applier) throws ExternalException {
+        return retrieve(entity, service, PAGE_ENTRIES.get(), PAGE_BYTES.get(), source, applier);
+    }
+    
+}
@@ -0,0 +1,349 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.synchronizer;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.collections.list.FreezableList;
+import net.digitalid.utility.configuration.Configuration;
+import net.digitalid.utility.conversion.converters.Integer64Converter;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.exceptions.UncheckedExceptionBuilder;
+import net.digitalid.utility.initialization.annotations.Initialize;
+import net.digitalid.utility.logging.Log;
+import net.digitalid.utility.threading.NamedThreadFactory;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.type.Functional;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+import net.digitalid.utility.validation.annotations.type.Utility;
+
+import net.digitalid.database.annotations.transaction.Committing;
+import net.digitalid.database.annotations.transaction.NonCommitting;
+import net.digitalid.database.conversion.SQL;
+import net.digitalid.database.conversion.WhereCondition;
+import net.digitalid.database.conversion.WhereConditionBuilder;
+import net.digitalid.database.exceptions.DatabaseException;
+import net.digitalid.database.interfaces.Database;
+
+import net.digitalid.core.entity.NonHostEntity;
+import net.digitalid.core.exceptions.request.RequestException;
+import net.digitalid.core.handler.method.Method;
+import net.digitalid.core.handler.method.MethodIndex;
+import net.digitalid.core.handler.method.action.InternalAction;
+import net.digitalid.core.pack.Pack;
+import net.digitalid.core.packet.Response;
+import net.digitalid.core.unit.CoreUnit;
+import net.digitalid.core.unit.UnitLock;
+
+/**
+ * The outbox stores the {@link InternalAction internal actions} that have been executed on a client but not yet been sent to their host.
+ * Each action is appended with an increasing sequence number in the same transaction in which it is executed, which means that
+ * the appending is committed together with the effects of the action and all other actions of the transaction.
+ * The sequence numbers are taken from a counter in the database, which is locked until the end of the transaction so that
+ * concurrent transactions, even of several processes which share the database, do not assign the same number.
+ * The actions are passed to the {@link AsynchronousSender} only after the transaction has been committed,
+ * and an entry is only removed in the transaction that is committed after the host accepted the action.
+ * When a client is started and after the delivery stalled, the outbox of a unit is drained in the order of the sequence numbers
+ * by a background flusher, which passes the recovered actions to the sender.
+ * 
+ * @see Synchronizer
+ */
+@Utility
+public abstract class Outbox {
+    
+    /* -------------------------------------------------- Unit Outboxes -------------------------------------------------- */
+    
+    /**
+     * A unit outbox stores the state of the outbox of a single unit in this process.
+     */
+    @Mutable
+    private static final class UnitOutbox {
+        
+        /**
+         * Stores the sequence numbers of the entries which have been passed to the sender and are not yet completed.
+         */
+        private final @Nonnull Set<@Nonnull Long> inFlight = ConcurrentHashMap.newKeySet();
+        
+        /**
+         * Stores the futures of the entries appended in this process which are completed once their actions have been sent.
+         */
+        private final @Nonnull Map<@Nonnull Long, @Nonnull CompletableFuture<Response>> waiting = new ConcurrentHashMap<>();
+        
+        /**
+         * Stores whether the entries that were in the outbox before have been passed to the sender.
+         */
+        private volatile boolean flushed = false;
+        
+    }
+    
+    /**
+     * Stores the outboxes of the units that have been used in this process.
+     */
+    private static final @Nonnull Map<@Nonnull CoreUnit, @Nonnull UnitOutbox> outboxes = new ConcurrentHashMap<>();
+    
+    /**
+     * Returns the outbox of the given unit.
+     */
+    @Impure
+    private static @Nonnull UnitOutbox getOutbox(@Nonnull CoreUnit unit) {
+        return outboxes.computeIfAbsent(unit, key -> new UnitOutbox());
+    }
+    
+    /* -------------------------------------------------- Tables -------------------------------------------------- */
+    
+    /**
+     * Stores a dummy configuration in order to have an initialization target.
+     */
+    public static final @Nonnull Configuration<Boolean> configuration = Configuration.with(Boolean.TRUE);
+    
+    /**
+     * Adds the tables of the entries and the counter to the tables which are created on each unit.
+     */
+    @PureWithSideEffects
+    @Initialize(target = Outbox.class)
+    public static void addTables() {
+        CoreUnit.addTable(OutboxEntryConverter.INSTANCE);
+        CoreUnit.addTable(OutboxCounterConverter.INSTANCE);
+    }
+    
+    /* -------------------------------------------------- Entries -------------------------------------------------- */
+    
+    /**
+     * Returns the entries in the outbox of the given unit ordered by their sequence number.
+     */
+    @Pure
+    @NonCommitting
+    static @Nonnull FreezableList<OutboxEntry> load(@Nonnull CoreUnit unit) throws DatabaseException, RecoveryException {
+        final @Nonnull FreezableList<OutboxEntry> entries = SQL.selectAll(OutboxEntryConverter.INSTANCE, null, unit);
+        entries.sort(Comparator.comparingLong(OutboxEntry::getSequence));
+        return entries;
+    }
+    
+    /**
+     * Stores the condition that selects the single counter of a unit.
+     */
+    private static final @Nonnull WhereCondition<Long> COUNTER = WhereConditionBuilder.withConverter(Integer64Converter.INSTANCE).withObject(0L).withPrefix("key").build();
+    
+    /**
+     * Returns the next sequence number of the outbox of the given unit and increments the counter in the current transaction.
+     * The counter is locked until the end of the current transaction so that concurrent transactions which append to the same outbox wait
+     * for each other instead of taking the same number. If the current transaction is rolled back, the number is taken again by the next one.
+     */
+    @Impure
+    @NonCommitting
+    private static long nextSequence(@Nonnull CoreUnit unit) throws DatabaseException, RecoveryException {
+        SQL.insertOrIgnore(OutboxCounterConverter.INSTANCE, OutboxCounterBuilder.withKey(0).withNext(1).build(), unit);
+        UnitLock.lock(OutboxCounterConverter.INSTANCE, unit, "key", 0);
+        final long sequence = SQL.selectOne(OutboxCounterConverter.INSTANCE, null, unit, COUNTER).getNext();
+        SQL.insertOrReplace(OutboxCounterConverter.INSTANCE, OutboxCounterBuilder.withKey(0).withNext(sequence + 1).build(), unit);
+        return sequence;
+    }
+    
+    /**
+     * Appends the given pack of an action on the given entity to the outbox of its unit and returns the sequence number of the new entry.
+     */
+    @Impure
+    @NonCommitting
+    static long append(@Nonnull NonHostEntity entity, @Nonnull Pack pack) throws DatabaseException, RecoveryException {
+        final long sequence = nextSequence(entity.getUnit());
+        SQL.insertOrAbort(OutboxEntryConverter.INSTANCE, OutboxEntryBuilder.withSequence(sequence).withEntity(entity.getKey()).withAction(pack).build(), entity.getUnit());
+        return sequence;
+    }
+    
+    /**
+     * Removes the entry with the given sequence number from the outbox of the given unit.
+     */
+    @Impure
+    @NonCommitting
+    static void remove(@Nonnull CoreUnit unit, long sequence) throws DatabaseException {
+        SQL.delete(OutboxEntryConverter.INSTANCE, unit, WhereConditionBuilder.withConverter(Integer64Converter.INSTANCE).withObject(sequence).withPrefix("sequence").build());
+    }
+    
+    /* -------------------------------------------------- Appending -------------------------------------------------- */
+    
+    /**
+     * Appends the given action to the outbox of its unit and returns a future that is completed with the response of the host.
+     * The action is sent after the current transaction has been committed, which means that all actions
+     * which are appended in the same transaction are group-committed and become durable with a single commit.
+     * If the transaction is rolled back instead, the returned future has to be {@link #abandon(InternalAction, CompletableFuture, Throwable) abandoned}.
+     */
+    @Impure
+    @NonCommitting
+    public static @Nonnull CompletableFuture<Response> append(@Nonnull InternalAction action) throws DatabaseException, RecoveryException {
+        final @Nonnull CoreUnit unit = action.getEntity().getUnit();
+        final @Nonnull UnitOutbox outbox = getOutbox(unit);
+        final long sequence = append(action.getEntity(), action.pack());
+        final @Nonnull CompletableFuture<Response> future = new CompletableFuture<>();
+        outbox.waiting.put(sequence, future);
+        Database.instance.get().runAfterCommit(() -> send(unit, outbox, action, sequence));
+        return future;
+    }
+    
+    /**
+     * Forgets the given future of the given action, whose appending was rolled back, and completes it with the given exception.
+     */
+    @Impure
+    public static void abandon(@Nonnull InternalAction action, @Nonnull CompletableFuture<Response> future, @Nonnull Throwable exception) {
+        final @Nullable UnitOutbox outbox = outboxes.get(action.getEntity().getUnit());
+        if (outbox != null) { outbox.waiting.values().remove(future); }
+        future.completeExceptionally(exception);
+    }
+    
+    /* -------------------------------------------------- Sending -------------------------------------------------- */
+    
+    /**
+     * A sender passes the actions of the outbox to their host.
+     */
+    @Functional
+    static interface Sender {
+        
+        /**
+         * Sends the given action, which was appended to the outbox with the given sequence number, and returns a future that is completed with the response of the host.
+         */
+        @Impure
+        public @Nonnull CompletableFuture<Response> send(@Nonnull InternalAction action, long sequence);
+        
+    }
+    
+    /**
+     * Stores the sender to which the actions of the outbox are passed, which can be replaced in order to test the outbox without a host.
+     */
+    static final @Nonnull Configuration<Sender> sender = Configuration.with(AsynchronousSender::send);
+    
+    /**
+     * Sends the given action, whose appending with the given sequence number has been committed.
+     * If the outbox of the unit has not yet been flushed in this process, the earlier entries are flushed first in order to preserve the order of the actions.
+     */
+    @Impure
+    private static void send(@Nonnull CoreUnit unit, @Nonnull UnitOutbox outbox, @Nonnull InternalAction action, long sequence) {
+        if (outbox.flushed) { submit(outbox, action, sequence, true); }
+        else { flush(unit); }
+    }
+    
+    /**
+     * Passes the given action to the sender unless the entry with the given sequence number is already in flight.
+     * If only waiting entries are to be submitted, the action is not passed to the sender after its future has been completed by a flush.
+     */
+    @Impure
+    private static boolean submit(@Nonnull UnitOutbox outbox, @Nonnull InternalAction action, long sequence, boolean onlyWaiting) {
+        if (!outbox.inFlight.add(sequence)) { return false; }
+        if (onlyWaiting && !outbox.waiting.containsKey(sequence)) {
+            outbox.inFlight.remove(sequence);
+            return false;
+        }
+        sender.get().send(action, sequence).whenComplete((response, throwable) -> {
+            // The future is removed before the sequence number so that the entry is not submitted again after it has been sent.
+            final @Nullable CompletableFuture<Response> future = outbox.waiting.remove(sequence);
+            outbox.inFlight.remove(sequence);
+            if (future != null) {
+                if (throwable != null) { future.completeExceptionally(throwable); }
+                else { future.complete(response); }
+            }
+        });
+        return true;
+    }
+    
+    /**
+     * Marks the outbox of the given unit as stalled so that its entries are flushed again in their order when the next action is sent or the delivery is {@link #resume() resumed}.
+     * The {@link AsynchronousSender sender} withdraws the later entries of the unit so that they are not sent before the stalled one.
+     */
+    @Impure
+    static void stall(@Nonnull CoreUnit unit) {
+        final @Nullable UnitOutbox outbox = outboxes.get(unit);
+        if (outbox != null) { outbox.flushed = false; }
+    }
+    
+    /**
+     * Flushes the outboxes of all units in this process that have not been flushed since their delivery stalled.
+     * This method is called by the {@link AsynchronousSender sender} whenever a request has been sent successfully,
+     * as a host that could not be reached before is likely to be reachable again.
+     */
+    @Impure
+    static void resume() {
+        for (final @Nonnull Map.Entry<@Nonnull CoreUnit, @Nonnull UnitOutbox> entry : outboxes.entrySet()) {
+            if (!entry.getValue().flushed) { flush(entry.getKey()); }
+        }
+    }
+    
+    /* -------------------------------------------------- Flushing -------------------------------------------------- */
+    
+    /**
+     * Stores the executor that drains the outboxes in the background.
+     */
+    private static final @Nonnull ExecutorService flusher = Executors.newSingleThreadExecutor(NamedThreadFactory.with("Flusher"));
+    
+    /**
+     * Passes all entries in the outbox of the given unit which are not yet in flight to the sender in the order of their sequence numbers.
+     * This method is called when a client is started so that the entries which were not sent before the client stopped are resent.
+     * 
+     * @return a future that is completed with the number of actions that were passed to the sender.
+     */
+    @Impure
+    public static @Nonnull CompletableFuture<Integer> flush(@Nonnull CoreUnit unit) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return drain(unit);
+            } catch (@Nonnull DatabaseException | RecoveryException exception) {
+                AsynchronousSender.rollback();
+                Log.error("Could not flush the outbox of the unit $.", exception, unit);
+                throw UncheckedExceptionBuilder.withCause(exception).build();
+            }
+        }, flusher);
+    }
+    
+    /**
+     * Drains the outbox of the given unit.
+     * Entries whose action cannot be recovered are removed as they could never be sent.
+     */
+    @Committing
+    @PureWithSideEffects
+    private static @NonNegative int drain(@Nonnull CoreUnit unit) throws DatabaseException, RecoveryException {
+        final @Nonnull UnitOutbox outbox = getOutbox(unit);
+        final @Nonnull FreezableList<OutboxEntry> entries = load(unit);
+        Log.debugging("Flushing $ entries from the outbox of the unit $.", entries.size(), unit);
+        int submitted = 0;
+        for (final @Nonnull OutboxEntry entry : entries) {
+            if (outbox.inFlight.contains(entry.getSequence())) { continue; }
+            try {
+                final @Nonnull Method<?> method = MethodIndex.get(entry.getAction(), NonHostEntity.with(unit, entry.getEntity()));
+                if (method instanceof InternalAction) {
+                    if (submit(outbox, (InternalAction) method, entry.getSequence(), false)) { submitted += 1; }
+                    continue;
+                }
+                Log.warning("Removing the entry $ from the outbox because the method $ is not an internal action.", entry.getSequence(), method);
+            } catch (@Nonnull RecoveryException | RequestException exception) {
+                Log.warning("Removing the entry $ from the outbox because its action could not be recovered.", exception, entry.getSequence());
+            }
+            remove(unit, entry.getSequence());
+        }
+        Database.commit();
+        outbox.flushed = true;
+        return submitted;
+    }
+    
+}
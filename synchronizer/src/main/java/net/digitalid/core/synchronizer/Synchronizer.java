@@ -15,12 +15,16 @@
  */
 package net.digitalid.core.synchronizer;
 
+import java.util.concurrent.CompletableFuture;
+
 import javax.annotation.Nonnull;
 
 import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.collections.list.FreezableArrayList;
+import net.digitalid.utility.collections.list.FreezableList;
+import net.digitalid.utility.collections.list.ReadOnlyList;
 import net.digitalid.utility.contracts.Require;
 import net.digitalid.utility.conversion.exceptions.RecoveryException;
-import net.digitalid.utility.exceptions.ExternalException;
 import net.digitalid.utility.logging.Log;
 import net.digitalid.utility.validation.annotations.type.Utility;
 
@@ -29,6 +33,7 @@ import net.digitalid.database.exceptions.DatabaseException;
 import net.digitalid.database.interfaces.Database;
 
 import net.digitalid.core.handler.method.action.InternalAction;
+import net.digitalid.core.packet.Response;
 import net.digitalid.core.unit.annotations.OnClient;
 
 /**
@@ -38,35 +43,58 @@ import net.digitalid.core.unit.annotations.OnClient;
 public abstract class Synchronizer extends Thread {
     
     /**
-     * Executes the given action on the client and queues it for delivery.
+     * Executes the given action on the client and queues it for delivery by the {@link AsynchronousSender}.
+     * The action is appended to the {@link Outbox outbox} in the same transaction so that it is resent after a restart.
      * In case the given action is not similar to itself, it is executed
      * only <em>after</em> being sent to the host. If the send method is
      * overridden by the given action, it is ignored by the synchronizer.
      * 
      * @param action the action which is to be executed and sent to the host.
      * 
+     * @return a future that is completed with the response of the host once the action has been sent.
+     * 
      * @require action.isOnClient() : "The internal action is on a client.";
      */
     @Impure
     @Committing
-    public static void execute(@Nonnull @OnClient InternalAction action) throws DatabaseException, RecoveryException {
-        Require.that(action.isOnClient()).orThrow("The internal action is on a client.");
-        
-        if (action.isSimilarTo(action)) { // TODO: Change this to something better understandable
-            Log.debugging("Execute and queue on the client the action " + action + ".");
-            action.executeOnClient();
+    public static @Nonnull CompletableFuture<Response> execute(@Nonnull @OnClient InternalAction action) throws DatabaseException, RecoveryException {
+        return execute(FreezableArrayList.withElement(action)).getFirst();
+    }
+    
+    /**
+     * Executes the given actions on the client and queues them for delivery by the {@link AsynchronousSender}.
+     * The actions are appended to the {@link Outbox outbox} in the same transaction, which is committed only once for all of them.
+     * If the execution or the commit fails, the transaction is rolled back and none of the actions is sent.
+     * 
+     * @param actions the actions which are to be executed and sent to the host.
+     * 
+     * @return the futures that are completed with the responses of the host in the order of the given actions.
+     * 
+     * @require for (InternalAction action : actions) action.isOnClient() : "Each internal action is on a client.";
+     */
+    @Impure
+    @Committing
+    public static @Nonnull ReadOnlyList<CompletableFuture<Response>> execute(@Nonnull ReadOnlyList<? extends @Nonnull @OnClient InternalAction> actions) throws DatabaseException, RecoveryException {
+        for (final @Nonnull InternalAction action : actions) {
+            Require.that(action.isOnClient()).orThrow("The internal action $ is on a client.", action);
         }
         
-        // TODO: Replace the following sending with SynchronizerModule.add(action);
+        final @Nonnull FreezableList<CompletableFuture<Response>> futures = FreezableArrayList.withInitialCapacity(actions.size());
         try {
-            action.send();
-        } catch (@Nonnull ExternalException exception) {
-            Log.error("Failed to send the action $ due to the following problem:", exception, action);
-            // throw UncheckedExceptionBuilder.withCause(exception).build();
+            for (final @Nonnull InternalAction action : actions) {
+                if (action.isSimilarTo(action)) { // TODO: Change this to something better understandable
+                    Log.debugging("Execute and queue on the client the action " + action + ".");
+                    action.executeOnClient();
+                }
+                futures.add(Outbox.append(action));
+            }
+            Database.commit();
+        } catch (@Nonnull DatabaseException | RecoveryException exception) {
+            AsynchronousSender.rollback();
+            for (int i = 0; i < futures.size(); i++) { Outbox.abandon(actions.get(i), futures.get(i), exception); }
+            throw exception;
         }
-        
-        Database.commit();
-        Thread.yield();
+        return futures.freeze();
     }
     
     // TODO:
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.synchronizer;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.collections.list.FreezableArrayList;
+import net.digitalid.utility.collections.list.FreezableList;
+import net.digitalid.utility.conversion.converters.StringConverter;
+import net.digitalid.utility.exceptions.ExternalException;
+import net.digitalid.utility.functional.failable.FailableUnaryFunction;
+import net.digitalid.utility.time.Time;
+
+import net.digitalid.database.interfaces.Database;
+
+import net.digitalid.core.audit.RequestAudit;
+import net.digitalid.core.audit.ResponseAudit;
+import net.digitalid.core.audit.module.ActionModule;
+import net.digitalid.core.identification.identity.SemanticType;
+import net.digitalid.core.identification.identity.SemanticTypeAttributesBuilder;
+import net.digitalid.core.identification.identity.SyntacticType;
+import net.digitalid.core.pack.Pack;
+import net.digitalid.core.testing.CoreTest;
+import net.digitalid.core.testing.fixtures.TestEntity;
+import net.digitalid.core.testing.fixtures.TestEntityBuilder;
+import net.digitalid.core.testing.fixtures.TestUnit;
+
+import org.junit.Test;
+
+public class AuditRetrieverTest extends CoreTest {
+    
+    /* -------------------------------------------------- Fixtures -------------------------------------------------- */
+    
+    private static final @Nonnull TestUnit HOST = TestUnit.with("audithost", true);
+    
+    private static final @Nonnull TestUnit CLIENT = TestUnit.with("auditclient", false);
+    
+    private static final @Nonnull SemanticType TYPE = SemanticType.map("audit.retriever@core.digitalid.net").load(SemanticTypeAttributesBuilder.withSyntacticBase(SyntacticType.BOOLEAN).build());
+    
+    private static final @Nonnull TestEntity ACCOUNT = TestEntityBuilder.withUnit(HOST).withKey(1).withIdentity(TYPE).build();
+    
+    private static final @Nonnull TestEntity ROLE = TestEntityBuilder.withUnit(CLIENT).withKey(1).withIdentity(TYPE).build();
+    
+    /**
+     * Stores the number of the next service so that each test audits its own service.
+     */
+    private static int services = 0;
+    
+    @Pure
+    private static @Nonnull SemanticType getService() {
+        return SemanticType.map("service" + services++ + ".audit.retriever@core.digitalid.net").load(SemanticTypeAttributesBuilder.withSyntacticBase(SyntacticType.BOOLEAN).build());
+    }
+    
+    /**
+     * Returns a source that queries the action log of the host and counts the requested pages.
+     */
+    @Pure
+    private static @Nonnull FailableUnaryFunction<@Nonnull RequestAudit, @Nonnull ResponseAudit, ExternalException> getSource(@Nonnull SemanticType service, @Nonnull FreezableList<@Nonnull Time> requests) {
+        return requestAudit -> {
+            requests.add(requestAudit.getLastTime());
+            return ActionModule.getAudit(ACCOUNT, service, requestAudit);
+        };
+    }
+    
+    /* -------------------------------------------------- Tests -------------------------------------------------- */
+    
+    @Test
+    public void shouldApplyTheAuditPageByPage() throws ExternalException {
+        final @Nonnull SemanticType service = getService();
+        for (int i = 0; i < 5; i++) { ActionModule.append(ACCOUNT, service, Pack.pack(StringConverter.INSTANCE, "action " + i)); }
+        Database.commit();
+        
+        final @Nonnull FreezableList<@Nonnull Time> requests = FreezableArrayList.withNoElements();
+        final @Nonnull FreezableList<@Nonnull String> applied = FreezableArrayList.withNoElements();
+        final @Nonnull Time lastTime = AuditRetriever.retrieve(ROLE, service, 2, Integer.MAX_VALUE, getSource(service, requests), action -> applied.add(action.unpack(StringConverter.INSTANCE, null)));
+        
+        assertThat(applied).containsExactly("action 0", "action 1", "action 2", "action 3", "action 4");
+        assertThat(requests).hasSize(3);
+        assertThat(AuditRetriever.getLastTime(ROLE, service)).isEqualTo(lastTime);
+    }
+    
+    @Test
+    public void shouldResumeAfterAnInterruptedPage() throws ExternalException {
+        final @Nonnull SemanticType service = getService();
+        for (int i = 0; i < 5; i++) { ActionModule.append(ACCOUNT, service, Pack.pack(StringConverter.INSTANCE, "action " + i)); }
+        Database.commit();
+        
+        final @Nonnull FreezableList<@Nonnull Time> requests = FreezableArrayList.withNoElements();
+        final @Nonnull FreezableList<@Nonnull String> applied = FreezableArrayList.withNoElements();
+        boolean interrupted = false;
+        try {
+            AuditRetriever.retrieve(ROLE, service, 2, Integer.MAX_VALUE, getSource(service, requests), action -> {
+                final @Nonnull String string = action.unpack(StringConverter.INSTANCE, null);
+                if (string.equals("action 3") && !applied.contains("interrupted")) {
+                    applied.add("interrupted");
+                    throw new IllegalStateException("The connection was interrupted.");
+                }
+                applied.add(string);
+            });
+        } catch (@Nonnull IllegalStateException exception) {
+            interrupted = true;
+        }
+        assertThat(interrupted).isTrue();
+        assertThat(applied).containsExactly("action 0", "action 1", "action 2", "interrupted");
+        
+        final @Nonnull Time interruptedTime = AuditRetriever.getLastTime(ROLE, service);
+        assertThat(interruptedTime).isEqualTo(requests.get(1));
+        
+        applied.remove("action 2"); // The effects of the interrupted page were rolled back.
+        requests.clear();
+        AuditRetriever.retrieve(ROLE, service, 2, Integer.MAX_VALUE, getSource(service, requests), action -> applied.add(action.unpack(StringConverter.INSTANCE, null)));
+        
+        assertThat(requests.get(0)).isEqualTo(interruptedTime);
+        assertThat(applied).containsExactly("action 0", "action 1", "interrupted", "action 2", "action 3", "action 4");
+    }
+    
+    @Test
+    public void shouldLimitThePagesByBytes() throws ExternalException {
+        final @Nonnull SemanticType service = getService();
+        final @Nonnull Time lastTime = ActionModule.getAudit(ACCOUNT, service, Time.MIN).getThisTime();
+        for (int i = 0; i < 3; i++) { ActionModule.append(ACCOUNT, service, Pack.pack(StringConverter.INSTANCE, "action " + i)); }
+        Database.commit();
+        
+        final @Nonnull ResponseAudit firstPage = ActionModule.getAudit(ACCOUNT, service, lastTime, 10, 1);
+        assertThat(firstPage.getTrail()).hasSize(1);
+        assertThat(firstPage.isComplete()).isFalse();
+        
+        final @Nonnull ResponseAudit secondPage = ActionModule.getAudit(ACCOUNT, service, firstPage.getThisTime(), 10, Integer.MAX_VALUE);
+        assertThat(secondPage.getTrail()).hasSize(2);
+        assertThat(secondPage.isComplete()).isTrue();
+    }
+    
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.synchronizer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.collections.list.FreezableList;
+import net.digitalid.utility.conversion.converters.StringConverter;
+import net.digitalid.utility.exceptions.ExternalException;
+import net.digitalid.utility.logging.Log;
+
+import net.digitalid.database.exceptions.DatabaseException;
+import net.digitalid.database.interfaces.Database;
+
+import net.digitalid.core.entity.factories.RoleFactory;
+import net.digitalid.core.handler.method.MethodIndex;
+import net.digitalid.core.identification.identity.SemanticType;
+import net.digitalid.core.identification.identity.SemanticTypeAttributesBuilder;
+import net.digitalid.core.identification.identity.SyntacticType;
+import net.digitalid.core.pack.Pack;
+import net.digitalid.core.packet.Response;
+import net.digitalid.core.testing.CoreTest;
+import net.digitalid.core.testing.fixtures.TestEntity;
+import net.digitalid.core.testing.fixtures.TestEntityBuilder;
+import net.digitalid.core.testing.fixtures.TestUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class OutboxTest extends CoreTest {
+    
+    /* -------------------------------------------------- Fixtures -------------------------------------------------- */
+    
+    private static final @Nonnull TestUnit UNIT = TestUnit.with("outbox", false);
+    
+    private static final @Nonnull SemanticType TYPE = SemanticType.map("outbox@core.digitalid.net").load(SemanticTypeAttributesBuilder.withSyntacticBase(SyntacticType.BOOLEAN).build());
+    
+    private static final @Nonnull TestEntity ENTITY = TestEntityBuilder.withUnit(UNIT).withKey(1).withIdentity(TYPE).build();
+    
+    /**
+     * Returns the test entity with the same key as the entity of the outbox tests in the given unit.
+     */
+    @Pure
+    private static @Nonnull TestEntity entity(@Nonnull TestUnit unit) {
+        return TestEntityBuilder.withUnit(unit).withKey(ENTITY.getKey()).withIdentity(TYPE).build();
+    }
+    
+    /**
+     * Returns a new test action with the given message on the given entity.
+     */
+    @Pure
+    private static @Nonnull TestInternalAction action(@Nonnull TestEntity entity, @Nonnull String message) {
+        return TestInternalActionBuilder.withMessage(message).withProvidedEntity(entity).build();
+    }
+    
+    /**
+     * Removes all entries from the outbox of the test unit.
+     */
+    @Impure
+    private static void clear() throws ExternalException {
+        for (final @Nonnull OutboxEntry entry : Outbox.load(UNIT)) { Outbox.remove(UNIT, entry.getSequence()); }
+        Database.commit();
+    }
+    
+    /* -------------------------------------------------- Tests -------------------------------------------------- */
+    
+    @Test
+    public void shouldLoadEntriesInOrderOfAppending() throws ExternalException {
+        clear();
+        final long first = Outbox.append(ENTITY, Pack.pack(StringConverter.INSTANCE, "first"));
+        final long second = Outbox.append(ENTITY, Pack.pack(StringConverter.INSTANCE, "second"));
+        final long third = Outbox.append(ENTITY, Pack.pack(StringConverter.INSTANCE, "third"));
+        Database.commit();
+        
+        assertThat(second).isGreaterThan(first);
+        assertThat(third).isGreaterThan(second);
+        
+        final @Nonnull FreezableList<OutboxEntry> entries = Outbox.load(UNIT);
+        assertThat(entries).extracting(OutboxEntry::getSequence).containsExactly(first, second, third);
+        assertThat(entries.get(0).getEntity()).isEqualTo(ENTITY.getKey());
+        assertThat(entries.get(1).getAction().unpack(StringConverter.INSTANCE, null)).isEqualTo("second");
+    }
+    
+    @Test
+    public void shouldRemoveEntries() throws ExternalException {
+        clear();
+        final long first = Outbox.append(ENTITY, Pack.pack(StringConverter.INSTANCE, "first"));
+        final long second = Outbox.append(ENTITY, Pack.pack(StringConverter.INSTANCE, "second"));
+        Database.commit();
+        
+        Outbox.remove(UNIT, first);
+        Database.commit();
+        
+        assertThat(Outbox.load(UNIT)).extracting(OutboxEntry::getSequence).containsExactly(second);
+    }
+    
+    @Test
+    public void shouldOnlyKeepCommittedEntries() throws ExternalException {
+        clear();
+        Outbox.append(ENTITY, Pack.pack(StringConverter.INSTANCE, "rolled back"));
+        Database.rollback();
+        final long committed = Outbox.append(ENTITY, Pack.pack(StringConverter.INSTANCE, "committed"));
+        Database.commit();
+        
+        assertThat(Outbox.load(UNIT)).extracting(OutboxEntry::getSequence).containsExactly(committed);
+    }
+    
+    @Test
+    public void shouldTakeSequenceNumbersFromTheDatabase() throws ExternalException {
+        clear();
+        final long first = Outbox.append(ENTITY, Pack.pack(StringConverter.INSTANCE, "first"));
+        Database.commit();
+        final long rolledBack = Outbox.append(ENTITY, Pack.pack(StringConverter.INSTANCE, "rolled back"));
+        Database.rollback();
+        final long second = Outbox.append(ENTITY, Pack.pack(StringConverter.INSTANCE, "second"));
+        Database.commit();
+        
+        assertThat(rolledBack).isGreaterThan(first);
+        assertThat(second).isEqualTo(rolledBack);
+        assertThat(Outbox.load(UNIT)).extracting(OutboxEntry::getSequence).containsExactly(first, second);
+    }
+    
+    @Test
+    public void shouldContinueAfterRemovedEntries() throws ExternalException {
+        clear();
+        final long first = Outbox.append(ENTITY, Pack.pack(StringConverter.INSTANCE, "first"));
+        Database.commit();
+        clear();
+        final long second = Outbox.append(ENTITY, Pack.pack(StringConverter.INSTANCE, "second"));
+        Database.commit();
+        
+        assertThat(second).isGreaterThan(first);
+    }
+    
+    @Test
+    public void shouldAssignDistinctSequenceNumbersToConcurrentAppends() throws ExternalException, InterruptedException {
+        final @Nonnull TestUnit unit = TestUnit.with("outboxconcurrent", false);
+        final @Nonnull TestEntity entity = entity(unit);
+        final int threads = 4;
+        final int appends = 25;
+        final @Nonnull Set<@Nonnull Long> sequences = ConcurrentHashMap.newKeySet();
+        final @Nonnull AtomicInteger failures = new AtomicInteger();
+        final @Nonnull ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int thread = 0; thread < threads; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < appends; i++) {
+                    try {
+                        sequences.add(Outbox.append(entity, Pack.pack(StringConverter.INSTANCE, "concurrent")));
+                        Database.commit();
+                    } catch (@Nonnull ExternalException exception) {
+                        Log.warning("The concurrent append failed.", exception);
+                        failures.incrementAndGet();
+                        try {
+                            Database.rollback();
+                        } catch (@Nonnull DatabaseException rollbackException) {
+                            Log.warning("Could not roll back the transaction.", rollbackException);
+                        }
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+        
+        assertThat(failures.get()).isZero();
+        assertThat(sequences).hasSize(threads * appends);
+        assertThat(Outbox.load(unit)).extracting(OutboxEntry::getSequence).containsExactlyInAnyOrderElementsOf(sequences);
+    }
+    
+    /* -------------------------------------------------- Flushing -------------------------------------------------- */
+    
+    /**
+     * Stores the sequence numbers of the entries that were passed to the sender in the order in which they were passed.
+     */
+    private static final @Nonnull List<@Nonnull Long> sent = new CopyOnWriteArrayList<>();
+    
+    /**
+     * Stores the futures that were returned by the sender, which keep the entries in flight until they are completed.
+     */
+    private static final @Nonnull List<@Nonnull CompletableFuture<Response>> futures = new CopyOnWriteArrayList<>();
+    
+    @Impure
+    @BeforeClass
+    public static void registerTestAction() {
+        MethodIndex.add(TestInternalActionConverter.INSTANCE);
+        RoleFactory.configuration.set((client, key) -> TestEntityBuilder.withUnit(client).withKey(key).withIdentity(TYPE).build());
+    }
+    
+    @Impure
+    @Before
+    public void replaceSender() {
+        sent.clear();
+        futures.clear();
+        Outbox.sender.set((action, sequence) -> {
+            final @Nonnull CompletableFuture<Response> future = new CompletableFuture<>();
+            sent.add(sequence);
+            futures.add(future);
+            return future;
+        });
+    }
+    
+    @Impure
+    @After
+    public void restoreSender() {
+        for (final @Nonnull CompletableFuture<Response> future : futures) { future.complete(null); }
+        Outbox.sender.set(AsynchronousSender::send);
+    }
+    
+    @Test
+    public void shouldDrainTheEntriesInTheOrderOfTheirSequenceNumbers() throws ExternalException, InterruptedException, ExecutionException {
+        final @Nonnull TestUnit unit = TestUnit.with("outboxdrain", false);
+        final @Nonnull TestEntity entity = entity(unit);
+        final @Nonnull List<@Nonnull Long> sequences = new ArrayList<>();
+        for (int i = 0; i < 5; i++) { sequences.add(Outbox.append(entity, action(entity, "Action " + i).pack())); }
+        Outbox.remove(unit, sequences.remove(1));
+        Database.commit();
+        
+        assertThat(Outbox.flush(unit).get()).isEqualTo(4);
+        assertThat(sent).containsExactlyElementsOf(sequences);
+        
+        // The entries which are still in flight are not passed to the sender again.
+        assertThat(Outbox.flush(unit).get()).isZero();
+        assertThat(sent).hasSize(4);
+    }
+    
+    @Test
+    public void shouldResendEarlierEntriesBeforeTheFirstAction() throws ExternalException, InterruptedException, ExecutionException {
+        final @Nonnull TestUnit unit = TestUnit.with("outboxresend", false);
+        final @Nonnull TestEntity entity = entity(unit);
+        final long first = Outbox.append(entity, action(entity, "Earlier 1").pack());
+        final long second = Outbox.append(entity, action(entity, "Earlier 2").pack());
+        Database.commit();
+        
+        final @Nonnull CompletableFuture<Response> future = Outbox.append(action(entity, "Later"));
+        Database.commit();
+        // As the flusher drains the outboxes one after the other, this flush waits for the one triggered by the appended action.
+        assertThat(Outbox.flush(unit).get()).isZero();
+        
+        assertThat(sent).hasSize(3);
+        assertThat(sent.subList(0, 2)).containsExactly(first, second);
+        assertThat(Outbox.load(unit)).extracting(OutboxEntry::getSequence).containsExactlyElementsOf(sent);
+        assertThat(future).isNotDone();
+        futures.get(2).complete(null);
+        assertThat(future).isDone();
+    }
+    
+    @Test
+    public void shouldResendTheEntriesOfAStalledOutboxInTheirOrder() throws ExternalException, InterruptedException, ExecutionException {
+        final @Nonnull TestUnit unit = TestUnit.with("outboxstall", false);
+        final @Nonnull TestEntity entity = entity(unit);
+        final long first = Outbox.append(entity, action(entity, "Stalled 1").pack());
+        final long second = Outbox.append(entity, action(entity, "Stalled 2").pack());
+        final long third = Outbox.append(entity, action(entity, "Stalled 3").pack());
+        Database.commit();
+        
+        assertThat(Outbox.flush(unit).get()).isEqualTo(3);
+        for (final @Nonnull CompletableFuture<Response> future : futures) { future.completeExceptionally(new IllegalStateException("The host is not reachable.")); }
+        Outbox.stall(unit);
+        sent.clear();
+        futures.clear();
+        
+        Outbox.resume();
+        assertThat(Outbox.flush(unit).get()).isZero();
+        assertThat(sent).containsExactly(first, second, third);
+    }
+    
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.synchronizer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
+import net.digitalid.utility.generator.annotations.generators.GenerateConverter;
+import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.storage.Storage;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+import net.digitalid.database.annotations.transaction.NonCommitting;
+
+import net.digitalid.core.entity.NonHostEntity;
+import net.digitalid.core.handler.method.CoreMethod;
+import net.digitalid.core.handler.method.action.Action;
+import net.digitalid.core.handler.method.action.InternalAction;
+import net.digitalid.core.service.CoreService;
+
+/**
+ * A test internal action carries a message and has no effect so that it can be appended to and recovered from the outbox.
+ */
+@Immutable
+@GenerateBuilder
+@GenerateSubclass
+@GenerateConverter
+public abstract class TestInternalAction extends InternalAction implements CoreMethod<NonHostEntity> {
+    
+    /* -------------------------------------------------- Fields -------------------------------------------------- */
+    
+    /**
+     * Returns the message of this action.
+     */
+    @Pure
+    public abstract @Nonnull String getMessage();
+    
+    /* -------------------------------------------------- Execution -------------------------------------------------- */
+    
+    @Override
+    @NonCommitting
+    @PureWithSideEffects
+    protected void executeOnBoth() {}
+    
+    /* -------------------------------------------------- Reversion -------------------------------------------------- */
+    
+    @Pure
+    @Override
+    public boolean interferesWith(@Nonnull Action action) {
+        return false;
+    }
+    
+    @Pure
+    @Override
+    public @Nullable InternalAction getReverse() {
+        return null;
+    }
+    
+    /* -------------------------------------------------- Storage -------------------------------------------------- */
+    
+    @Pure
+    @Override
+    public @Nonnull Storage getStorage() {
+        return CoreService.INSTANCE.getModule();
+    }
+    
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.testing.fixtures;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
+import net.digitalid.utility.generator.annotations.generators.GenerateConverter;
+import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+import net.digitalid.database.annotations.constraints.PrimaryKey;
+import net.digitalid.database.annotations.transaction.NonCommitting;
+import net.digitalid.database.conversion.SQL;
+import net.digitalid.database.exceptions.DatabaseException;
+
+import net.digitalid.core.entity.NonHostEntity;
+import net.digitalid.core.entity.NonHostEntityConverter;
+import net.digitalid.core.identification.identity.InternalNonHostIdentity;
+import net.digitalid.core.unit.CoreUnit;
+
+/**
+ * A test entity is a non-host entity with a given key and identity in a {@link TestUnit test unit}, to which the subjects of the tested modules belong.
+ */
+@Immutable
+@GenerateBuilder
+@GenerateSubclass
+@GenerateConverter
+public interface TestEntity extends NonHostEntity {
+    
+    @Pure
+    @Override
+    @PrimaryKey
+    public long getKey();
+    
+    @Pure
+    @Override
+    // TODO: The generated builder cannot handle this: @NonRepresentative
+    public @Nonnull InternalNonHostIdentity getIdentity();
+    
+    /**
+     * Creates the table of the non-host entities in the given unit and inserts the given entities into it.
+     */
+    @Impure
+    @NonCommitting
+    public static void createTable(@Nonnull CoreUnit unit, @Nonnull NonHostEntity... entities) throws DatabaseException {
+        SQL.createTable(NonHostEntityConverter.INSTANCE, unit);
+        for (final @Nonnull NonHostEntity entity : entities) { SQL.insertOrAbort(NonHostEntityConverter.INSTANCE, entity, unit); }
+    }
+    
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.testing.fixtures;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.exceptions.ExternalException;
+import net.digitalid.utility.exceptions.UncheckedExceptionBuilder;
+import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
+import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+import net.digitalid.core.unit.CoreUnit;
+
+/**
+ * A test unit is a host or a client unit in which test cases and benchmarks create the tables of the modules that they exercise.
+ * Each test case should use a unit with its own name so that its tables do not interfere with the tables of other test cases.
+ * 
+ * @see TestEntity
+ */
+@Immutable
+@GenerateBuilder
+@GenerateSubclass
+public abstract class TestUnit extends CoreUnit {
+    
+    /**
+     * Returns a new test unit with the given name, which is a host unit if the given value is true and a client unit otherwise.
+     */
+    @Pure
+    public static @Nonnull TestUnit with(@Nonnull String name, boolean host) {
+        try {
+            return TestUnitBuilder.withName(name).withHost(host).withClient(!host).build();
+        } catch (@Nonnull ExternalException exception) {
+            throw UncheckedExceptionBuilder.withCause(exception).build();
+        }
+    }
+    
+}
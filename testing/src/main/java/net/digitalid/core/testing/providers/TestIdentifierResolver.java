@@ -16,8 +16,8 @@
 package net.digitalid.core.testing.providers;
 
 import java.sql.SQLException;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
 
 import javax.annotation.Nonnull;
@@ -25,6 +25,10 @@ import javax.annotation.Nullable;
 
 import net.digitalid.utility.annotations.method.Pure;
 import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.annotations.ownership.Capturable;
+import net.digitalid.utility.collections.list.FreezableArrayList;
+import net.digitalid.utility.collections.list.FreezableList;
+import net.digitalid.utility.freezable.annotations.NonFrozen;
 import net.digitalid.utility.generator.annotations.generators.GenerateBuilder;
 import net.digitalid.utility.generator.annotations.generators.GenerateSubclass;
 import net.digitalid.utility.validation.annotations.type.Immutable;
@@ -50,7 +54,7 @@ public class TestIdentifierResolver extends IdentifierResolver {
     
     /* -------------------------------------------------- Key Loading -------------------------------------------------- */
     
-    private static final @Nonnull Map<@Nonnull Long, @Nonnull Identity> keys = new HashMap<>();
+    private static final @Nonnull Map<@Nonnull Long, @Nonnull Identity> keys = new ConcurrentHashMap<>();
     
     @Pure
     @Override
@@ -62,7 +66,7 @@ public class TestIdentifierResolver extends IdentifierResolver {
     
     /* -------------------------------------------------- Identifier Loading -------------------------------------------------- */
     
-    private static final @Nonnull Map<@Nonnull Identifier, @Nonnull Identity> identifiers = new HashMap<>();
+    private static final @Nonnull Map<@Nonnull Identifier, @Nonnull Identity> identifiers = new ConcurrentHashMap<>();
     
     @Override
     @NonCommitting
@@ -71,6 +75,19 @@ public class TestIdentifierResolver extends IdentifierResolver {
         return identifiers.get(identifier);
     }
     
+    /* -------------------------------------------------- Bulk Loading -------------------------------------------------- */
+    
+    @Override
+    @NonCommitting
+    @PureWithSideEffects
+    public @Capturable @Nonnull @NonFrozen FreezableList<@Nonnull Identity> loadAll(@Nonnull Category category) {
+        final @Nonnull FreezableList<@Nonnull Identity> identities = FreezableArrayList.withNoElements();
+        for (final @Nonnull Identity identity : keys.values()) {
+            if (identity.getCategory() == category) { identities.add(identity); }
+        }
+        return identities;
+    }
+    
     /* -------------------------------------------------- Identifier Mapping -------------------------------------------------- */
     
     @Override
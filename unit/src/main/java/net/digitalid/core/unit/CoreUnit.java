@@ -15,14 +15,19 @@
  */
 package net.digitalid.core.unit;
 
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
 import javax.annotation.Nonnull;
 
 import net.digitalid.utility.annotations.method.CallSuper;
+import net.digitalid.utility.annotations.method.Impure;
 import net.digitalid.utility.annotations.method.Pure;
 import net.digitalid.utility.contracts.Validate;
 import net.digitalid.utility.conversion.exceptions.ConversionException;
 import net.digitalid.utility.rootclass.RootClassWithException;
 import net.digitalid.utility.storage.Module;
+import net.digitalid.utility.storage.Table;
 import net.digitalid.utility.storage.interfaces.Unit;
 import net.digitalid.utility.validation.annotations.type.Immutable;
 
@@ -60,6 +65,22 @@ public abstract class CoreUnit extends RootClassWithException<ConversionExceptio
      */
     public static final @Nonnull Module MODULE = CoreModuleBuilder.withName("unit").build();
     
+    /* -------------------------------------------------- Tables -------------------------------------------------- */
+    
+    /**
+     * Stores the tables which have to be created on each unit but do not belong to a module.
+     */
+    private static final @Nonnull Set<@Nonnull Table<?, ?>> tables = new CopyOnWriteArraySet<>();
+    
+    /**
+     * Adds the given table to the tables which are created on each unit.
+     * This method has to be called in an initializer so that the table is added before the first unit is created.
+     */
+    @Impure
+    public static void addTable(@Nonnull Table<?, ?> table) {
+        tables.add(table);
+    }
+    
     /* -------------------------------------------------- Initialization -------------------------------------------------- */
     
     @Pure
@@ -71,6 +92,7 @@ public abstract class CoreUnit extends RootClassWithException<ConversionExceptio
         
         Database.instance.get().execute(SQLCreateSchemaStatementBuilder.build(), this); // TODO: Make the Unit a class with a builder once it can be above the generator again and move this line to the initialize method there.
         MODULE.accept(table -> SQL.createTable(table, this));
+        for (final @Nonnull Table<?, ?> table : tables) { SQL.createTable(table, this); }
         Database.commit();
     }
     
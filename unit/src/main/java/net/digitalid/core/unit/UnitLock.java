@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.core.unit;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.PureWithSideEffects;
+import net.digitalid.utility.immutable.ImmutableList;
+import net.digitalid.utility.storage.Table;
+import net.digitalid.utility.validation.annotations.type.Utility;
+
+import net.digitalid.database.annotations.transaction.NonCommitting;
+import net.digitalid.database.dialect.expression.number.SQLLongLiteralBuilder;
+import net.digitalid.database.dialect.identifier.column.SQLColumnName;
+import net.digitalid.database.dialect.identifier.column.SQLColumnNameBuilder;
+import net.digitalid.database.dialect.identifier.schema.SQLSchemaNameBuilder;
+import net.digitalid.database.dialect.identifier.table.SQLExplicitlyQualifiedTableBuilder;
+import net.digitalid.database.dialect.identifier.table.SQLQualifiedTable;
+import net.digitalid.database.dialect.identifier.table.SQLTableNameBuilder;
+import net.digitalid.database.dialect.statement.update.SQLAssignment;
+import net.digitalid.database.dialect.statement.update.SQLAssignmentBuilder;
+import net.digitalid.database.dialect.statement.update.SQLUpdateStatement;
+import net.digitalid.database.dialect.statement.update.SQLUpdateStatementBuilder;
+import net.digitalid.database.exceptions.DatabaseException;
+import net.digitalid.database.interfaces.Database;
+
+/**
+ * The unit lock serializes the transactions that read and then write the same row of a table in a unit, such as the counters of sequence numbers.
+ * As the row is locked by the database until the end of the transaction, the transactions are serialized even if they are executed in different processes.
+ */
+@Utility
+public abstract class UnitLock {
+    
+    /* -------------------------------------------------- Locking -------------------------------------------------- */
+    
+    /**
+     * Locks the rows of the given table in the given unit whose given column has the given value until the current transaction is committed or rolled back.
+     * The rows are locked by assigning the column its own value, which makes concurrent transactions that lock the same rows wait for the current transaction.
+     * The rows have to exist already, which is why a counter has to be inserted (or ignored) before it is locked.
+     */
+    @NonCommitting
+    @PureWithSideEffects
+    public static void lock(@Nonnull Table<?, ?> table, @Nonnull CoreUnit unit, @Nonnull String column, long value) throws DatabaseException {
+        final @Nonnull SQLQualifiedTable qualifiedTable = SQLExplicitlyQualifiedTableBuilder.withTable(SQLTableNameBuilder.withString(table.getTypeName()).build()).withSchema(SQLSchemaNameBuilder.withString(unit.getName()).build()).build();
+        final @Nonnull SQLColumnName columnName = SQLColumnNameBuilder.withString(column).build();
+        final @Nonnull SQLAssignment assignment = SQLAssignmentBuilder.withColumn(columnName).withExpression(columnName).build();
+        final @Nonnull SQLUpdateStatement updateStatement = SQLUpdateStatementBuilder.withTable(qualifiedTable).withAssignments(ImmutableList.withElements(assignment)).withWhereClause(columnName.equal(SQLLongLiteralBuilder.withValue(value).build())).build();
+        Database.instance.get().getEncoder(updateStatement, unit).execute();
+    }
+    
+}